@@ -0,0 +1,94 @@
+package io.github.openpaydev.mpesa;
+
+import io.github.openpaydev.mpesa.core.MpesaConfig;
+import io.github.openpaydev.mpesa.core.MpesaEnvironment;
+import io.github.openpaydev.mpesa.core.exceptions.MpesaException;
+import io.github.openpaydev.mpesa.core.models.StkPushRequest;
+import io.github.openpaydev.mpesa.core.models.StkPushResponse;
+import io.github.openpaydev.mpesa.core.models.StkStatusQueryResponse;
+import io.github.openpaydev.mpesa.resilience.StkQueryCachePolicy;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures a full client call, from request model to response model, against a stubbed HTTP layer:
+ * field population, JSON encoding, the OkHttp call and interceptor chain, and response decoding.
+ * {@code queryStkStatusCached} measures a status query answered from the query cache instead.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MpesaClientBenchmark {
+
+  private static final String STK_PUSH_RESPONSE =
+      "{\"MerchantRequestID\":\"29115-34620561-1\","
+          + "\"CheckoutRequestID\":\"ws_CO_191220191020363925\","
+          + "\"ResponseCode\":\"0\","
+          + "\"ResponseDescription\":\"Success. Request accepted for processing\","
+          + "\"CustomerMessage\":\"Success. Request accepted for processing\"}";
+
+  private static final String STK_QUERY_RESPONSE =
+      "{\"ResponseCode\":\"0\","
+          + "\"ResponseDescription\":\"The service request has been accepted successsfully\","
+          + "\"MerchantRequestID\":\"22205-34066-1\","
+          + "\"CheckoutRequestID\":\"ws_CO_13012021093521236557\","
+          + "\"ResultCode\":\"0\","
+          + "\"ResultDesc\":\"The service request is processed successfully.\"}";
+
+  private MpesaClient stkPushClient;
+  private MpesaClient stkQueryClient;
+  private MpesaClient cachedStkQueryClient;
+  private StkPushRequest request;
+
+  @Setup
+  public void setUp() {
+    MpesaConfig config =
+        MpesaConfig.builder()
+            .consumerKey("key")
+            .consumerSecret("secret")
+            .businessShortCode("174379")
+            .passKey("bfb279f9aa9bdbcf158e97dd71a467cd2e0c893059b10f78e6b72ada1ed2c919")
+            .environment(MpesaEnvironment.SANDBOX)
+            .build();
+
+    stkPushClient = new MpesaClient(config, () -> "token", StubHttp.client(STK_PUSH_RESPONSE));
+    stkQueryClient =
+        new MpesaClient(
+            config,
+            () -> "token",
+            StubHttp.client(STK_QUERY_RESPONSE),
+            MpesaClientOptions.builder().stkQueryCache(StkQueryCachePolicy.disabled()).build());
+    cachedStkQueryClient =
+        new MpesaClient(config, () -> "token", StubHttp.client(STK_QUERY_RESPONSE));
+    request =
+        StkPushRequest.newPayBillRequest(
+            "1", "0712345678", "INV-001", "Payment", "https://example.com/callback");
+  }
+
+  @Benchmark
+  public StkPushResponse stkPush() throws MpesaException {
+    return stkPushClient.stkPush(request);
+  }
+
+  @Benchmark
+  public StkStatusQueryResponse queryStkStatus() throws MpesaException {
+    return stkQueryClient.queryStkStatus("ws_CO_13012021093521236557");
+  }
+
+  @Benchmark
+  public StkStatusQueryResponse queryStkStatusCached() throws MpesaException {
+    return cachedStkQueryClient.queryStkStatus("ws_CO_13012021093521236557");
+  }
+}
@@ -0,0 +1,71 @@
+package io.github.openpaydev.mpesa;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.github.openpaydev.mpesa.core.models.StkPushRequest;
+import io.github.openpaydev.mpesa.core.utils.MpesaUtils;
+import io.github.openpaydev.mpesa.core.utils.StkCredentialProvider;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import okio.Buffer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the bytes-on-the-wire cost of an STK Push body: the old copy-then-serialize path
+ * against {@link StkPushRequestEncoder}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StkPushRequestEncoderBenchmark {
+
+  private static final String SHORT_CODE = "174379";
+  private static final String PHONE_NUMBER = "254712345678";
+
+  private final ObjectMapper objectMapper = new ObjectMapper();
+
+  private final StkCredentialProvider.Credentials credentials =
+      new StkCredentialProvider.Credentials(
+          "20251021105921",
+          MpesaUtils.generatePassword(
+              SHORT_CODE,
+              "bfb279f9aa9bdbcf158e97dd71a467cd2e0c893059b10f78e6b72ada1ed2c919",
+              "20251021105921"));
+
+  private final StkPushRequest userRequest =
+      StkPushRequest.newPayBillRequest(
+          "1", "0712345678", "INV-001", "Payment", "https://example.com/callback");
+
+  @Benchmark
+  public byte[] copyAndSerialize() throws JsonProcessingException {
+    StkPushRequest apiRequest =
+        userRequest.toBuilder()
+            .businessShortCode(SHORT_CODE)
+            .password(credentials.getPassword())
+            .timestamp(credentials.getTimestamp())
+            .partyA(PHONE_NUMBER)
+            .partyB(SHORT_CODE)
+            .phoneNumber(PHONE_NUMBER)
+            .build();
+    return objectMapper.writeValueAsString(apiRequest).getBytes(StandardCharsets.UTF_8);
+  }
+
+  @Benchmark
+  public byte[] encodeDirect() {
+    Buffer buffer = new Buffer();
+    StkPushRequestEncoder.encode(
+        userRequest, SHORT_CODE, credentials, PHONE_NUMBER, PHONE_NUMBER, buffer);
+    return buffer.readByteArray();
+  }
+}
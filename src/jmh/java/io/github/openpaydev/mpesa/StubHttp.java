@@ -0,0 +1,41 @@
+package io.github.openpaydev.mpesa;
+
+import java.nio.charset.StandardCharsets;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+
+/**
+ * An in-process stand-in for the Daraja API. Requests are answered by an application interceptor
+ * with a canned JSON body, so benchmarks measure the SDK's own request and response handling
+ * without any socket I/O.
+ */
+public final class StubHttp {
+
+  private static final MediaType JSON = MediaType.get("application/json; charset=utf-8");
+
+  private StubHttp() {}
+
+  /**
+   * Creates a client that answers every request with {@code 200 OK} and the given body.
+   *
+   * @param responseBody The JSON returned for every call.
+   * @return A client that never touches the network.
+   */
+  public static OkHttpClient client(String responseBody) {
+    byte[] body = responseBody.getBytes(StandardCharsets.UTF_8);
+    return new OkHttpClient.Builder()
+        .addInterceptor(
+            chain ->
+                new Response.Builder()
+                    .request(chain.request())
+                    .protocol(Protocol.HTTP_1_1)
+                    .code(200)
+                    .message("OK")
+                    .body(ResponseBody.create(body, JSON))
+                    .build())
+        .build();
+  }
+}
@@ -0,0 +1,71 @@
+package io.github.openpaydev.mpesa.auth;
+
+import io.github.openpaydev.mpesa.StubHttp;
+import io.github.openpaydev.mpesa.core.MpesaConfig;
+import io.github.openpaydev.mpesa.core.MpesaEnvironment;
+import io.github.openpaydev.mpesa.core.exceptions.MpesaAuthException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures {@link MpesaTokenManager#getAccessToken()} with 1, 16 and 256 threads sharing one
+ * manager. With {@code expiresIn=3599} every call is a cached read; with {@code expiresIn=61} the
+ * token enters the one-minute expiry buffer after a second, so a refresh races with the readers
+ * about once per second.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MpesaTokenManagerBenchmark {
+
+  @Param({"3599", "61"})
+  public long expiresIn;
+
+  private MpesaTokenManager tokenManager;
+
+  @Setup
+  public void setUp() throws MpesaAuthException {
+    MpesaConfig config =
+        MpesaConfig.builder()
+            .consumerKey("key")
+            .consumerSecret("secret")
+            .environment(MpesaEnvironment.SANDBOX)
+            .build();
+    String tokenResponse =
+        "{\"access_token\":\"benchmark-token\",\"expires_in\":\"" + expiresIn + "\"}";
+    tokenManager = new MpesaTokenManager(config, StubHttp.client(tokenResponse));
+    tokenManager.getAccessToken();
+  }
+
+  @Benchmark
+  @Threads(1)
+  public String singleThread() throws MpesaAuthException {
+    return tokenManager.getAccessToken();
+  }
+
+  @Benchmark
+  @Threads(16)
+  public String sixteenThreads() throws MpesaAuthException {
+    return tokenManager.getAccessToken();
+  }
+
+  @Benchmark
+  @Threads(256)
+  public String twoHundredFiftySixThreads() throws MpesaAuthException {
+    return tokenManager.getAccessToken();
+  }
+}
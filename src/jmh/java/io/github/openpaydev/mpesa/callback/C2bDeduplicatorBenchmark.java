@@ -0,0 +1,65 @@
+package io.github.openpaydev.mpesa.callback;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Checking a confirmation's TransID against the dedup filter, with all threads sharing one filter.
+ * {@code redelivery} looks up IDs that are already recorded. {@code newId} records IDs from a pool
+ * four times larger than the filter holds, so that each has been rotated out before it comes round
+ * again.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+public class C2bDeduplicatorBenchmark {
+
+  private static final int IDS = 1 << 16;
+  private static final int FRESH_IDS = 1 << 20;
+  private static final int MAX_ENTRIES = FRESH_IDS / 8;
+
+  private final AtomicInteger next = new AtomicInteger();
+  private String[] recorded;
+  private String[] fresh;
+  private C2bDeduplicator deduplicator;
+
+  @Setup
+  public void setUp() {
+    deduplicator = C2bDeduplicator.create(Duration.ofHours(1), MAX_ENTRIES);
+    recorded = new String[IDS];
+    for (int i = 0; i < IDS; i++) {
+      recorded[i] = "RKT" + Integer.toString(i, 36).toUpperCase() + "W6S";
+      deduplicator.firstSeen(recorded[i]);
+    }
+    fresh = new String[FRESH_IDS];
+    for (int i = 0; i < FRESH_IDS; i++) {
+      fresh[i] = "QLU" + Integer.toString(i, 36).toUpperCase() + "X7T";
+    }
+  }
+
+  @Benchmark
+  public boolean redelivery() {
+    return deduplicator.firstSeen(recorded[next.getAndIncrement() & (IDS - 1)]);
+  }
+
+  @Benchmark
+  public boolean newId() {
+    return deduplicator.firstSeen(fresh[next.getAndIncrement() & (FRESH_IDS - 1)]);
+  }
+}
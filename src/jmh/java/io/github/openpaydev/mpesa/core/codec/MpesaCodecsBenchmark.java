@@ -0,0 +1,104 @@
+package io.github.openpaydev.mpesa.core.codec;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.github.openpaydev.mpesa.core.models.StkPushRequest;
+import io.github.openpaydev.mpesa.core.models.StkPushResponse;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Steady-state cost of a request/response round of JSON work through a per-call {@code
+ * ObjectMapper} lookup, through the pre-resolved {@link MpesaCodecs}, and through codecs with
+ * Blackbird registered. {@link Cold} measures the same work as the very first call in a fresh JVM.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MpesaCodecsBenchmark {
+
+  static final StkPushRequest REQUEST =
+      StkPushRequest.builder()
+          .businessShortCode("174379")
+          .password("MTc0Mzc5YmZiMjc5ZjlhYTliZGJjZjE1OGU5N2RkNzFhNDY3Y2QyZTBjODkzMDU5")
+          .timestamp("20251021105921")
+          .transactionType("CustomerPayBillOnline")
+          .amount("1")
+          .partyA("254712345678")
+          .partyB("174379")
+          .phoneNumber("254712345678")
+          .callBackURL("https://example.com/callback")
+          .accountReference("INV-001")
+          .transactionDesc("Payment")
+          .build();
+
+  static final byte[] RESPONSE =
+      ("{\"MerchantRequestID\":\"29115-34620561-1\","
+              + "\"CheckoutRequestID\":\"ws_CO_191220191020363925\","
+              + "\"ResponseCode\":\"0\","
+              + "\"ResponseDescription\":\"Success. Request accepted for processing\","
+              + "\"CustomerMessage\":\"Success. Request accepted for processing\"}")
+          .getBytes(StandardCharsets.UTF_8);
+
+  private final ObjectMapper objectMapper = new ObjectMapper();
+  private final MpesaCodecs codecs = MpesaCodecs.defaults();
+  private final MpesaCodecs accessorCodecs = MpesaCodecs.withAccessorModule();
+
+  @Benchmark
+  public StkPushResponse objectMapper() throws IOException {
+    objectMapper.writeValueAsString(REQUEST);
+    return objectMapper.readValue(RESPONSE, StkPushResponse.class);
+  }
+
+  @Benchmark
+  public StkPushResponse codecs() throws IOException {
+    return roundTrip(codecs);
+  }
+
+  @Benchmark
+  public StkPushResponse codecsWithAccessorModule() throws IOException {
+    return roundTrip(accessorCodecs);
+  }
+
+  static StkPushResponse roundTrip(MpesaCodecs codecs) throws IOException {
+    codecs.writerFor(StkPushRequest.class).writeValueAsString(REQUEST);
+    return codecs.readerFor(StkPushResponse.class).readValue(RESPONSE);
+  }
+
+  /**
+   * The first call in a new JVM, one fork per sample. For {@code codecs} this includes building
+   * and warming {@link MpesaCodecs#defaults()}, which an application does once at startup.
+   */
+  @State(Scope.Benchmark)
+  @BenchmarkMode(Mode.SingleShotTime)
+  @OutputTimeUnit(TimeUnit.MILLISECONDS)
+  @Warmup(iterations = 0)
+  @Measurement(iterations = 1)
+  @Fork(20)
+  public static class Cold {
+
+    @Benchmark
+    public StkPushResponse objectMapper() throws IOException {
+      ObjectMapper objectMapper = new ObjectMapper();
+      objectMapper.writeValueAsString(REQUEST);
+      return objectMapper.readValue(RESPONSE, StkPushResponse.class);
+    }
+
+    @Benchmark
+    public StkPushResponse codecs() throws IOException {
+      return roundTrip(MpesaCodecs.defaults());
+    }
+  }
+}
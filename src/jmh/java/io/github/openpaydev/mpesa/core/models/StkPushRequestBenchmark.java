@@ -0,0 +1,68 @@
+package io.github.openpaydev.mpesa.core.models;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.github.openpaydev.mpesa.core.utils.MpesaUtils;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the two per-request costs of the STK Push model: copying it with the server-side fields
+ * filled in, and encoding it to JSON.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StkPushRequestBenchmark {
+
+  private static final String PASS_KEY =
+      "bfb279f9aa9bdbcf158e97dd71a467cd2e0c893059b10f78e6b72ada1ed2c919";
+
+  private final ObjectMapper objectMapper = new ObjectMapper();
+
+  private final StkPushRequest userRequest =
+      StkPushRequest.newPayBillRequest(
+          "1", "0712345678", "INV-001", "Payment", "https://example.com/callback");
+
+  private final StkPushRequest apiRequest =
+      userRequest.toBuilder()
+          .businessShortCode("174379")
+          .password(MpesaUtils.generatePassword("174379", PASS_KEY, "20251021105921"))
+          .timestamp("20251021105921")
+          .partyA("254712345678")
+          .partyB("174379")
+          .phoneNumber("254712345678")
+          .build();
+
+  @Benchmark
+  public StkPushRequest toBuilderCopy() {
+    return userRequest.toBuilder()
+        .businessShortCode("174379")
+        .timestamp("20251021105921")
+        .partyA("254712345678")
+        .partyB("174379")
+        .phoneNumber("254712345678")
+        .build();
+  }
+
+  @Benchmark
+  public String serializeToString() throws JsonProcessingException {
+    return objectMapper.writeValueAsString(apiRequest);
+  }
+
+  @Benchmark
+  public byte[] serializeToBytes() throws JsonProcessingException {
+    return objectMapper.writeValueAsBytes(apiRequest);
+  }
+}
@@ -0,0 +1,80 @@
+package io.github.openpaydev.mpesa.core.utils;
+
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the helpers run on every STK Push (phone formatting, timestamp and password) and the
+ * bulk phone normalization used for customer imports.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MpesaUtilsBenchmark {
+
+  private static final String SHORT_CODE = "174379";
+  private static final String PASS_KEY =
+      "bfb279f9aa9bdbcf158e97dd71a467cd2e0c893059b10f78e6b72ada1ed2c919";
+
+  @Param({"0712345678", "+254 712 345 678", "254712345678", "712345678"})
+  public String phoneNumber;
+
+  private final ZonedDateTime fixedTime =
+      ZonedDateTime.of(2025, 10, 21, 10, 59, 21, 0, ZoneOffset.UTC);
+  private final String timestamp = "20251021105921";
+
+  private CharSequence[] importRows;
+
+  @Setup
+  public void setUp() {
+    importRows = new CharSequence[1000];
+    Arrays.fill(importRows, phoneNumber);
+  }
+
+  @Benchmark
+  public String formatPhoneNumber() {
+    return MpesaUtils.formatPhoneNumber(phoneNumber);
+  }
+
+  @Benchmark
+  public long toMsisdn() {
+    return MpesaUtils.toMsisdn(phoneNumber);
+  }
+
+  /** Normalizes a 1,000-row import; divide by 1,000 for the per-row cost. */
+  @Benchmark
+  public long[] toMsisdnsBulk() {
+    return MpesaUtils.toMsisdns(importRows, row -> {});
+  }
+
+  @Benchmark
+  public String getTimestamp() {
+    return MpesaUtils.getTimestamp();
+  }
+
+  @Benchmark
+  public String getTimestampForFixedTime() {
+    return MpesaUtils.getTimestamp(fixedTime);
+  }
+
+  @Benchmark
+  public String generatePassword() {
+    return MpesaUtils.generatePassword(SHORT_CODE, PASS_KEY, timestamp);
+  }
+}
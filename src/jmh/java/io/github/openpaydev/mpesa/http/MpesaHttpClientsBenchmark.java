@@ -0,0 +1,111 @@
+package io.github.openpaydev.mpesa.http;
+
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Sends a burst of asynchronous calls to a local {@link MockWebServer} standing in for Daraja,
+ * which answers each after a fixed delay, and waits for all of them. With a stock {@code
+ * OkHttpClient} only 5 calls run at a time and the rest queue in the dispatcher, so a burst takes
+ * roughly {@code burst / 5} round trips; the tuned profiles run the whole burst at once.
+ *
+ * <p>The highest dispatcher queue depth seen during each burst is printed at the end of the trial.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MpesaHttpClientsBenchmark {
+
+  private static final long SERVER_DELAY_MS = 20;
+
+  @Param({"OKHTTP_DEFAULT", "THROUGHPUT", "LATENCY"})
+  public String profile;
+
+  @Param({"64"})
+  public int burst;
+
+  private MockWebServer server;
+  private OkHttpClient client;
+  private Request request;
+  private final AtomicInteger maxQueuedCalls = new AtomicInteger();
+
+  @Setup(Level.Trial)
+  public void setUp() throws IOException {
+    server = new MockWebServer();
+    server.setDispatcher(
+        new Dispatcher() {
+          @Override
+          public MockResponse dispatch(RecordedRequest recordedRequest) {
+            return new MockResponse()
+                .setBody("{\"ResponseCode\":\"0\"}")
+                .setHeadersDelay(SERVER_DELAY_MS, TimeUnit.MILLISECONDS);
+          }
+        });
+    server.start();
+
+    client =
+        "OKHTTP_DEFAULT".equals(profile)
+            ? new OkHttpClient()
+            : MpesaHttpClients.create(MpesaHttpProfile.valueOf(profile));
+    request = new Request.Builder().url(server.url("/mpesa/stkpush/v1/processrequest")).build();
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws IOException {
+    System.out.println();
+    System.out.println(profile + ": max queued calls " + maxQueuedCalls.get());
+    client.dispatcher().executorService().shutdown();
+    client.connectionPool().evictAll();
+    server.shutdown();
+  }
+
+  @Benchmark
+  public void burst() throws InterruptedException {
+    CountDownLatch done = new CountDownLatch(burst);
+    Callback callback =
+        new Callback() {
+          @Override
+          public void onFailure(Call call, IOException e) {
+            done.countDown();
+          }
+
+          @Override
+          public void onResponse(Call call, Response response) {
+            response.close();
+            done.countDown();
+          }
+        };
+    for (int i = 0; i < burst; i++) {
+      client.newCall(request).enqueue(callback);
+    }
+    maxQueuedCalls.accumulateAndGet(MpesaHttpClients.stats(client).getQueuedCalls(), Math::max);
+    done.await();
+  }
+}
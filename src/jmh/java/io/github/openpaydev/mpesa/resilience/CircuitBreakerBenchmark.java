@@ -0,0 +1,50 @@
+package io.github.openpaydev.mpesa.resilience;
+
+import io.github.openpaydev.mpesa.core.exceptions.MpesaCircuitOpenException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The cost a circuit breaker adds to every call: taking a permit and recording a successful
+ * outcome, with all threads hitting the same endpoint. {@code disabled} is the floor, a breaker
+ * that does nothing.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+public class CircuitBreakerBenchmark {
+
+  @Param({"enabled", "disabled"})
+  public String breaker;
+
+  private CircuitBreaker circuitBreaker;
+
+  @Setup
+  public void setUp() {
+    MpesaCircuitBreakers breakers =
+        "enabled".equals(breaker) ? MpesaCircuitBreakers.create() : MpesaCircuitBreakers.disabled();
+    circuitBreaker = breakers.forEndpoint("https://sandbox.safaricom.co.ke/mpesa/stkpush");
+  }
+
+  @Benchmark
+  public long acquireAndRecordSuccess() throws MpesaCircuitOpenException {
+    long permit = circuitBreaker.acquire();
+    circuitBreaker.record(permit, 1_000_000, false);
+    return permit;
+  }
+}
@@ -0,0 +1,74 @@
+package io.github.openpaydev.mpesa.stk;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Tracking a checkout and resolving it, as a push and its callback do, against the {@code
+ * ConcurrentHashMap} of order objects the index replaces. Run with {@code -prof gc} to compare the
+ * allocation per checkout.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+public class PendingCheckoutIndexBenchmark {
+
+  private static final int IDS = 1 << 20;
+
+  private final AtomicInteger next = new AtomicInteger();
+  private String[] ids;
+  private PendingCheckoutIndex index;
+  private ConcurrentMap<String, PendingOrder> map;
+
+  @Setup
+  public void setUp() {
+    ids = new String[IDS];
+    for (int i = 0; i < IDS; i++) {
+      ids[i] = "ws_CO_17102026" + (100_000_000 + i);
+    }
+    index = PendingCheckoutIndex.create();
+    map = new ConcurrentHashMap<>();
+  }
+
+  @Benchmark
+  public long index() {
+    String id = ids[next.getAndIncrement() & (IDS - 1)];
+    index.track(id, id.length());
+    return index.resolve(id, CheckoutState.SUCCESS);
+  }
+
+  @Benchmark
+  public Object concurrentHashMap() {
+    String id = ids[next.getAndIncrement() & (IDS - 1)];
+    map.putIfAbsent(id, new PendingOrder(id.length()));
+    PendingOrder order = map.get(id);
+    order.state = CheckoutState.SUCCESS;
+    return order;
+  }
+
+  private static final class PendingOrder {
+    private final long orderId;
+    private volatile CheckoutState state = CheckoutState.PENDING;
+
+    private PendingOrder(long orderId) {
+      this.orderId = orderId;
+    }
+  }
+}
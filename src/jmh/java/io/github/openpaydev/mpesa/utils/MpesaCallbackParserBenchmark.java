@@ -0,0 +1,79 @@
+package io.github.openpaydev.mpesa.utils;
+
+import io.github.openpaydev.mpesa.core.models.StkCallback;
+import io.github.openpaydev.mpesa.core.models.StkCallbackDetails;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the ways of parsing a successful STK callback. {@code decodeThenParseString} is what a
+ * caller holding the raw request body pays with {@link MpesaCallbackParser#parse(String)}; the
+ * other variants start from the same bytes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MpesaCallbackParserBenchmark {
+
+  static final String SUCCESS_CALLBACK =
+      "{\"Body\":{\"stkCallback\":{"
+          + "\"MerchantRequestID\":\"29115-34620561-1\","
+          + "\"CheckoutRequestID\":\"ws_CO_191220191020363925\","
+          + "\"ResultCode\":0,"
+          + "\"ResultDesc\":\"The service request is processed successfully.\","
+          + "\"CallbackMetadata\":{\"Item\":["
+          + "{\"Name\":\"Amount\",\"Value\":1.00},"
+          + "{\"Name\":\"MpesaReceiptNumber\",\"Value\":\"NLJ7RT61SV\"},"
+          + "{\"Name\":\"TransactionDate\",\"Value\":20191219102115},"
+          + "{\"Name\":\"PhoneNumber\",\"Value\":254708374149}"
+          + "]}}}}";
+
+  private final String json = SUCCESS_CALLBACK;
+  private final byte[] bytes = SUCCESS_CALLBACK.getBytes(StandardCharsets.UTF_8);
+  private final ByteBuffer directBuffer = ByteBuffer.allocateDirect(bytes.length).put(bytes).flip();
+
+  @Benchmark
+  public StkCallback parseString() throws IOException {
+    return MpesaCallbackParser.parse(json);
+  }
+
+  @Benchmark
+  public StkCallback decodeThenParseString() throws IOException {
+    return MpesaCallbackParser.parse(new String(bytes, StandardCharsets.UTF_8));
+  }
+
+  @Benchmark
+  public StkCallback parseBytes() throws IOException {
+    return MpesaCallbackParser.parse(bytes);
+  }
+
+  @Benchmark
+  public StkCallback parseDirectBuffer() throws IOException {
+    return MpesaCallbackParser.parse(directBuffer);
+  }
+
+  @Benchmark
+  public StkCallback parseInputStream() throws IOException {
+    return MpesaCallbackParser.parse(new ByteArrayInputStream(bytes));
+  }
+
+  @Benchmark
+  public StkCallbackDetails parseDetailsBytes() throws IOException {
+    return MpesaCallbackParser.parseDetails(bytes);
+  }
+}
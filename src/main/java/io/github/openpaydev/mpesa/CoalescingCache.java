@@ -0,0 +1,156 @@
+package io.github.openpaydev.mpesa;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
+
+/**
+ * Shares one call between concurrent requests for the same key, and keeps each successful result
+ * for as long as {@code ttlNanos} says. Failures are never kept.
+ *
+ * <p>Calls in flight and kept results live in separate maps of at most {@code maxEntries} each.
+ * Kept results are in an access-ordered {@link LinkedHashMap}, so the least recently used is
+ * dropped first. Calls in flight are never dropped, since a caller that missed one would start the
+ * same call again; while {@code maxEntries} are in flight, a request for another key starts its
+ * own call without sharing it. The lock is held only to look up or record an entry; calls are
+ * started and completed outside it. A call is started at most once per key at a time, because the
+ * in-flight entry is recorded before it starts and moved to the results, under the lock, when it
+ * completes.
+ */
+final class CoalescingCache<K, V> {
+
+  private final int maxEntries;
+  private final ToLongFunction<? super V> ttlNanos;
+  private final LongSupplier nanoClock;
+  private final Map<K, Entry<V>> inFlight = new HashMap<>();
+  private final Map<K, Entry<V>> results;
+
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder coalesced = new LongAdder();
+  private final LongAdder loads = new LongAdder();
+
+  /**
+   * @param ttlNanos How long to keep a result; zero or less keeps it only while it is in flight.
+   */
+  CoalescingCache(int maxEntries, ToLongFunction<? super V> ttlNanos) {
+    this(maxEntries, ttlNanos, System::nanoTime);
+  }
+
+  CoalescingCache(int maxEntries, ToLongFunction<? super V> ttlNanos, LongSupplier nanoClock) {
+    if (maxEntries < 1) {
+      throw new IllegalArgumentException("maxEntries must be positive.");
+    }
+    this.maxEntries = maxEntries;
+    this.ttlNanos = ttlNanos;
+    this.nanoClock = nanoClock;
+    this.results =
+        new LinkedHashMap<>(16, 0.75f, true) {
+          private static final long serialVersionUID = 1L;
+
+          @Override
+          protected boolean removeEldestEntry(Map.Entry<K, Entry<V>> eldest) {
+            return size() > CoalescingCache.this.maxEntries;
+          }
+        };
+  }
+
+  /**
+   * Returns the kept result for the key, joins the call in flight for it, or starts one with
+   * {@code call}. Each caller gets a future of its own, so cancelling it affects no other caller.
+   */
+  CompletableFuture<V> get(K key, Supplier<CompletableFuture<V>> call) {
+    Entry<V> entry;
+    synchronized (results) {
+      entry = inFlight.get(key);
+      if (entry != null) {
+        coalesced.increment();
+        return entry.result.copy();
+      }
+      entry = results.get(key);
+      if (entry != null) {
+        if (nanoClock.getAsLong() - entry.expiresAtNanos < 0) {
+          hits.increment();
+          return entry.result.copy();
+        }
+        results.remove(key);
+      }
+      if (inFlight.size() < maxEntries) {
+        entry = new Entry<>();
+        inFlight.put(key, entry);
+      }
+    }
+    loads.increment();
+    CompletableFuture<V> result;
+    try {
+      result = call.get();
+    } catch (RuntimeException e) {
+      result = CompletableFuture.failedFuture(e);
+    }
+    if (entry == null) {
+      // Too many calls in flight to track another; this one is neither shared nor kept.
+      return result;
+    }
+    Entry<V> started = entry;
+    result.whenComplete((value, error) -> completed(key, started, value, error));
+    return started.result.copy();
+  }
+
+  /** Forgets the key, so that the next request for it starts a new call. */
+  void invalidate(K key) {
+    synchronized (results) {
+      inFlight.remove(key);
+      results.remove(key);
+    }
+  }
+
+  /** Returns how many requests were answered with a kept result. */
+  long getHitCount() {
+    return hits.sum();
+  }
+
+  /** Returns how many requests joined a call already in flight. */
+  long getCoalescedCount() {
+    return coalesced.sum();
+  }
+
+  /** Returns how many calls were started. */
+  long getLoadCount() {
+    return loads.sum();
+  }
+
+  int size() {
+    synchronized (results) {
+      return inFlight.size() + results.size();
+    }
+  }
+
+  private void completed(K key, Entry<V> entry, V value, Throwable error) {
+    long ttl = error == null ? ttlNanos.applyAsLong(value) : 0;
+    synchronized (results) {
+      // The entry may have been invalidated meanwhile; then there is nothing to keep.
+      if (inFlight.get(key) == entry) {
+        inFlight.remove(key);
+        if (ttl > 0) {
+          entry.expiresAtNanos = nanoClock.getAsLong() + ttl;
+          results.put(key, entry);
+        }
+      }
+    }
+    if (error != null) {
+      entry.result.completeExceptionally(error);
+    } else {
+      entry.result.complete(value);
+    }
+  }
+
+  /** A call in flight, or its result until it expires. Guarded by the results map's lock. */
+  private static final class Entry<V> {
+    private final CompletableFuture<V> result = new CompletableFuture<>();
+    private long expiresAtNanos;
+  }
+}
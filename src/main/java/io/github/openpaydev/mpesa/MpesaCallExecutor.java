@@ -0,0 +1,499 @@
+package io.github.openpaydev.mpesa;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import io.github.openpaydev.mpesa.core.MpesaOperation;
+import io.github.openpaydev.mpesa.core.auth.TokenManager;
+import io.github.openpaydev.mpesa.core.codec.MpesaCodecs;
+import io.github.openpaydev.mpesa.core.exceptions.MpesaApiException;
+import io.github.openpaydev.mpesa.core.exceptions.MpesaAuthException;
+import io.github.openpaydev.mpesa.core.exceptions.MpesaCircuitOpenException;
+import io.github.openpaydev.mpesa.core.exceptions.MpesaException;
+import io.github.openpaydev.mpesa.resilience.AdaptiveConcurrencyLimiter;
+import io.github.openpaydev.mpesa.resilience.CircuitBreaker;
+import io.github.openpaydev.mpesa.resilience.HedgePolicy;
+import io.github.openpaydev.mpesa.resilience.MpesaCircuitBreakers;
+import io.github.openpaydev.mpesa.resilience.MpesaRateLimiter;
+import io.github.openpaydev.mpesa.resilience.RetryBudget;
+import io.github.openpaydev.mpesa.resilience.RetryPolicy;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.Interceptor;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+
+/**
+ * Sends the client's authenticated POST calls and applies the retry and hedge policies from {@link
+ * MpesaClientOptions}.
+ *
+ * <p>A failure is retried when the policy allows another attempt, the {@link RetryBudget} can pay
+ * for it, and the failure is safe to retry for the operation. Idempotent operations are retried on
+ * network errors and on the policy's retryable statuses. Non-idempotent ones are only retried when
+ * the request provably never left the client: a network interceptor marks each attempt once OkHttp
+ * has a connection and starts writing it, so an unmarked attempt failed during DNS, connect or TLS.
+ *
+ * <p>Every attempt, hedges included, first takes a permit from the client's {@link
+ * MpesaRateLimiter}, then an access token and a slot from the {@link AdaptiveConcurrencyLimiter},
+ * and only then a permit from its endpoint's {@link CircuitBreaker}. So a half-open breaker's few
+ * trial permits are never held through a local wait. A call the rate limiter or the breaker
+ * refuses is not sent and not retried. The breaker is told how every call that was sent ended,
+ * and the slot is handed back with the call's round trip and whether it showed overload.
+ */
+final class MpesaCallExecutor {
+
+  static final String UNHANDLED_ERROR_MESSAGE = "An unhandled network or parsing error occurred.";
+
+  private static final int TOO_MANY_REQUESTS = 429;
+
+  private static final Interceptor SEND_TRACKING =
+      chain -> {
+        SendTracker tracker = chain.request().tag(SendTracker.class);
+        if (tracker != null) {
+          tracker.sent = true;
+        }
+        return chain.proceed(chain.request());
+      };
+
+  private final TokenManager tokenManager;
+  private final OkHttpClient client;
+  private final OkHttpClient nonIdempotentClient;
+  private final MpesaCodecs codecs;
+  private final MpesaClientOptions options;
+  private final RetryBudget retryBudget;
+  private final MpesaRateLimiter rateLimiter;
+  private final MpesaCircuitBreakers circuitBreakers;
+  private final AdaptiveConcurrencyLimiter concurrencyLimiter;
+  private final String shortCode;
+
+  MpesaCallExecutor(
+      TokenManager tokenManager,
+      OkHttpClient client,
+      MpesaClientOptions options,
+      String shortCode) {
+    this.tokenManager = tokenManager;
+    // Shares the caller's connection pool and dispatcher.
+    this.client = client.newBuilder().addNetworkInterceptor(SEND_TRACKING).build();
+    // OkHttp would otherwise silently resend a POST that failed on a stale pooled connection, even
+    // after it was written, without the send tracking having a say.
+    this.nonIdempotentClient = this.client.newBuilder().retryOnConnectionFailure(false).build();
+    this.codecs = options.getCodecs();
+    this.options = options;
+    this.retryBudget = options.getRetryBudget();
+    this.rateLimiter = options.getRateLimiter();
+    this.circuitBreakers = options.getCircuitBreakers();
+    this.concurrencyLimiter = options.getConcurrencyLimiter();
+    this.shortCode = shortCode;
+  }
+
+  /** Makes the call, retrying it on the calling thread as the operation's policy allows. */
+  <T> T execute(MpesaOperation operation, String url, RequestBody body, Class<T> responseClass)
+      throws MpesaException {
+    RetryPolicy policy = options.retryPolicyFor(operation);
+    retryBudget.deposit();
+    for (int attempt = 1; ; attempt++) {
+      SendTracker tracker = new SendTracker();
+      MpesaException failure;
+      try {
+        return send(operation, url, body, responseClass, tracker);
+      } catch (MpesaException e) {
+        failure = e;
+      }
+      if (!shouldRetry(operation, policy, failure, tracker.sent, attempt)) {
+        throw failure;
+      }
+      sleep(policy.backoff(attempt), failure);
+    }
+  }
+
+  /**
+   * The non-blocking counterpart of {@link #execute}. Retries are scheduled after their backoff
+   * rather than slept through. The returned future completes on an OkHttp dispatcher thread,
+   * exceptionally with an {@link MpesaException} (or the {@link MpesaAuthException} raised by the
+   * token manager) on failure.
+   */
+  <T> CompletableFuture<T> executeAsync(
+      MpesaOperation operation, String url, RequestBody body, Class<T> responseClass) {
+    CompletableFuture<T> result = new CompletableFuture<>();
+    retryBudget.deposit();
+    attemptAsync(operation, url, body, responseClass, 1, result);
+    return result;
+  }
+
+  /**
+   * Makes an idempotent call with hedging: every {@link HedgePolicy#getDelay()} without a response
+   * another copy of the call is started, up to {@link HedgePolicy#getMaxHedges()}. The first
+   * response wins and the other calls are cancelled. The call fails once every copy has failed, or
+   * as soon as one fails in a way that a retry could not fix.
+   */
+  <T> CompletableFuture<T> executeHedgedAsync(
+      MpesaOperation operation,
+      String url,
+      RequestBody body,
+      Class<T> responseClass,
+      HedgePolicy hedgePolicy) {
+    if (!hedgePolicy.isEnabled() || !operation.isIdempotent()) {
+      return executeAsync(operation, url, body, responseClass);
+    }
+
+    CompletableFuture<T> result = new CompletableFuture<>();
+    Hedge<T> hedge =
+        new Hedge<>(operation, url, body, responseClass, result, hedgePolicy.getMaxHedges() + 1);
+    retryBudget.deposit();
+    hedge.launch(false);
+    for (int i = 1; i <= hedgePolicy.getMaxHedges(); i++) {
+      long delayNanos = hedgePolicy.getDelay().toNanos() * i;
+      CompletableFuture.delayedExecutor(delayNanos, TimeUnit.NANOSECONDS)
+          .execute(() -> hedge.launch(true));
+    }
+    return result;
+  }
+
+  /** Blocks for a future from this class, rethrowing its failure as the blocking calls would. */
+  static <T> T await(CompletableFuture<T> future) throws MpesaException {
+    try {
+      return future.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new MpesaException("Interrupted while waiting for the M-Pesa API.", e);
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof MpesaException) {
+        throw (MpesaException) cause;
+      }
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+      throw new MpesaException(UNHANDLED_ERROR_MESSAGE, cause);
+    }
+  }
+
+  private <T> T send(
+      MpesaOperation operation,
+      String url,
+      RequestBody body,
+      Class<T> responseClass,
+      SendTracker tracker)
+      throws MpesaException {
+    rateLimiter.acquire(shortCode, operation);
+    String accessToken = tokenManager.getAccessToken();
+    concurrencyLimiter.acquire();
+    CircuitBreaker breaker = circuitBreakers.forEndpoint(url);
+    long permit;
+    try {
+      permit = breaker.acquire();
+    } catch (MpesaCircuitOpenException e) {
+      concurrencyLimiter.onIgnored();
+      throw e;
+    }
+
+    long start = System.nanoTime();
+    try (Response response =
+        clientFor(operation).newCall(newPost(url, accessToken, body, tracker)).execute()) {
+      T value = readResponse(response, responseClass);
+      long elapsed = System.nanoTime() - start;
+      breaker.record(permit, elapsed, false);
+      releaseSlot(elapsed, null);
+      return value;
+    } catch (IOException e) {
+      MpesaException failure = new MpesaException(UNHANDLED_ERROR_MESSAGE, e);
+      long elapsed = System.nanoTime() - start;
+      breaker.record(permit, elapsed, isEndpointFailure(failure));
+      releaseSlot(elapsed, failure);
+      throw failure;
+    } catch (MpesaException e) {
+      long elapsed = System.nanoTime() - start;
+      breaker.record(permit, elapsed, isEndpointFailure(e));
+      releaseSlot(elapsed, e);
+      throw e;
+    } catch (RuntimeException e) {
+      breaker.release(permit);
+      concurrencyLimiter.onIgnored();
+      throw e;
+    }
+  }
+
+  private <T> void attemptAsync(
+      MpesaOperation operation,
+      String url,
+      RequestBody body,
+      Class<T> responseClass,
+      int attempt,
+      CompletableFuture<T> result) {
+    if (result.isDone()) {
+      return;
+    }
+    SendTracker tracker = new SendTracker();
+    CompletableFuture<T> call = sendAsync(operation, url, body, responseClass, tracker);
+    // Cancelling the overall result, as a hedge does, cancels the attempt in flight.
+    result.whenComplete((value, error) -> call.cancel(false));
+    call.whenComplete(
+        (value, error) -> {
+          if (error == null) {
+            result.complete(value);
+            return;
+          }
+          Throwable failure = unwrap(error);
+          RetryPolicy policy = options.retryPolicyFor(operation);
+          if (result.isDone() || !shouldRetry(operation, policy, failure, tracker.sent, attempt)) {
+            result.completeExceptionally(failure);
+            return;
+          }
+          long backoffNanos = policy.backoff(attempt).toNanos();
+          CompletableFuture.delayedExecutor(backoffNanos, TimeUnit.NANOSECONDS)
+              .execute(
+                  () -> attemptAsync(operation, url, body, responseClass, attempt + 1, result));
+        });
+  }
+
+  private <T> CompletableFuture<T> sendAsync(
+      MpesaOperation operation,
+      String url,
+      RequestBody body,
+      Class<T> responseClass,
+      SendTracker tracker) {
+    CompletableFuture<T> result = new CompletableFuture<>();
+    rateLimiter
+        .acquireAsync(shortCode, operation)
+        .thenCompose(permitted -> tokenManager.getAccessTokenAsync())
+        .thenCompose(
+            accessToken -> concurrencyLimiter.acquireAsync().thenApply(slot -> accessToken))
+        .whenComplete(
+            (accessToken, error) -> {
+              if (error != null) {
+                result.completeExceptionally(unwrap(error));
+                return;
+              }
+              if (result.isDone()) {
+                concurrencyLimiter.onIgnored();
+                return;
+              }
+              CircuitBreaker breaker = circuitBreakers.forEndpoint(url);
+              long permit;
+              try {
+                permit = breaker.acquire();
+              } catch (MpesaCircuitOpenException e) {
+                concurrencyLimiter.onIgnored();
+                result.completeExceptionally(e);
+                return;
+              }
+              Call call = clientFor(operation).newCall(newPost(url, accessToken, body, tracker));
+              result.whenComplete(
+                  (value, e) -> {
+                    if (result.isCancelled()) {
+                      call.cancel();
+                    }
+                  });
+              long start = System.nanoTime();
+              call.enqueue(
+                  new Callback() {
+                    @Override
+                    public void onFailure(Call c, IOException e) {
+                      if (c.isCanceled()) {
+                        // A hedge that lost the race; it says nothing about the endpoint.
+                        breaker.release(permit);
+                        concurrencyLimiter.onIgnored();
+                      } else {
+                        breaker.record(permit, System.nanoTime() - start, true);
+                        concurrencyLimiter.onDropped();
+                      }
+                      result.completeExceptionally(new MpesaException(UNHANDLED_ERROR_MESSAGE, e));
+                    }
+
+                    @Override
+                    public void onResponse(Call c, Response response) {
+                      MpesaException failure;
+                      try (response) {
+                        T value = readResponse(response, responseClass);
+                        long elapsed = System.nanoTime() - start;
+                        breaker.record(permit, elapsed, false);
+                        releaseSlot(elapsed, null);
+                        result.complete(value);
+                        return;
+                      } catch (MpesaException e) {
+                        failure = e;
+                      } catch (IOException e) {
+                        failure = new MpesaException(UNHANDLED_ERROR_MESSAGE, e);
+                      }
+                      long elapsed = System.nanoTime() - start;
+                      breaker.record(permit, elapsed, isEndpointFailure(failure));
+                      releaseSlot(elapsed, failure);
+                      result.completeExceptionally(failure);
+                    }
+                  });
+            });
+    return result;
+  }
+
+  /**
+   * Returns the client for the operation; non-idempotent calls use the one with OkHttp's retry on
+   * connection failure turned off.
+   */
+  private OkHttpClient clientFor(MpesaOperation operation) {
+    return operation.isIdempotent() ? client : nonIdempotentClient;
+  }
+
+  /**
+   * Whether a failed call counts against its endpoint's circuit breaker: a network error or one of
+   * the policy's failure statuses. Business errors and unreadable bodies show the endpoint is up.
+   */
+  private boolean isEndpointFailure(MpesaException failure) {
+    if (failure instanceof MpesaApiException) {
+      int statusCode = ((MpesaApiException) failure).getStatusCode();
+      return circuitBreakers.getPolicy().isFailureStatus(statusCode);
+    }
+    Throwable cause = failure.getCause();
+    return cause instanceof IOException && !(cause instanceof JsonProcessingException);
+  }
+
+  /**
+   * Hands back a concurrency slot. Network errors, the breaker's failure statuses and 429 show
+   * overload; any other outcome, business errors included, is a round trip the limiter can learn
+   * from.
+   */
+  private void releaseSlot(long rttNanos, MpesaException failure) {
+    if (failure != null
+        && (isEndpointFailure(failure)
+            || failure instanceof MpesaApiException
+                && ((MpesaApiException) failure).getStatusCode() == TOO_MANY_REQUESTS)) {
+      concurrencyLimiter.onDropped();
+    } else {
+      concurrencyLimiter.onSuccess(rttNanos);
+    }
+  }
+
+  private boolean shouldRetry(
+      MpesaOperation operation, RetryPolicy policy, Throwable failure, boolean sent, int attempt) {
+    return attempt < policy.getMaxAttempts()
+        && isRetryable(operation, policy, failure, sent)
+        && retryBudget.tryWithdraw();
+  }
+
+  /** Whether a failure is one a retry could fix and that is safe to retry for the operation. */
+  static boolean isRetryable(
+      MpesaOperation operation, RetryPolicy policy, Throwable failure, boolean sent) {
+    if (failure instanceof MpesaApiException) {
+      return operation.isIdempotent()
+          && policy.isRetryableStatus(((MpesaApiException) failure).getStatusCode());
+    }
+    if (!(failure instanceof MpesaException) || failure instanceof MpesaAuthException) {
+      return false;
+    }
+    Throwable cause = failure.getCause();
+    if (!(cause instanceof IOException) || cause instanceof JsonProcessingException) {
+      return false;
+    }
+    return operation.isIdempotent() || !sent;
+  }
+
+  private static void sleep(Duration backoff, MpesaException failure) throws MpesaException {
+    try {
+      TimeUnit.NANOSECONDS.sleep(backoff.toNanos());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw failure;
+    }
+  }
+
+  private static Throwable unwrap(Throwable error) {
+    return error instanceof CompletionException && error.getCause() != null
+        ? error.getCause()
+        : error;
+  }
+
+  private static Request newPost(
+      String url, String accessToken, RequestBody body, SendTracker tracker) {
+    return new Request.Builder()
+        .url(url)
+        .post(body)
+        .header("Authorization", "Bearer " + accessToken)
+        .tag(SendTracker.class, tracker)
+        .build();
+  }
+
+  private <T> T readResponse(Response response, Class<T> responseClass)
+      throws IOException, MpesaException {
+    ResponseBody body = Objects.requireNonNull(response.body());
+    if (!response.isSuccessful()) {
+      throw new MpesaApiException("API call failed", response.code(), body.string());
+    }
+    // Parse straight from the byte stream; the body is only read into a String for errors.
+    return codecs.readerFor(responseClass).readValue(body.byteStream());
+  }
+
+  /** Set by {@link #SEND_TRACKING} once an attempt starts going out on a connection. */
+  private static final class SendTracker {
+    private volatile boolean sent;
+  }
+
+  /** The shared state of one hedged call and its copies. */
+  private final class Hedge<T> {
+    private final MpesaOperation operation;
+    private final String url;
+    private final RequestBody body;
+    private final Class<T> responseClass;
+    private final CompletableFuture<T> result;
+    private final AtomicInteger remaining;
+    private final AtomicReference<Throwable> lastFailure = new AtomicReference<>();
+
+    private Hedge(
+        MpesaOperation operation,
+        String url,
+        RequestBody body,
+        Class<T> responseClass,
+        CompletableFuture<T> result,
+        int copies) {
+      this.operation = operation;
+      this.url = url;
+      this.body = body;
+      this.responseClass = responseClass;
+      this.result = result;
+      this.remaining = new AtomicInteger(copies);
+    }
+
+    /** Starts one copy, unless the call is already decided or a hedge cannot be paid for. */
+    private void launch(boolean hedge) {
+      if (result.isDone()) {
+        return;
+      }
+      if (hedge && !retryBudget.tryWithdraw()) {
+        finishCopy();
+        return;
+      }
+      CompletableFuture<T> copy = new CompletableFuture<>();
+      result.whenComplete((value, error) -> copy.cancel(false));
+      copy.whenComplete(
+          (value, error) -> {
+            if (error == null) {
+              result.complete(value);
+              return;
+            }
+            Throwable failure = unwrap(error);
+            lastFailure.set(failure);
+            RetryPolicy policy = options.retryPolicyFor(operation);
+            if (!isRetryable(operation, policy, failure, true)) {
+              result.completeExceptionally(failure);
+            } else {
+              finishCopy();
+            }
+          });
+      attemptAsync(operation, url, body, responseClass, 1, copy);
+    }
+
+    private void finishCopy() {
+      if (remaining.decrementAndGet() == 0) {
+        result.completeExceptionally(lastFailure.get());
+      }
+    }
+  }
+}
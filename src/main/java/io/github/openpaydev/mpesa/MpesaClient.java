@@ -1,21 +1,47 @@
 package io.github.openpaydev.mpesa;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.core.JsonProcessingException;
 import io.github.openpaydev.mpesa.core.MpesaConfig;
+import io.github.openpaydev.mpesa.core.MpesaOperation;
 import io.github.openpaydev.mpesa.core.auth.TokenManager;
-import io.github.openpaydev.mpesa.core.exceptions.MpesaApiException;
+import io.github.openpaydev.mpesa.core.codec.MpesaCodecs;
+import io.github.openpaydev.mpesa.core.exceptions.MpesaAuthException;
 import io.github.openpaydev.mpesa.core.exceptions.MpesaException;
 import io.github.openpaydev.mpesa.core.models.*;
 import io.github.openpaydev.mpesa.core.service.C2bService;
 import io.github.openpaydev.mpesa.core.service.StkPushService;
 import io.github.openpaydev.mpesa.core.utils.MpesaUtils;
+import io.github.openpaydev.mpesa.core.utils.StkCredentialProvider;
+import io.github.openpaydev.mpesa.resilience.HedgePolicy;
+import io.github.openpaydev.mpesa.resilience.IdempotencyPolicy;
+import io.github.openpaydev.mpesa.resilience.StkQueryCachePolicy;
+import io.github.openpaydev.mpesa.stk.CheckoutState;
 import java.io.IOException;
+import java.time.Duration;
 import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
 import okhttp3.*;
+import okio.Buffer;
 
 /**
  * The main client for interacting with the Safaricom M-Pesa API. This class implements the {@link
  * StkPushService} and {@link C2bService} interfaces.
+ *
+ * <p>Every operation is available in a blocking form and in an {@code ...Async} form. The async
+ * variants run on OkHttp's {@code enqueue} callback path and obtain the access token through {@link
+ * TokenManager#getAccessTokenAsync()}, so no caller thread is parked while a request is in flight.
+ *
+ * <p>Failed calls are retried according to the {@link MpesaClientOptions#getRetryPolicy() retry
+ * policies}, within the client's {@link MpesaClientOptions#getRetryBudget() retry budget}. An STK
+ * Push is only retried when it provably never reached Daraja, so a retry cannot prompt the customer
+ * twice. Calls to an endpoint that is failing are rejected straight away by its {@link
+ * MpesaClientOptions#getCircuitBreakers() circuit breaker}.
+ *
+ * <p>STK Pushes submitted under the same idempotency key, given explicitly or derived as the {@link
+ * MpesaClientOptions#getStkPushIdempotency() idempotency policy} allows, share one call and its
+ * response, so a double-submitted checkout prompts the customer once. Likewise, concurrent status
+ * queries for the same checkout share one call, and their result is kept as the {@link
+ * MpesaClientOptions#getStkQueryCache() query cache policy} says.
  */
 public class MpesaClient implements StkPushService, C2bService {
 
@@ -24,89 +50,384 @@ public class MpesaClient implements StkPushService, C2bService {
   private final MpesaConfig config;
   private final TokenManager tokenManager;
   private final OkHttpClient client;
-  private final ObjectMapper objectMapper = new ObjectMapper();
+  private final MpesaCodecs codecs;
+  private final int warmUpConnections;
+  private final StkCredentialProvider credentialProvider;
+  private final MpesaCallExecutor executor;
+  private final HedgePolicy stkQueryHedgePolicy;
+  private final boolean deriveStkPushKeys;
+  private final CoalescingCache<String, StkPushResponse> stkPushes;
+  /** {@code null} if status queries are not cached. */
+  private final CoalescingCache<String, StkStatusQueryResponse> stkQueries;
 
   public MpesaClient(MpesaConfig config, TokenManager tokenManager, OkHttpClient client) {
+    this(config, tokenManager, client, MpesaClientOptions.defaults());
+  }
+
+  /**
+   * Creates a client with non-default options.
+   *
+   * @param config The M-Pesa configuration object.
+   * @param tokenManager Supplies the access token for each call.
+   * @param client The OkHttpClient for making requests.
+   * @param options The optional settings, see {@link MpesaClientOptions}.
+   */
+  public MpesaClient(
+      MpesaConfig config,
+      TokenManager tokenManager,
+      OkHttpClient client,
+      MpesaClientOptions options) {
+    this(config, tokenManager, client, options, new StkCredentialProvider());
+  }
+
+  /**
+   * A package-private constructor for testing, allowing the clock behind the request timestamp and
+   * password to be controlled.
+   */
+  MpesaClient(
+      MpesaConfig config,
+      TokenManager tokenManager,
+      OkHttpClient client,
+      StkCredentialProvider credentialProvider) {
+    this(config, tokenManager, client, MpesaClientOptions.defaults(), credentialProvider);
+  }
+
+  private MpesaClient(
+      MpesaConfig config,
+      TokenManager tokenManager,
+      OkHttpClient client,
+      MpesaClientOptions options,
+      StkCredentialProvider credentialProvider) {
     this.config = config;
     this.tokenManager = tokenManager;
     this.client = client;
+    this.codecs = options.getCodecs();
+    this.warmUpConnections = options.getWarmUpConnections();
+    this.credentialProvider = credentialProvider;
+    this.executor =
+        new MpesaCallExecutor(tokenManager, client, options, config.getBusinessShortCode());
+    this.stkQueryHedgePolicy = options.getStkQueryHedgePolicy();
+    IdempotencyPolicy idempotency = options.getStkPushIdempotency();
+    this.deriveStkPushKeys = idempotency.isDeriveKeys();
+    long windowNanos = idempotency.getWindow().toNanos();
+    this.stkPushes = new CoalescingCache<>(idempotency.getMaxKeys(), response -> windowNanos);
+    StkQueryCachePolicy queryCache = options.getStkQueryCache();
+    long finalNanos = queryCache.getFinalResultTtl().toNanos();
+    long pendingNanos = queryCache.getPendingResultTtl().toNanos();
+    this.stkQueries =
+        queryCache.isEnabled()
+            ? new CoalescingCache<>(
+                queryCache.getMaxEntries(),
+                response ->
+                    CheckoutState.ofResultCode(response.getResultCode()).isTerminal()
+                        ? finalNanos
+                        : pendingNanos)
+            : null;
   }
 
   @Override
   public StkPushResponse stkPush(StkPushRequest userRequest) throws MpesaException {
-    String timestamp = MpesaUtils.getTimestamp();
-    String password =
-        MpesaUtils.generatePassword(config.getBusinessShortCode(), config.getPassKey(), timestamp);
+    String idempotencyKey = derivedIdempotencyKey(userRequest);
+    if (idempotencyKey != null) {
+      return stkPush(userRequest, idempotencyKey);
+    }
+    return executor.execute(
+        MpesaOperation.STK_PUSH,
+        config.getEnvironment().getStkPushUrl(),
+        toStkPushBody(userRequest),
+        StkPushResponse.class);
+  }
 
-    StkPushRequest apiRequest =
-        userRequest.toBuilder()
-            .businessShortCode(config.getBusinessShortCode())
-            .password(password)
-            .timestamp(timestamp)
-            .partyB(config.getBusinessShortCode())
-            .partyA(MpesaUtils.formatPhoneNumber(userRequest.getPartyA()))
-            .phoneNumber(MpesaUtils.formatPhoneNumber(userRequest.getPhoneNumber()))
-            .build();
+  @Override
+  public CompletableFuture<StkPushResponse> stkPushAsync(StkPushRequest userRequest) {
+    String idempotencyKey = derivedIdempotencyKey(userRequest);
+    if (idempotencyKey != null) {
+      return stkPushAsync(userRequest, idempotencyKey);
+    }
+    return sendStkPushAsync(userRequest);
+  }
 
-    return execute(config.getEnvironment().getStkPushUrl(), apiRequest, StkPushResponse.class);
+  /**
+   * Initiates an STK Push at most once per idempotency key. A call already in flight under the key
+   * is joined, and within the policy's {@link IdempotencyPolicy#getWindow() window} after one
+   * succeeded its response is returned without calling Daraja; the request itself is then not
+   * looked at.
+   *
+   * @param idempotencyKey Identifies the submission, e.g. the order ID.
+   * @throws MpesaException If a network or API error occurs. A failed call is not remembered.
+   */
+  public StkPushResponse stkPush(StkPushRequest userRequest, String idempotencyKey)
+      throws MpesaException {
+    return MpesaCallExecutor.await(stkPushAsync(userRequest, idempotencyKey));
+  }
+
+  /** The non-blocking form of {@link #stkPush(StkPushRequest, String)}. */
+  public CompletableFuture<StkPushResponse> stkPushAsync(
+      StkPushRequest userRequest, String idempotencyKey) {
+    Objects.requireNonNull(idempotencyKey, "idempotencyKey");
+    return stkPushes.get(idempotencyKey, () -> sendStkPushAsync(userRequest));
+  }
+
+  private CompletableFuture<StkPushResponse> sendStkPushAsync(StkPushRequest userRequest) {
+    RequestBody body;
+    try {
+      body = toStkPushBody(userRequest);
+    } catch (IllegalArgumentException e) {
+      return CompletableFuture.failedFuture(e);
+    }
+    return executor.executeAsync(
+        MpesaOperation.STK_PUSH,
+        config.getEnvironment().getStkPushUrl(),
+        body,
+        StkPushResponse.class);
   }
 
   @Override
   public StkStatusQueryResponse queryStkStatus(String checkoutRequestID) throws MpesaException {
-    String timestamp = MpesaUtils.getTimestamp();
-    String password =
-        MpesaUtils.generatePassword(config.getBusinessShortCode(), config.getPassKey(), timestamp);
+    if (stkQueries == null || checkoutRequestID == null) {
+      return sendStkQuery(checkoutRequestID);
+    }
+    // The caller that starts the query sends it on its own thread, as without the cache; callers
+    // joining it wait for its result.
+    return MpesaCallExecutor.await(
+        stkQueries.get(
+            checkoutRequestID,
+            () -> {
+              try {
+                return CompletableFuture.completedFuture(sendStkQuery(checkoutRequestID));
+              } catch (MpesaException e) {
+                return CompletableFuture.failedFuture(e);
+              }
+            }));
+  }
+
+  private StkStatusQueryResponse sendStkQuery(String checkoutRequestID) throws MpesaException {
+    RequestBody body = toJsonBody(toQueryRequest(checkoutRequestID));
+    if (stkQueryHedgePolicy.isEnabled()) {
+      // Hedges run on the async path; only the caller waits.
+      return MpesaCallExecutor.await(
+          executor.executeHedgedAsync(
+              MpesaOperation.STK_QUERY,
+              config.getEnvironment().getStkQueryUrl(),
+              body,
+              StkStatusQueryResponse.class,
+              stkQueryHedgePolicy));
+    }
+    return executor.execute(
+        MpesaOperation.STK_QUERY,
+        config.getEnvironment().getStkQueryUrl(),
+        body,
+        StkStatusQueryResponse.class);
+  }
 
-    StkStatusQueryRequest queryRequest =
-        StkStatusQueryRequest.builder()
-            .businessShortCode(config.getBusinessShortCode())
-            .password(password)
-            .timestamp(timestamp)
-            .checkoutRequestID(checkoutRequestID)
-            .build();
+  @Override
+  public CompletableFuture<StkStatusQueryResponse> queryStkStatusAsync(String checkoutRequestID) {
+    if (stkQueries != null && checkoutRequestID != null) {
+      return stkQueries.get(checkoutRequestID, () -> sendStkQueryAsync(checkoutRequestID));
+    }
+    return sendStkQueryAsync(checkoutRequestID);
+  }
 
-    return execute(
-        config.getEnvironment().getStkQueryUrl(), queryRequest, StkStatusQueryResponse.class);
+  private CompletableFuture<StkStatusQueryResponse> sendStkQueryAsync(String checkoutRequestID) {
+    RequestBody body;
+    try {
+      body = toJsonBody(toQueryRequest(checkoutRequestID));
+    } catch (MpesaException e) {
+      return CompletableFuture.failedFuture(e);
+    }
+    return executor.executeHedgedAsync(
+        MpesaOperation.STK_QUERY,
+        config.getEnvironment().getStkQueryUrl(),
+        body,
+        StkStatusQueryResponse.class,
+        stkQueryHedgePolicy);
   }
 
-  /** ADD THIS NEW METHOD IMPLEMENTATION */
   @Override
   public C2bRegisterUrlResponse registerC2bUrl(C2bRegisterUrlRequest userRequest)
       throws MpesaException {
-    C2bRegisterUrlRequest apiRequest =
-        userRequest.toBuilder().shortCode(config.getBusinessShortCode()).build();
+    return executor.execute(
+        MpesaOperation.C2B_REGISTER,
+        config.getEnvironment().getC2bRegisterUrl(),
+        toJsonBody(toApiRequest(userRequest)),
+        C2bRegisterUrlResponse.class);
+  }
+
+  @Override
+  public CompletableFuture<C2bRegisterUrlResponse> registerC2bUrlAsync(
+      C2bRegisterUrlRequest userRequest) {
+    RequestBody body;
+    try {
+      body = toJsonBody(toApiRequest(userRequest));
+    } catch (MpesaException e) {
+      return CompletableFuture.failedFuture(e);
+    }
+    return executor.executeAsync(
+        MpesaOperation.C2B_REGISTER,
+        config.getEnvironment().getC2bRegisterUrl(),
+        body,
+        C2bRegisterUrlResponse.class);
+  }
 
-    return execute(
-        config.getEnvironment().getC2bRegisterUrl(), apiRequest, C2bRegisterUrlResponse.class);
+  /**
+   * Prepares the client for its first real request, so that request does not pay for the token
+   * fetch, connection setup and serializer construction one after another. Three phases run in
+   * parallel:
+   *
+   * <ul>
+   *   <li>obtaining an access token,
+   *   <li>opening pooled connections to the Daraja host with {@link
+   *       MpesaClientOptions#getWarmUpConnections()} concurrent requests, and
+   *   <li>priming the JSON codecs and the STK Push encoder.
+   * </ul>
+   *
+   * <p>Over HTTP/2 the requests share one connection, so only one is opened; {@link
+   * MpesaWarmUpReport#getPooledConnections()} tells how many the pool holds afterwards.
+   *
+   * <p>Call it during startup, before the application reports itself ready.
+   *
+   * @return How long each phase took.
+   * @throws MpesaAuthException If no access token could be obtained.
+   * @throws MpesaException If a connection to the Daraja host could not be opened.
+   */
+  public MpesaWarmUpReport warmUp() throws MpesaException {
+    return MpesaCallExecutor.await(warmUpAsync());
   }
 
   /**
-   * A generic, private method to handle the boilerplate of executing authenticated HTTP POST
-   * requests.
+   * The non-blocking form of {@link #warmUp()}. The returned future completes once every phase
+   * has finished, exceptionally with the first failure if any phase failed.
    */
-  private <T> T execute(String url, Object requestPayload, Class<T> responseClass)
-      throws MpesaException {
+  public CompletableFuture<MpesaWarmUpReport> warmUpAsync() {
+    long start = System.nanoTime();
+    CompletableFuture<Duration> token = timed(start, tokenManager.getAccessTokenAsync());
+    CompletableFuture<Duration> connections = timed(start, openConnections(warmUpConnections));
+    CompletableFuture<Duration> codecsPrimed =
+        timed(start, CompletableFuture.runAsync(this::prime));
+
+    return CompletableFuture.allOf(token, connections, codecsPrimed)
+        .thenApply(
+            ignored ->
+                new MpesaWarmUpReport(
+                    token.join(),
+                    connections.join(),
+                    codecsPrimed.join(),
+                    Duration.ofNanos(System.nanoTime() - start),
+                    client.connectionPool().connectionCount()));
+  }
+
+  private static CompletableFuture<Duration> timed(long start, CompletableFuture<?> phase) {
+    return phase.thenApply(ignored -> Duration.ofNanos(System.nanoTime() - start));
+  }
+
+  /**
+   * Sends concurrent {@code HEAD} requests to the root of the Daraja host. Over HTTP/1.1 each needs
+   * a connection of its own, which is returned to the pool once the response is read. Over HTTP/2
+   * OkHttp multiplexes them onto one connection and drops any extra ones it raced to open.
+   */
+  private CompletableFuture<Void> openConnections(int count) {
+    HttpUrl root = HttpUrl.get(config.getEnvironment().getStkPushUrl()).resolve("/");
+    Request request = new Request.Builder().url(Objects.requireNonNull(root)).head().build();
+
+    CompletableFuture<?>[] calls = new CompletableFuture<?>[count];
+    for (int i = 0; i < count; i++) {
+      CompletableFuture<Void> call = new CompletableFuture<>();
+      client
+          .newCall(request)
+          .enqueue(
+              new Callback() {
+                @Override
+                public void onFailure(Call c, IOException e) {
+                  call.completeExceptionally(
+                      new MpesaException("Failed to open a connection to " + root.host(), e));
+                }
+
+                @Override
+                public void onResponse(Call c, Response response) {
+                  response.close();
+                  call.complete(null);
+                }
+              });
+      calls[i] = call;
+    }
+    return CompletableFuture.allOf(calls);
+  }
+
+  /** Runs the codecs and the request encoder once, with this client's shortcode. */
+  private void prime() {
+    codecs.prime();
+    StkPushRequestEncoder.encode(
+        StkPushRequest.builder().build(),
+        config.getBusinessShortCode(),
+        credentialProvider.get(config.getBusinessShortCode(), config.getPassKey()),
+        null,
+        null,
+        new Buffer());
+  }
+
+  /**
+   * Encodes the STK Push body directly from the user's request, merging in the shortcode,
+   * credentials and formatted phone numbers as it writes rather than building a filled-in copy.
+   */
+  private RequestBody toStkPushBody(StkPushRequest userRequest) {
+    StkCredentialProvider.Credentials credentials =
+        credentialProvider.get(config.getBusinessShortCode(), config.getPassKey());
+    String partyA = MpesaUtils.formatPhoneNumber(userRequest.getPartyA());
+    // PartyA and PhoneNumber are the same number on a PayBill request; format it only once.
+    String phoneNumber =
+        Objects.equals(userRequest.getPhoneNumber(), userRequest.getPartyA())
+            ? partyA
+            : MpesaUtils.formatPhoneNumber(userRequest.getPhoneNumber());
+
+    Buffer buffer = new Buffer();
+    StkPushRequestEncoder.encode(
+        userRequest, config.getBusinessShortCode(), credentials, partyA, phoneNumber, buffer);
+    return RequestBody.create(buffer.readByteArray(), JSON_MEDIA_TYPE);
+  }
+
+  /**
+   * Returns the key derived from the account reference, phone number and amount, or {@code null}
+   * if keys are not derived or the request lacks one of them.
+   */
+  private String derivedIdempotencyKey(StkPushRequest userRequest) {
+    if (!deriveStkPushKeys
+        || userRequest.getAccountReference() == null
+        || userRequest.getAmount() == null) {
+      return null;
+    }
+    long msisdn;
+    try {
+      msisdn = MpesaUtils.toMsisdn(userRequest.getPhoneNumber());
+    } catch (IllegalArgumentException e) {
+      // The call fails on the same number anyway; let it.
+      return null;
+    }
+    // The free-text reference goes last, so no separator inside it can make two keys collide.
+    return msisdn + ":" + userRequest.getAmount().trim() + ":" + userRequest.getAccountReference();
+  }
+
+  private StkStatusQueryRequest toQueryRequest(String checkoutRequestID) {
+    StkCredentialProvider.Credentials credentials =
+        credentialProvider.get(config.getBusinessShortCode(), config.getPassKey());
+
+    return StkStatusQueryRequest.builder()
+        .businessShortCode(config.getBusinessShortCode())
+        .password(credentials.getPassword())
+        .timestamp(credentials.getTimestamp())
+        .checkoutRequestID(checkoutRequestID)
+        .build();
+  }
+
+  private C2bRegisterUrlRequest toApiRequest(C2bRegisterUrlRequest userRequest) {
+    return userRequest.toBuilder().shortCode(config.getBusinessShortCode()).build();
+  }
+
+  private RequestBody toJsonBody(Object requestPayload) throws MpesaException {
     try {
-      String accessToken = tokenManager.getAccessToken();
-      RequestBody body =
-          RequestBody.create(objectMapper.writeValueAsString(requestPayload), JSON_MEDIA_TYPE);
-
-      Request httpRequest =
-          new Request.Builder()
-              .url(url)
-              .post(body)
-              .header("Authorization", "Bearer " + accessToken)
-              .build();
-
-      try (Response response = client.newCall(httpRequest).execute()) {
-        String responseBody = Objects.requireNonNull(response.body()).string();
-        if (!response.isSuccessful()) {
-          throw new MpesaApiException("API call failed", response.code(), responseBody);
-        }
-        return objectMapper.readValue(responseBody, responseClass);
-      }
-    } catch (IOException e) {
-      throw new MpesaException("An unhandled network or parsing error occurred.", e);
+      String json = codecs.writerFor(requestPayload.getClass()).writeValueAsString(requestPayload);
+      return RequestBody.create(json, JSON_MEDIA_TYPE);
+    } catch (JsonProcessingException e) {
+      throw new MpesaException(MpesaCallExecutor.UNHANDLED_ERROR_MESSAGE, e);
     }
   }
 }
@@ -0,0 +1,158 @@
+package io.github.openpaydev.mpesa;
+
+import io.github.openpaydev.mpesa.core.MpesaOperation;
+import io.github.openpaydev.mpesa.core.codec.MpesaCodecs;
+import io.github.openpaydev.mpesa.resilience.AdaptiveConcurrencyLimiter;
+import io.github.openpaydev.mpesa.resilience.HedgePolicy;
+import io.github.openpaydev.mpesa.resilience.IdempotencyPolicy;
+import io.github.openpaydev.mpesa.resilience.MpesaCircuitBreakers;
+import io.github.openpaydev.mpesa.resilience.MpesaRateLimiter;
+import io.github.openpaydev.mpesa.resilience.RetryBudget;
+import io.github.openpaydev.mpesa.resilience.RetryPolicy;
+import io.github.openpaydev.mpesa.resilience.StkQueryCachePolicy;
+import java.util.Map;
+import lombok.Builder;
+import lombok.Getter;
+
+/**
+ * Optional settings for {@link MpesaClient}. Every setting has a default, so only the ones that
+ * differ need to be set.
+ *
+ * <p>Example:
+ *
+ * <pre>{@code
+ * MpesaClientOptions options = MpesaClientOptions.builder()
+ *         .codecs(MpesaCodecs.withAccessorModule())
+ *         .build();
+ * MpesaClient client = new MpesaClient(config, tokenManager, httpClient, options);
+ * }</pre>
+ */
+@Getter
+@Builder
+public class MpesaClientOptions {
+
+  /**
+   * The JSON codecs for request and response bodies. Defaults to {@link MpesaCodecs#defaults()}.
+   */
+  @Builder.Default
+  private final MpesaCodecs codecs = MpesaCodecs.defaults();
+
+  /**
+   * How many concurrent requests {@link MpesaClient#warmUp()} sends to the Daraja host to open
+   * connections, at least 0. Over HTTP/1.1 each needs a connection of its own, but no more than the
+   * HTTP client's {@code maxRequestsPerHost} (5 on a stock {@code OkHttpClient}) run at once. Over
+   * HTTP/2 they share one connection, so one is opened whatever the value. {@link
+   * MpesaWarmUpReport#getPooledConnections()} tells how many were opened. Defaults to 4.
+   */
+  @Builder.Default
+  private final int warmUpConnections = 4;
+
+  /**
+   * The retry policy for operations without one in {@link #getRetryPolicies()}. Defaults to {@link
+   * RetryPolicy#defaults()}; use {@link RetryPolicy#none()} to turn retries off.
+   */
+  @Builder.Default
+  private final RetryPolicy retryPolicy = RetryPolicy.defaults();
+
+  /** Retry policies that replace {@link #getRetryPolicy()} for individual operations. */
+  @Builder.Default
+  private final Map<MpesaOperation, RetryPolicy> retryPolicies = Map.of();
+
+  /**
+   * The budget that every retry and hedge of the client is paid from. Defaults to {@link
+   * RetryBudget#create()}. Clients given the same budget share it.
+   */
+  @Builder.Default
+  private final RetryBudget retryBudget = RetryBudget.create();
+
+  /**
+   * Hedging for STK status queries, the one read-only call that is made repeatedly while waiting
+   * for a customer. Disabled by default.
+   */
+  @Builder.Default
+  private final HedgePolicy stkQueryHedgePolicy = HedgePolicy.disabled();
+
+  /**
+   * Shares one call between concurrent STK status queries for the same checkout and keeps the
+   * result, final ones for long and pending ones briefly. Defaults to {@link
+   * StkQueryCachePolicy#defaults()}; {@link StkQueryCachePolicy#disabled()} sends every query.
+   */
+  @Builder.Default
+  private final StkQueryCachePolicy stkQueryCache = StkQueryCachePolicy.defaults();
+
+  /**
+   * Suppresses repeated STK Push submissions under the same idempotency key. Defaults to {@link
+   * IdempotencyPolicy#defaults()}, which honours keys passed to {@link
+   * MpesaClient#stkPush(io.github.openpaydev.mpesa.core.models.StkPushRequest, String)} but derives
+   * none.
+   */
+  @Builder.Default
+  private final IdempotencyPolicy stkPushIdempotency = IdempotencyPolicy.defaults();
+
+  /**
+   * Keeps calls under Daraja's TPS limits before they are sent. Defaults to {@link
+   * MpesaRateLimiter#unlimited()}. Share one limiter between clients using the same shortcode.
+   */
+  @Builder.Default
+  private final MpesaRateLimiter rateLimiter = MpesaRateLimiter.unlimited();
+
+  /**
+   * The circuit breakers that reject calls to an endpoint while it is failing or slow, instead of
+   * letting every call wait for a timeout. Defaults to {@link MpesaCircuitBreakers#create()}, with
+   * one breaker per endpoint URL.
+   */
+  @Builder.Default
+  private final MpesaCircuitBreakers circuitBreakers = MpesaCircuitBreakers.create();
+
+  /**
+   * Caps how many calls are in flight at once and adapts the cap to Daraja's latency, queueing the
+   * calls beyond it. Share one limiter between clients to cap them together. Defaults to {@link
+   * AdaptiveConcurrencyLimiter#unlimited()}.
+   */
+  @Builder.Default
+  private final AdaptiveConcurrencyLimiter concurrencyLimiter =
+      AdaptiveConcurrencyLimiter.unlimited();
+
+  /**
+   * Called by the builder only.
+   *
+   * @throws IllegalArgumentException If {@code warmUpConnections} is negative.
+   */
+  private MpesaClientOptions(
+      MpesaCodecs codecs,
+      int warmUpConnections,
+      RetryPolicy retryPolicy,
+      Map<MpesaOperation, RetryPolicy> retryPolicies,
+      RetryBudget retryBudget,
+      HedgePolicy stkQueryHedgePolicy,
+      StkQueryCachePolicy stkQueryCache,
+      IdempotencyPolicy stkPushIdempotency,
+      MpesaRateLimiter rateLimiter,
+      MpesaCircuitBreakers circuitBreakers,
+      AdaptiveConcurrencyLimiter concurrencyLimiter) {
+    if (warmUpConnections < 0) {
+      throw new IllegalArgumentException("warmUpConnections must not be negative.");
+    }
+    this.codecs = codecs;
+    this.warmUpConnections = warmUpConnections;
+    this.retryPolicy = retryPolicy;
+    this.retryPolicies = retryPolicies;
+    this.retryBudget = retryBudget;
+    this.stkQueryHedgePolicy = stkQueryHedgePolicy;
+    this.stkQueryCache = stkQueryCache;
+    this.stkPushIdempotency = stkPushIdempotency;
+    this.rateLimiter = rateLimiter;
+    this.circuitBreakers = circuitBreakers;
+    this.concurrencyLimiter = concurrencyLimiter;
+  }
+
+  /** Returns the retry policy that applies to the given operation. */
+  public RetryPolicy retryPolicyFor(MpesaOperation operation) {
+    return retryPolicies.getOrDefault(operation, retryPolicy);
+  }
+
+  /** Returns the options with every setting at its default. */
+  public static MpesaClientOptions defaults() {
+    return builder().build();
+  }
+}
@@ -0,0 +1,27 @@
+package io.github.openpaydev.mpesa;
+
+import java.time.Duration;
+import lombok.Value;
+
+/**
+ * How long each phase of {@link MpesaClient#warmUp()} took. The phases run in parallel, so {@link
+ * #getTotal()} is close to the slowest phase rather than their sum.
+ */
+@Value
+public class MpesaWarmUpReport {
+
+  /** Obtaining an access token, from the token store or the OAuth endpoint. */
+  Duration token;
+
+  /** Opening the pooled connections to the Daraja host. */
+  Duration connections;
+
+  /** Priming the JSON codecs and the request encoder. */
+  Duration codecs;
+
+  /** The whole warm-up, from start until the last phase finished. */
+  Duration total;
+
+  /** The connections in the HTTP client's pool once warm-up finished, in use or idle. */
+  int pooledConnections;
+}
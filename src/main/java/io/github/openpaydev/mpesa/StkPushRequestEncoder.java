@@ -0,0 +1,120 @@
+package io.github.openpaydev.mpesa;
+
+import io.github.openpaydev.mpesa.core.models.StkPushRequest;
+import io.github.openpaydev.mpesa.core.utils.StkCredentialProvider;
+import okio.Buffer;
+import okio.ByteString;
+
+/**
+ * Writes the JSON body of an STK Push request straight into an okio {@link Buffer}.
+ *
+ * <p>The output is byte-for-byte what a default {@code ObjectMapper} produces for the request once
+ * the server-side fields are filled in: properties in declaration order, {@code null} for missing
+ * values, and Jackson's escaping rules for strings. The server-side fields are passed in and
+ * written in place, so no copy of the user's request is built, and the property names are encoded
+ * to UTF-8 once, up front.
+ */
+final class StkPushRequestEncoder {
+
+  private static final ByteString BUSINESS_SHORT_CODE = name("{", "BusinessShortCode");
+  private static final ByteString PASSWORD = name(",", "Password");
+  private static final ByteString TIMESTAMP = name(",", "Timestamp");
+  private static final ByteString TRANSACTION_TYPE = name(",", "TransactionType");
+  private static final ByteString AMOUNT = name(",", "Amount");
+  private static final ByteString PARTY_A = name(",", "PartyA");
+  private static final ByteString PARTY_B = name(",", "PartyB");
+  private static final ByteString PHONE_NUMBER = name(",", "PhoneNumber");
+  private static final ByteString CALL_BACK_URL = name(",", "CallBackURL");
+  private static final ByteString ACCOUNT_REFERENCE = name(",", "AccountReference");
+  private static final ByteString TRANSACTION_DESC = name(",", "TransactionDesc");
+  private static final ByteString NULL = ByteString.encodeUtf8("null");
+
+  private static final char[] HEX_DIGITS = "0123456789ABCDEF".toCharArray();
+
+  /** The escape sequence for each ASCII character that needs one, as Jackson writes it. */
+  private static final String[] ESCAPES = new String[128];
+
+  static {
+    for (int c = 0; c < 0x20; c++) {
+      ESCAPES[c] = "\\u00" + HEX_DIGITS[c >> 4] + HEX_DIGITS[c & 0xF];
+    }
+    ESCAPES['\b'] = "\\b";
+    ESCAPES['\t'] = "\\t";
+    ESCAPES['\n'] = "\\n";
+    ESCAPES['\f'] = "\\f";
+    ESCAPES['\r'] = "\\r";
+    ESCAPES['"'] = "\\\"";
+    ESCAPES['\\'] = "\\\\";
+  }
+
+  private StkPushRequestEncoder() {}
+
+  /**
+   * Writes the request as JSON, taking the server-side fields from the arguments instead of the
+   * request.
+   *
+   * @param request The user's request, supplying the transaction fields.
+   * @param shortCode Written as both {@code BusinessShortCode} and {@code PartyB}.
+   * @param credentials Supplies {@code Password} and {@code Timestamp}.
+   * @param partyA The formatted {@code PartyA}.
+   * @param phoneNumber The formatted {@code PhoneNumber}.
+   * @param sink The buffer to append to.
+   */
+  static void encode(
+      StkPushRequest request,
+      String shortCode,
+      StkCredentialProvider.Credentials credentials,
+      String partyA,
+      String phoneNumber,
+      Buffer sink) {
+    sink.write(BUSINESS_SHORT_CODE);
+    writeString(shortCode, sink);
+    sink.write(PASSWORD);
+    writeString(credentials.getPassword(), sink);
+    sink.write(TIMESTAMP);
+    writeString(credentials.getTimestamp(), sink);
+    sink.write(TRANSACTION_TYPE);
+    writeString(request.getTransactionType(), sink);
+    sink.write(AMOUNT);
+    writeString(request.getAmount(), sink);
+    sink.write(PARTY_A);
+    writeString(partyA, sink);
+    sink.write(PARTY_B);
+    writeString(shortCode, sink);
+    sink.write(PHONE_NUMBER);
+    writeString(phoneNumber, sink);
+    sink.write(CALL_BACK_URL);
+    writeString(request.getCallBackURL(), sink);
+    sink.write(ACCOUNT_REFERENCE);
+    writeString(request.getAccountReference(), sink);
+    sink.write(TRANSACTION_DESC);
+    writeString(request.getTransactionDesc(), sink);
+    sink.writeByte('}');
+  }
+
+  private static void writeString(String value, Buffer sink) {
+    if (value == null) {
+      sink.write(NULL);
+      return;
+    }
+    sink.writeByte('"');
+    // Copy runs of characters that need no escaping in one call. Runs only ever end at an ASCII
+    // character, so a surrogate pair is never split.
+    int start = 0;
+    int length = value.length();
+    for (int i = 0; i < length; i++) {
+      char c = value.charAt(i);
+      if (c < ESCAPES.length && ESCAPES[c] != null) {
+        sink.writeUtf8(value, start, i);
+        sink.writeUtf8(ESCAPES[c]);
+        start = i + 1;
+      }
+    }
+    sink.writeUtf8(value, start, length);
+    sink.writeByte('"');
+  }
+
+  private static ByteString name(String separator, String name) {
+    return ByteString.encodeUtf8(separator + '"' + name + "\":");
+  }
+}
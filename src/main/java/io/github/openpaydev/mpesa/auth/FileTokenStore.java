@@ -0,0 +1,259 @@
+package io.github.openpaydev.mpesa.auth;
+
+import io.github.openpaydev.mpesa.core.auth.CachedToken;
+import io.github.openpaydev.mpesa.core.auth.TokenStore;
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * A {@link TokenStore} backed by a small memory-mapped file, so that every JVM on a host that opens
+ * the same path shares one access token.
+ *
+ * <p>Reads never block: the record is guarded by a sequence counter that writers make odd while
+ * they update it, and readers retry if the counter moved underneath them. The last record read is
+ * cached, so a reader only decodes the token again after someone saves a new one. Refreshes and
+ * writes are serialized across processes with OS file locks on bytes just past the record, which
+ * the OS releases automatically if the holding process dies.
+ *
+ * <p>Example, with one store per JVM and the same path everywhere:
+ *
+ * <pre>{@code
+ * FileTokenStore store = FileTokenStore.open(Paths.get("/var/run/myapp/mpesa-token"));
+ * MpesaTokenManager tokenManager = new MpesaTokenManager(config, httpClient, store);
+ * }</pre>
+ *
+ * <p>The file holds the token in clear text; restrict its permissions accordingly.
+ */
+public final class FileTokenStore implements TokenStore, Closeable {
+
+  private static final int MAGIC = 0x4D50544B; // "MPTK"
+  private static final int FILE_SIZE = 4096;
+
+  private static final int MAGIC_OFFSET = 0;
+  private static final int SEQUENCE_OFFSET = 8;
+  private static final int EXPIRY_OFFSET = 16;
+  private static final int LENGTH_OFFSET = 24;
+  private static final int TOKEN_OFFSET = 28;
+
+  /** The longest token, in UTF-8 bytes, that fits in the record. */
+  static final int MAX_TOKEN_BYTES = FILE_SIZE - TOKEN_OFFSET;
+
+  private static final long LOCK_POSITION = FILE_SIZE;
+  private static final long WRITE_LOCK_POSITION = FILE_SIZE + 1;
+  private static final int MAX_WRITE_LOCK_ATTEMPTS = 10_000;
+  private static final int MAX_READ_ATTEMPTS = 1000;
+
+  private static final VarHandle LONGS =
+      MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.nativeOrder());
+
+  /** One monitor per token file, shared by every store on it in this JVM. */
+  private static final ConcurrentMap<Path, Object> WRITE_MONITORS = new ConcurrentHashMap<>();
+
+  private final FileChannel channel;
+  private final ByteBuffer record;
+  private final Object writeMonitor;
+
+  private volatile Snapshot lastRead;
+
+  private FileTokenStore(FileChannel channel, ByteBuffer record, Object writeMonitor) {
+    this.channel = channel;
+    this.record = record;
+    this.writeMonitor = writeMonitor;
+  }
+
+  /**
+   * Opens, creating it if necessary, the token file at the given path.
+   *
+   * @param path The file to share. Every process that should share a token must use the same path.
+   * @return A store backed by the file.
+   * @throws IOException If the file cannot be opened or mapped.
+   */
+  public static FileTokenStore open(Path path) throws IOException {
+    FileChannel channel =
+        FileChannel.open(
+            path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    try {
+      ByteBuffer record =
+          channel.map(FileChannel.MapMode.READ_WRITE, 0, FILE_SIZE).order(ByteOrder.nativeOrder());
+      Object writeMonitor = WRITE_MONITORS.computeIfAbsent(path.toRealPath(), p -> new Object());
+      return new FileTokenStore(channel, record, writeMonitor);
+    } catch (IOException | RuntimeException e) {
+      channel.close();
+      throw e;
+    }
+  }
+
+  @Override
+  public CachedToken load() {
+    for (int attempt = 0; attempt < MAX_READ_ATTEMPTS; attempt++) {
+      long sequence = (long) LONGS.getAcquire(record, SEQUENCE_OFFSET);
+      if ((sequence & 1) != 0) {
+        Thread.onSpinWait();
+        continue;
+      }
+
+      Snapshot last = lastRead;
+      if (last != null && last.sequence == sequence) {
+        return last.token;
+      }
+
+      int magic = record.getInt(MAGIC_OFFSET);
+      long expiryTime = (long) LONGS.get(record, EXPIRY_OFFSET);
+      int length = record.getInt(LENGTH_OFFSET);
+      byte[] bytes = null;
+      if (length >= 0 && length <= MAX_TOKEN_BYTES) {
+        bytes = new byte[length];
+        record.get(TOKEN_OFFSET, bytes);
+      }
+
+      VarHandle.loadLoadFence();
+      if ((long) LONGS.getOpaque(record, SEQUENCE_OFFSET) != sequence) {
+        continue;
+      }
+      if (magic != MAGIC || bytes == null) {
+        return null;
+      }
+
+      CachedToken token = new CachedToken(new String(bytes, StandardCharsets.UTF_8), expiryTime);
+      lastRead = new Snapshot(sequence, token);
+      return token;
+    }
+    // A writer died mid-update; the next save repairs the record.
+    return null;
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * <p>Writers are serialized across processes by an OS file lock on a second byte past the record,
+   * and within this JVM by a monitor per file, since the OS lock cannot be held twice in one JVM.
+   * If another process holds the write lock for longer than a write takes, its token is as fresh as
+   * this one and the save is left to it. Only where the file cannot be locked at all do writers go
+   * without; they then claim the sequence counter by compare-and-set, and a writer that finds the
+   * record being written leaves the save to the other one.
+   *
+   * @throws IllegalArgumentException If the token is longer than {@value #MAX_TOKEN_BYTES} bytes.
+   */
+  @Override
+  public void save(CachedToken token) {
+    byte[] bytes = token.getValue().getBytes(StandardCharsets.UTF_8);
+    if (bytes.length > MAX_TOKEN_BYTES) {
+      throw new IllegalArgumentException(
+          "Token of " + bytes.length + " bytes does not fit in the token file.");
+    }
+
+    synchronized (writeMonitor) {
+      FileLock lock = null;
+      // tryLock rather than lock, which closes the channel if the waiting thread is interrupted.
+      for (int attempt = 0; lock == null; attempt++) {
+        try {
+          lock = channel.tryLock(WRITE_LOCK_POSITION, 1, false);
+        } catch (OverlappingFileLockException | IOException e) {
+          break;
+        }
+        if (lock == null) {
+          if (attempt == MAX_WRITE_LOCK_ATTEMPTS) {
+            return;
+          }
+          Thread.yield();
+        }
+      }
+      try {
+        write(bytes, token.getExpiryTime(), lock != null);
+      } finally {
+        release(lock);
+      }
+    }
+  }
+
+  /**
+   * Writes the record under a claimed sequence number.
+   *
+   * @param locked Whether the write lock is held. A holder that finds the counter odd knows the
+   *     previous writer died mid-update, and takes the record over.
+   */
+  private void write(byte[] bytes, long expiryTime, boolean locked) {
+    long sequence = (long) LONGS.getVolatile(record, SEQUENCE_OFFSET);
+    boolean torn = (sequence & 1) != 0;
+    if (torn && !locked) {
+      return;
+    }
+    long writing = torn ? sequence + 2 : sequence + 1;
+    if (!LONGS.compareAndSet(record, SEQUENCE_OFFSET, sequence, writing)) {
+      return;
+    }
+
+    record.putInt(MAGIC_OFFSET, MAGIC);
+    LONGS.set(record, EXPIRY_OFFSET, expiryTime);
+    record.putInt(LENGTH_OFFSET, bytes.length);
+    record.put(TOKEN_OFFSET, bytes);
+
+    LONGS.setRelease(record, SEQUENCE_OFFSET, writing + 1);
+  }
+
+  private static void release(FileLock lock) {
+    if (lock == null) {
+      return;
+    }
+    try {
+      lock.release();
+    } catch (IOException e) {
+      // The lock is released when the channel is closed.
+    }
+  }
+
+  /**
+   * Tries to take the host-wide refresh lock. Another store on the same file in this JVM counts as
+   * a holder just like another process does. If the operating system cannot lock the file at all,
+   * the lock is granted so that refreshing still works, only without coordination.
+   */
+  @Override
+  public RefreshLock tryLockRefresh() {
+    FileLock lock;
+    try {
+      lock = channel.tryLock(LOCK_POSITION, 1, false);
+    } catch (OverlappingFileLockException e) {
+      return null;
+    } catch (IOException e) {
+      return () -> {};
+    }
+    if (lock == null) {
+      return null;
+    }
+    return () -> {
+      try {
+        lock.release();
+      } catch (IOException e) {
+        // The lock is released when the channel is closed.
+      }
+    };
+  }
+
+  /** Closes the underlying file, releasing any refresh lock still held through this store. */
+  @Override
+  public void close() throws IOException {
+    channel.close();
+  }
+
+  private static final class Snapshot {
+    private final long sequence;
+    private final CachedToken token;
+
+    private Snapshot(long sequence, CachedToken token) {
+      this.sequence = sequence;
+      this.token = token;
+    }
+  }
+}
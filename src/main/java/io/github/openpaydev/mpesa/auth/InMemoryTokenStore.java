@@ -0,0 +1,23 @@
+package io.github.openpaydev.mpesa.auth;
+
+import io.github.openpaydev.mpesa.core.auth.CachedToken;
+import io.github.openpaydev.mpesa.core.auth.TokenStore;
+
+/**
+ * The default {@link TokenStore}: a single volatile reference in the current JVM. Refreshes are
+ * already single-flight inside {@link MpesaTokenManager}, so the refresh lock is always granted.
+ */
+public final class InMemoryTokenStore implements TokenStore {
+
+  private volatile CachedToken token;
+
+  @Override
+  public CachedToken load() {
+    return token;
+  }
+
+  @Override
+  public void save(CachedToken token) {
+    this.token = token;
+  }
+}
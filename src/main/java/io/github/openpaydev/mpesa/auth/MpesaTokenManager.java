@@ -1,35 +1,86 @@
 package io.github.openpaydev.mpesa.auth;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
 import io.github.openpaydev.mpesa.core.MpesaConfig;
+import io.github.openpaydev.mpesa.core.auth.CachedToken;
 import io.github.openpaydev.mpesa.core.auth.TokenManager;
+import io.github.openpaydev.mpesa.core.auth.TokenStore;
+import io.github.openpaydev.mpesa.core.auth.TokenStore.RefreshLock;
+import io.github.openpaydev.mpesa.core.codec.MpesaCodecs;
 import io.github.openpaydev.mpesa.core.exceptions.MpesaAuthException;
 import io.github.openpaydev.mpesa.core.models.AccessTokenResponse;
 import java.io.IOException;
 import java.time.Clock;
+import java.time.Duration;
 import java.util.Base64;
 import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import okhttp3.Call;
+import okhttp3.Callback;
 import okhttp3.OkHttpClient;
 import okhttp3.Request;
 import okhttp3.Response;
+import okhttp3.ResponseBody;
 
 /**
  * Concrete implementation of the {@link TokenManager} interface. It retrieves and caches the M-Pesa
  * OAuth access token using OkHttp. This class is thread-safe.
+ *
+ * <p>Reading a valid token is a single volatile read of an immutable snapshot, so callers never
+ * contend with each other. Refreshes are single-flight: one caller talks to the OAuth endpoint and
+ * everyone else either keeps using the still-valid token or waits on that caller's result.
+ *
+ * <p>Optionally, {@link #enableBackgroundRefresh(ScheduledExecutorService)} renews the token on a
+ * scheduler well before it enters the expiry buffer, so request threads never pay for the OAuth
+ * round trip in steady state.
+ *
+ * <p>Tokens are kept in a {@link TokenStore}. The default one is private to this manager; a shared
+ * store such as {@link FileTokenStore} lets several managers, even in different processes, use one
+ * token and coordinate so that only one of them refreshes it at a time.
  */
 public class MpesaTokenManager implements TokenManager {
 
   private static final long TOKEN_EXPIRY_BUFFER_MS = 60000;
 
+  private static final Duration DEFAULT_REFRESH_AHEAD = Duration.ofMinutes(5);
+  private static final Duration DEFAULT_REFRESH_JITTER = Duration.ofSeconds(30);
+  private static final long MIN_RETRY_BACKOFF_MS = 1000;
+  private static final long MAX_RETRY_BACKOFF_MS = 60000;
+
+  /** How often to re-check a shared store while another party holds its refresh lock. */
+  private static final long STORE_LOCK_POLL_MS = 50;
+
+  /** How long to wait for another party's refresh before fetching a token regardless. */
+  private static final long STORE_LOCK_WAIT_NANOS = TimeUnit.SECONDS.toNanos(10);
+
   private final MpesaConfig config;
   private final OkHttpClient client;
-  private final ObjectMapper objectMapper = new ObjectMapper();
+  private final ObjectReader tokenResponseReader;
 
+  private final TokenStore tokenStore;
   private final Clock clock;
 
-  private String cachedToken;
-  private long expiryTime = 0;
+  /** The refresh currently talking to the OAuth endpoint, or {@code null} when none is running. */
+  private final AtomicReference<CompletableFuture<String>> inFlightRefresh =
+      new AtomicReference<>();
+
+  /** Guards {@link #backgroundRefresh}. */
+  private final Object backgroundRefreshLock = new Object();
+
+  private BackgroundRefresh backgroundRefresh;
+
+  /**
+   * A token fetched without the store's refresh lock. It is kept here instead of in the store, so
+   * that it cannot race the lock holder's write to a shared store.
+   */
+  private volatile CachedToken unsharedToken;
 
   /**
    * The primary public constructor for the SDK. It uses the default system clock.
@@ -38,7 +89,33 @@ public class MpesaTokenManager implements TokenManager {
    * @param client The OkHttpClient for making requests.
    */
   public MpesaTokenManager(MpesaConfig config, OkHttpClient client) {
-    this(config, client, Clock.systemDefaultZone());
+    this(config, client, new InMemoryTokenStore());
+  }
+
+  /**
+   * Creates a token manager that keeps its token in the given store, typically one shared with
+   * other token managers.
+   *
+   * @param config The M-Pesa configuration object.
+   * @param client The OkHttpClient for making requests.
+   * @param tokenStore Where the access token is kept.
+   */
+  public MpesaTokenManager(MpesaConfig config, OkHttpClient client, TokenStore tokenStore) {
+    this(config, client, tokenStore, MpesaCodecs.defaults());
+  }
+
+  /**
+   * Creates a token manager that keeps its token in the given store and reads token responses with
+   * the given codecs, typically the same instance the {@code MpesaClient} uses.
+   *
+   * @param config The M-Pesa configuration object.
+   * @param client The OkHttpClient for making requests.
+   * @param tokenStore Where the access token is kept.
+   * @param codecs The JSON codecs for the token response.
+   */
+  public MpesaTokenManager(
+      MpesaConfig config, OkHttpClient client, TokenStore tokenStore, MpesaCodecs codecs) {
+    this(config, client, tokenStore, codecs, Clock.systemDefaultZone());
   }
 
   /**
@@ -50,47 +127,495 @@ public class MpesaTokenManager implements TokenManager {
    * @param clock The Clock to use for time checks.
    */
   MpesaTokenManager(MpesaConfig config, OkHttpClient client, Clock clock) {
+    this(config, client, new InMemoryTokenStore(), clock);
+  }
+
+  /**
+   * A package-private constructor for testing with both a custom store and a custom Clock.
+   *
+   * @param config The M-Pesa configuration object.
+   * @param client The OkHttpClient for making requests.
+   * @param tokenStore Where the access token is kept.
+   * @param clock The Clock to use for time checks.
+   */
+  MpesaTokenManager(MpesaConfig config, OkHttpClient client, TokenStore tokenStore, Clock clock) {
+    this(config, client, tokenStore, MpesaCodecs.defaults(), clock);
+  }
+
+  private MpesaTokenManager(
+      MpesaConfig config,
+      OkHttpClient client,
+      TokenStore tokenStore,
+      MpesaCodecs codecs,
+      Clock clock) {
     this.config = config;
     this.client = client;
+    this.tokenStore = Objects.requireNonNull(tokenStore, "tokenStore");
+    this.tokenResponseReader = codecs.readerFor(AccessTokenResponse.class);
     this.clock = clock;
   }
 
+  /**
+   * Returns the cached token without locking while it is valid. When it is inside the expiry
+   * buffer, exactly one caller refreshes it while the others keep using the old token until it
+   * actually expires; after that they wait on the shared refresh instead of starting their own.
+   */
   @Override
-  public synchronized String getAccessToken() throws MpesaAuthException {
-    if (cachedToken != null && clock.millis() < (expiryTime - TOKEN_EXPIRY_BUFFER_MS)) {
-      return cachedToken;
+  public String getAccessToken() throws MpesaAuthException {
+    while (true) {
+      CachedToken current = currentToken();
+      long now = clock.millis();
+      if (isFresh(current, now)) {
+        return current.getValue();
+      }
+
+      CompletableFuture<String> refresh = inFlightRefresh.get();
+      if (refresh == null) {
+        CompletableFuture<String> claimed = new CompletableFuture<>();
+        if (inFlightRefresh.compareAndSet(null, claimed)) {
+          return refreshBlocking(claimed, current);
+        }
+        continue;
+      }
+
+      if (isUsable(current, now)) {
+        return current.getValue();
+      }
+      return await(refresh);
     }
+  }
 
-    String credentials = config.getConsumerKey() + ":" + config.getConsumerSecret();
-    String encoded = Base64.getEncoder().encodeToString(credentials.getBytes());
+  /**
+   * Returns the cached token immediately when it is still valid. Otherwise a single OAuth request
+   * is enqueued on OkHttp's dispatcher and every concurrent caller, blocking or not, shares its
+   * result, so no caller thread waits on the network.
+   */
+  @Override
+  public CompletableFuture<String> getAccessTokenAsync() {
+    while (true) {
+      CachedToken current = currentToken();
+      long now = clock.millis();
+      if (isFresh(current, now)) {
+        return CompletableFuture.completedFuture(current.getValue());
+      }
+
+      CompletableFuture<String> refresh = inFlightRefresh.get();
+      if (refresh == null) {
+        CompletableFuture<String> claimed = new CompletableFuture<>();
+        if (inFlightRefresh.compareAndSet(null, claimed)) {
+          refreshAsync(claimed, current);
+          return claimed;
+        }
+        continue;
+      }
+
+      if (isUsable(current, now)) {
+        return CompletableFuture.completedFuture(current.getValue());
+      }
+      return refresh;
+    }
+  }
+
+  /**
+   * Starts renewing the token in the background, five minutes ahead of its expiry with up to thirty
+   * seconds of random jitter. See {@link #enableBackgroundRefresh(ScheduledExecutorService,
+   * Duration, Duration)}.
+   *
+   * @param scheduler The scheduler that runs the refresh timer. It is not shut down by this class.
+   */
+  public void enableBackgroundRefresh(ScheduledExecutorService scheduler) {
+    enableBackgroundRefresh(scheduler, DEFAULT_REFRESH_AHEAD, DEFAULT_REFRESH_JITTER);
+  }
+
+  /**
+   * Starts renewing the token in the background. A token is fetched straight away if none is
+   * cached. After that, each token is renewed {@code refreshAhead} before it expires, minus a
+   * random jitter of up to {@code maxJitter} so that a fleet of clients does not refresh in
+   * lockstep. A failed refresh is retried with exponential backoff while the old token keeps being
+   * served.
+   *
+   * <p>The schedule is computed from the injected {@link Clock}. Calling this method again replaces
+   * the previous schedule.
+   *
+   * @param scheduler The scheduler that runs the refresh timer. It is not shut down by this class.
+   * @param refreshAhead How long before expiry to renew. Values above the one-minute expiry buffer
+   *     keep request threads off the OAuth endpoint entirely.
+   * @param maxJitter The upper bound of the random amount subtracted from each refresh delay.
+   */
+  public void enableBackgroundRefresh(
+      ScheduledExecutorService scheduler, Duration refreshAhead, Duration maxJitter) {
+    Objects.requireNonNull(scheduler, "scheduler");
+    if (refreshAhead.isNegative() || maxJitter.isNegative()) {
+      throw new IllegalArgumentException("refreshAhead and maxJitter must not be negative.");
+    }
 
-    Request request =
-        new Request.Builder()
-            .url(config.getEnvironment().getAuthUrl())
-            .get()
-            .header("Authorization", "Basic " + encoded)
-            .build();
+    synchronized (backgroundRefreshLock) {
+      if (backgroundRefresh != null) {
+        backgroundRefresh.cancel();
+      }
+      backgroundRefresh =
+          new BackgroundRefresh(scheduler, refreshAhead.toMillis(), maxJitter.toMillis());
+      backgroundRefresh.scheduleFromToken();
+    }
+  }
 
-    try (Response response = client.newCall(request).execute()) {
-      String responseBody = Objects.requireNonNull(response.body()).string();
-      if (!response.isSuccessful()) {
-        throw new MpesaAuthException(
-            "Failed to get access token. Status: " + response.code() + ", Body: " + responseBody,
-            null);
+  /** Stops the background refresh started by {@link #enableBackgroundRefresh}, if any. */
+  public void disableBackgroundRefresh() {
+    synchronized (backgroundRefreshLock) {
+      if (backgroundRefresh != null) {
+        backgroundRefresh.cancel();
+        backgroundRefresh = null;
       }
+    }
+  }
 
-      AccessTokenResponse tokenResponse =
-          objectMapper.readValue(responseBody, AccessTokenResponse.class);
+  /**
+   * Joins the in-flight refresh, or starts an asynchronous one even if the token is fresh.
+   *
+   * @param stale The token to replace; a newer one found in the store is adopted instead.
+   */
+  private CompletableFuture<String> forceRefreshAsync(CachedToken stale) {
+    while (true) {
+      CompletableFuture<String> refresh = inFlightRefresh.get();
+      if (refresh != null) {
+        return refresh;
+      }
+      CompletableFuture<String> claimed = new CompletableFuture<>();
+      if (inFlightRefresh.compareAndSet(null, claimed)) {
+        refreshAsync(claimed, stale);
+        return claimed;
+      }
+    }
+  }
 
-      this.cachedToken = tokenResponse.getAccessToken();
+  private String refreshBlocking(CompletableFuture<String> refresh, CachedToken stale)
+      throws MpesaAuthException {
+    try {
+      String token = obtainToken(stale);
+      finishRefresh(refresh, token, null);
+      return token;
+    } catch (MpesaAuthException | RuntimeException e) {
+      finishRefresh(refresh, null, e);
+      throw e;
+    }
+  }
+
+  /**
+   * Adopts a token that someone sharing the store saved since {@code stale} was read, or fetches
+   * one under the store's refresh lock. If the lock stays busy for too long, the holder is assumed
+   * to be stuck and the token is fetched without it.
+   */
+  private String obtainToken(CachedToken stale) throws MpesaAuthException {
+    long deadline = System.nanoTime() + STORE_LOCK_WAIT_NANOS;
+    while (true) {
+      CachedToken stored = tokenStore.load();
+      if (isNewer(stored, stale)) {
+        return stored.getValue();
+      }
 
-      long expiresInMillis = TimeUnit.SECONDS.toMillis(tokenResponse.getExpiresIn());
-      this.expiryTime = clock.millis() + expiresInMillis;
+      RefreshLock lock = tokenStore.tryLockRefresh();
+      if (lock != null) {
+        try (lock) {
+          stored = tokenStore.load();
+          return isNewer(stored, stale) ? stored.getValue() : fetchToken(true);
+        }
+      }
+      if (System.nanoTime() - deadline >= 0) {
+        // The lock holder looks stuck. Fetch anyway, but leave the shared store to it.
+        return fetchToken(false);
+      }
 
-      return this.cachedToken;
+      try {
+        Thread.sleep(STORE_LOCK_POLL_MS);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new MpesaAuthException("Interrupted while waiting for an access token refresh.", e);
+      }
+    }
+  }
+
+  /** Fetches a token; {@code shared} only while holding the store's refresh lock. */
+  private String fetchToken(boolean shared) throws MpesaAuthException {
+    try (Response response = client.newCall(newTokenRequest()).execute()) {
+      return cacheToken(readTokenResponse(response), shared);
     } catch (IOException e) {
+      throw networkError(e);
+    }
+  }
+
+  private void refreshAsync(CompletableFuture<String> refresh, CachedToken stale) {
+    obtainTokenAsync(refresh, stale, System.nanoTime() + STORE_LOCK_WAIT_NANOS);
+  }
+
+  /**
+   * The non-blocking counterpart of {@link #obtainToken}: while the store's refresh lock is busy,
+   * the store is re-checked on a timer instead of sleeping.
+   */
+  private void obtainTokenAsync(
+      CompletableFuture<String> refresh, CachedToken stale, long deadline) {
+    RefreshLock lock = null;
+    try {
+      CachedToken stored = tokenStore.load();
+      if (isNewer(stored, stale)) {
+        finishRefresh(refresh, stored.getValue(), null);
+        return;
+      }
+
+      lock = tokenStore.tryLockRefresh();
+      if (lock == null && System.nanoTime() - deadline < 0) {
+        CompletableFuture.delayedExecutor(STORE_LOCK_POLL_MS, TimeUnit.MILLISECONDS)
+            .execute(() -> obtainTokenAsync(refresh, stale, deadline));
+        return;
+      }
+      if (lock != null) {
+        stored = tokenStore.load();
+        if (isNewer(stored, stale)) {
+          lock.close();
+          finishRefresh(refresh, stored.getValue(), null);
+          return;
+        }
+      }
+      fetchTokenAsync(refresh, lock);
+    } catch (RuntimeException e) {
+      release(lock);
+      finishRefresh(refresh, null, e);
+    }
+  }
+
+  /**
+   * Enqueues the OAuth request, releasing the store's refresh lock once the token is saved. Without
+   * the lock, the token is kept by this manager only.
+   */
+  private void fetchTokenAsync(CompletableFuture<String> refresh, RefreshLock lock) {
+    client
+        .newCall(newTokenRequest())
+        .enqueue(
+            new Callback() {
+              @Override
+              public void onFailure(Call call, IOException e) {
+                release(lock);
+                finishRefresh(refresh, null, networkError(e));
+              }
+
+              @Override
+              public void onResponse(Call call, Response response) {
+                String token = null;
+                Throwable error = null;
+                try (response) {
+                  token = cacheToken(readTokenResponse(response), lock != null);
+                } catch (MpesaAuthException | RuntimeException e) {
+                  error = e;
+                } catch (IOException e) {
+                  error = networkError(e);
+                }
+                release(lock);
+                finishRefresh(refresh, token, error);
+              }
+            });
+  }
+
+  private static void release(RefreshLock lock) {
+    if (lock != null) {
+      lock.close();
+    }
+  }
+
+  /**
+   * Publishes the outcome of a refresh. The new token is already cached at this point, so clearing
+   * the in-flight slot first never lets a caller start a redundant refresh.
+   */
+  private void finishRefresh(CompletableFuture<String> refresh, String token, Throwable error) {
+    inFlightRefresh.compareAndSet(refresh, null);
+    if (error != null) {
+      refresh.completeExceptionally(error);
+    } else {
+      refresh.complete(token);
+    }
+  }
+
+  private static String await(CompletableFuture<String> refresh) throws MpesaAuthException {
+    try {
+      return refresh.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new MpesaAuthException("Interrupted while waiting for an access token refresh.", e);
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof MpesaAuthException) {
+        throw (MpesaAuthException) cause;
+      }
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+      throw new MpesaAuthException("Failed to refresh access token: " + cause.getMessage(), cause);
+    }
+  }
+
+  private Request newTokenRequest() {
+    String credentials = config.getConsumerKey() + ":" + config.getConsumerSecret();
+    String encoded = Base64.getEncoder().encodeToString(credentials.getBytes());
+
+    return new Request.Builder()
+        .url(config.getEnvironment().getAuthUrl())
+        .get()
+        .header("Authorization", "Basic " + encoded)
+        .build();
+  }
+
+  private AccessTokenResponse readTokenResponse(Response response)
+      throws IOException, MpesaAuthException {
+    ResponseBody body = Objects.requireNonNull(response.body());
+    if (!response.isSuccessful()) {
       throw new MpesaAuthException(
-          "Network error while fetching access token: " + e.getMessage(), e);
+          "Failed to get access token. Status: " + response.code() + ", Body: " + body.string(),
+          null);
+    }
+    // Parse straight from the byte stream; the body is only read into a String for errors.
+    return tokenResponseReader.readValue(body.byteStream());
+  }
+
+  private String cacheToken(AccessTokenResponse tokenResponse, boolean shared) {
+    long expiresInMillis = TimeUnit.SECONDS.toMillis(tokenResponse.getExpiresIn());
+    CachedToken token =
+        new CachedToken(tokenResponse.getAccessToken(), clock.millis() + expiresInMillis);
+    if (shared) {
+      tokenStore.save(token);
+    } else {
+      unsharedToken = token;
+    }
+    return tokenResponse.getAccessToken();
+  }
+
+  /** Returns whichever of the stored and the {@link #unsharedToken} expires later. */
+  private CachedToken currentToken() {
+    CachedToken stored = tokenStore.load();
+    CachedToken unshared = unsharedToken;
+    if (unshared == null) {
+      return stored;
+    }
+    return stored != null && stored.getExpiryTime() >= unshared.getExpiryTime() ? stored : unshared;
+  }
+
+  private static MpesaAuthException networkError(IOException e) {
+    return new MpesaAuthException(
+        "Network error while fetching access token: " + e.getMessage(), e);
+  }
+
+  /** Whether the token is outside the expiry buffer and needs no refresh. */
+  private static boolean isFresh(CachedToken token, long now) {
+    return token != null && now < token.getExpiryTime() - TOKEN_EXPIRY_BUFFER_MS;
+  }
+
+  /** Whether the token is still accepted by the API, even if a refresh is due. */
+  private static boolean isUsable(CachedToken token, long now) {
+    return token != null && now < token.getExpiryTime();
+  }
+
+  /** Whether {@code stored} is a fresh token that replaced {@code stale} in the store. */
+  private boolean isNewer(CachedToken stored, CachedToken stale) {
+    return isFresh(stored, clock.millis())
+        && (stale == null || stored.getExpiryTime() > stale.getExpiryTime());
+  }
+
+  /**
+   * A self-rescheduling refresh timer. Each run schedules the next one only after its refresh has
+   * finished, so runs never overlap.
+   */
+  private final class BackgroundRefresh implements Runnable {
+    private final ScheduledExecutorService scheduler;
+    private final long refreshAheadMs;
+    private final long maxJitterMs;
+
+    private int consecutiveFailures;
+    private volatile boolean cancelled;
+    private volatile ScheduledFuture<?> nextRun;
+
+    private BackgroundRefresh(
+        ScheduledExecutorService scheduler, long refreshAheadMs, long maxJitterMs) {
+      this.scheduler = scheduler;
+      this.refreshAheadMs = refreshAheadMs;
+      this.maxJitterMs = maxJitterMs;
+    }
+
+    @Override
+    public void run() {
+      if (cancelled) {
+        return;
+      }
+
+      CachedToken current = currentToken();
+      if (current != null && clock.millis() < refreshWindowStart(current)) {
+        // A foreground refresh already renewed the token since this run was scheduled.
+        scheduleFromToken();
+        return;
+      }
+
+      forceRefreshAsync(current)
+          .whenComplete(
+              (token, error) -> {
+                if (error == null) {
+                  consecutiveFailures = 0;
+                  scheduleFromToken();
+                } else {
+                  consecutiveFailures++;
+                  scheduleIn(retryDelay());
+                }
+              });
+    }
+
+    private void scheduleFromToken() {
+      CachedToken current = currentToken();
+      if (current == null) {
+        scheduleIn(0);
+        return;
+      }
+      long jitter = maxJitterMs == 0 ? 0 : ThreadLocalRandom.current().nextLong(maxJitterMs + 1);
+      long refreshAt = current.getExpiryTime() - refreshAheadMs - jitter;
+      scheduleIn(Math.max(0, refreshAt - clock.millis()));
+    }
+
+    /**
+     * Exponential backoff with equal jitter, never waiting past the old token's expiry while it is
+     * still usable.
+     */
+    private long retryDelay() {
+      int exponent = Math.min(consecutiveFailures - 1, 16);
+      long backoff = Math.min(MAX_RETRY_BACKOFF_MS, MIN_RETRY_BACKOFF_MS << exponent);
+      long delay = backoff / 2 + ThreadLocalRandom.current().nextLong(backoff / 2 + 1);
+
+      CachedToken current = currentToken();
+      if (current != null) {
+        long remaining = current.getExpiryTime() - clock.millis();
+        if (remaining > 0) {
+          delay = Math.min(delay, remaining);
+        }
+      }
+      return delay;
+    }
+
+    /** The earliest instant a jittered refresh for this token can be scheduled at. */
+    private long refreshWindowStart(CachedToken token) {
+      return token.getExpiryTime() - refreshAheadMs - maxJitterMs;
+    }
+
+    private void scheduleIn(long delayMs) {
+      if (cancelled) {
+        return;
+      }
+      try {
+        nextRun = scheduler.schedule(this, delayMs, TimeUnit.MILLISECONDS);
+      } catch (RejectedExecutionException e) {
+        // The scheduler was shut down; there is nothing left to run the refresh on.
+        cancelled = true;
+      }
+    }
+
+    private void cancel() {
+      cancelled = true;
+      ScheduledFuture<?> scheduled = nextRun;
+      if (scheduled != null) {
+        scheduled.cancel(false);
+      }
     }
   }
 }
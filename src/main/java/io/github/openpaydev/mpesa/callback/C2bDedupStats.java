@@ -0,0 +1,29 @@
+package io.github.openpaydev.mpesa.callback;
+
+import lombok.Value;
+
+/** A point-in-time view of a {@link C2bDeduplicator}'s counters. */
+@Value
+public class C2bDedupStats {
+
+  /** IDs checked by {@link C2bDeduplicator#firstSeen(String)}. */
+  long checkedCount;
+
+  /** Checked IDs that were redeliveries. */
+  long duplicateCount;
+
+  /** IDs currently remembered, across both generations. */
+  int size;
+
+  /**
+   * Generations rotated because they filled up before the window passed. A count that keeps
+   * growing means {@code maxEntries} is too small for the traffic, and the window is shorter than
+   * configured.
+   */
+  long earlyRotations;
+
+  /** Returns the share of checked IDs that were redeliveries, or 0 if none were checked. */
+  public double getDuplicateRate() {
+    return checkedCount == 0 ? 0 : (double) duplicateCount / checkedCount;
+  }
+}
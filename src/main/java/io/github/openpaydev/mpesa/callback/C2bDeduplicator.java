@@ -0,0 +1,297 @@
+package io.github.openpaydev.mpesa.callback;
+
+import io.github.openpaydev.mpesa.core.models.C2bTransaction;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Recognizes C2B confirmations that Daraja delivers more than once, by their {@code TransID},
+ * without a database round trip.
+ *
+ * <p>IDs are remembered for at least {@code window} and at most twice that, in two fixed-size
+ * generations: new IDs go into the current one, and every {@code window} the older one is dropped
+ * and a fresh one started. Rotation is done by the first call after it is due, and a call after a
+ * quiet spell of a whole window beyond that drops both generations. A generation holds at most
+ * {@code maxEntries} IDs; one that fills up early is rotated early, which shortens the window
+ * rather than growing memory, and is counted in {@link C2bDedupStats#getEarlyRotations()}.
+ *
+ * <p>Each ID is stored as one {@code long} in an open-addressing table of {@link AtomicLongArray},
+ * so lookups take no lock and inserts are a compare-and-set. A {@code TransID} of up to 12
+ * uppercase letters and digits, which is what Daraja issues, is packed into the {@code long}
+ * exactly; any other ID is stored as a 63-bit hash, where two IDs sharing a hash is about a 1 in
+ * 10^7 event at a million entries. Each generation takes 16 to 32 bytes per {@code maxEntries}.
+ */
+public final class C2bDeduplicator {
+
+  private static final long EMPTY = 0;
+  /** An ID {@link #forget forgotten} after it was recorded. Never a key: see {@link #key}. */
+  private static final long FORGOTTEN = Long.MIN_VALUE;
+
+  private static final int RADIX = 37;
+  private static final int MAX_PACKED_LENGTH = 12;
+
+  private final long windowMillis;
+  private final int maxEntries;
+  private final int tableCapacity;
+  private final LongSupplier millisClock;
+  private final AtomicReference<Generations> generations;
+
+  private final LongAdder checked = new LongAdder();
+  private final LongAdder duplicates = new LongAdder();
+  private final LongAdder earlyRotations = new LongAdder();
+
+  C2bDeduplicator(Duration window, int maxEntries, LongSupplier millisClock) {
+    if (window.isNegative() || window.isZero() || maxEntries < 1) {
+      throw new IllegalArgumentException("window and maxEntries must be positive.");
+    }
+    this.windowMillis = window.toMillis();
+    this.maxEntries = maxEntries;
+    int capacity = 16;
+    while (capacity < 2 * maxEntries) {
+      capacity <<= 1;
+    }
+    this.tableCapacity = capacity;
+    this.millisClock = millisClock;
+    long now = millisClock.getAsLong();
+    this.generations =
+        new AtomicReference<>(
+            new Generations(new Table(capacity), new Table(capacity), now + windowMillis));
+  }
+
+  /** Creates a filter that remembers IDs for an hour, up to 100,000 per generation. */
+  public static C2bDeduplicator create() {
+    return create(Duration.ofHours(1), 100_000);
+  }
+
+  /**
+   * Creates a filter.
+   *
+   * @param window How long an ID is remembered at least.
+   * @param maxEntries The most IDs a generation holds.
+   */
+  public static C2bDeduplicator create(Duration window, int maxEntries) {
+    return new C2bDeduplicator(window, maxEntries, System::currentTimeMillis);
+  }
+
+  /**
+   * Records a confirmation's {@code TransID}.
+   *
+   * @return {@code true} the first time the ID is seen within the window, {@code false} for a
+   *     redelivery.
+   */
+  public boolean firstSeen(C2bTransaction transaction) {
+    return firstSeen(transaction.getTransactionId());
+  }
+
+  /**
+   * Records a {@code TransID}. Of several threads recording the same new ID at once, exactly one
+   * gets {@code true}.
+   *
+   * @return {@code true} the first time the ID is seen within the window, {@code false} for a
+   *     redelivery.
+   */
+  public boolean firstSeen(String transactionId) {
+    long key = key(transactionId);
+    checked.increment();
+    Generations seen = current();
+    if (seen.previous.contains(key) || !seen.current.add(key)) {
+      duplicates.increment();
+      return false;
+    }
+    // A rotation between reading the generations and adding the key leaves the key in what is now
+    // the previous table, after a thread on the new generation may have checked it there. Both
+    // then race to add the key to the new current table, where only one can.
+    for (Generations now = generations.get(); now != seen; now = generations.get()) {
+      Table addedTo = seen.current;
+      seen = now;
+      if ((now.previous != addedTo && now.previous.contains(key)) || !now.current.add(key)) {
+        duplicates.increment();
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /** Whether the ID was recorded within the window, without recording it. */
+  public boolean contains(String transactionId) {
+    long key = key(transactionId);
+    Generations current = current();
+    return current.current.contains(key) || current.previous.contains(key);
+  }
+
+  /**
+   * Forgets a recorded ID, so that its next delivery is seen as new. For a confirmation that was
+   * recorded but could not be processed.
+   */
+  public void forget(String transactionId) {
+    long key = key(transactionId);
+    Generations current = current();
+    current.current.remove(key);
+    current.previous.remove(key);
+  }
+
+  /** Returns the filter's counters. */
+  public C2bDedupStats stats() {
+    Generations current = current();
+    return new C2bDedupStats(
+        checked.sum(),
+        duplicates.sum(),
+        current.current.size.get() + current.previous.size.get(),
+        earlyRotations.sum());
+  }
+
+  /** Returns the generations, rotating them first if the current one is due or full. */
+  private Generations current() {
+    Generations current = generations.get();
+    long now = millisClock.getAsLong();
+    boolean due = now >= current.rotateAtMillis;
+    boolean full = current.current.size.get() >= maxEntries;
+    if (!due && !full) {
+      return current;
+    }
+    Generations rotated;
+    if (now - current.rotateAtMillis >= windowMillis) {
+      // The current IDs would already have been dropped as the previous generation.
+      rotated =
+          new Generations(new Table(tableCapacity), new Table(tableCapacity), now + windowMillis);
+    } else {
+      // A due rotation keeps to the schedule, however late the call that makes it.
+      long rotateAt = due ? current.rotateAtMillis + windowMillis : now + windowMillis;
+      rotated = new Generations(new Table(tableCapacity), current.current, rotateAt);
+    }
+    if (generations.compareAndSet(current, rotated)) {
+      if (!due) {
+        earlyRotations.increment();
+      }
+      return rotated;
+    }
+    return generations.get();
+  }
+
+  /**
+   * Packs an ID of up to 12 uppercase letters and digits into a positive {@code long}, or else
+   * hashes it into a negative one. Neither is ever {@link #EMPTY} or {@link #FORGOTTEN}.
+   */
+  static long key(String transactionId) {
+    int length = transactionId.length();
+    if (length > 0 && length <= MAX_PACKED_LENGTH) {
+      long packed = 0;
+      for (int i = 0; i < length; i++) {
+        int digit = digit(transactionId.charAt(i));
+        if (digit < 0) {
+          return hashKey(transactionId);
+        }
+        packed = packed * RADIX + digit;
+      }
+      return packed;
+    }
+    return hashKey(transactionId);
+  }
+
+  /** 1 to 36 for {@code 0-9A-Z}, so that leading zeros are not lost, or -1. */
+  private static int digit(char c) {
+    if (c >= '0' && c <= '9') {
+      return c - '0' + 1;
+    }
+    if (c >= 'A' && c <= 'Z') {
+      return c - 'A' + 11;
+    }
+    return -1;
+  }
+
+  /** FNV-1a finished with MurmurHash3's mixer, with the sign bit set. */
+  private static long hashKey(String transactionId) {
+    long h = 0xcbf29ce484222325L;
+    for (int i = 0; i < transactionId.length(); i++) {
+      h = (h ^ transactionId.charAt(i)) * 0x100000001b3L;
+    }
+    h ^= h >>> 33;
+    h *= 0xff51afd7ed558ccdL;
+    h ^= h >>> 33;
+    h *= 0xc4ceb9fe1a85ec53L;
+    h ^= h >>> 33;
+    long key = h | Long.MIN_VALUE;
+    return key == FORGOTTEN ? FORGOTTEN + 1 : key;
+  }
+
+  /** The current and previous tables, swapped out whole on rotation. */
+  private static final class Generations {
+    private final Table current;
+    private final Table previous;
+    private final long rotateAtMillis;
+
+    private Generations(Table current, Table previous, long rotateAtMillis) {
+      this.current = current;
+      this.previous = previous;
+      this.rotateAtMillis = rotateAtMillis;
+    }
+  }
+
+  /** A lock-free open-addressing set of keys with linear probing; slots are never reused. */
+  private static final class Table {
+    private final AtomicLongArray slots;
+    private final AtomicInteger size = new AtomicInteger();
+
+    private Table(int capacity) {
+      this.slots = new AtomicLongArray(capacity);
+    }
+
+    /** Adds the key, or returns {@code false} if it is already present. */
+    private boolean add(long key) {
+      int mask = slots.length() - 1;
+      int slot = spread(key) & mask;
+      for (int probes = 0; probes <= mask; probes++) {
+        long existing = slots.get(slot);
+        if (existing == EMPTY) {
+          if (slots.compareAndSet(slot, EMPTY, key)) {
+            size.incrementAndGet();
+            return true;
+          }
+          existing = slots.get(slot);
+        }
+        if (existing == key) {
+          return false;
+        }
+        slot = (slot + 1) & mask;
+      }
+      // Only reachable if a burst of concurrent inserts filled the table before it was rotated.
+      return true;
+    }
+
+    private boolean contains(long key) {
+      return find(key) >= 0;
+    }
+
+    private void remove(long key) {
+      int slot = find(key);
+      if (slot >= 0) {
+        slots.compareAndSet(slot, key, FORGOTTEN);
+      }
+    }
+
+    private int find(long key) {
+      int mask = slots.length() - 1;
+      int slot = spread(key) & mask;
+      for (int probes = 0; probes <= mask; probes++) {
+        long existing = slots.get(slot);
+        if (existing == key) {
+          return slot;
+        }
+        if (existing == EMPTY) {
+          return -1;
+        }
+        slot = (slot + 1) & mask;
+      }
+      return -1;
+    }
+
+    private static int spread(long key) {
+      long h = key * 0x9e3779b97f4a7c15L;
+      return (int) (h ^ (h >>> 32));
+    }
+  }
+}
@@ -0,0 +1,191 @@
+package io.github.openpaydev.mpesa.callback;
+
+import com.fasterxml.jackson.core.io.JsonStringEncoder;
+import io.github.openpaydev.mpesa.core.models.C2bTransaction;
+import io.github.openpaydev.mpesa.core.models.C2bValidationResult;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Objects;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Runs a {@link C2bValidator} under a hard time budget and answers with the policy's fallback when
+ * the budget runs out, so that Daraja always gets the application's decision rather than the
+ * shortcode's default.
+ *
+ * <p>The validator runs on its own thread, a virtual one when the JVM has them, while the caller
+ * waits at most {@link C2bValidationPolicy#getTimeout()}; a validator still running then is
+ * interrupted. A validator that throws is answered with the fallback too. Each answer is also
+ * available as the JSON body to send: {@link C2bValidationResult#ACCEPTED}, {@link
+ * C2bValidationResult#REJECTED} and the fallback are encoded once, up front, and any other result
+ * is encoded without databind.
+ *
+ * <p>Usable on its own from any web framework, or through {@link
+ * MpesaCallbackServer#onC2bValidation(C2bValidator)}.
+ */
+public final class C2bValidationHandler implements AutoCloseable {
+
+  private static final byte[] ACCEPTED = encode(C2bValidationResult.ACCEPTED);
+  private static final byte[] REJECTED = encode(C2bValidationResult.REJECTED);
+
+  private final C2bValidator validator;
+  private final C2bValidationPolicy policy;
+  private final long timeoutNanos;
+  private final byte[] fallback;
+  private final ExecutorService executor;
+  private final Consumer<Exception> errorListener;
+
+  private final LongAdder validated = new LongAdder();
+  private final LongAdder deadlineMisses = new LongAdder();
+  private final LongAdder failures = new LongAdder();
+
+  /** Creates a handler with the {@link C2bValidationPolicy#defaults() default policy}. */
+  public C2bValidationHandler(C2bValidator validator) {
+    this(validator, C2bValidationPolicy.defaults());
+  }
+
+  /** Creates a handler whose validator failures are only counted. */
+  public C2bValidationHandler(C2bValidator validator, C2bValidationPolicy policy) {
+    this(validator, policy, e -> {});
+  }
+
+  /**
+   * Creates a handler.
+   *
+   * @param errorListener Receives every exception the validator throws.
+   */
+  public C2bValidationHandler(
+      C2bValidator validator, C2bValidationPolicy policy, Consumer<Exception> errorListener) {
+    this.validator = Objects.requireNonNull(validator, "validator");
+    this.policy = policy;
+    this.timeoutNanos = policy.getTimeout().toNanos();
+    this.fallback = encode(Objects.requireNonNull(policy.getFallback(), "fallback"));
+    this.errorListener = Objects.requireNonNull(errorListener, "errorListener");
+    ExecutorService virtual = MpesaCallbackServer.newVirtualThreadExecutor();
+    this.executor =
+        virtual != null
+            ? virtual
+            : Executors.newCachedThreadPool(
+                MpesaCallbackServer.daemonThreads("mpesa-c2b-validator-"));
+  }
+
+  /**
+   * Validates a payment within the policy's time budget.
+   *
+   * @return The validator's result, or the policy's fallback if it ran out of time or threw.
+   */
+  public C2bValidationResult validate(C2bTransaction transaction) {
+    C2bValidationResult result = run(transaction);
+    return result != null ? result : policy.getFallback();
+  }
+
+  /**
+   * Validates a payment within the policy's time budget and returns the JSON body to answer Daraja
+   * with, as {@link #validate} decides it.
+   */
+  public byte[] validateToJson(C2bTransaction transaction) {
+    C2bValidationResult result = run(transaction);
+    if (result == null) {
+      return fallback;
+    }
+    if (result == C2bValidationResult.ACCEPTED) {
+      return ACCEPTED;
+    }
+    if (result == C2bValidationResult.REJECTED) {
+      return REJECTED;
+    }
+    return result == policy.getFallback() ? fallback : encode(result);
+  }
+
+  /** Returns how many payments the validator decided in time. */
+  public long getValidatedCount() {
+    return validated.sum();
+  }
+
+  /** Returns how many payments were answered with the fallback because the budget ran out. */
+  public long getDeadlineMissCount() {
+    return deadlineMisses.sum();
+  }
+
+  /** Returns how many payments were answered with the fallback because the validator threw. */
+  public long getFailureCount() {
+    return failures.sum();
+  }
+
+  /** Interrupts any validator still running and stops the validation threads. */
+  @Override
+  public void close() {
+    executor.shutdownNow();
+  }
+
+  /** Returns the validator's result, or {@code null} if the fallback applies. */
+  private C2bValidationResult run(C2bTransaction transaction) {
+    Future<C2bValidationResult> future;
+    try {
+      future = executor.submit(() -> validator.validate(transaction));
+    } catch (RejectedExecutionException e) {
+      failed(e);
+      return null;
+    }
+    try {
+      C2bValidationResult result = future.get(timeoutNanos, TimeUnit.NANOSECONDS);
+      if (result == null) {
+        failed(new NullPointerException("The validator returned null."));
+        return null;
+      }
+      validated.increment();
+      return result;
+    } catch (TimeoutException e) {
+      future.cancel(true);
+      deadlineMisses.increment();
+      return null;
+    } catch (ExecutionException e) {
+      failed(e.getCause() instanceof Exception ? (Exception) e.getCause() : e);
+      return null;
+    } catch (CancellationException e) {
+      failed(e);
+      return null;
+    } catch (InterruptedException e) {
+      future.cancel(true);
+      Thread.currentThread().interrupt();
+      return null;
+    }
+  }
+
+  private void failed(Exception e) {
+    failures.increment();
+    try {
+      errorListener.accept(e);
+    } catch (RuntimeException ignored) {
+      // A failing listener must not change the answer.
+    }
+  }
+
+  /** Writes the result as a default {@code ObjectMapper} would, without going through databind. */
+  static byte[] encode(C2bValidationResult result) {
+    ByteArrayOutputStream out = new ByteArrayOutputStream(64);
+    out.writeBytes(ascii("{\"ResultCode\":" + result.getResultCode() + ",\"ResultDesc\":"));
+    if (result.getResultDesc() == null) {
+      out.writeBytes(ascii("null"));
+    } else {
+      out.write('"');
+      out.writeBytes(JsonStringEncoder.getInstance().quoteAsUTF8(result.getResultDesc()));
+      out.write('"');
+    }
+    out.write('}');
+    return out.toByteArray();
+  }
+
+  private static byte[] ascii(String s) {
+    return s.getBytes(StandardCharsets.US_ASCII);
+  }
+}
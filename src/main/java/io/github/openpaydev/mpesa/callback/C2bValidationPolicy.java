@@ -0,0 +1,33 @@
+package io.github.openpaydev.mpesa.callback;
+
+import io.github.openpaydev.mpesa.core.models.C2bValidationResult;
+import java.time.Duration;
+import lombok.Builder;
+import lombok.Value;
+
+/**
+ * How long a {@link C2bValidationHandler} lets a validator run, and what it answers when the
+ * validator gives no answer in time.
+ *
+ * <p>Daraja waits only a few seconds for the ValidationURL and then applies the {@code
+ * ResponseType} registered for the shortcode, which may complete a payment that should have been
+ * rejected or cancel one that should have gone through. Answering with {@link #getFallback()}
+ * before Daraja gives up keeps that decision with the application.
+ */
+@Value
+@Builder(toBuilder = true)
+public class C2bValidationPolicy {
+
+  /** How long the validator may take, leaving Daraja time to receive the answer. */
+  @Builder.Default
+  Duration timeout = Duration.ofSeconds(2);
+
+  /** The answer when the validator runs out of time or throws. */
+  @Builder.Default
+  C2bValidationResult fallback = C2bValidationResult.ACCEPTED;
+
+  /** Returns the default policy. */
+  public static C2bValidationPolicy defaults() {
+    return builder().build();
+  }
+}
@@ -0,0 +1,21 @@
+package io.github.openpaydev.mpesa.callback;
+
+import io.github.openpaydev.mpesa.core.models.C2bTransaction;
+import io.github.openpaydev.mpesa.core.models.C2bValidationResult;
+
+/**
+ * Decides whether to accept a C2B payment sent to the ValidationURL of an {@link
+ * MpesaCallbackServer}.
+ */
+@FunctionalInterface
+public interface C2bValidator {
+
+  /**
+   * Validates the payment before M-Pesa completes it. Daraja waits for the answer, so this runs
+   * while the request is open and should be quick.
+   *
+   * @return {@link C2bValidationResult#success(String)} to accept the payment, or {@link
+   *     C2bValidationResult#error(String)} to reject it.
+   */
+  C2bValidationResult validate(C2bTransaction transaction) throws Exception;
+}
@@ -0,0 +1,17 @@
+package io.github.openpaydev.mpesa.callback;
+
+/**
+ * Processes one callback delivered to an {@link MpesaCallbackServer}, after Daraja has been
+ * answered.
+ *
+ * @param <T> The parsed callback payload.
+ */
+@FunctionalInterface
+public interface CallbackHandler<T> {
+
+  /**
+   * Processes the callback. An exception is counted as a failure and passed to the server's error
+   * listener; the callback is not redelivered.
+   */
+  void handle(T payload) throws Exception;
+}
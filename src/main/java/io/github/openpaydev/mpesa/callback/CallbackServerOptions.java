@@ -0,0 +1,81 @@
+package io.github.openpaydev.mpesa.callback;
+
+import java.time.Duration;
+import lombok.Builder;
+import lombok.Value;
+
+/**
+ * Where an {@link MpesaCallbackServer} listens and how much work it holds.
+ *
+ * <p>Requests are read and answered on their own threads: virtual threads when the JVM has them
+ * (Java 21 and later), or else a pool of {@link #getFallbackRequestThreads()} platform threads.
+ * Callbacks are then processed by {@link #getWorkerThreads()} workers from a queue of {@link
+ * #getQueueCapacity()}; when it is full, further callbacks are answered with 503 so that Daraja
+ * delivers them again later.
+ *
+ * <p>The JDK's server keeps at most 200 idle connections open and closes any beyond that, which a
+ * client may be reusing at that very moment. Behind a proxy that pools many connections, raise the
+ * limit with the {@code sun.net.httpserver.maxIdleConnections} system property.
+ */
+@Value
+@Builder(toBuilder = true)
+public class CallbackServerOptions {
+
+  /** The host or address to bind to, or {@code null} for every interface. */
+  String host;
+
+  /** The port to listen on, or 0 for any free port. */
+  @Builder.Default
+  int port = 8080;
+
+  /** The path of the STK Push CallBackURL. */
+  @Builder.Default
+  String stkCallbackPath = "/mpesa/stk/callback";
+
+  /** The path of the C2B ValidationURL. */
+  @Builder.Default
+  String c2bValidationPath = "/mpesa/c2b/validation";
+
+  /** The path of the C2B ConfirmationURL. */
+  @Builder.Default
+  String c2bConfirmationPath = "/mpesa/c2b/confirmation";
+
+  /** The most callbacks waiting for a worker. */
+  @Builder.Default
+  int queueCapacity = 10_000;
+
+  /** The threads running the callback handlers. */
+  @Builder.Default
+  int workerThreads = 4;
+
+  /** The request threads used when virtual threads are not available. */
+  @Builder.Default
+  int fallbackRequestThreads = 200;
+
+  /** The largest request body accepted; Daraja's callbacks are a few kilobytes. */
+  @Builder.Default
+  int maxBodyBytes = 64 * 1024;
+
+  /** The most connections waiting to be accepted, or 0 for the system default. */
+  @Builder.Default
+  int backlog = 1024;
+
+  /** How long a C2B validator may take, and the answer when it runs out of time or throws. */
+  @Builder.Default
+  C2bValidationPolicy c2bValidationPolicy = C2bValidationPolicy.defaults();
+
+  /**
+   * Recognizes redelivered C2B confirmations, so their handler sees each {@code TransID} once; or
+   * {@code null} to pass every delivery on.
+   */
+  C2bDeduplicator c2bDeduplicator;
+
+  /** How long {@link MpesaCallbackServer#close()} waits for queued callbacks to be processed. */
+  @Builder.Default
+  Duration shutdownTimeout = Duration.ofSeconds(10);
+
+  /** Returns the default options. */
+  public static CallbackServerOptions defaults() {
+    return builder().build();
+  }
+}
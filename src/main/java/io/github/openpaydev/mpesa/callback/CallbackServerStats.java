@@ -0,0 +1,41 @@
+package io.github.openpaydev.mpesa.callback;
+
+import lombok.Value;
+
+/**
+ * A point-in-time view of an {@link MpesaCallbackServer}'s counters, from {@link
+ * MpesaCallbackServer#stats()}.
+ *
+ * <p>A {@link #getShedCount()} that keeps growing means the handlers cannot keep up with the
+ * callbacks arriving; add worker threads or make the handlers faster.
+ */
+@Value
+public class CallbackServerStats {
+
+  /** Callbacks acknowledged to Daraja and queued for their handler. */
+  long acceptedCount;
+
+  /** Callbacks answered with 503 because the queue was full. */
+  long shedCount;
+
+  /** Requests answered with 400 or 413 because their body could not be read. */
+  long rejectedCount;
+
+  /** C2B confirmations acknowledged without being queued, because their TransID was seen before. */
+  long duplicateCount;
+
+  /** Queued callbacks whose handler returned normally, and validations decided in time. */
+  long processedCount;
+
+  /**
+   * Queued callbacks whose handler threw, validations whose validator threw, and requests answered
+   * with 500 because receiving them failed unexpectedly.
+   */
+  long failedCount;
+
+  /** Validations answered with the fallback because the validator ran out of time. */
+  long validationDeadlineMissCount;
+
+  /** Callbacks waiting in the queue. */
+  int queueDepth;
+}
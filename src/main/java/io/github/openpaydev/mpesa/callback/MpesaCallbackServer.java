@@ -0,0 +1,411 @@
+package io.github.openpaydev.mpesa.callback;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.github.openpaydev.mpesa.core.codec.MpesaCodecs;
+import io.github.openpaydev.mpesa.core.models.C2bTransaction;
+import io.github.openpaydev.mpesa.core.models.StkCallbackDetails;
+import io.github.openpaydev.mpesa.utils.MpesaCallbackParser;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * An embedded HTTP endpoint for Daraja's webhooks: the STK Push CallBackURL and the C2B
+ * ValidationURL and ConfirmationURL, served by the JDK's built-in {@link HttpServer}.
+ *
+ * <p>An STK callback or C2B confirmation is parsed, put on a bounded queue and acknowledged right
+ * away, so Daraja never waits on application code; {@link CallbackServerOptions#getWorkerThreads()
+ * worker threads} then pass it to the registered {@link CallbackHandler}. When the queue is full
+ * the callback is shed with a 503 instead, and Daraja delivers it again later. A C2B validation
+ * cannot be acknowledged before it is decided, so the {@link C2bValidator} is run while the request
+ * waits, under the {@link CallbackServerOptions#getC2bValidationPolicy() validation policy}'s time
+ * budget; see {@link C2bValidationHandler}. A route is only served if its handler is registered.
+ *
+ * <p>With a {@link CallbackServerOptions#getC2bDeduplicator() deduplicator}, a C2B confirmation
+ * whose {@code TransID} was already received is acknowledged but not passed to the handler again.
+ *
+ * <p>Requests run on virtual threads when the JVM has them, so a slow client or validator ties up
+ * no platform thread; on older JVMs they run on a fixed pool.
+ *
+ * <pre>{@code
+ * MpesaCallbackServer server =
+ *     new MpesaCallbackServer(CallbackServerOptions.builder().port(8080).build())
+ *         .onStkCallback(callback -> orders.settle(callback))
+ *         .onC2bConfirmation(payment -> ledger.record(payment))
+ *         .onC2bValidation(payment -> C2bValidationResult.success("Accepted"))
+ *         .start();
+ * }</pre>
+ */
+public final class MpesaCallbackServer implements AutoCloseable {
+
+  /** The acknowledgement Daraja expects from a callback endpoint. */
+  private static final byte[] ACCEPTED = ascii("{\"ResultCode\":0,\"ResultDesc\":\"Accepted\"}");
+
+  private static final byte[] OVERLOADED =
+      ascii("{\"ResultCode\":1,\"ResultDesc\":\"Overloaded, try again later\"}");
+  private static final byte[] EMPTY = new byte[0];
+
+  private final CallbackServerOptions options;
+  private final ObjectReader transactionReader;
+  private final BlockingQueue<Runnable> queue;
+
+  private final LongAdder accepted = new LongAdder();
+  private final LongAdder shed = new LongAdder();
+  private final LongAdder rejected = new LongAdder();
+  private final LongAdder duplicates = new LongAdder();
+  private final LongAdder processed = new LongAdder();
+  private final LongAdder failed = new LongAdder();
+
+  private CallbackHandler<StkCallbackDetails> stkCallbackHandler;
+  private CallbackHandler<C2bTransaction> c2bConfirmationHandler;
+  private C2bValidator c2bValidator;
+  private C2bValidationHandler validationHandler;
+  private Consumer<Exception> errorListener = e -> {};
+
+  private HttpServer server;
+  private ExecutorService requestExecutor;
+  private boolean virtualThreads;
+  private final List<Thread> workers = new ArrayList<>();
+  private volatile boolean stopping;
+
+  /** Creates a server that reads C2B transactions with the default codecs. */
+  public MpesaCallbackServer(CallbackServerOptions options) {
+    this(options, MpesaCodecs.defaults());
+  }
+
+  /**
+   * Creates a server. Nothing listens until {@link #start()}.
+   *
+   * @param codecs The codecs whose C2B transaction reader to use.
+   */
+  public MpesaCallbackServer(CallbackServerOptions options, MpesaCodecs codecs) {
+    if (options.getQueueCapacity() < 1 || options.getWorkerThreads() < 1) {
+      throw new IllegalArgumentException("queueCapacity and workerThreads must be at least 1.");
+    }
+    this.options = options;
+    this.transactionReader = codecs.readerFor(C2bTransaction.class);
+    this.queue = new ArrayBlockingQueue<>(options.getQueueCapacity());
+  }
+
+  /** Serves the STK Push CallBackURL with the given handler. */
+  public MpesaCallbackServer onStkCallback(CallbackHandler<StkCallbackDetails> handler) {
+    requireNotStarted();
+    this.stkCallbackHandler = Objects.requireNonNull(handler, "handler");
+    return this;
+  }
+
+  /** Serves the C2B ConfirmationURL with the given handler. */
+  public MpesaCallbackServer onC2bConfirmation(CallbackHandler<C2bTransaction> handler) {
+    requireNotStarted();
+    this.c2bConfirmationHandler = Objects.requireNonNull(handler, "handler");
+    return this;
+  }
+
+  /** Serves the C2B ValidationURL with the given validator. */
+  public MpesaCallbackServer onC2bValidation(C2bValidator validator) {
+    requireNotStarted();
+    this.c2bValidator = Objects.requireNonNull(validator, "validator");
+    return this;
+  }
+
+  /**
+   * Receives every exception thrown by a handler or validator, or while receiving a request. By
+   * default they are only counted.
+   */
+  public MpesaCallbackServer onHandlerError(Consumer<Exception> listener) {
+    requireNotStarted();
+    this.errorListener = Objects.requireNonNull(listener, "listener");
+    return this;
+  }
+
+  /**
+   * Binds the port and starts serving the routes whose handlers are registered.
+   *
+   * @return This server.
+   * @throws IOException If the port cannot be bound.
+   * @throws IllegalStateException If the server was already started.
+   */
+  public synchronized MpesaCallbackServer start() throws IOException {
+    requireNotStarted();
+    InetSocketAddress address =
+        options.getHost() == null
+            ? new InetSocketAddress(options.getPort())
+            : new InetSocketAddress(options.getHost(), options.getPort());
+    HttpServer created = HttpServer.create(address, options.getBacklog());
+    if (stkCallbackHandler != null) {
+      created.createContext(
+          options.getStkCallbackPath(), exchange -> serve(exchange, this::receiveStkCallback));
+    }
+    if (c2bConfirmationHandler != null) {
+      created.createContext(
+          options.getC2bConfirmationPath(),
+          exchange -> serve(exchange, this::receiveC2bConfirmation));
+    }
+    if (c2bValidator != null) {
+      validationHandler =
+          new C2bValidationHandler(c2bValidator, options.getC2bValidationPolicy(), this::failed);
+      created.createContext(
+          options.getC2bValidationPath(), exchange -> serve(exchange, this::validateC2b));
+    }
+
+    ExecutorService virtual = newVirtualThreadExecutor();
+    virtualThreads = virtual != null;
+    requestExecutor =
+        virtualThreads
+            ? virtual
+            : Executors.newFixedThreadPool(
+                options.getFallbackRequestThreads(), daemonThreads("mpesa-callback-request-"));
+    created.setExecutor(requestExecutor);
+    for (int i = 0; i < options.getWorkerThreads(); i++) {
+      Thread worker = new Thread(this::work, "mpesa-callback-worker-" + i);
+      worker.setDaemon(true);
+      worker.start();
+      workers.add(worker);
+    }
+    created.start();
+    server = created;
+    return this;
+  }
+
+  /** Returns the port the server listens on, which is useful after binding port 0. */
+  public synchronized int getPort() {
+    if (server == null) {
+      throw new IllegalStateException("The server is not started.");
+    }
+    return server.getAddress().getPort();
+  }
+
+  /** Whether requests run on virtual threads rather than the fallback pool. */
+  public synchronized boolean isUsingVirtualThreads() {
+    return virtualThreads;
+  }
+
+  /** Returns the server's counters. */
+  public CallbackServerStats stats() {
+    C2bValidationHandler validation = validationHandler;
+    return new CallbackServerStats(
+        accepted.sum(),
+        shed.sum(),
+        rejected.sum(),
+        duplicates.sum(),
+        processed.sum() + (validation == null ? 0 : validation.getValidatedCount()),
+        failed.sum(),
+        validation == null ? 0 : validation.getDeadlineMissCount(),
+        queue.size());
+  }
+
+  /**
+   * Stops accepting requests, then waits up to {@link CallbackServerOptions#getShutdownTimeout()}
+   * for the workers to process the callbacks already queued.
+   */
+  @Override
+  public synchronized void close() {
+    if (server == null || stopping) {
+      return;
+    }
+    server.stop(0);
+    stopping = true;
+    long deadline = System.nanoTime() + options.getShutdownTimeout().toNanos();
+    try {
+      for (Thread worker : workers) {
+        long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+        if (remaining > 0) {
+          worker.join(remaining);
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    for (Thread worker : workers) {
+      worker.interrupt();
+    }
+    requestExecutor.shutdownNow();
+    if (validationHandler != null) {
+      validationHandler.close();
+    }
+  }
+
+  private void receiveStkCallback(HttpExchange exchange, byte[] body) throws IOException {
+    StkCallbackDetails callback = requireCallback(MpesaCallbackParser.parseDetails(body));
+    enqueue(exchange, stkCallbackHandler, callback);
+  }
+
+  private void receiveC2bConfirmation(HttpExchange exchange, byte[] body) throws IOException {
+    C2bTransaction transaction = requireCallback(transactionReader.readValue(body));
+    C2bDeduplicator deduplicator = options.getC2bDeduplicator();
+    String transactionId = transaction.getTransactionId();
+    if (deduplicator == null || transactionId == null) {
+      enqueue(exchange, c2bConfirmationHandler, transaction);
+      return;
+    }
+    if (!deduplicator.firstSeen(transactionId)) {
+      duplicates.increment();
+      respond(exchange, 200, ACCEPTED);
+      return;
+    }
+    if (!enqueue(exchange, c2bConfirmationHandler, transaction)) {
+      // Shed, so Daraja delivers it again, and that delivery must not look like a duplicate.
+      deduplicator.forget(transactionId);
+    }
+  }
+
+  private void validateC2b(HttpExchange exchange, byte[] body) throws IOException {
+    C2bTransaction transaction = requireCallback(transactionReader.readValue(body));
+    respond(exchange, 200, validationHandler.validateToJson(transaction));
+  }
+
+  /** Refuses a body of JSON {@code null} like malformed JSON, since it holds no callback. */
+  private static <T> T requireCallback(T callback) throws JsonMappingException {
+    if (callback == null) {
+      throw JsonMappingException.from((JsonParser) null, "The body holds no callback.");
+    }
+    return callback;
+  }
+
+  /** Queues the callback and acknowledges it, or sheds it; returns whether it was queued. */
+  private <T> boolean enqueue(HttpExchange exchange, CallbackHandler<T> handler, T payload)
+      throws IOException {
+    if (queue.offer(() -> process(handler, payload))) {
+      accepted.increment();
+      respond(exchange, 200, ACCEPTED);
+      return true;
+    }
+    shed.increment();
+    respond(exchange, 503, OVERLOADED);
+    return false;
+  }
+
+  private <T> void process(CallbackHandler<T> handler, T payload) {
+    try {
+      handler.handle(payload);
+      processed.increment();
+    } catch (Exception e) {
+      failed(e);
+    }
+  }
+
+  private void failed(Exception e) {
+    failed.increment();
+    try {
+      errorListener.accept(e);
+    } catch (RuntimeException ignored) {
+      // A failing listener must not take the worker down.
+    }
+  }
+
+  private void work() {
+    while (true) {
+      Runnable task;
+      try {
+        task = queue.poll(100, TimeUnit.MILLISECONDS);
+      } catch (InterruptedException e) {
+        return;
+      }
+      if (task != null) {
+        task.run();
+      } else if (stopping) {
+        return;
+      }
+    }
+  }
+
+  private void serve(HttpExchange exchange, RequestHandler handler) {
+    try (exchange) {
+      try {
+        if (!"POST".equals(exchange.getRequestMethod())) {
+          respond(exchange, 405, EMPTY);
+          return;
+        }
+        byte[] body = readBody(exchange.getRequestBody(), options.getMaxBodyBytes());
+        if (body == null) {
+          rejected.increment();
+          respond(exchange, 413, EMPTY);
+          return;
+        }
+        handler.handle(exchange, body);
+      } catch (JsonProcessingException e) {
+        rejected.increment();
+        respond(exchange, 400, EMPTY);
+      } catch (RuntimeException e) {
+        // Answer anyway, so Daraja is not left waiting for its timeout before it delivers again.
+        failed(e);
+        respond(exchange, 500, EMPTY);
+      }
+    } catch (IOException e) {
+      // The client went away; Daraja delivers an unanswered callback again.
+    }
+  }
+
+  /** Reads the whole body, or returns {@code null} if it is longer than {@code maxBytes}. */
+  private static byte[] readBody(InputStream in, int maxBytes) throws IOException {
+    byte[] body = in.readNBytes(maxBytes + 1);
+    return body.length > maxBytes ? null : body;
+  }
+
+  private static void respond(HttpExchange exchange, int status, byte[] body) throws IOException {
+    if (body.length == 0) {
+      exchange.sendResponseHeaders(status, -1);
+      return;
+    }
+    exchange.getResponseHeaders().set("Content-Type", "application/json");
+    exchange.sendResponseHeaders(status, body.length);
+    try (OutputStream out = exchange.getResponseBody()) {
+      out.write(body);
+    }
+  }
+
+  private void requireNotStarted() {
+    if (server != null) {
+      throw new IllegalStateException("The server is already started.");
+    }
+  }
+
+  /**
+   * Returns {@code Executors.newVirtualThreadPerTaskExecutor()}, or {@code null} before Java 21.
+   * Looked up reflectively since the SDK is built for Java 17.
+   */
+  static ExecutorService newVirtualThreadExecutor() {
+    try {
+      return (ExecutorService)
+          Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+    } catch (ReflectiveOperationException | SecurityException e) {
+      return null;
+    }
+  }
+
+  static ThreadFactory daemonThreads(String prefix) {
+    AtomicInteger count = new AtomicInteger();
+    return task -> {
+      Thread thread = new Thread(task, prefix + count.getAndIncrement());
+      thread.setDaemon(true);
+      return thread;
+    };
+  }
+
+  private static byte[] ascii(String s) {
+    return s.getBytes(StandardCharsets.US_ASCII);
+  }
+
+  private interface RequestHandler {
+    void handle(HttpExchange exchange, byte[] body) throws IOException;
+  }
+}
@@ -0,0 +1,33 @@
+package io.github.openpaydev.mpesa.core;
+
+/**
+ * The Daraja operations the SDK performs, used to configure resilience behaviour per operation.
+ */
+public enum MpesaOperation {
+
+  /** Fetching an OAuth access token. */
+  AUTH(true),
+
+  /** Initiating an STK Push. Sending it twice can prompt the customer twice. */
+  STK_PUSH(false),
+
+  /** Querying the status of an STK Push. */
+  STK_QUERY(true),
+
+  /** Registering the C2B confirmation and validation URLs. */
+  C2B_REGISTER(true);
+
+  private final boolean idempotent;
+
+  MpesaOperation(boolean idempotent) {
+    this.idempotent = idempotent;
+  }
+
+  /**
+   * Whether repeating the call has the same effect as making it once, so it may be retried after
+   * Daraja could have received it.
+   */
+  public boolean isIdempotent() {
+    return idempotent;
+  }
+}
@@ -0,0 +1,18 @@
+package io.github.openpaydev.mpesa.core.auth;
+
+import lombok.Value;
+
+/**
+ * An immutable snapshot of an OAuth access token together with the instant it expires.
+ *
+ * <p>This is the unit of exchange between a {@link TokenManager} and its {@link TokenStore}.
+ */
+@Value
+public class CachedToken {
+
+  /** The OAuth access token string sent as the bearer credential. */
+  String value;
+
+  /** The epoch millisecond at which the M-Pesa API stops accepting the token. */
+  long expiryTime;
+}
@@ -1,6 +1,7 @@
 package io.github.openpaydev.mpesa.core.auth;
 
 import io.github.openpaydev.mpesa.core.exceptions.MpesaAuthException;
+import java.util.concurrent.CompletableFuture;
 
 public interface TokenManager {
   /**
@@ -10,4 +11,21 @@ public interface TokenManager {
    * @throws MpesaAuthException If an error occurs during the fetch.
    */
   String getAccessToken() throws MpesaAuthException;
+
+  /**
+   * Returns a valid access token without tying up the calling thread while a new one is fetched.
+   *
+   * <p>The default implementation delegates to {@link #getAccessToken()} and therefore blocks.
+   * Implementations backed by an asynchronous HTTP client should override it.
+   *
+   * @return A future completed with a valid OAuth access token string, or completed exceptionally
+   *     with an {@link MpesaAuthException} if the fetch fails.
+   */
+  default CompletableFuture<String> getAccessTokenAsync() {
+    try {
+      return CompletableFuture.completedFuture(getAccessToken());
+    } catch (MpesaAuthException e) {
+      return CompletableFuture.failedFuture(e);
+    }
+  }
 }
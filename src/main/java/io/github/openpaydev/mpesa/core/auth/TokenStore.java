@@ -0,0 +1,47 @@
+package io.github.openpaydev.mpesa.core.auth;
+
+/**
+ * Where a {@link TokenManager} keeps the access token it has fetched.
+ *
+ * <p>The default store lives in the manager's own heap. A store that is visible to several token
+ * managers, possibly in different processes, lets them share one token and one refresh instead of
+ * each fetching their own.
+ *
+ * <p>Implementations must be thread-safe.
+ */
+public interface TokenStore {
+
+  /**
+   * Returns the most recently saved token.
+   *
+   * @return The saved token, or {@code null} if none has been saved yet. The token may already be
+   *     expired; callers check {@link CachedToken#getExpiryTime()} themselves.
+   */
+  CachedToken load();
+
+  /**
+   * Saves a freshly fetched token, replacing any previous one.
+   *
+   * @param token The token to save.
+   */
+  void save(CachedToken token);
+
+  /**
+   * Tries to become the only party refreshing the token among everyone sharing this store. The
+   * caller re-reads the store after acquiring the lock, fetches a token only if the store still
+   * holds a stale one, saves it and then closes the lock.
+   *
+   * <p>Stores that are not shared can keep the default, which always grants the lock.
+   *
+   * @return A held lock, or {@code null} if another party is refreshing right now.
+   */
+  default RefreshLock tryLockRefresh() {
+    return () -> {};
+  }
+
+  /** A held refresh lock. Closing it releases the lock. */
+  interface RefreshLock extends AutoCloseable {
+    @Override
+    void close();
+  }
+}
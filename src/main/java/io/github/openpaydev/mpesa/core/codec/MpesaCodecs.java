@@ -0,0 +1,163 @@
+package io.github.openpaydev.mpesa.core.codec;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.Module;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import io.github.openpaydev.mpesa.core.models.AccessTokenResponse;
+import io.github.openpaydev.mpesa.core.models.C2bRegisterUrlRequest;
+import io.github.openpaydev.mpesa.core.models.C2bRegisterUrlResponse;
+import io.github.openpaydev.mpesa.core.models.C2bTransaction;
+import io.github.openpaydev.mpesa.core.models.C2bValidationResult;
+import io.github.openpaydev.mpesa.core.models.StkCallback;
+import io.github.openpaydev.mpesa.core.models.StkPushRequest;
+import io.github.openpaydev.mpesa.core.models.StkPushResponse;
+import io.github.openpaydev.mpesa.core.models.StkStatusQueryRequest;
+import io.github.openpaydev.mpesa.core.models.StkStatusQueryResponse;
+import java.io.IOException;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * The JSON codecs shared by the SDK: one configured {@link ObjectMapper} and a pre-resolved {@link
+ * ObjectReader} and {@link ObjectWriter} for every model in {@code core.models}.
+ *
+ * <p>Resolving a model's (de)serializer is the expensive part of Jackson's first call. Doing it
+ * once, when the codecs are created, means no request pays for it, and sharing one instance means
+ * every {@code MpesaClient}, {@code MpesaTokenManager} and {@code MpesaCallbackParser} reuses the
+ * same warm caches instead of building their own. An instance is immutable and thread-safe.
+ *
+ * <p>Most applications use {@link #defaults()}. {@link #withAccessorModule()} additionally
+ * registers Jackson's bytecode-generating property accessors, Blackbird or else Afterburner, when
+ * one of them is on the classpath; the SDK does not depend on either.
+ */
+public final class MpesaCodecs {
+
+  /** The models whose reader and writer are resolved up front. */
+  static final List<Class<?>> MODEL_TYPES =
+      List.of(
+          AccessTokenResponse.class,
+          C2bRegisterUrlRequest.class,
+          C2bRegisterUrlResponse.class,
+          C2bTransaction.class,
+          C2bValidationResult.class,
+          StkCallback.class,
+          StkPushRequest.class,
+          StkPushResponse.class,
+          StkStatusQueryRequest.class,
+          StkStatusQueryResponse.class);
+
+  /** The accessor modules tried by {@link #withAccessorModule()}, in order of preference. */
+  static final List<String> ACCESSOR_MODULES =
+      List.of(
+          "com.fasterxml.jackson.module.blackbird.BlackbirdModule",
+          "com.fasterxml.jackson.module.afterburner.AfterburnerModule");
+
+  private final ObjectMapper objectMapper;
+  private final String accessorModule;
+  private final ConcurrentMap<Class<?>, ObjectReader> readers = new ConcurrentHashMap<>();
+  private final ConcurrentMap<Class<?>, ObjectWriter> writers = new ConcurrentHashMap<>();
+
+  private MpesaCodecs(ObjectMapper objectMapper, String accessorModule) {
+    this.objectMapper = objectMapper;
+    this.accessorModule = accessorModule;
+    for (Class<?> type : MODEL_TYPES) {
+      // Both eagerly resolve the root (de)serializer for the type.
+      readers.put(type, objectMapper.readerFor(type));
+      writers.put(type, objectMapper.writerFor(type));
+    }
+  }
+
+  /**
+   * Returns the codecs used wherever none are supplied: a default {@link ObjectMapper}, without an
+   * accessor module. Created and warmed on first use.
+   */
+  public static MpesaCodecs defaults() {
+    return DefaultsHolder.INSTANCE;
+  }
+
+  /**
+   * Creates codecs with Jackson's Blackbird module registered, or Afterburner if only that one is
+   * on the classpath, or neither if both are missing. Check {@link #getAccessorModule()} to see
+   * which one was picked up.
+   */
+  public static MpesaCodecs withAccessorModule() {
+    ObjectMapper objectMapper = new ObjectMapper();
+    for (String className : ACCESSOR_MODULES) {
+      Module module = loadModule(className);
+      if (module != null) {
+        objectMapper.registerModule(module);
+        return new MpesaCodecs(objectMapper, className);
+      }
+    }
+    return new MpesaCodecs(objectMapper, null);
+  }
+
+  /**
+   * Creates codecs from a copy of the given mapper, for applications that need custom Jackson
+   * settings. Changes made to the mapper afterwards are not seen by the codecs.
+   *
+   * @param objectMapper The mapper to copy, including any modules registered on it.
+   */
+  public static MpesaCodecs of(ObjectMapper objectMapper) {
+    return new MpesaCodecs(Objects.requireNonNull(objectMapper, "objectMapper").copy(), null);
+  }
+
+  /**
+   * Returns the reader for the given type. The models in {@code core.models} are served from the
+   * pre-resolved set; other types are resolved on first use and cached.
+   */
+  public ObjectReader readerFor(Class<?> type) {
+    return readers.computeIfAbsent(type, objectMapper::readerFor);
+  }
+
+  /**
+   * Returns the writer for the given type. The models in {@code core.models} are served from the
+   * pre-resolved set; other types are resolved on first use and cached.
+   */
+  public ObjectWriter writerFor(Class<?> type) {
+    return writers.computeIfAbsent(type, objectMapper::writerFor);
+  }
+
+  /**
+   * Runs every model through its reader and writer once, so that the parts Jackson only builds on
+   * first use exist before the first real request does. Safe to call more than once.
+   */
+  public void prime() {
+    for (Class<?> type : MODEL_TYPES) {
+      try {
+        writerFor(type).writeValueAsBytes(readerFor(type).readValue("{}"));
+      } catch (IOException e) {
+        // Models the SDK only ever writes, such as C2bValidationResult, cannot be read back.
+      }
+    }
+  }
+
+  /** Returns the factory behind the mapper, for code that reads with the streaming API. */
+  public JsonFactory getJsonFactory() {
+    return objectMapper.getFactory();
+  }
+
+  /**
+   * Returns the class name of the registered accessor module, or {@code null} if none is
+   * registered.
+   */
+  public String getAccessorModule() {
+    return accessorModule;
+  }
+
+  private static Module loadModule(String className) {
+    try {
+      return (Module) Class.forName(className).getDeclaredConstructor().newInstance();
+    } catch (ReflectiveOperationException | LinkageError | ClassCastException e) {
+      return null;
+    }
+  }
+
+  private static final class DefaultsHolder {
+    private static final MpesaCodecs INSTANCE = new MpesaCodecs(new ObjectMapper(), null);
+  }
+}
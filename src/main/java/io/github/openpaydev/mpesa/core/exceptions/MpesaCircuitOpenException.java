@@ -0,0 +1,28 @@
+package io.github.openpaydev.mpesa.core.exceptions;
+
+import java.time.Duration;
+
+/**
+ * Thrown when a call is rejected because the circuit breaker of its endpoint is open. The call was
+ * not sent. {@link #getRetryAfter()} says when the breaker will next let a trial call through.
+ */
+public class MpesaCircuitOpenException extends MpesaException {
+  private static final long serialVersionUID = 1L;
+
+  private final String endpoint;
+  private final Duration retryAfter;
+
+  public MpesaCircuitOpenException(String endpoint, Duration retryAfter) {
+    super("Circuit breaker for " + endpoint + " is open.");
+    this.endpoint = endpoint;
+    this.retryAfter = retryAfter;
+  }
+
+  public String getEndpoint() {
+    return endpoint;
+  }
+
+  public Duration getRetryAfter() {
+    return retryAfter;
+  }
+}
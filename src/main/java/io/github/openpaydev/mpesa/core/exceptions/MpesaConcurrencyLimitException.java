@@ -0,0 +1,13 @@
+package io.github.openpaydev.mpesa.core.exceptions;
+
+/**
+ * Thrown when a call cannot get a slot from the adaptive concurrency limiter, because its queue is
+ * full or the call waited too long in it. The call was not sent.
+ */
+public class MpesaConcurrencyLimitException extends MpesaException {
+  private static final long serialVersionUID = 1L;
+
+  public MpesaConcurrencyLimitException(String message) {
+    super(message);
+  }
+}
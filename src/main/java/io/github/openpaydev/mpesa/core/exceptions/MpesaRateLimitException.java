@@ -0,0 +1,22 @@
+package io.github.openpaydev.mpesa.core.exceptions;
+
+import java.time.Duration;
+
+/**
+ * Thrown when the client-side rate limiter refuses a call instead of letting it wait for a permit.
+ * The call was not sent. {@link #getRetryAfter()} says when a permit would have been available.
+ */
+public class MpesaRateLimitException extends MpesaException {
+  private static final long serialVersionUID = 1L;
+
+  private final Duration retryAfter;
+
+  public MpesaRateLimitException(String message, Duration retryAfter) {
+    super(message);
+    this.retryAfter = retryAfter;
+  }
+
+  public Duration getRetryAfter() {
+    return retryAfter;
+  }
+}
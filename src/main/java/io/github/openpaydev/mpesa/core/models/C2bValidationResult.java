@@ -10,6 +10,13 @@ import lombok.Getter;
 @Getter
 @AllArgsConstructor
 public class C2bValidationResult {
+
+  /** The standard response accepting a payment. */
+  public static final C2bValidationResult ACCEPTED = success("Accepted");
+
+  /** The standard response rejecting a payment. */
+  public static final C2bValidationResult REJECTED = error("Rejected");
+
   @JsonProperty("ResultCode")
   private int resultCode;
 
@@ -0,0 +1,70 @@
+package io.github.openpaydev.mpesa.core.models;
+
+import lombok.Builder;
+import lombok.Value;
+
+/**
+ * A flat, typed view of an STK Push callback, produced by {@code
+ * MpesaCallbackParser.parseDetails(...)}.
+ *
+ * <p>The well-known metadata items are decoded once, at parse time, into primitive fields, so
+ * reading them needs neither a scan over {@link StkCallback.CallbackMetadata#getItems()} nor a
+ * cast. A field whose item is absent, as it is for failed or cancelled transactions, holds {@link
+ * #NO_VALUE}; use the matching {@code has...()} method to check. Every other item, and any
+ * well-known item whose value cannot be represented in its typed field, is kept in {@link
+ * #getOtherItems()}.
+ */
+@Value
+@Builder
+public class StkCallbackDetails {
+
+  /** The value of a numeric field whose metadata item is absent. */
+  public static final long NO_VALUE = Long.MIN_VALUE;
+
+  String merchantRequestID;
+
+  String checkoutRequestID;
+
+  int resultCode;
+
+  String resultDesc;
+
+  /** The {@code Amount} item in minor units (cents), e.g. {@code 100} for {@code 1.00}. */
+  @Builder.Default
+  long amount = NO_VALUE;
+
+  /** The {@code MpesaReceiptNumber} item, or {@code null} if absent. */
+  String mpesaReceiptNumber;
+
+  /**
+   * The {@code TransactionDate} item as epoch milliseconds. M-Pesa sends it as {@code
+   * yyyyMMddHHmmss} in East Africa Time (UTC+03:00).
+   */
+  @Builder.Default
+  long transactionDate = NO_VALUE;
+
+  /** The {@code PhoneNumber} item, e.g. {@code 254712345678}. */
+  @Builder.Default
+  long phoneNumber = NO_VALUE;
+
+  /** The metadata items not decoded into one of the fields above, in their original order. */
+  @Builder.Default
+  StkCallback.CallbackItem[] otherItems = new StkCallback.CallbackItem[0];
+
+  /** Whether M-Pesa reported the transaction as successful ({@code ResultCode} 0). */
+  public boolean isSuccessful() {
+    return resultCode == 0;
+  }
+
+  public boolean hasAmount() {
+    return amount != NO_VALUE;
+  }
+
+  public boolean hasTransactionDate() {
+    return transactionDate != NO_VALUE;
+  }
+
+  public boolean hasPhoneNumber() {
+    return phoneNumber != NO_VALUE;
+  }
+}
@@ -3,6 +3,7 @@ package io.github.openpaydev.mpesa.core.service;
 import io.github.openpaydev.mpesa.core.exceptions.MpesaException;
 import io.github.openpaydev.mpesa.core.models.C2bRegisterUrlRequest;
 import io.github.openpaydev.mpesa.core.models.C2bRegisterUrlResponse;
+import java.util.concurrent.CompletableFuture;
 
 public interface C2bService {
 
@@ -14,4 +15,24 @@ public interface C2bService {
    * @throws MpesaException If a network or API error occurs.
    */
   C2bRegisterUrlResponse registerC2bUrl(C2bRegisterUrlRequest request) throws MpesaException;
+
+  /**
+   * Registers the Confirmation and Validation URLs for a C2B shortcode without blocking the
+   * calling thread.
+   *
+   * <p>The default implementation delegates to {@link #registerC2bUrl(C2bRegisterUrlRequest)} and
+   * therefore blocks. Implementations backed by an asynchronous HTTP client should override it.
+   *
+   * @param request The C2B registration request object.
+   * @return A future completed with the registration response, or completed exceptionally with an
+   *     {@link MpesaException} if a network or API error occurs.
+   */
+  default CompletableFuture<C2bRegisterUrlResponse> registerC2bUrlAsync(
+      C2bRegisterUrlRequest request) {
+    try {
+      return CompletableFuture.completedFuture(registerC2bUrl(request));
+    } catch (MpesaException | RuntimeException e) {
+      return CompletableFuture.failedFuture(e);
+    }
+  }
 }
@@ -4,6 +4,7 @@ import io.github.openpaydev.mpesa.core.exceptions.MpesaException;
 import io.github.openpaydev.mpesa.core.models.StkPushRequest;
 import io.github.openpaydev.mpesa.core.models.StkPushResponse;
 import io.github.openpaydev.mpesa.core.models.StkStatusQueryResponse;
+import java.util.concurrent.CompletableFuture;
 
 public interface StkPushService {
   /**
@@ -23,4 +24,40 @@ public interface StkPushService {
    * @throws MpesaException If a network or API error occurs.
    */
   StkStatusQueryResponse queryStkStatus(String checkoutRequestID) throws MpesaException;
+
+  /**
+   * Initiates an M-Pesa STK Push request without blocking the calling thread.
+   *
+   * <p>The default implementation delegates to {@link #stkPush(StkPushRequest)} and therefore
+   * blocks. Implementations backed by an asynchronous HTTP client should override it.
+   *
+   * @param request The STK Push request object.
+   * @return A future completed with the initial response from the API, or completed exceptionally
+   *     with an {@link MpesaException} if a network or API error occurs.
+   */
+  default CompletableFuture<StkPushResponse> stkPushAsync(StkPushRequest request) {
+    try {
+      return CompletableFuture.completedFuture(stkPush(request));
+    } catch (MpesaException | RuntimeException e) {
+      return CompletableFuture.failedFuture(e);
+    }
+  }
+
+  /**
+   * Queries the status of an STK Push transaction without blocking the calling thread.
+   *
+   * <p>The default implementation delegates to {@link #queryStkStatus(String)} and therefore
+   * blocks. Implementations backed by an asynchronous HTTP client should override it.
+   *
+   * @param checkoutRequestID The unique ID of the transaction to query.
+   * @return A future completed with the transaction status details, or completed exceptionally
+   *     with an {@link MpesaException} if a network or API error occurs.
+   */
+  default CompletableFuture<StkStatusQueryResponse> queryStkStatusAsync(String checkoutRequestID) {
+    try {
+      return CompletableFuture.completedFuture(queryStkStatus(checkoutRequestID));
+    } catch (MpesaException | RuntimeException e) {
+      return CompletableFuture.failedFuture(e);
+    }
+  }
 }
@@ -4,7 +4,11 @@ import java.nio.charset.StandardCharsets;
 import java.time.ZoneId;
 import java.time.ZonedDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
 import java.util.Base64;
+import java.util.Iterator;
+import java.util.function.IntConsumer;
+import java.util.stream.Stream;
 
 public final class MpesaUtils {
 
@@ -12,6 +16,16 @@ public final class MpesaUtils {
       DateTimeFormatter.ofPattern("yyyyMMddHHmmss");
   private static final ZoneId NAIROBI_ZONE_ID = ZoneId.of("Africa/Nairobi");
 
+  /** The value {@link #toMsisdns} stores for a row it rejected. */
+  public static final long INVALID_MSISDN = 0L;
+
+  private static final long KENYA_PREFIX = 254_000_000_000L;
+  private static final int SUBSCRIBER_DIGITS = 9;
+
+  private static final long EMPTY = -1;
+  private static final long BAD_FORMAT = -2;
+  private static final long NOT_KENYAN = -3;
+
   private MpesaUtils() {
     // prevent instantiation
   }
@@ -30,30 +44,151 @@ public final class MpesaUtils {
   }
 
   public static String formatPhoneNumber(String phoneNumber) {
-    if (phoneNumber == null || phoneNumber.trim().isEmpty()) {
+    return Long.toString(toMsisdn(phoneNumber));
+  }
+
+  /**
+   * Normalizes a Kenyan mobile number to its MSISDN, e.g. {@code 254712345678}. Accepts the same
+   * inputs as {@link #formatPhoneNumber(String)} ({@code 07...}, {@code 7...}, {@code 254...},
+   * optionally with a leading {@code +} and whitespace anywhere) in a single pass without
+   * allocating.
+   *
+   * @throws IllegalArgumentException with the same message {@code formatPhoneNumber} would throw.
+   */
+  public static long toMsisdn(CharSequence phoneNumber) {
+    long msisdn = scanMsisdn(phoneNumber);
+    if (msisdn >= 0) {
+      return msisdn;
+    }
+    if (msisdn == EMPTY) {
       throw new IllegalArgumentException("Phone number cannot be null or empty.");
     }
+    if (msisdn == BAD_FORMAT) {
+      throw new IllegalArgumentException("Invalid phone number format: " + phoneNumber);
+    }
+    throw new IllegalArgumentException("Invalid Kenyan phone number: " + phoneNumber);
+  }
 
-    String normalizedPhoneNumber = phoneNumber.trim().replaceAll("\\s+", "");
-    if (normalizedPhoneNumber.startsWith("+")) {
-      normalizedPhoneNumber = normalizedPhoneNumber.substring(1);
+  /**
+   * Normalizes many phone numbers at once. Entry {@code i} of the result is the MSISDN of {@code
+   * phoneNumbers[i]}, or {@link #INVALID_MSISDN} if it was rejected, in which case {@code i} is
+   * also passed to {@code onInvalid}. No exception is thrown for invalid rows.
+   *
+   * @param phoneNumbers The numbers to normalize; {@code null} entries count as invalid.
+   * @param onInvalid Receives the index of each rejected row, in order.
+   * @return The MSISDNs, aligned with the input.
+   */
+  public static long[] toMsisdns(CharSequence[] phoneNumbers, IntConsumer onInvalid) {
+    long[] msisdns = new long[phoneNumbers.length];
+    for (int i = 0; i < phoneNumbers.length; i++) {
+      msisdns[i] = normalizeRow(phoneNumbers[i], i, onInvalid);
     }
+    return msisdns;
+  }
 
-    String formatted;
-    if (normalizedPhoneNumber.startsWith("07")) {
-      formatted = "254" + normalizedPhoneNumber.substring(1);
-    } else if (normalizedPhoneNumber.startsWith("7")) {
-      formatted = "254" + normalizedPhoneNumber;
-    } else if (normalizedPhoneNumber.startsWith("254")) {
-      formatted = normalizedPhoneNumber;
-    } else {
-      throw new IllegalArgumentException("Invalid phone number format: " + phoneNumber);
+  /**
+   * Stream variant of {@link #toMsisdns(CharSequence[], IntConsumer)}. Rows are indexed in
+   * encounter order; the stream is consumed sequentially.
+   *
+   * @param phoneNumbers The numbers to normalize; {@code null} entries count as invalid.
+   * @param onInvalid Receives the index of each rejected row, in order.
+   * @return The MSISDNs, aligned with the input.
+   */
+  public static long[] toMsisdns(
+      Stream<? extends CharSequence> phoneNumbers, IntConsumer onInvalid) {
+    long[] msisdns = new long[64];
+    int count = 0;
+    Iterator<? extends CharSequence> rows = phoneNumbers.sequential().iterator();
+    while (rows.hasNext()) {
+      if (count == msisdns.length) {
+        msisdns = Arrays.copyOf(msisdns, count * 2);
+      }
+      msisdns[count] = normalizeRow(rows.next(), count, onInvalid);
+      count++;
+    }
+    return count == msisdns.length ? msisdns : Arrays.copyOf(msisdns, count);
+  }
+
+  private static long normalizeRow(CharSequence phoneNumber, int index, IntConsumer onInvalid) {
+    long msisdn = scanMsisdn(phoneNumber);
+    if (msisdn >= 0) {
+      return msisdn;
+    }
+    onInvalid.accept(index);
+    return INVALID_MSISDN;
+  }
+
+  /**
+   * The scanner behind {@link #toMsisdn}. It reproduces the original pipeline of {@code trim()},
+   * removing {@code \s} characters, stripping one {@code +}, rewriting the {@code 07}/{@code
+   * 7}/{@code 254} prefix and matching {@code ^2547\d{8}$}, but walks the input only once.
+   *
+   * @return The MSISDN, or one of the negative {@code EMPTY}, {@code BAD_FORMAT} and {@code
+   *     NOT_KENYAN} codes.
+   */
+  private static long scanMsisdn(CharSequence phoneNumber) {
+    if (phoneNumber == null) {
+      return EMPTY;
+    }
+    int start = 0;
+    int end = phoneNumber.length();
+    while (start < end && phoneNumber.charAt(start) <= ' ') {
+      start++;
+    }
+    while (end > start && phoneNumber.charAt(end - 1) <= ' ') {
+      end--;
+    }
+    if (start == end) {
+      return EMPTY;
+    }
+
+    int i = skipWhitespace(phoneNumber, start, end);
+    if (phoneNumber.charAt(i) == '+') {
+      i = skipWhitespace(phoneNumber, i + 1, end);
     }
 
-    if (!formatted.matches("^2547\\d{8}$")) {
-      throw new IllegalArgumentException("Invalid Kenyan phone number: " + phoneNumber);
+    // Find where the subscriber number, which must start with 7, begins.
+    char first = charAt(phoneNumber, i, end);
+    int second = skipWhitespace(phoneNumber, i + 1, end);
+    if (first == '0' && charAt(phoneNumber, second, end) == '7') {
+      i = second;
+    } else if (first == '2' && charAt(phoneNumber, second, end) == '5') {
+      int third = skipWhitespace(phoneNumber, second + 1, end);
+      if (charAt(phoneNumber, third, end) != '4') {
+        return BAD_FORMAT;
+      }
+      i = skipWhitespace(phoneNumber, third + 1, end);
+    } else if (first != '7') {
+      return BAD_FORMAT;
     }
 
-    return formatted;
+    long subscriber = 0;
+    int digits = 0;
+    for (; i < end; i = skipWhitespace(phoneNumber, i + 1, end)) {
+      char c = phoneNumber.charAt(i);
+      if (c < '0' || c > '9' || digits == SUBSCRIBER_DIGITS || (digits == 0 && c != '7')) {
+        return NOT_KENYAN;
+      }
+      subscriber = subscriber * 10 + (c - '0');
+      digits++;
+    }
+    return digits == SUBSCRIBER_DIGITS ? KENYA_PREFIX + subscriber : NOT_KENYAN;
+  }
+
+  /** Returns the index of the next character at or after {@code i} that is not {@code \s}. */
+  private static int skipWhitespace(CharSequence s, int i, int end) {
+    while (i < end && isRegexWhitespace(s.charAt(i))) {
+      i++;
+    }
+    return i;
+  }
+
+  private static char charAt(CharSequence s, int i, int end) {
+    return i < end ? s.charAt(i) : '\0';
+  }
+
+  /** The characters matched by the regex class {@code \s}: {@code [ \t\n\x0B\f\r]}. */
+  private static boolean isRegexWhitespace(char c) {
+    return c == ' ' || (c >= '\t' && c <= '\r');
   }
 }
@@ -0,0 +1,91 @@
+package io.github.openpaydev.mpesa.core.utils;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import lombok.Value;
+
+/**
+ * Supplies the {@code Timestamp} and {@code Password} fields of STK Push and STK query requests,
+ * computing them at most once per second per shortcode.
+ *
+ * <p>Both values only change when the wall-clock second does, so the pair built by {@link
+ * MpesaUtils#getTimestamp(ZonedDateTime)} and {@link MpesaUtils#generatePassword(String, String,
+ * String)} is published as one immutable object and shared by every request in that second.
+ * Reading it is a map lookup and a comparison, with no locking. When the second rolls over, the
+ * first callers to notice rebuild the pair; if several do so at once they produce identical
+ * values, so it does not matter whose copy is kept.
+ *
+ * <p>The provider is driven by the injected {@link Clock}, which makes second boundaries
+ * deterministic in tests.
+ */
+public final class StkCredentialProvider {
+
+  private final Clock clock;
+  private final ConcurrentMap<String, Entry> entries = new ConcurrentHashMap<>();
+
+  /** Creates a provider that reads the system clock. */
+  public StkCredentialProvider() {
+    this(Clock.systemUTC());
+  }
+
+  /**
+   * Creates a provider that reads the given clock.
+   *
+   * @param clock The clock whose current second the credentials are generated for.
+   */
+  public StkCredentialProvider(Clock clock) {
+    this.clock = Objects.requireNonNull(clock, "clock");
+  }
+
+  /**
+   * Returns the credentials for the current second.
+   *
+   * @param shortCode The business shortcode the password is generated for.
+   * @param passKey The Lipa Na M-Pesa passkey of that shortcode.
+   * @return The timestamp and matching password, shared by all callers within the same second.
+   */
+  public Credentials get(String shortCode, String passKey) {
+    Objects.requireNonNull(shortCode, "shortCode");
+    long epochSecond = Math.floorDiv(clock.millis(), 1000);
+    Entry entry = entries.get(shortCode);
+    if (entry != null
+        && entry.epochSecond == epochSecond
+        && Objects.equals(entry.passKey, passKey)) {
+      return entry.credentials;
+    }
+
+    String timestamp =
+        MpesaUtils.getTimestamp(Instant.ofEpochSecond(epochSecond).atZone(ZoneOffset.UTC));
+    Credentials credentials =
+        new Credentials(timestamp, MpesaUtils.generatePassword(shortCode, passKey, timestamp));
+    entries.put(shortCode, new Entry(epochSecond, passKey, credentials));
+    return credentials;
+  }
+
+  /** A timestamp and the password generated for it. */
+  @Value
+  public static class Credentials {
+    /** The request timestamp, {@code yyyyMMddHHmmss} in Nairobi time. */
+    String timestamp;
+
+    /** Base64 of shortcode, passkey and timestamp. */
+    String password;
+  }
+
+  private static final class Entry {
+    private final long epochSecond;
+    private final String passKey;
+    private final Credentials credentials;
+
+    private Entry(long epochSecond, String passKey, Credentials credentials) {
+      this.epochSecond = epochSecond;
+      this.passKey = passKey;
+      this.credentials = credentials;
+    }
+  }
+}
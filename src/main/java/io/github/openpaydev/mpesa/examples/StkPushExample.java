@@ -6,6 +6,8 @@ import io.github.openpaydev.mpesa.core.MpesaConfig;
 import io.github.openpaydev.mpesa.core.models.StkPushRequest;
 import io.github.openpaydev.mpesa.core.models.StkPushResponse;
 import io.github.openpaydev.mpesa.core.models.StkStatusQueryResponse;
+import io.github.openpaydev.mpesa.http.MpesaHttpClients;
+import io.github.openpaydev.mpesa.http.MpesaHttpProfile;
 import okhttp3.OkHttpClient;
 
 /**
@@ -33,7 +35,7 @@ public class StkPushExample {
       validateConfig(config);
 
       // 2. Create the necessary clients
-      OkHttpClient httpClient = new OkHttpClient();
+      OkHttpClient httpClient = MpesaHttpClients.shared(MpesaHttpProfile.LATENCY);
       MpesaTokenManager tokenManager = new MpesaTokenManager(config, httpClient);
       MpesaClient client = new MpesaClient(config, tokenManager, httpClient);
 
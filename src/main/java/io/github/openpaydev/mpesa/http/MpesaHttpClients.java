@@ -0,0 +1,82 @@
+package io.github.openpaydev.mpesa.http;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
+import okhttp3.OkHttpClient;
+
+/**
+ * Builds {@link OkHttpClient}s tuned for Daraja traffic.
+ *
+ * <p>Pass the same client to {@code MpesaTokenManager} and {@code MpesaClient} so that token
+ * requests and API calls share one connection pool and dispatcher:
+ *
+ * <pre>{@code
+ * OkHttpClient httpClient = MpesaHttpClients.shared(MpesaHttpProfile.THROUGHPUT);
+ * MpesaTokenManager tokenManager = new MpesaTokenManager(config, httpClient);
+ * MpesaClient client = new MpesaClient(config, tokenManager, httpClient);
+ * }</pre>
+ *
+ * <p>To add interceptors or change a setting, start from {@link #newBuilder(MpesaHttpProfile)},
+ * or call {@link OkHttpClient#newBuilder()} on a shared client to keep sharing its pool.
+ */
+public final class MpesaHttpClients {
+
+  private static final Map<MpesaHttpProfile, OkHttpClient> SHARED = new ConcurrentHashMap<>();
+
+  private MpesaHttpClients() {
+    throw new UnsupportedOperationException("This is a utility class and cannot be instantiated");
+  }
+
+  /**
+   * Returns the process-wide client for a profile, creating it on first use. Every caller asking
+   * for the same profile gets the same instance, and with it the same connections.
+   */
+  public static OkHttpClient shared(MpesaHttpProfile profile) {
+    Objects.requireNonNull(profile, "profile");
+    return SHARED.computeIfAbsent(profile, MpesaHttpClients::create);
+  }
+
+  /** Creates a client with its own connection pool and dispatcher, configured by the profile. */
+  public static OkHttpClient create(MpesaHttpProfile profile) {
+    return newBuilder(profile).build();
+  }
+
+  /**
+   * Returns a builder preconfigured by the profile, with a new connection pool and dispatcher, for
+   * callers that need to customize the client further.
+   */
+  public static OkHttpClient.Builder newBuilder(MpesaHttpProfile profile) {
+    Dispatcher dispatcher = new Dispatcher();
+    dispatcher.setMaxRequests(profile.getMaxRequests());
+    dispatcher.setMaxRequestsPerHost(profile.getMaxRequestsPerHost());
+
+    return new OkHttpClient.Builder()
+        .dispatcher(dispatcher)
+        .connectionPool(
+            new ConnectionPool(
+                profile.getMaxIdleConnections(),
+                profile.getKeepAlive().toMillis(),
+                TimeUnit.MILLISECONDS))
+        .connectTimeout(profile.getConnectTimeout())
+        .readTimeout(profile.getReadTimeout())
+        .writeTimeout(profile.getWriteTimeout())
+        .callTimeout(profile.getCallTimeout());
+  }
+
+  /** Takes a snapshot of the client's connection pool and dispatcher. */
+  public static MpesaHttpStats stats(OkHttpClient client) {
+    ConnectionPool pool = client.connectionPool();
+    Dispatcher dispatcher = client.dispatcher();
+    return new MpesaHttpStats(
+        pool.connectionCount(),
+        pool.idleConnectionCount(),
+        dispatcher.runningCallsCount(),
+        dispatcher.queuedCallsCount(),
+        dispatcher.getMaxRequests(),
+        dispatcher.getMaxRequestsPerHost());
+  }
+}
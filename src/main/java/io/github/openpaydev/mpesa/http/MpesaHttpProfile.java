@@ -0,0 +1,106 @@
+package io.github.openpaydev.mpesa.http;
+
+import java.time.Duration;
+
+/**
+ * Preset connection and dispatcher settings for clients built by {@link MpesaHttpClients}.
+ *
+ * <p>Both profiles lift OkHttp's default limit of 5 concurrent asynchronous calls per host, which
+ * otherwise silently queues every call past the fifth: all Daraja endpoints live on one host. They
+ * differ in how long a call may take before it is given up.
+ */
+public enum MpesaHttpProfile {
+
+  /**
+   * For batch and back-office traffic: many calls in flight, generous timeouts, so slow Daraja
+   * responses are waited out rather than failed.
+   */
+  THROUGHPUT(
+      256,
+      256,
+      64,
+      Duration.ofMinutes(5),
+      Duration.ofSeconds(10),
+      Duration.ofSeconds(30),
+      Duration.ofSeconds(10),
+      Duration.ofSeconds(60)),
+
+  /**
+   * For calls made while a customer is waiting, such as an STK Push at checkout: fewer calls in
+   * flight and short timeouts, so a stalled connection fails fast and can be retried.
+   */
+  LATENCY(
+      64,
+      64,
+      32,
+      Duration.ofMinutes(5),
+      Duration.ofSeconds(3),
+      Duration.ofSeconds(15),
+      Duration.ofSeconds(5),
+      Duration.ofSeconds(20));
+
+  private final int maxRequests;
+  private final int maxRequestsPerHost;
+  private final int maxIdleConnections;
+  private final Duration keepAlive;
+  private final Duration connectTimeout;
+  private final Duration readTimeout;
+  private final Duration writeTimeout;
+  private final Duration callTimeout;
+
+  MpesaHttpProfile(
+      int maxRequests,
+      int maxRequestsPerHost,
+      int maxIdleConnections,
+      Duration keepAlive,
+      Duration connectTimeout,
+      Duration readTimeout,
+      Duration writeTimeout,
+      Duration callTimeout) {
+    this.maxRequests = maxRequests;
+    this.maxRequestsPerHost = maxRequestsPerHost;
+    this.maxIdleConnections = maxIdleConnections;
+    this.keepAlive = keepAlive;
+    this.connectTimeout = connectTimeout;
+    this.readTimeout = readTimeout;
+    this.writeTimeout = writeTimeout;
+    this.callTimeout = callTimeout;
+  }
+
+  /** The most asynchronous calls in flight at once; the rest wait in the dispatcher's queue. */
+  public int getMaxRequests() {
+    return maxRequests;
+  }
+
+  /** The most asynchronous calls in flight to one host at once. */
+  public int getMaxRequestsPerHost() {
+    return maxRequestsPerHost;
+  }
+
+  /** How many idle connections the pool keeps open for reuse. */
+  public int getMaxIdleConnections() {
+    return maxIdleConnections;
+  }
+
+  /** How long an idle connection is kept before it is closed. */
+  public Duration getKeepAlive() {
+    return keepAlive;
+  }
+
+  public Duration getConnectTimeout() {
+    return connectTimeout;
+  }
+
+  public Duration getReadTimeout() {
+    return readTimeout;
+  }
+
+  public Duration getWriteTimeout() {
+    return writeTimeout;
+  }
+
+  /** The limit on a whole call, from connecting to reading the last byte of the response. */
+  public Duration getCallTimeout() {
+    return callTimeout;
+  }
+}
@@ -0,0 +1,30 @@
+package io.github.openpaydev.mpesa.http;
+
+import lombok.Value;
+
+/**
+ * A point-in-time view of an {@link okhttp3.OkHttpClient}'s connection pool and dispatcher, from
+ * {@link MpesaHttpClients#stats(okhttp3.OkHttpClient)}.
+ *
+ * <p>A {@link #getQueuedCalls()} that stays above zero means asynchronous calls are waiting on the
+ * dispatcher's limits rather than on the network.
+ */
+@Value
+public class MpesaHttpStats {
+
+  /** Open connections, in use or idle. */
+  int connectionCount;
+
+  /** Open connections waiting to be reused. */
+  int idleConnectionCount;
+
+  /** Calls currently executing, synchronous and asynchronous. */
+  int runningCalls;
+
+  /** Asynchronous calls waiting for the dispatcher to start them. */
+  int queuedCalls;
+
+  int maxRequests;
+
+  int maxRequestsPerHost;
+}
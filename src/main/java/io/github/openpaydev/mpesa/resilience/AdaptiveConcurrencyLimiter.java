@@ -0,0 +1,284 @@
+package io.github.openpaydev.mpesa.resilience;
+
+import io.github.openpaydev.mpesa.core.exceptions.MpesaConcurrencyLimitException;
+import io.github.openpaydev.mpesa.core.exceptions.MpesaException;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Caps the number of calls in flight to Daraja, and adjusts the cap from what the calls observe,
+ * using additive increase and multiplicative decrease (AIMD).
+ *
+ * <p>Every call that completes in time adds {@code 1 / limit} to the limit while the limit is
+ * actually in use, so the limit grows by about one per round trip's worth of calls. A call signals
+ * overload when it fails with a network error or an overload status, or when its round trip takes
+ * more than {@link AdaptiveConcurrencyPolicy#getLatencyTolerance()} times the lowest round trip
+ * seen recently, which means it queued somewhere. Overload multiplies the limit by {@link
+ * AdaptiveConcurrencyPolicy#getBackoffRatio()}, at most once per lowest round trip so that one
+ * burst of slow calls counts as one signal. The lowest round trip is re-learned every {@value
+ * #MIN_RTT_SAMPLES} calls, so the limiter follows Daraja if it becomes permanently slower.
+ *
+ * <p>Calls beyond the limit wait in a FIFO queue, bounded in size and in waiting time. Blocking
+ * callers wait on their own thread; asynchronous callers get a future that completes when a slot
+ * frees up, and cancelling that future leaves the queue. Slot accounting is lock-free.
+ *
+ * <p>Callers take a slot with {@link #acquire()} or {@link #acquireAsync()} and give it back with
+ * exactly one of {@link #onSuccess(long)}, {@link #onDropped()} or {@link #onIgnored()}.
+ */
+public final class AdaptiveConcurrencyLimiter {
+
+  /** How many calls the lowest round trip is tracked over before it is re-learned. */
+  static final int MIN_RTT_SAMPLES = 1000;
+
+  private static final AdaptiveConcurrencyLimiter UNLIMITED =
+      new AdaptiveConcurrencyLimiter(null, System::nanoTime);
+
+  private final AdaptiveConcurrencyPolicy policy;
+  private final LongSupplier nanoClock;
+
+  private final AtomicInteger inFlight = new AtomicInteger();
+  private final AtomicInteger queueDepth = new AtomicInteger();
+  private final Queue<CompletableFuture<Void>> waiters = new ConcurrentLinkedQueue<>();
+
+  /** The limit as the bits of a double, so that additive increase can accumulate fractions. */
+  private final AtomicLong limitBits;
+
+  private final AtomicLong minRttNanos = new AtomicLong(Long.MAX_VALUE);
+  private final AtomicLong samples = new AtomicLong();
+  private final AtomicLong lastDecreaseNanos;
+
+  AdaptiveConcurrencyLimiter(AdaptiveConcurrencyPolicy policy, LongSupplier nanoClock) {
+    this.policy = policy;
+    this.nanoClock = nanoClock;
+    if (policy != null
+        && (policy.getMinLimit() < 1
+            || policy.getMaxLimit() < policy.getMinLimit()
+            || policy.getInitialLimit() < policy.getMinLimit()
+            || policy.getInitialLimit() > policy.getMaxLimit())) {
+      throw new IllegalArgumentException(
+          "Limits must satisfy 1 <= minLimit <= initialLimit <= maxLimit.");
+    }
+    this.limitBits =
+        new AtomicLong(Double.doubleToLongBits(policy == null ? 0 : policy.getInitialLimit()));
+    this.lastDecreaseNanos = new AtomicLong(nanoClock.getAsLong());
+  }
+
+  /** Creates a limiter with the {@link AdaptiveConcurrencyPolicy#defaults() default policy}. */
+  public static AdaptiveConcurrencyLimiter create() {
+    return create(AdaptiveConcurrencyPolicy.defaults());
+  }
+
+  /**
+   * Creates a limiter.
+   *
+   * @throws IllegalArgumentException If the policy's limits are inconsistent.
+   */
+  public static AdaptiveConcurrencyLimiter create(AdaptiveConcurrencyPolicy policy) {
+    Objects.requireNonNull(policy, "policy");
+    return new AdaptiveConcurrencyLimiter(policy, System::nanoTime);
+  }
+
+  /** Returns a limiter that never limits. */
+  public static AdaptiveConcurrencyLimiter unlimited() {
+    return UNLIMITED;
+  }
+
+  /**
+   * Takes a slot, waiting on the calling thread while the limit is reached.
+   *
+   * @throws MpesaConcurrencyLimitException If the queue is full or the wait timed out.
+   * @throws MpesaException If the thread is interrupted while waiting.
+   */
+  public void acquire() throws MpesaException {
+    CompletableFuture<Void> slot = acquireAsync();
+    try {
+      slot.get();
+    } catch (InterruptedException e) {
+      if (!slot.cancel(false) && !slot.isCompletedExceptionally()) {
+        // The slot was granted just as the wait was abandoned.
+        onIgnored();
+      }
+      Thread.currentThread().interrupt();
+      throw new MpesaException("Interrupted while waiting for a concurrency slot.", e);
+    } catch (ExecutionException e) {
+      throw (MpesaException) e.getCause();
+    }
+  }
+
+  /**
+   * Takes a slot without blocking. The returned future completes once the slot is granted, or
+   * exceptionally with {@link MpesaConcurrencyLimitException} if the queue is full or the wait
+   * timed out.
+   */
+  public CompletableFuture<Void> acquireAsync() {
+    if (policy == null || tryTakeSlot()) {
+      return CompletableFuture.completedFuture(null);
+    }
+    if (queueDepth.incrementAndGet() > policy.getMaxQueueSize()) {
+      queueDepth.decrementAndGet();
+      return CompletableFuture.failedFuture(
+          new MpesaConcurrencyLimitException(
+              "Concurrency limit of " + getLimit() + " reached and the queue is full."));
+    }
+
+    CompletableFuture<Void> waiter = new CompletableFuture<>();
+    // orTimeout cancels its timer once the future completes, so a waiter that gets its slot leaves
+    // nothing scheduled behind it.
+    CompletableFuture<Void> timeout =
+        new CompletableFuture<Void>()
+            .orTimeout(policy.getMaxQueueWait().toNanos(), TimeUnit.NANOSECONDS);
+    timeout.whenComplete(
+        (ignored, error) -> {
+          if (error instanceof TimeoutException) {
+            waiter.completeExceptionally(
+                new MpesaConcurrencyLimitException(
+                    "Timed out waiting for one of " + getLimit() + " concurrency slots."));
+          }
+        });
+    waiter.whenComplete(
+        (granted, error) -> {
+          queueDepth.decrementAndGet();
+          timeout.cancel(false);
+          if (error != null) {
+            waiters.remove(waiter);
+          }
+        });
+    waiters.add(waiter);
+    // A slot may have been freed between the failed attempt and joining the queue.
+    drain();
+    return waiter;
+  }
+
+  /**
+   * Gives back a slot whose call completed normally.
+   *
+   * @param rttNanos How long the call took on the wire.
+   */
+  public void onSuccess(long rttNanos) {
+    if (policy == null) {
+      return;
+    }
+    boolean overloaded = rttNanos > observeRtt(rttNanos) * policy.getLatencyTolerance();
+    adjust(overloaded);
+    releaseSlot();
+  }
+
+  /** Gives back a slot whose call failed in a way that signals overload. */
+  public void onDropped() {
+    if (policy == null) {
+      return;
+    }
+    adjust(true);
+    releaseSlot();
+  }
+
+  /** Gives back a slot whose call says nothing about Daraja's load, such as a cancelled one. */
+  public void onIgnored() {
+    if (policy != null) {
+      releaseSlot();
+    }
+  }
+
+  /** Returns the current limit, or {@link Integer#MAX_VALUE} for an unlimited limiter. */
+  public int getLimit() {
+    return policy == null ? Integer.MAX_VALUE : (int) limit();
+  }
+
+  /** Returns how many calls hold a slot. */
+  public int getInFlight() {
+    return inFlight.get();
+  }
+
+  /** Returns how many calls are waiting for a slot. */
+  public int getQueueDepth() {
+    return queueDepth.get();
+  }
+
+  private boolean tryTakeSlot() {
+    while (true) {
+      int current = inFlight.get();
+      if (current >= (int) limit()) {
+        return false;
+      }
+      if (inFlight.compareAndSet(current, current + 1)) {
+        return true;
+      }
+    }
+  }
+
+  private void releaseSlot() {
+    inFlight.decrementAndGet();
+    drain();
+  }
+
+  /** Hands free slots to waiters in arrival order. */
+  private void drain() {
+    while (!waiters.isEmpty() && tryTakeSlot()) {
+      CompletableFuture<Void> waiter = waiters.poll();
+      if (waiter == null || !waiter.complete(null)) {
+        // Lost a race for the last waiter, or it timed out or was cancelled: return the slot.
+        inFlight.decrementAndGet();
+      }
+    }
+  }
+
+  /** Records a round trip and returns the lowest one in the current sampling period. */
+  private long observeRtt(long rttNanos) {
+    if (samples.incrementAndGet() % MIN_RTT_SAMPLES == 0) {
+      minRttNanos.set(rttNanos);
+      return rttNanos;
+    }
+    long min;
+    do {
+      min = minRttNanos.get();
+      if (rttNanos >= min) {
+        return min;
+      }
+    } while (!minRttNanos.compareAndSet(min, rttNanos));
+    return rttNanos;
+  }
+
+  private void adjust(boolean overloaded) {
+    if (overloaded) {
+      long now = nanoClock.getAsLong();
+      long last = lastDecreaseNanos.get();
+      long minRtt = minRttNanos.get();
+      if (minRtt != Long.MAX_VALUE && now - last < minRtt) {
+        return;
+      }
+      if (!lastDecreaseNanos.compareAndSet(last, now)) {
+        // Another call is already backing off for this round trip.
+        return;
+      }
+    } else if (inFlight.get() < limit() / 2 && waiters.isEmpty()) {
+      // The limit is not what holds calls back, so a success says nothing about raising it.
+      return;
+    }
+
+    long bits;
+    double next;
+    do {
+      bits = limitBits.get();
+      double current = Double.longBitsToDouble(bits);
+      next =
+          overloaded
+              ? Math.max(policy.getMinLimit(), current * policy.getBackoffRatio())
+              : Math.min(policy.getMaxLimit(), current + 1 / current);
+    } while (!limitBits.compareAndSet(bits, Double.doubleToLongBits(next)));
+    if (!overloaded) {
+      drain();
+    }
+  }
+
+  private double limit() {
+    return Double.longBitsToDouble(limitBits.get());
+  }
+}
@@ -0,0 +1,47 @@
+package io.github.openpaydev.mpesa.resilience;
+
+import java.time.Duration;
+import lombok.Builder;
+import lombok.Value;
+
+/** How an {@link AdaptiveConcurrencyLimiter} sizes and queues calls. */
+@Value
+@Builder(toBuilder = true)
+public class AdaptiveConcurrencyPolicy {
+
+  /** The limit the limiter starts with. */
+  @Builder.Default
+  int initialLimit = 20;
+
+  /** The limit never drops below this. */
+  @Builder.Default
+  int minLimit = 2;
+
+  /** The limit never grows beyond this. */
+  @Builder.Default
+  int maxLimit = 200;
+
+  /** What the limit is multiplied by when a call signals overload. */
+  @Builder.Default
+  double backoffRatio = 0.9;
+
+  /**
+   * How many times the lowest recently observed round trip a call may take before it counts as a
+   * sign of queueing, and so of overload.
+   */
+  @Builder.Default
+  double latencyTolerance = 2.0;
+
+  /** The most calls that may wait for a slot; further calls fail at once. */
+  @Builder.Default
+  int maxQueueSize = 1000;
+
+  /** The longest a call waits for a slot. */
+  @Builder.Default
+  Duration maxQueueWait = Duration.ofSeconds(5);
+
+  /** Returns the default policy. */
+  public static AdaptiveConcurrencyPolicy defaults() {
+    return builder().build();
+  }
+}
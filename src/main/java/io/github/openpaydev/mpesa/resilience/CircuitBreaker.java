@@ -0,0 +1,244 @@
+package io.github.openpaydev.mpesa.resilience;
+
+import io.github.openpaydev.mpesa.core.exceptions.MpesaCircuitOpenException;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.LongSupplier;
+
+/**
+ * A circuit breaker for one Daraja endpoint, configured by a {@link CircuitBreakerPolicy}.
+ *
+ * <p>While {@link State#CLOSED} every call goes through and its outcome is counted in a sliding
+ * window. When the failure or slow-call rate crosses its threshold the breaker turns {@link
+ * State#OPEN} and rejects calls with {@link MpesaCircuitOpenException} instead of letting them wait
+ * for a timeout. Once the open duration has passed, the next call turns it {@link
+ * State#HALF_OPEN}: a few trial calls are let through, and the breaker closes if they all succeed
+ * in time or opens again on the first that does not.
+ *
+ * <p>Callers take a permit with {@link #acquire()} and hand it back with exactly one of {@link
+ * #record(long, long, boolean)} or {@link #release(long)}. The permit ties the outcome to the state
+ * it was admitted in, so a slow call that started before the breaker opened cannot close it again.
+ *
+ * <p>The window is a ring of ten time buckets, each one packed counter updated with a single atomic
+ * add; the rates are only summed when a failed or slow call is recorded, so recording a successful
+ * call costs one clock read and two atomic operations. Counts in a bucket being recycled can be
+ * lost under contention, which makes the rates approximate but never blocks a caller.
+ */
+public final class CircuitBreaker {
+
+  /** The states of a breaker. */
+  public enum State {
+    CLOSED,
+    OPEN,
+    HALF_OPEN
+  }
+
+  private static final int BUCKETS = 10;
+  private static final int COUNT_BITS = 21;
+  private static final long COUNT_MASK = (1L << COUNT_BITS) - 1;
+  private static final long CALL = 1L;
+  private static final long FAILURE = 1L << COUNT_BITS;
+  private static final long SLOW = 1L << (2 * COUNT_BITS);
+
+  private final String endpoint;
+  private final CircuitBreakerPolicy policy;
+  private final CircuitBreakerListener listener;
+  private final LongSupplier nanoClock;
+  private final long bucketNanos;
+  private final long slowCallNanos;
+  private final long openNanos;
+
+  private final AtomicReference<Phase> phase;
+  private final AtomicLongArray bucketEpochs = new AtomicLongArray(BUCKETS);
+  private final AtomicLongArray bucketCounts = new AtomicLongArray(BUCKETS);
+
+  CircuitBreaker(
+      String endpoint,
+      CircuitBreakerPolicy policy,
+      CircuitBreakerListener listener,
+      LongSupplier nanoClock) {
+    validate(policy);
+    this.endpoint = endpoint;
+    this.policy = policy;
+    this.listener = listener;
+    this.nanoClock = nanoClock;
+    this.bucketNanos = Math.max(1, policy.getWindow().toNanos() / BUCKETS);
+    this.slowCallNanos = policy.getSlowCallDuration().toNanos();
+    this.openNanos = policy.getOpenDuration().toNanos();
+    this.phase = new AtomicReference<>(new Phase(State.CLOSED, 0, nanoClock.getAsLong()));
+    for (int i = 0; i < BUCKETS; i++) {
+      bucketEpochs.set(i, Long.MIN_VALUE);
+    }
+  }
+
+  /**
+   * Checks a policy's settings: at least one call for the window and for the trial, positive
+   * durations, and thresholds above 0 and at most 1.
+   *
+   * @throws IllegalArgumentException If a setting is out of range.
+   */
+  static void validate(CircuitBreakerPolicy policy) {
+    if (policy.getMinimumCalls() < 1 || policy.getHalfOpenCalls() < 1) {
+      throw new IllegalArgumentException("minimumCalls and halfOpenCalls must be at least 1.");
+    }
+    if (!isPositive(policy.getWindow())
+        || !isPositive(policy.getOpenDuration())
+        || !isPositive(policy.getSlowCallDuration())) {
+      throw new IllegalArgumentException(
+          "window, openDuration and slowCallDuration must be positive.");
+    }
+    if (!isRate(policy.getFailureRateThreshold()) || !isRate(policy.getSlowCallRateThreshold())) {
+      throw new IllegalArgumentException(
+          "failureRateThreshold and slowCallRateThreshold must be above 0 and at most 1.");
+    }
+  }
+
+  private static boolean isPositive(Duration duration) {
+    return !duration.isNegative() && !duration.isZero();
+  }
+
+  private static boolean isRate(double threshold) {
+    return threshold > 0 && threshold <= 1;
+  }
+
+  /**
+   * Takes a permit for a call.
+   *
+   * @return The permit, to be passed to {@link #record} or {@link #release}.
+   * @throws MpesaCircuitOpenException If the breaker is open, or half-open with all its trial
+   *     calls already in flight.
+   */
+  public long acquire() throws MpesaCircuitOpenException {
+    if (!policy.isEnabled()) {
+      return 0;
+    }
+    while (true) {
+      Phase current = phase.get();
+      switch (current.state) {
+        case CLOSED:
+          return current.generation;
+        case OPEN:
+          long now = nanoClock.getAsLong();
+          long remaining = openNanos - (now - current.since);
+          if (remaining > 0) {
+            throw new MpesaCircuitOpenException(endpoint, Duration.ofNanos(remaining));
+          }
+          transition(current, State.HALF_OPEN, now);
+          break;
+        default:
+          if (current.trials.incrementAndGet() <= policy.getHalfOpenCalls()) {
+            return current.generation;
+          }
+          current.trials.decrementAndGet();
+          throw new MpesaCircuitOpenException(endpoint, Duration.ZERO);
+      }
+    }
+  }
+
+  /**
+   * Records the outcome of a call that reached the endpoint.
+   *
+   * @param permit The permit from {@link #acquire()}.
+   * @param durationNanos How long the call took.
+   * @param failed Whether the call failed in a way that shows the endpoint is unhealthy.
+   */
+  public void record(long permit, long durationNanos, boolean failed) {
+    if (!policy.isEnabled()) {
+      return;
+    }
+    Phase current = phase.get();
+    if (current.generation != permit) {
+      // Admitted in an earlier state; its outcome says nothing about the current one.
+      return;
+    }
+    boolean slow = durationNanos >= slowCallNanos;
+    long now = nanoClock.getAsLong();
+    if (current.state == State.HALF_OPEN) {
+      if (failed || slow) {
+        transition(current, State.OPEN, now);
+      } else if (current.successes.incrementAndGet() >= policy.getHalfOpenCalls()) {
+        transition(current, State.CLOSED, now);
+      }
+      return;
+    }
+
+    long epoch = Math.floorDiv(now, bucketNanos);
+    int slot = (int) Math.floorMod(epoch, (long) BUCKETS);
+    long seen = bucketEpochs.get(slot);
+    if (seen < epoch && bucketEpochs.compareAndSet(slot, seen, epoch)) {
+      bucketCounts.set(slot, 0);
+    }
+    bucketCounts.addAndGet(slot, CALL | (failed ? FAILURE : 0) | (slow ? SLOW : 0));
+    if ((failed || slow) && isTripped(current, epoch)) {
+      transition(current, State.OPEN, now);
+    }
+  }
+
+  /**
+   * Hands back a permit whose call never reached the endpoint, for example because no access
+   * token could be obtained.
+   */
+  public void release(long permit) {
+    Phase current = phase.get();
+    if (current.generation == permit && current.state == State.HALF_OPEN) {
+      current.trials.decrementAndGet();
+    }
+  }
+
+  /**
+   * Returns the current state. An open breaker whose open duration has passed still reports
+   * {@link State#OPEN} until the next call turns it half-open.
+   */
+  public State getState() {
+    return phase.get().state;
+  }
+
+  /** Returns the URL this breaker guards. */
+  public String getEndpoint() {
+    return endpoint;
+  }
+
+  private boolean isTripped(Phase current, long epoch) {
+    long oldest = Math.max(epoch - BUCKETS + 1, Math.floorDiv(current.since, bucketNanos));
+    long calls = 0;
+    long failures = 0;
+    long slowCalls = 0;
+    for (int i = 0; i < BUCKETS; i++) {
+      if (bucketEpochs.get(i) >= oldest) {
+        long counts = bucketCounts.get(i);
+        calls += counts & COUNT_MASK;
+        failures += (counts >>> COUNT_BITS) & COUNT_MASK;
+        slowCalls += (counts >>> (2 * COUNT_BITS)) & COUNT_MASK;
+      }
+    }
+    return calls >= policy.getMinimumCalls()
+        && (failures >= calls * policy.getFailureRateThreshold()
+            || slowCalls >= calls * policy.getSlowCallRateThreshold());
+  }
+
+  private void transition(Phase from, State to, long now) {
+    if (phase.compareAndSet(from, new Phase(to, from.generation + 1, now))) {
+      listener.onStateTransition(endpoint, from.state, to);
+    }
+  }
+
+  /**
+   * One stay in a state. A new phase, with fresh trial counters, is published on every transition,
+   * so the counters never need resetting.
+   */
+  private static final class Phase {
+    private final State state;
+    private final long generation;
+    private final long since;
+    private final AtomicInteger trials = new AtomicInteger();
+    private final AtomicInteger successes = new AtomicInteger();
+
+    private Phase(State state, long generation, long since) {
+      this.state = state;
+      this.generation = generation;
+      this.since = since;
+    }
+  }
+}
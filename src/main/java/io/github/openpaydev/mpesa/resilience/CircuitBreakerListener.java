@@ -0,0 +1,18 @@
+package io.github.openpaydev.mpesa.resilience;
+
+/**
+ * Notified when a {@link CircuitBreaker} changes state, for logging and metrics. Called on the
+ * thread whose call caused the change, so implementations should be quick and must not throw.
+ */
+@FunctionalInterface
+public interface CircuitBreakerListener {
+
+  /**
+   * Called once for every transition.
+   *
+   * @param endpoint The URL the breaker guards.
+   * @param from The state the breaker left.
+   * @param to The state the breaker entered.
+   */
+  void onStateTransition(String endpoint, CircuitBreaker.State from, CircuitBreaker.State to);
+}
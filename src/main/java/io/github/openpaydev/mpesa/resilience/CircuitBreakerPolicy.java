@@ -0,0 +1,75 @@
+package io.github.openpaydev.mpesa.resilience;
+
+import java.time.Duration;
+import java.util.Set;
+import lombok.Builder;
+import lombok.Value;
+
+/**
+ * When a {@link CircuitBreaker} opens, and how it recovers.
+ *
+ * <p>The breaker opens when, over the last {@link #getWindow()}, at least {@link
+ * #getMinimumCalls()} calls were made and either the share of failed calls reached {@link
+ * #getFailureRateThreshold()} or the share of calls slower than {@link #getSlowCallDuration()}
+ * reached {@link #getSlowCallRateThreshold()}. A failure is a network error or one of {@link
+ * #getFailureStatusCodes()}; any other response, business errors included, shows the endpoint is
+ * up. After {@link #getOpenDuration()} the breaker lets {@link #getHalfOpenCalls()} trial calls
+ * through, and closes once all of them succeed in time.
+ */
+@Value
+@Builder(toBuilder = true)
+public class CircuitBreakerPolicy {
+
+  /** Whether the breaker does anything at all. */
+  @Builder.Default
+  boolean enabled = true;
+
+  /** The share of failed calls, from 0 to 1, that opens the breaker. */
+  @Builder.Default
+  double failureRateThreshold = 0.5;
+
+  /** The share of slow calls, from 0 to 1, that opens the breaker. */
+  @Builder.Default
+  double slowCallRateThreshold = 0.8;
+
+  /** How long a call may take before it counts as slow. */
+  @Builder.Default
+  Duration slowCallDuration = Duration.ofSeconds(10);
+
+  /** The fewest calls in the window for the rates to be trusted. */
+  @Builder.Default
+  int minimumCalls = 20;
+
+  /** How far back the failure and slow-call rates look. */
+  @Builder.Default
+  Duration window = Duration.ofSeconds(10);
+
+  /** How long the breaker stays open before letting trial calls through. */
+  @Builder.Default
+  Duration openDuration = Duration.ofSeconds(30);
+
+  /** How many trial calls must succeed, while half-open, to close the breaker. */
+  @Builder.Default
+  int halfOpenCalls = 3;
+
+  /**
+   * The HTTP statuses that count as failures. Plain 500 is left out because Daraja uses it for
+   * business errors.
+   */
+  @Builder.Default
+  Set<Integer> failureStatusCodes = Set.of(502, 503, 504);
+
+  /** Returns the default policy. */
+  public static CircuitBreakerPolicy defaults() {
+    return builder().build();
+  }
+
+  /** Returns a policy under which the breaker never opens. */
+  public static CircuitBreakerPolicy disabled() {
+    return builder().enabled(false).build();
+  }
+
+  public boolean isFailureStatus(int statusCode) {
+    return failureStatusCodes.contains(statusCode);
+  }
+}
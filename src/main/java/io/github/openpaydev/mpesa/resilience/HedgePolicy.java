@@ -0,0 +1,35 @@
+package io.github.openpaydev.mpesa.resilience;
+
+import java.time.Duration;
+import lombok.Builder;
+import lombok.Value;
+
+/**
+ * Hedging for idempotent calls: if a call has not completed after {@link #getDelay()}, the same
+ * request is sent again and whichever response arrives first is used. The calls still in flight
+ * are then cancelled.
+ *
+ * <p>Hedging trades a little extra load for a shorter tail latency. Each hedge is paid for from the
+ * client's {@link RetryBudget}, so it cannot double the load when Daraja is slow across the board.
+ */
+@Value
+@Builder(toBuilder = true)
+public class HedgePolicy {
+
+  /** How long to wait for a call before sending the next hedge. */
+  @Builder.Default
+  Duration delay = Duration.ofSeconds(1);
+
+  /** The most extra requests per call. {@code 0} disables hedging. */
+  @Builder.Default
+  int maxHedges = 1;
+
+  /** Returns a policy that never hedges. */
+  public static HedgePolicy disabled() {
+    return builder().maxHedges(0).build();
+  }
+
+  public boolean isEnabled() {
+    return maxHedges > 0;
+  }
+}
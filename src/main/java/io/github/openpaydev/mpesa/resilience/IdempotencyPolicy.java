@@ -0,0 +1,44 @@
+package io.github.openpaydev.mpesa.resilience;
+
+import java.time.Duration;
+import lombok.Builder;
+import lombok.Value;
+
+/**
+ * Suppression of repeated STK Push submissions. Submissions with the same idempotency key share one
+ * call to Daraja while it is in flight, and for {@link #getWindow()} after it succeeded they get
+ * its response without calling Daraja again, so the customer is prompted once. A failed call is
+ * not remembered; the next submission calls Daraja again.
+ *
+ * <p>At most {@link #getMaxKeys()} keys are remembered; beyond that the least recently used are
+ * forgotten first. A call in flight is never forgotten, but while {@link #getMaxKeys()} are in
+ * flight at once, a submission under another key is sent without suppression.
+ */
+@Value
+@Builder(toBuilder = true)
+public class IdempotencyPolicy {
+
+  /**
+   * How long a successful response is returned for repeats of its key. Defaults to a minute, about
+   * as long as the prompt stays on the customer's phone. {@link Duration#ZERO} only shares calls
+   * that are in flight.
+   */
+  @Builder.Default
+  Duration window = Duration.ofMinutes(1);
+
+  /** The most keys remembered at once. Defaults to 10,000. */
+  @Builder.Default
+  int maxKeys = 10_000;
+
+  /**
+   * Whether a submission without an explicit key gets one derived from its account reference,
+   * phone number and amount. Off by default, since two genuine payments can share all three.
+   */
+  @Builder.Default
+  boolean deriveKeys = false;
+
+  /** Returns a policy that honours explicit keys only, with the defaults above. */
+  public static IdempotencyPolicy defaults() {
+    return builder().build();
+  }
+}
@@ -0,0 +1,94 @@
+package io.github.openpaydev.mpesa.resilience;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.LongSupplier;
+
+/**
+ * The circuit breakers of a client, one per endpoint URL, all following one {@link
+ * CircuitBreakerPolicy}. Breakers are created on the first call to their endpoint.
+ *
+ * <p>A breaker is per URL rather than per client so that a failing endpoint, say STK Push during a
+ * partial outage, is cut off without also rejecting status queries that still work.
+ */
+public final class MpesaCircuitBreakers {
+
+  private final CircuitBreakerPolicy policy;
+  private final LongSupplier nanoClock;
+  private final CircuitBreaker disabledBreaker;
+  private final ConcurrentMap<String, CircuitBreaker> breakers = new ConcurrentHashMap<>();
+  private final List<CircuitBreakerListener> listeners = new CopyOnWriteArrayList<>();
+
+  MpesaCircuitBreakers(CircuitBreakerPolicy policy, LongSupplier nanoClock) {
+    this.policy = Objects.requireNonNull(policy, "policy");
+    CircuitBreaker.validate(policy);
+    this.nanoClock = nanoClock;
+    this.disabledBreaker =
+        new CircuitBreaker("*", CircuitBreakerPolicy.disabled(), this::fireTransition, nanoClock);
+  }
+
+  /** Creates breakers with the {@link CircuitBreakerPolicy#defaults() default policy}. */
+  public static MpesaCircuitBreakers create() {
+    return create(CircuitBreakerPolicy.defaults());
+  }
+
+  /**
+   * Creates breakers following the given policy.
+   *
+   * @throws IllegalArgumentException If a setting of the policy is out of range.
+   */
+  public static MpesaCircuitBreakers create(CircuitBreakerPolicy policy) {
+    return new MpesaCircuitBreakers(policy, System::nanoTime);
+  }
+
+  /** Creates breakers that never open. */
+  public static MpesaCircuitBreakers disabled() {
+    return create(CircuitBreakerPolicy.disabled());
+  }
+
+  /** Returns the breaker for an endpoint, creating it if needed. */
+  public CircuitBreaker forEndpoint(String url) {
+    if (!policy.isEnabled()) {
+      return disabledBreaker;
+    }
+    CircuitBreaker breaker = breakers.get(url);
+    if (breaker == null) {
+      breaker =
+          breakers.computeIfAbsent(
+              url, key -> new CircuitBreaker(key, policy, this::fireTransition, nanoClock));
+    }
+    return breaker;
+  }
+
+  /** Registers a listener for the state transitions of every breaker, existing and future. */
+  public void addListener(CircuitBreakerListener listener) {
+    listeners.add(Objects.requireNonNull(listener, "listener"));
+  }
+
+  public void removeListener(CircuitBreakerListener listener) {
+    listeners.remove(listener);
+  }
+
+  /** Returns the current state of every breaker created so far, by endpoint URL. */
+  public Map<String, CircuitBreaker.State> states() {
+    Map<String, CircuitBreaker.State> states = new TreeMap<>();
+    breakers.forEach((url, breaker) -> states.put(url, breaker.getState()));
+    return Collections.unmodifiableMap(states);
+  }
+
+  public CircuitBreakerPolicy getPolicy() {
+    return policy;
+  }
+
+  private void fireTransition(String endpoint, CircuitBreaker.State from, CircuitBreaker.State to) {
+    for (CircuitBreakerListener listener : listeners) {
+      listener.onStateTransition(endpoint, from, to);
+    }
+  }
+}
@@ -0,0 +1,185 @@
+package io.github.openpaydev.mpesa.resilience;
+
+import io.github.openpaydev.mpesa.core.MpesaConfig;
+import io.github.openpaydev.mpesa.core.MpesaOperation;
+import io.github.openpaydev.mpesa.core.exceptions.MpesaException;
+import io.github.openpaydev.mpesa.core.exceptions.MpesaRateLimitException;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import okhttp3.HttpUrl;
+import okhttp3.Interceptor;
+
+/**
+ * Keeps calls to Daraja under its transactions-per-second limits on the client side, so that a
+ * burst is spread out before it is sent rather than rejected by Daraja's spike arrest after a round
+ * trip.
+ *
+ * <p>Every shortcode gets an independent token bucket per {@link MpesaOperation} that has a {@link
+ * RateLimit}; operations without one are not limited. Taking a permit is a compare-and-set on the
+ * bucket, with no locking. When no permit is free, the limit's {@link RateLimitMode} decides
+ * whether the call waits or fails with {@link MpesaRateLimitException}. Blocking callers wait on
+ * their own thread; asynchronous callers are resumed by a timer, so no thread is parked.
+ *
+ * <p>One limiter is meant to be shared by every client that uses the same shortcodes, through
+ * {@code MpesaClientOptions.rateLimiter}. Token requests are made by the token manager, which has
+ * its own HTTP client; add {@link #authInterceptor(MpesaConfig)} to that client to limit them too:
+ *
+ * <pre>{@code
+ * MpesaRateLimiter rateLimiter = MpesaRateLimiter.of(Map.of(
+ *         MpesaOperation.STK_PUSH, RateLimit.builder().permitsPerSecond(20).burst(5).build(),
+ *         MpesaOperation.AUTH, RateLimit.perSecond(1)));
+ * OkHttpClient authClient = httpClient.newBuilder()
+ *         .addInterceptor(rateLimiter.authInterceptor(config))
+ *         .build();
+ * MpesaTokenManager tokenManager = new MpesaTokenManager(config, authClient);
+ * }</pre>
+ */
+public final class MpesaRateLimiter {
+
+  private static final MpesaOperation[] OPERATIONS = MpesaOperation.values();
+
+  private static final MpesaRateLimiter UNLIMITED = of(Map.of());
+
+  private final Map<MpesaOperation, RateLimit> limits;
+  private final LongSupplier nanoClock;
+  private final ConcurrentMap<String, TokenBucket[]> buckets = new ConcurrentHashMap<>();
+
+  MpesaRateLimiter(Map<MpesaOperation, RateLimit> limits, LongSupplier nanoClock) {
+    this.limits = limits.isEmpty() ? Map.of() : new EnumMap<>(limits);
+    this.nanoClock = nanoClock;
+    // Fail on a bad limit now rather than on the first call.
+    newBuckets("");
+  }
+
+  /** Returns a limiter that never limits. */
+  public static MpesaRateLimiter unlimited() {
+    return UNLIMITED;
+  }
+
+  /**
+   * Creates a limiter.
+   *
+   * @param limits The limit for each operation that should be limited.
+   * @throws IllegalArgumentException If a limit has a non-positive rate or a burst below 1.
+   */
+  public static MpesaRateLimiter of(Map<MpesaOperation, RateLimit> limits) {
+    return new MpesaRateLimiter(Objects.requireNonNull(limits, "limits"), System::nanoTime);
+  }
+
+  /**
+   * Takes a permit for a call, waiting on the calling thread if the limit's mode allows.
+   *
+   * @throws MpesaRateLimitException If no permit is due within the limit's wait.
+   * @throws MpesaException If the thread is interrupted while waiting.
+   */
+  public void acquire(String shortCode, MpesaOperation operation) throws MpesaException {
+    long wait = reserve(shortCode, operation);
+    if (wait > 0) {
+      try {
+        TimeUnit.NANOSECONDS.sleep(wait);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new MpesaException("Interrupted while waiting for a rate limit permit.", e);
+      }
+    }
+  }
+
+  /**
+   * Takes a permit for a call without blocking. The returned future completes when the permit may
+   * be used, or exceptionally with {@link MpesaRateLimitException} if none is due within the
+   * limit's wait.
+   */
+  public CompletableFuture<Void> acquireAsync(String shortCode, MpesaOperation operation) {
+    long wait;
+    try {
+      wait = reserve(shortCode, operation);
+    } catch (MpesaRateLimitException e) {
+      return CompletableFuture.failedFuture(e);
+    }
+    if (wait == 0) {
+      return CompletableFuture.completedFuture(null);
+    }
+    return CompletableFuture.runAsync(
+        () -> {}, CompletableFuture.delayedExecutor(wait, TimeUnit.NANOSECONDS));
+  }
+
+  /**
+   * Returns how long a call made now would wait for a permit, without taking one. Zero for
+   * operations that are not limited.
+   */
+  public Duration nextPermitDelay(String shortCode, MpesaOperation operation) {
+    TokenBucket bucket = bucket(shortCode, operation);
+    return bucket == null ? Duration.ZERO : Duration.ofNanos(bucket.nextPermitNanos());
+  }
+
+  /**
+   * Returns an interceptor that applies the {@link MpesaOperation#AUTH} limit of the config's
+   * shortcode to requests for the config's OAuth URL, and passes every other request through. A
+   * token request that is refused fails with an {@link IOException} caused by the {@link
+   * MpesaRateLimitException}.
+   *
+   * <p>OkHttp runs interceptors on the thread making the call, so a waiting token request holds
+   * that thread. Token refreshes are single-flight, so at most one thread per token manager waits.
+   */
+  public Interceptor authInterceptor(MpesaConfig config) {
+    String shortCode = config.getBusinessShortCode();
+    HttpUrl authUrl = HttpUrl.get(config.getEnvironment().getAuthUrl());
+    return chain -> {
+      HttpUrl url = chain.request().url();
+      if (url.host().equals(authUrl.host()) && url.encodedPath().equals(authUrl.encodedPath())) {
+        try {
+          acquire(shortCode, MpesaOperation.AUTH);
+        } catch (MpesaException e) {
+          throw new IOException(e.getMessage(), e);
+        }
+      }
+      return chain.proceed(chain.request());
+    };
+  }
+
+  private long reserve(String shortCode, MpesaOperation operation) throws MpesaRateLimitException {
+    TokenBucket bucket = bucket(shortCode, operation);
+    if (bucket == null) {
+      return 0;
+    }
+    RateLimit limit = limits.get(operation);
+    long wait = bucket.reserve(limit.maxWaitNanos());
+    if (wait < 0) {
+      throw new MpesaRateLimitException(
+          "Rate limit for " + operation + " on shortcode " + shortCode + " exceeded.",
+          Duration.ofNanos(bucket.nextPermitNanos()));
+    }
+    return wait;
+  }
+
+  private TokenBucket bucket(String shortCode, MpesaOperation operation) {
+    if (limits.isEmpty()) {
+      return null;
+    }
+    TokenBucket[] forShortCode = buckets.get(shortCode);
+    if (forShortCode == null) {
+      forShortCode = buckets.computeIfAbsent(shortCode, this::newBuckets);
+    }
+    return forShortCode[operation.ordinal()];
+  }
+
+  private TokenBucket[] newBuckets(String shortCode) {
+    TokenBucket[] created = new TokenBucket[OPERATIONS.length];
+    for (MpesaOperation operation : OPERATIONS) {
+      RateLimit limit = limits.get(operation);
+      if (limit != null) {
+        created[operation.ordinal()] =
+            new TokenBucket(limit.getPermitsPerSecond(), limit.getBurst(), nanoClock);
+      }
+    }
+    return created;
+  }
+}
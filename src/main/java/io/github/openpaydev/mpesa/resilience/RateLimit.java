@@ -0,0 +1,48 @@
+package io.github.openpaydev.mpesa.resilience;
+
+import java.time.Duration;
+import lombok.Builder;
+import lombok.Value;
+
+/**
+ * The rate a client may call one Daraja endpoint at, for use with {@link MpesaRateLimiter}.
+ *
+ * <p>Calls are spaced {@code 1 / permitsPerSecond} apart on average, with up to {@link #getBurst()}
+ * calls allowed back to back after a quiet period.
+ */
+@Value
+@Builder(toBuilder = true)
+public class RateLimit {
+
+  /** The sustained rate, in calls per second. */
+  double permitsPerSecond;
+
+  /** How many calls may be made at once after a quiet period. Defaults to 1. */
+  @Builder.Default
+  int burst = 1;
+
+  /** What a call does when no permit is available. Defaults to {@link RateLimitMode#BLOCK}. */
+  @Builder.Default
+  RateLimitMode mode = RateLimitMode.BLOCK;
+
+  /** The longest a call waits for a permit in {@link RateLimitMode#QUEUE} mode. */
+  @Builder.Default
+  Duration maxWait = Duration.ofSeconds(5);
+
+  /** Returns a blocking limit of {@code permitsPerSecond} calls per second, without bursts. */
+  public static RateLimit perSecond(double permitsPerSecond) {
+    return builder().permitsPerSecond(permitsPerSecond).build();
+  }
+
+  /** The longest a call may wait for a permit, in nanoseconds. */
+  long maxWaitNanos() {
+    switch (mode) {
+      case BLOCK:
+        return Long.MAX_VALUE;
+      case QUEUE:
+        return maxWait.toNanos();
+      default:
+        return 0;
+    }
+  }
+}
@@ -0,0 +1,14 @@
+package io.github.openpaydev.mpesa.resilience;
+
+/** What a call does when its rate limit has no permit available right now. */
+public enum RateLimitMode {
+
+  /** Wait for the next permit, however long that takes. */
+  BLOCK,
+
+  /** Wait for the next permit if it is due within {@link RateLimit#getMaxWait()}, else fail. */
+  QUEUE,
+
+  /** Fail straight away. */
+  FAIL_FAST
+}
@@ -0,0 +1,75 @@
+package io.github.openpaydev.mpesa.resilience;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Caps retries and hedges as a share of the calls a client makes, so that an outage does not turn
+ * every call into {@code maxAttempts} calls and bury Daraja in a retry storm.
+ *
+ * <p>The budget is a token bucket. Each call deposits {@code ratio} tokens and each retry or hedge
+ * withdraws a whole one; when the bucket is empty, failures are returned to the caller without a
+ * retry. The bucket holds at most {@code maxTokens}, which is also how many retries can be made in
+ * a burst after a quiet period. Deposits and withdrawals are lock-free.
+ *
+ * <p>One budget is meant to be shared by all operations of a client.
+ */
+public final class RetryBudget {
+
+  private static final long SCALE = 1000;
+
+  private final long ratioMilli;
+  private final long maxMilli;
+  private final AtomicLong balanceMilli;
+
+  private RetryBudget(double ratio, int maxTokens) {
+    if (ratio < 0 || maxTokens < 0) {
+      throw new IllegalArgumentException("ratio and maxTokens must not be negative.");
+    }
+    this.ratioMilli = Math.round(ratio * SCALE);
+    this.maxMilli = maxTokens * SCALE;
+    this.balanceMilli = new AtomicLong(maxMilli);
+  }
+
+  /** Creates a budget allowing retries for 20% of calls, with a reserve of 10 retries. */
+  public static RetryBudget create() {
+    return create(0.2, 10);
+  }
+
+  /**
+   * Creates a budget.
+   *
+   * @param ratio The retries earned per call, for example {@code 0.1} for one retry per ten calls.
+   * @param maxTokens The most retries that can be saved up.
+   */
+  public static RetryBudget create(double ratio, int maxTokens) {
+    return new RetryBudget(ratio, maxTokens);
+  }
+
+  /** Records a call, earning the budget {@code ratio} retries. */
+  public void deposit() {
+    long current;
+    do {
+      current = balanceMilli.get();
+      if (current >= maxMilli) {
+        return;
+      }
+    } while (!balanceMilli.compareAndSet(current, Math.min(maxMilli, current + ratioMilli)));
+  }
+
+  /** Takes one retry from the budget. Returns {@code false}, taking nothing, if it is empty. */
+  public boolean tryWithdraw() {
+    long current;
+    do {
+      current = balanceMilli.get();
+      if (current < SCALE) {
+        return false;
+      }
+    } while (!balanceMilli.compareAndSet(current, current - SCALE));
+    return true;
+  }
+
+  /** The retries currently available, rounded down. */
+  public int available() {
+    return (int) (balanceMilli.get() / SCALE);
+  }
+}
@@ -0,0 +1,75 @@
+package io.github.openpaydev.mpesa.resilience;
+
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import lombok.Builder;
+import lombok.Value;
+
+/**
+ * How often, and how far apart, a failed call is retried.
+ *
+ * <p>Retries are spaced with exponential backoff and full jitter: before retry {@code n} the client
+ * waits a random time between zero and {@code min(maxBackoff, initialBackoff * multiplier^(n-1))},
+ * so that clients which failed together do not retry together.
+ *
+ * <p>A policy only says when a retry is <em>allowed</em>. Whether a failure is retried at all also
+ * depends on the operation: non-idempotent calls such as an STK Push are only retried when the
+ * request provably never left the client, and every retry must be paid for from the client's
+ * {@link RetryBudget}.
+ */
+@Value
+@Builder(toBuilder = true)
+public class RetryPolicy {
+
+  /** The most attempts per call, the first one included. {@code 1} disables retries. */
+  @Builder.Default
+  int maxAttempts = 3;
+
+  /** The upper bound of the wait before the first retry. */
+  @Builder.Default
+  Duration initialBackoff = Duration.ofMillis(200);
+
+  /** The upper bound of the wait before any retry. */
+  @Builder.Default
+  Duration maxBackoff = Duration.ofSeconds(2);
+
+  /** How much the upper bound grows with each retry. */
+  @Builder.Default
+  double multiplier = 2.0;
+
+  /**
+   * The HTTP statuses that idempotent calls are retried on. Plain 500 is left out on purpose:
+   * Daraja answers with it for business errors, such as an STK Push that is still being processed.
+   */
+  @Builder.Default
+  Set<Integer> retryableStatusCodes = Set.of(429, 502, 503, 504);
+
+  /** Returns the default policy: up to 3 attempts, backing off from 200 ms up to 2 s. */
+  public static RetryPolicy defaults() {
+    return builder().build();
+  }
+
+  /** Returns a policy that never retries. */
+  public static RetryPolicy none() {
+    return builder().maxAttempts(1).build();
+  }
+
+  public boolean isRetryableStatus(int statusCode) {
+    return retryableStatusCodes.contains(statusCode);
+  }
+
+  /**
+   * Returns a random wait before the given retry.
+   *
+   * @param retry The retry about to be made, starting at 1 for the second attempt.
+   */
+  public Duration backoff(int retry) {
+    double ceiling = initialBackoff.toNanos() * Math.pow(multiplier, retry - 1);
+    long boundNanos = (long) Math.min(maxBackoff.toNanos(), ceiling);
+    if (boundNanos <= 0) {
+      return Duration.ZERO;
+    }
+    return Duration.ofNanos(ThreadLocalRandom.current().nextLong(boundNanos + 1));
+  }
+}
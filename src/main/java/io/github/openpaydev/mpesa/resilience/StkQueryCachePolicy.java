@@ -0,0 +1,49 @@
+package io.github.openpaydev.mpesa.resilience;
+
+import java.time.Duration;
+import lombok.Builder;
+import lombok.Value;
+
+/**
+ * Coalescing and caching for STK status queries. Concurrent queries for the same {@code
+ * CheckoutRequestID} share one call to Daraja, and its response is kept for the next queries: a
+ * final result for {@link #getFinalResultTtl()}, since it never changes, and a result that is still
+ * pending only for {@link #getPendingResultTtl()}. A failed query is not kept.
+ *
+ * <p>At most {@link #getMaxEntries()} checkouts are kept; beyond that the least recently queried
+ * are forgotten first. A query in flight is never forgotten, but while {@link #getMaxEntries()} are
+ * in flight at once, a query for another checkout is sent on its own.
+ */
+@Value
+@Builder(toBuilder = true)
+public class StkQueryCachePolicy {
+
+  /** How long a final result (paid, failed, cancelled or expired) is kept. Defaults to an hour. */
+  @Builder.Default
+  Duration finalResultTtl = Duration.ofHours(1);
+
+  /**
+   * How long a result that is still pending is kept. Defaults to a second, so that queries arriving
+   * together share it without delaying the news that the customer has answered.
+   */
+  @Builder.Default
+  Duration pendingResultTtl = Duration.ofSeconds(1);
+
+  /** The most checkouts kept at once. {@code 0} disables coalescing and caching. */
+  @Builder.Default
+  int maxEntries = 10_000;
+
+  /** Returns the policy with the defaults above. */
+  public static StkQueryCachePolicy defaults() {
+    return builder().build();
+  }
+
+  /** Returns a policy that sends every query to Daraja. */
+  public static StkQueryCachePolicy disabled() {
+    return builder().maxEntries(0).build();
+  }
+
+  public boolean isEnabled() {
+    return maxEntries > 0;
+  }
+}
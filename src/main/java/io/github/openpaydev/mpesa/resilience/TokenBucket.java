@@ -0,0 +1,53 @@
+package io.github.openpaydev.mpesa.resilience;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * A token bucket implemented as a generic cell rate algorithm: instead of a token count it keeps
+ * the theoretical arrival time of the next call, so refilling needs no timer and reserving a permit
+ * is a single compare-and-set.
+ */
+final class TokenBucket {
+
+  private final long intervalNanos;
+  private final long toleranceNanos;
+  private final LongSupplier nanoClock;
+  private final AtomicLong theoreticalArrival;
+
+  TokenBucket(double permitsPerSecond, int burst, LongSupplier nanoClock) {
+    if (!(permitsPerSecond > 0) || burst < 1) {
+      throw new IllegalArgumentException("permitsPerSecond must be positive and burst at least 1.");
+    }
+    this.intervalNanos = Math.max(1, Math.round(1_000_000_000 / permitsPerSecond));
+    this.toleranceNanos = intervalNanos * (burst - 1);
+    this.nanoClock = nanoClock;
+    this.theoreticalArrival = new AtomicLong(nanoClock.getAsLong());
+  }
+
+  /**
+   * Reserves the next permit if it is due within {@code maxWaitNanos}.
+   *
+   * @return How long to wait before using the permit, or {@code -1} if it is due later than
+   *     {@code maxWaitNanos}, in which case nothing is reserved.
+   */
+  long reserve(long maxWaitNanos) {
+    while (true) {
+      long now = nanoClock.getAsLong();
+      long arrival = theoreticalArrival.get();
+      long wait = Math.max(0, arrival - toleranceNanos - now);
+      if (wait > maxWaitNanos) {
+        return -1;
+      }
+      long next = (arrival - now > 0 ? arrival : now) + intervalNanos;
+      if (theoreticalArrival.compareAndSet(arrival, next)) {
+        return wait;
+      }
+    }
+  }
+
+  /** How long a call made now would have to wait for its permit, without reserving it. */
+  long nextPermitNanos() {
+    return Math.max(0, theoreticalArrival.get() - toleranceNanos - nanoClock.getAsLong());
+  }
+}
@@ -0,0 +1,63 @@
+package io.github.openpaydev.mpesa.stk;
+
+/** Where an STK Push checkout stands, as far as its status queries and callback have told. */
+public enum CheckoutState {
+
+  /** The customer has not answered the prompt yet, or Daraja is still processing the payment. */
+  PENDING,
+
+  /** The customer paid ({@code ResultCode} 0). */
+  SUCCESS,
+
+  /** The payment failed, for example on a wrong PIN or insufficient funds. */
+  FAILED,
+
+  /** The customer cancelled the prompt ({@code ResultCode} 1032). */
+  CANCELLED,
+
+  /**
+   * The prompt expired unanswered: the customer could not be reached ({@code ResultCode} 1037), the
+   * transaction expired ({@code ResultCode} 1019), or no final result was seen in time.
+   */
+  EXPIRED;
+
+  /** The {@code ResultCode} Daraja returns for a query while the payment is still processing. */
+  static final int STILL_PROCESSING = 4999;
+
+  /** Whether the checkout has reached a final state. */
+  public boolean isTerminal() {
+    return this != PENDING;
+  }
+
+  /** Maps a {@code ResultCode} from a status query or callback to a state. */
+  public static CheckoutState ofResultCode(int resultCode) {
+    switch (resultCode) {
+      case 0:
+        return SUCCESS;
+      case 1032:
+        return CANCELLED;
+      case 1019:
+      case 1037:
+        return EXPIRED;
+      case STILL_PROCESSING:
+        return PENDING;
+      default:
+        return FAILED;
+    }
+  }
+
+  /**
+   * Maps a {@code ResultCode} as it appears in a status query response. A missing or non-numeric
+   * code means Daraja has no result yet.
+   */
+  public static CheckoutState ofResultCode(String resultCode) {
+    if (resultCode == null) {
+      return PENDING;
+    }
+    try {
+      return ofResultCode(Integer.parseInt(resultCode.trim()));
+    } catch (NumberFormatException e) {
+      return PENDING;
+    }
+  }
+}
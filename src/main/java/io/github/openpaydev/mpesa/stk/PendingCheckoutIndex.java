@@ -0,0 +1,433 @@
+package io.github.openpaydev.mpesa.stk;
+
+import io.github.openpaydev.mpesa.core.models.StkCallback;
+import io.github.openpaydev.mpesa.core.models.StkCallbackDetails;
+import io.github.openpaydev.mpesa.core.models.StkStatusQueryResponse;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.LongConsumer;
+import java.util.function.LongSupplier;
+
+/**
+ * Remembers which order each pending STK Push belongs to, keyed by {@code CheckoutRequestID}, until
+ * its callback or a status query says how it ended.
+ *
+ * <p>Each entry holds the order ID and a {@link CheckoutState}. An entry starts {@link
+ * CheckoutState#PENDING} and is resolved by exactly one of {@link #onCallback(StkCallbackDetails)},
+ * {@link #onStatus(StkStatusQueryResponse)}, {@link #onPollResult(StkPollResult)} or {@link
+ * #resolve(String, CheckoutState)}: the first to arrive wins a compare-and-set on the entry and
+ * gets the order ID back, and the others get {@link #NO_ORDER}, so a callback and a poll racing for
+ * the same checkout settle the order once. The one exception is an entry the index itself expired:
+ * a late result can still resolve it, since the payment may have gone through after all.
+ *
+ * <p>A pending entry expires {@code pendingTtl} after it was tracked, and a resolved one is kept
+ * for {@code resolvedRetention} so that late duplicates are recognized; {@link #evictExpired} does
+ * both and reports the orders whose checkouts expired. Call it every few seconds.
+ *
+ * <p>Storage is primitive arrays in 64 independently locked segments, without an object per entry.
+ * A slot takes four {@code long}s and tables are kept between a quarter and three quarters full, so
+ * an entry costs 43 to 128 bytes, where a {@code ConcurrentHashMap} entry with its key and value
+ * objects takes several hundred and must later be collected. The key is kept as a 128-bit
+ * fingerprint of the {@code CheckoutRequestID} rather than the string; two IDs sharing a
+ * fingerprint is about a 1 in 10^27 event at a million entries. Lookups and state transitions take
+ * no lock; only tracking, eviction and growing a segment do.
+ */
+public final class PendingCheckoutIndex {
+
+  /** Returned in place of an order ID when the checkout is not tracked, or already resolved. */
+  public static final long NO_ORDER = Long.MIN_VALUE;
+
+  private static final int SEGMENT_BITS = 6;
+  private static final int MIN_CAPACITY = 16;
+
+  /** Slot markers. A live slot holds {@code deadline << 3 | state}, which is always positive. */
+  private static final long EMPTY = 0;
+
+  private static final long REMOVED = -1;
+  private static final long MOVED = -2;
+
+  private static final int NOT_FOUND = -1;
+  private static final int RETRY = -2;
+
+  private static final CheckoutState[] STATES = CheckoutState.values();
+
+  private final Segment[] segments = new Segment[1 << SEGMENT_BITS];
+  private final long pendingTtlMillis;
+  private final long resolvedRetentionMillis;
+  private final LongSupplier millisClock;
+
+  PendingCheckoutIndex(Duration pendingTtl, Duration resolvedRetention, LongSupplier millisClock) {
+    this.pendingTtlMillis = pendingTtl.toMillis();
+    this.resolvedRetentionMillis = resolvedRetention.toMillis();
+    this.millisClock = millisClock;
+    for (int i = 0; i < segments.length; i++) {
+      segments[i] = new Segment();
+    }
+  }
+
+  /**
+   * Creates an index that expires pending checkouts after 5 minutes and keeps resolved ones for 10.
+   */
+  public static PendingCheckoutIndex create() {
+    return create(Duration.ofMinutes(5), Duration.ofMinutes(10));
+  }
+
+  /**
+   * Creates an index.
+   *
+   * @param pendingTtl How long a checkout may stay pending before it expires.
+   * @param resolvedRetention How long a resolved checkout is remembered.
+   */
+  public static PendingCheckoutIndex create(Duration pendingTtl, Duration resolvedRetention) {
+    long origin = System.nanoTime();
+    // Deadlines must be positive; count from one millisecond before creation.
+    return new PendingCheckoutIndex(
+        pendingTtl, resolvedRetention, () -> (System.nanoTime() - origin) / 1_000_000 + 1);
+  }
+
+  /**
+   * Starts tracking a checkout as {@link CheckoutState#PENDING}.
+   *
+   * @param orderId Any value but {@link #NO_ORDER}.
+   * @return {@code false}, leaving the entry as it is, if the checkout is already tracked.
+   */
+  public boolean track(String checkoutRequestID, long orderId) {
+    if (orderId == NO_ORDER) {
+      throw new IllegalArgumentException("NO_ORDER cannot be tracked as an order ID.");
+    }
+    long h1 = hash1(checkoutRequestID);
+    long h2 = hash2(checkoutRequestID);
+    Segment segment = segmentFor(h1);
+    synchronized (segment) {
+      Table table = segment.table;
+      if (find(table, h1, h2) >= 0) {
+        return false;
+      }
+      if (segment.used + 1 > table.capacity() - (table.capacity() >>> 2)) {
+        table = segment.rebuild();
+      }
+      table.insert(h1, h2, orderId, pack(millisClock.getAsLong() + pendingTtlMillis, 0));
+      segment.used++;
+      segment.live++;
+      return true;
+    }
+  }
+
+  /**
+   * Resolves a pending checkout.
+   *
+   * @param state The final state; must be terminal.
+   * @return The checkout's order ID, or {@link #NO_ORDER} if it is not tracked or was already
+   *     resolved.
+   */
+  public long resolve(String checkoutRequestID, CheckoutState state) {
+    if (!state.isTerminal()) {
+      throw new IllegalArgumentException("Cannot resolve a checkout to " + state);
+    }
+    long h1 = hash1(checkoutRequestID);
+    long h2 = hash2(checkoutRequestID);
+    Segment segment = segmentFor(h1);
+    while (true) {
+      Table table = segment.table;
+      int slot = find(table, h1, h2);
+      if (slot == NOT_FOUND) {
+        return NO_ORDER;
+      }
+      if (slot == RETRY) {
+        segment.awaitRebuild();
+        continue;
+      }
+      long meta = table.meta.get(slot);
+      if (meta == MOVED) {
+        segment.awaitRebuild();
+        continue;
+      }
+      if (meta == REMOVED) {
+        return NO_ORDER;
+      }
+      CheckoutState current = stateOf(meta);
+      if ((current != CheckoutState.PENDING && current != CheckoutState.EXPIRED)
+          || current == state) {
+        return NO_ORDER;
+      }
+      long resolved = pack(millisClock.getAsLong() + resolvedRetentionMillis, state.ordinal());
+      if (table.meta.compareAndSet(slot, meta, resolved)) {
+        return table.orderIds[slot];
+      }
+    }
+  }
+
+  /** Resolves a checkout from its callback, as {@link #resolve} does. */
+  public long onCallback(StkCallbackDetails callback) {
+    return resolveResult(
+        callback.getCheckoutRequestID(), CheckoutState.ofResultCode(callback.getResultCode()));
+  }
+
+  /** Resolves a checkout from its callback, as {@link #resolve} does. */
+  public long onCallback(StkCallback callback) {
+    if (callback.getBody() == null || callback.getBody().getStkCallback() == null) {
+      return NO_ORDER;
+    }
+    StkCallback.StkCallbackData data = callback.getBody().getStkCallback();
+    return resolveResult(
+        data.getCheckoutRequestID(), CheckoutState.ofResultCode(data.getResultCode()));
+  }
+
+  /**
+   * Resolves a checkout from a status query response, as {@link #resolve} does. A response that is
+   * still pending leaves the checkout as it is.
+   */
+  public long onStatus(StkStatusQueryResponse response) {
+    return resolveResult(
+        response.getCheckoutRequestID(), CheckoutState.ofResultCode(response.getResultCode()));
+  }
+
+  /** Resolves a checkout from an {@link StkStatusPoller} result, as {@link #resolve} does. */
+  public long onPollResult(StkPollResult result) {
+    return resolveResult(result.getCheckoutRequestID(), result.getState());
+  }
+
+  /** Returns the checkout's state, or {@code null} if it is not tracked. */
+  public CheckoutState state(String checkoutRequestID) {
+    long meta = lookup(checkoutRequestID, false);
+    return meta == NO_ORDER ? null : stateOf(meta);
+  }
+
+  /** Returns the checkout's order ID, or {@link #NO_ORDER} if it is not tracked. */
+  public long orderId(String checkoutRequestID) {
+    return lookup(checkoutRequestID, true);
+  }
+
+  /** Returns how many checkouts are tracked, pending or resolved. */
+  public int size() {
+    int size = 0;
+    for (Segment segment : segments) {
+      synchronized (segment) {
+        size += segment.live;
+      }
+    }
+    return size;
+  }
+
+  /** Expires overdue pending checkouts and forgets resolved ones past their retention. */
+  public int evictExpired() {
+    return evictExpired(orderId -> {});
+  }
+
+  /**
+   * Expires overdue pending checkouts and forgets resolved ones past their retention.
+   *
+   * @param onExpired Called with the order ID of every checkout that expired, outside any lock.
+   * @return How many checkouts expired.
+   */
+  public int evictExpired(LongConsumer onExpired) {
+    long now = millisClock.getAsLong();
+    long[] expired = new long[16];
+    int total = 0;
+    for (Segment segment : segments) {
+      int count = 0;
+      synchronized (segment) {
+        Table table = segment.table;
+        for (int slot = 0; slot < table.capacity(); slot++) {
+          while (true) {
+            long meta = table.meta.get(slot);
+            if (meta == EMPTY || meta == REMOVED || meta >>> 3 > now) {
+              break;
+            }
+            boolean pending = stateOf(meta) == CheckoutState.PENDING;
+            long replacement =
+                pending
+                    ? pack(now + resolvedRetentionMillis, CheckoutState.EXPIRED.ordinal())
+                    : REMOVED;
+            // A transition can race with this one; if it wins, look at the slot again.
+            if (table.meta.compareAndSet(slot, meta, replacement)) {
+              if (!pending) {
+                segment.live--;
+              } else {
+                if (count == expired.length) {
+                  expired = Arrays.copyOf(expired, count * 2);
+                }
+                expired[count++] = table.orderIds[slot];
+              }
+              break;
+            }
+          }
+        }
+      }
+      for (int i = 0; i < count; i++) {
+        onExpired.accept(expired[i]);
+      }
+      total += count;
+    }
+    return total;
+  }
+
+  private long resolveResult(String checkoutRequestID, CheckoutState state) {
+    if (checkoutRequestID == null || !state.isTerminal()) {
+      return NO_ORDER;
+    }
+    return resolve(checkoutRequestID, state);
+  }
+
+  /** Returns the entry's order ID or meta word, or {@link #NO_ORDER} if it is not tracked. */
+  private long lookup(String checkoutRequestID, boolean orderId) {
+    Objects.requireNonNull(checkoutRequestID, "checkoutRequestID");
+    long h1 = hash1(checkoutRequestID);
+    long h2 = hash2(checkoutRequestID);
+    Segment segment = segmentFor(h1);
+    while (true) {
+      Table table = segment.table;
+      int slot = find(table, h1, h2);
+      if (slot == NOT_FOUND) {
+        return NO_ORDER;
+      }
+      long meta = slot == RETRY ? MOVED : table.meta.get(slot);
+      if (meta == MOVED) {
+        segment.awaitRebuild();
+        continue;
+      }
+      if (meta == REMOVED) {
+        return NO_ORDER;
+      }
+      return orderId ? table.orderIds[slot] : meta;
+    }
+  }
+
+  /**
+   * Returns the slot holding the key, {@link #NOT_FOUND}, or {@link #RETRY} if the table is being
+   * rebuilt.
+   */
+  private static int find(Table table, long h1, long h2) {
+    int mask = table.capacity() - 1;
+    int slot = (int) h1 & mask;
+    for (int probes = 0; probes <= mask; probes++) {
+      long meta = table.meta.get(slot);
+      if (meta == EMPTY) {
+        return NOT_FOUND;
+      }
+      if (meta == MOVED) {
+        return RETRY;
+      }
+      // Slots are never reused, so a slot's key is fixed once its meta word is published.
+      if (meta != REMOVED && table.keys[2 * slot] == h1 && table.keys[2 * slot + 1] == h2) {
+        return slot;
+      }
+      slot = (slot + 1) & mask;
+    }
+    return NOT_FOUND;
+  }
+
+  private Segment segmentFor(long h1) {
+    return segments[(int) (h1 >>> (64 - SEGMENT_BITS))];
+  }
+
+  private static long pack(long deadlineMillis, int state) {
+    return deadlineMillis << 3 | (state + 1);
+  }
+
+  private static CheckoutState stateOf(long meta) {
+    return STATES[(int) (meta & 7) - 1];
+  }
+
+  /** FNV-1a over the UTF-16 code units, finished with MurmurHash3's mixer. */
+  static long hash1(String key) {
+    long h = 0xcbf29ce484222325L;
+    for (int i = 0; i < key.length(); i++) {
+      h = (h ^ key.charAt(i)) * 0x100000001b3L;
+    }
+    return mix(h);
+  }
+
+  /** An independent polynomial hash over the same code units, with a different seed and mixer. */
+  static long hash2(String key) {
+    long h = 0x9e3779b97f4a7c15L ^ key.length();
+    for (int i = 0; i < key.length(); i++) {
+      h = (h + key.charAt(i)) * 0xc2b2ae3d27d4eb4fL;
+      h ^= h >>> 31;
+    }
+    return mix(h ^ 0x165667b19e3779f9L);
+  }
+
+  private static long mix(long h) {
+    h ^= h >>> 33;
+    h *= 0xff51afd7ed558ccdL;
+    h ^= h >>> 33;
+    h *= 0xc4ceb9fe1a85ec53L;
+    h ^= h >>> 33;
+    return h;
+  }
+
+  /** One lock stripe. Slots are only ever filled; removal marks them, and a rebuild drops them. */
+  private static final class Segment {
+    private volatile Table table = new Table(MIN_CAPACITY);
+    /** Filled slots, removed ones included. Guarded by this. */
+    private int used;
+    /** Slots with a live entry. Guarded by this. */
+    private int live;
+
+    /**
+     * Copies the live entries into a new table sized for them and publishes it. Each old slot is
+     * swapped to {@link #MOVED} as it is copied, so that a concurrent transition either lands
+     * before the copy or retries on the new table. Must hold the lock.
+     */
+    private Table rebuild() {
+      Table old = table;
+      int capacity = MIN_CAPACITY;
+      while (capacity < (live + 1) * 2) {
+        capacity <<= 1;
+      }
+      Table rebuilt = new Table(capacity);
+      for (int slot = 0; slot < old.capacity(); slot++) {
+        long meta = old.meta.getAndSet(slot, MOVED);
+        if (meta != EMPTY && meta != REMOVED) {
+          rebuilt.insert(old.keys[2 * slot], old.keys[2 * slot + 1], old.orderIds[slot], meta);
+        }
+      }
+      table = rebuilt;
+      used = live;
+      return rebuilt;
+    }
+
+    /** Waits for a rebuild in progress, which holds the lock until the new table is published. */
+    private void awaitRebuild() {
+      synchronized (this) {
+        // Nothing to do; acquiring the lock is the wait.
+      }
+    }
+  }
+
+  /** An open-addressing table with linear probing. */
+  private static final class Table {
+    /** The two halves of each slot's key fingerprint, side by side. */
+    private final long[] keys;
+
+    private final long[] orderIds;
+    /** Each slot's {@code deadline << 3 | state}, or one of the slot markers. */
+    private final AtomicLongArray meta;
+
+    private Table(int capacity) {
+      this.keys = new long[2 * capacity];
+      this.orderIds = new long[capacity];
+      this.meta = new AtomicLongArray(capacity);
+    }
+
+    private int capacity() {
+      return orderIds.length;
+    }
+
+    /** Fills the first empty slot for the key; the meta word is written last, to publish it. */
+    private void insert(long h1, long h2, long orderId, long metaWord) {
+      int mask = capacity() - 1;
+      int slot = (int) h1 & mask;
+      while (meta.get(slot) != EMPTY) {
+        slot = (slot + 1) & mask;
+      }
+      keys[2 * slot] = h1;
+      keys[2 * slot + 1] = h2;
+      orderIds[slot] = orderId;
+      meta.set(slot, metaWord);
+    }
+  }
+}
@@ -0,0 +1,52 @@
+package io.github.openpaydev.mpesa.stk;
+
+import java.time.Duration;
+import lombok.Builder;
+import lombok.Value;
+
+/**
+ * When an {@link StkStatusPoller} queries a checkout, and how many queries it runs at once.
+ *
+ * <p>The first query is sent {@link #getInitialDelay()} after tracking starts, since a customer
+ * rarely answers the prompt sooner. The gap between queries then starts at {@link
+ * #getInitialInterval()} and grows by {@link #getMultiplier()} after every query up to {@link
+ * #getMaxInterval()}, so early results are seen quickly and slow ones cost few queries. The last
+ * query is sent when {@link #getExpireAfter()} has passed; if that one is still pending too, the
+ * checkout is {@link CheckoutState#EXPIRED}.
+ */
+@Value
+@Builder(toBuilder = true)
+public class StkPollPolicy {
+
+  /** How long after tracking starts the first query is sent. */
+  @Builder.Default
+  Duration initialDelay = Duration.ofSeconds(3);
+
+  /** The gap between the first and second queries. */
+  @Builder.Default
+  Duration initialInterval = Duration.ofSeconds(2);
+
+  /** The longest gap between two queries. */
+  @Builder.Default
+  Duration maxInterval = Duration.ofSeconds(15);
+
+  /** How much the gap grows after each query. */
+  @Builder.Default
+  double multiplier = 1.5;
+
+  /**
+   * How long after tracking starts a checkout without a final result is given up on. Daraja times
+   * the prompt out after about a minute, so the default leaves room for a late result.
+   */
+  @Builder.Default
+  Duration expireAfter = Duration.ofMinutes(2);
+
+  /** The most status queries in flight at once, across every tracked checkout. */
+  @Builder.Default
+  int maxConcurrentPolls = 16;
+
+  /** Returns the default policy. */
+  public static StkPollPolicy defaults() {
+    return builder().build();
+  }
+}
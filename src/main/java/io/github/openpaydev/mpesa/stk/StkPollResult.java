@@ -0,0 +1,22 @@
+package io.github.openpaydev.mpesa.stk;
+
+import lombok.Value;
+
+/** How a checkout tracked by an {@link StkStatusPoller} ended. */
+@Value
+public class StkPollResult {
+
+  String checkoutRequestID;
+
+  /** The final state; never {@link CheckoutState#PENDING}. */
+  CheckoutState state;
+
+  /** Daraja's {@code ResultCode}, or {@code null} if the checkout expired without one. */
+  String resultCode;
+
+  /** Daraja's {@code ResultDesc}, or {@code null} if the checkout expired without one. */
+  String resultDesc;
+
+  /** How many status queries were sent for the checkout. */
+  int polls;
+}
@@ -0,0 +1,288 @@
+package io.github.openpaydev.mpesa.stk;
+
+import io.github.openpaydev.mpesa.core.exceptions.MpesaApiException;
+import io.github.openpaydev.mpesa.core.exceptions.MpesaException;
+import io.github.openpaydev.mpesa.core.models.StkCallback;
+import io.github.openpaydev.mpesa.core.models.StkCallbackDetails;
+import io.github.openpaydev.mpesa.core.models.StkStatusQueryResponse;
+import io.github.openpaydev.mpesa.core.service.StkPushService;
+import java.util.ArrayDeque;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Polls the status of STK Push checkouts until each reaches a final state, so that a payment is
+ * not lost when its callback never arrives.
+ *
+ * <p>{@link #track(String)} returns a future that completes with the checkout's {@link
+ * StkPollResult}. Queries are spaced out as the {@link StkPollPolicy} says. A checkout stays
+ * pending while Daraja answers with {@code ResultCode} 4999 or with HTTP 500, which it uses for
+ * "The transaction is being processed", and also through network errors, throttling and the
+ * client's own rate limiter, circuit breaker and concurrency limiter rejections. Any other 4xx,
+ * such as an unknown {@code CheckoutRequestID}, fails the future.
+ *
+ * <p>One scheduler thread keeps every tracked checkout in its timer queue and starts the due
+ * queries through {@link StkPushService#queryStkStatusAsync(String)}, at most {@link
+ * StkPollPolicy#getMaxConcurrentPolls()} at a time; due checkouts beyond that wait their turn in
+ * arrival order. No thread waits on a query, so a tracked checkout costs only a few small objects
+ * and hundreds of thousands can be tracked at once. The service must therefore not block in {@code
+ * queryStkStatusAsync}, as {@code MpesaClient} does not. All polling state is confined to the
+ * scheduler thread and needs no locking.
+ *
+ * <pre>{@code
+ * StkStatusPoller poller = new StkStatusPoller(client);
+ * StkPushResponse pushed = client.stkPush(request);
+ * poller.track(pushed.getCheckoutRequestID())
+ *         .thenAccept(result -> orders.settle(orderId, result.getState()));
+ *
+ * // In the callback handler:
+ * poller.onCallback(MpesaCallbackParser.parseDetails(body));
+ * }</pre>
+ */
+public final class StkStatusPoller implements AutoCloseable {
+
+  private final StkPushService service;
+  private final StkPollPolicy policy;
+  private final ScheduledExecutorService scheduler;
+  private final long maxIntervalNanos;
+
+  private final ConcurrentMap<String, Poll> tracked = new ConcurrentHashMap<>();
+  /** Checkouts that are due while every query slot is taken. Scheduler thread only. */
+  private final Queue<Poll> due = new ArrayDeque<>();
+  private final AtomicInteger inFlight = new AtomicInteger();
+  private volatile boolean closed;
+
+  /** Creates a poller with the {@link StkPollPolicy#defaults() default policy}. */
+  public StkStatusPoller(StkPushService service) {
+    this(service, StkPollPolicy.defaults());
+  }
+
+  /**
+   * Creates a poller with its own scheduler thread, which {@link #close()} stops.
+   *
+   * @throws IllegalArgumentException If the policy allows no concurrent polls.
+   */
+  public StkStatusPoller(StkPushService service, StkPollPolicy policy) {
+    if (policy.getMaxConcurrentPolls() < 1) {
+      throw new IllegalArgumentException("maxConcurrentPolls must be at least 1.");
+    }
+    this.service = Objects.requireNonNull(service, "service");
+    this.policy = policy;
+    this.scheduler =
+        Executors.newSingleThreadScheduledExecutor(StkStatusPoller::newSchedulerThread);
+    this.maxIntervalNanos = policy.getMaxInterval().toNanos();
+  }
+
+  /**
+   * Starts polling a checkout. Tracking a checkout that is already tracked returns its existing
+   * future. Cancelling the future stops the polling.
+   *
+   * @param checkoutRequestID The {@code CheckoutRequestID} from the STK Push response.
+   * @return A future completed with the final result, or exceptionally if Daraja rejects the query
+   *     outright.
+   * @throws IllegalStateException If the poller is closed.
+   */
+  public CompletableFuture<StkPollResult> track(String checkoutRequestID) {
+    Objects.requireNonNull(checkoutRequestID, "checkoutRequestID");
+    if (closed) {
+      throw new IllegalStateException("The poller is closed.");
+    }
+    Poll created = new Poll(checkoutRequestID, System.nanoTime());
+    Poll existing = tracked.putIfAbsent(checkoutRequestID, created);
+    if (existing != null) {
+      return existing.result;
+    }
+    // Also stops tracking a checkout whose future the caller cancelled.
+    created.result.whenComplete((result, error) -> tracked.remove(checkoutRequestID, created));
+    schedule(created, policy.getInitialDelay().toNanos());
+    return created.result;
+  }
+
+  /**
+   * Completes a tracked checkout from its callback, so that it is not queried again.
+   *
+   * @return Whether the callback completed a tracked checkout.
+   */
+  public boolean onCallback(StkCallbackDetails callback) {
+    return resolve(
+        callback.getCheckoutRequestID(), callback.getResultCode(), callback.getResultDesc());
+  }
+
+  /**
+   * Completes a tracked checkout from its callback, so that it is not queried again.
+   *
+   * @return Whether the callback completed a tracked checkout.
+   */
+  public boolean onCallback(StkCallback callback) {
+    if (callback.getBody() == null || callback.getBody().getStkCallback() == null) {
+      return false;
+    }
+    StkCallback.StkCallbackData data = callback.getBody().getStkCallback();
+    return resolve(data.getCheckoutRequestID(), data.getResultCode(), data.getResultDesc());
+  }
+
+  /** Returns how many checkouts are being tracked. */
+  public int getTrackedCount() {
+    return tracked.size();
+  }
+
+  /** Returns how many status queries are in flight. */
+  public int getInFlightCount() {
+    return inFlight.get();
+  }
+
+  /** Stops polling and cancels the future of every checkout still tracked. */
+  @Override
+  public void close() {
+    closed = true;
+    scheduler.shutdownNow();
+    for (Poll poll : tracked.values()) {
+      poll.result.cancel(false);
+    }
+  }
+
+  private boolean resolve(String checkoutRequestID, int resultCode, String resultDesc) {
+    Poll poll = checkoutRequestID == null ? null : tracked.get(checkoutRequestID);
+    CheckoutState state = CheckoutState.ofResultCode(resultCode);
+    if (poll == null || !state.isTerminal()) {
+      return false;
+    }
+    return finish(
+        poll,
+        new StkPollResult(
+            checkoutRequestID, state, String.valueOf(resultCode), resultDesc, poll.polls));
+  }
+
+  /** Stops tracking before completing, so that the counts are current when callers see it. */
+  private boolean finish(Poll poll, StkPollResult result) {
+    tracked.remove(poll.checkoutRequestID, poll);
+    return poll.result.complete(result);
+  }
+
+  private void schedule(Poll poll, long delayNanos) {
+    try {
+      scheduler.schedule(() -> becameDue(poll), delayNanos, TimeUnit.NANOSECONDS);
+    } catch (RejectedExecutionException e) {
+      // Closed concurrently.
+      poll.result.cancel(false);
+    }
+  }
+
+  private void becameDue(Poll poll) {
+    if (!poll.result.isDone() && !closed) {
+      due.add(poll);
+      dispatch();
+    }
+  }
+
+  private void dispatch() {
+    Poll poll;
+    while (inFlight.get() < policy.getMaxConcurrentPolls() && (poll = due.poll()) != null) {
+      if (!poll.result.isDone()) {
+        send(poll);
+      }
+    }
+  }
+
+  private void send(Poll poll) {
+    inFlight.incrementAndGet();
+    poll.polls++;
+    CompletableFuture<StkStatusQueryResponse> query;
+    try {
+      query = service.queryStkStatusAsync(poll.checkoutRequestID);
+    } catch (RuntimeException e) {
+      query = CompletableFuture.failedFuture(e);
+    }
+    // Back onto the scheduler thread, which owns the polling state.
+    query.whenCompleteAsync(
+        (response, error) -> {
+          inFlight.decrementAndGet();
+          onPolled(poll, response, error);
+          dispatch();
+        },
+        scheduler);
+  }
+
+  private void onPolled(Poll poll, StkStatusQueryResponse response, Throwable error) {
+    if (poll.result.isDone()) {
+      return;
+    }
+    if (error == null) {
+      CheckoutState state = CheckoutState.ofResultCode(response.getResultCode());
+      if (state.isTerminal()) {
+        finish(
+            poll,
+            new StkPollResult(
+                poll.checkoutRequestID,
+                state,
+                response.getResultCode(),
+                response.getResultDesc(),
+                poll.polls));
+        return;
+      }
+    } else {
+      Throwable failure =
+          error instanceof CompletionException && error.getCause() != null
+              ? error.getCause()
+              : error;
+      if (!isStillPending(failure)) {
+        tracked.remove(poll.checkoutRequestID, poll);
+        poll.result.completeExceptionally(failure);
+        return;
+      }
+    }
+
+    long remaining = poll.deadlineNanos - System.nanoTime();
+    if (remaining <= 0) {
+      finish(
+          poll,
+          new StkPollResult(poll.checkoutRequestID, CheckoutState.EXPIRED, null, null, poll.polls));
+      return;
+    }
+    long interval = poll.intervalNanos;
+    poll.intervalNanos = Math.min(maxIntervalNanos, (long) (interval * policy.getMultiplier()));
+    schedule(poll, Math.min(interval, remaining));
+  }
+
+  /**
+   * Whether a failed query leaves the checkout pending: an HTTP 500, which Daraja returns while the
+   * payment is processing, or a failure that a later query could get past.
+   */
+  static boolean isStillPending(Throwable failure) {
+    if (failure instanceof MpesaApiException) {
+      int statusCode = ((MpesaApiException) failure).getStatusCode();
+      return statusCode == 429 || statusCode >= 500;
+    }
+    return failure instanceof MpesaException;
+  }
+
+  private static Thread newSchedulerThread(Runnable task) {
+    Thread thread = new Thread(task, "mpesa-stk-poller");
+    thread.setDaemon(true);
+    return thread;
+  }
+
+  /** One tracked checkout. Apart from the future, only the scheduler thread touches it. */
+  private final class Poll {
+    private final String checkoutRequestID;
+    private final long deadlineNanos;
+    private final CompletableFuture<StkPollResult> result = new CompletableFuture<>();
+    private long intervalNanos = policy.getInitialInterval().toNanos();
+    /** Read by {@link #resolve} on the callback's thread. */
+    private volatile int polls;
+
+    private Poll(String checkoutRequestID, long trackedAtNanos) {
+      this.checkoutRequestID = checkoutRequestID;
+      this.deadlineNanos = trackedAtNanos + policy.getExpireAfter().toNanos();
+    }
+  }
+}
@@ -1,8 +1,15 @@
 package io.github.openpaydev.mpesa.utils;
 
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import io.github.openpaydev.mpesa.core.codec.MpesaCodecs;
 import io.github.openpaydev.mpesa.core.models.StkCallback;
+import io.github.openpaydev.mpesa.core.models.StkCallbackDetails;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
 
 /**
  * A utility class for parsing the JSON callback sent by the M-Pesa API.
@@ -11,6 +18,15 @@ import io.github.openpaydev.mpesa.core.models.StkCallback;
  * request to a callback URL that you provide. The body of this request contains a JSON object with
  * the transaction details. This class provides a simple, static method to parse that JSON.
  *
+ * <p>Besides {@link #parse(String)}, there are overloads for the raw request body as a {@code
+ * byte[]}, {@link ByteBuffer} or {@link InputStream}. They read the UTF-8 bytes with a streaming
+ * parser directly into the model, skipping both the decode to a {@code String} and databind, and
+ * are the better choice on a busy callback endpoint.
+ *
+ * <p>The {@code parseDetails} methods go one step further and return a {@link StkCallbackDetails}
+ * with the amount, receipt number, transaction date and phone number already decoded into typed
+ * fields.
+ *
  * <p>Example Usage in a Spring Boot Controller:
  *
  * <pre>{@code
@@ -43,7 +59,7 @@ import io.github.openpaydev.mpesa.core.models.StkCallback;
  */
 public final class MpesaCallbackParser {
 
-  private static final ObjectMapper objectMapper = new ObjectMapper();
+  private static final JsonFactory jsonFactory = MpesaCodecs.defaults().getJsonFactory();
 
   /** Private constructor to prevent instantiation of this utility class. */
   private MpesaCallbackParser() {
@@ -60,6 +76,179 @@ public final class MpesaCallbackParser {
    *     into the target object.
    */
   public static StkCallback parse(String jsonCallbackData) throws JsonProcessingException {
-    return objectMapper.readValue(jsonCallbackData, StkCallback.class);
+    return parse(jsonCallbackData, MpesaCodecs.defaults());
+  }
+
+  /**
+   * Parses the JSON string from an M-Pesa callback with the given codecs, for applications that
+   * share one {@link MpesaCodecs} instance across the SDK.
+   *
+   * @param jsonCallbackData The raw JSON string received from the M-Pesa API in the callback
+   *     request body.
+   * @param codecs The codecs whose {@link StkCallback} reader to use.
+   * @return A deserialized {@link StkCallback} object containing the transaction results.
+   * @throws JsonProcessingException if the provided JSON string is malformed or cannot be parsed
+   *     into the target object.
+   */
+  public static StkCallback parse(String jsonCallbackData, MpesaCodecs codecs)
+      throws JsonProcessingException {
+    return codecs.readerFor(StkCallback.class).readValue(jsonCallbackData);
+  }
+
+  /**
+   * Parses the raw bytes of an M-Pesa callback body into a {@link StkCallback} object.
+   *
+   * @param jsonCallbackData The callback request body, encoded as UTF-8.
+   * @return A deserialized {@link StkCallback} object containing the transaction results.
+   * @throws JsonProcessingException if the bytes are not valid JSON or do not match the callback
+   *     structure.
+   * @throws IllegalArgumentException if {@code jsonCallbackData} is {@code null}.
+   */
+  public static StkCallback parse(byte[] jsonCallbackData) throws JsonProcessingException {
+    requireData(jsonCallbackData);
+    return readInMemory(() -> jsonFactory.createParser(jsonCallbackData), StkCallbackReader::read);
+  }
+
+  /**
+   * Parses the remaining bytes of a buffer holding an M-Pesa callback body into a {@link
+   * StkCallback} object. The buffer's position is left unchanged.
+   *
+   * @param jsonCallbackData The callback request body, encoded as UTF-8, between the buffer's
+   *     position and limit.
+   * @return A deserialized {@link StkCallback} object containing the transaction results.
+   * @throws JsonProcessingException if the bytes are not valid JSON or do not match the callback
+   *     structure.
+   * @throws IllegalArgumentException if {@code jsonCallbackData} is {@code null}.
+   */
+  public static StkCallback parse(ByteBuffer jsonCallbackData) throws JsonProcessingException {
+    requireData(jsonCallbackData);
+    return readInMemory(() -> createParser(jsonCallbackData), StkCallbackReader::read);
+  }
+
+  /**
+   * Parses an M-Pesa callback body as it is read from a stream, for example a servlet request's
+   * input stream. The stream is read up to the end of the JSON document but not closed.
+   *
+   * @param jsonCallbackData The callback request body, encoded as UTF-8.
+   * @return A deserialized {@link StkCallback} object containing the transaction results.
+   * @throws JsonProcessingException if the content is not valid JSON or does not match the
+   *     callback structure.
+   * @throws IOException if reading the stream fails.
+   * @throws IllegalArgumentException if {@code jsonCallbackData} is {@code null}.
+   */
+  public static StkCallback parse(InputStream jsonCallbackData) throws IOException {
+    requireData(jsonCallbackData);
+    return readStream(jsonCallbackData, StkCallbackReader::read);
+  }
+
+  /**
+   * Parses an M-Pesa callback straight into its typed view. The well-known metadata items (amount,
+   * receipt number, transaction date and phone number) are decoded into primitive fields while the
+   * JSON is read, without building the item array or boxing their values.
+   *
+   * @param jsonCallbackData The raw JSON string received from the M-Pesa API.
+   * @return The typed view of the callback.
+   * @throws JsonProcessingException if the JSON is malformed or has no {@code Body.stkCallback}
+   *     object.
+   * @throws IllegalArgumentException if {@code jsonCallbackData} is {@code null}.
+   */
+  public static StkCallbackDetails parseDetails(String jsonCallbackData)
+      throws JsonProcessingException {
+    requireData(jsonCallbackData);
+    return readInMemory(
+        () -> jsonFactory.createParser(jsonCallbackData), StkCallbackReader::readDetails);
+  }
+
+  /**
+   * Parses the raw bytes of an M-Pesa callback body straight into its typed view. See {@link
+   * #parseDetails(String)}.
+   *
+   * @param jsonCallbackData The callback request body, encoded as UTF-8.
+   * @return The typed view of the callback.
+   * @throws JsonProcessingException if the JSON is malformed or has no {@code Body.stkCallback}
+   *     object.
+   * @throws IllegalArgumentException if {@code jsonCallbackData} is {@code null}.
+   */
+  public static StkCallbackDetails parseDetails(byte[] jsonCallbackData)
+      throws JsonProcessingException {
+    requireData(jsonCallbackData);
+    return readInMemory(
+        () -> jsonFactory.createParser(jsonCallbackData), StkCallbackReader::readDetails);
+  }
+
+  /**
+   * Parses the remaining bytes of a buffer straight into the typed view of the callback. The
+   * buffer's position is left unchanged. See {@link #parseDetails(String)}.
+   *
+   * @param jsonCallbackData The callback request body, encoded as UTF-8, between the buffer's
+   *     position and limit.
+   * @return The typed view of the callback.
+   * @throws JsonProcessingException if the JSON is malformed or has no {@code Body.stkCallback}
+   *     object.
+   * @throws IllegalArgumentException if {@code jsonCallbackData} is {@code null}.
+   */
+  public static StkCallbackDetails parseDetails(ByteBuffer jsonCallbackData)
+      throws JsonProcessingException {
+    requireData(jsonCallbackData);
+    return readInMemory(() -> createParser(jsonCallbackData), StkCallbackReader::readDetails);
+  }
+
+  /**
+   * Parses a callback body from a stream straight into its typed view. The stream is read up to
+   * the end of the JSON document but not closed. See {@link #parseDetails(String)}.
+   *
+   * @param jsonCallbackData The callback request body, encoded as UTF-8.
+   * @return The typed view of the callback.
+   * @throws JsonProcessingException if the JSON is malformed or has no {@code Body.stkCallback}
+   *     object.
+   * @throws IOException if reading the stream fails.
+   * @throws IllegalArgumentException if {@code jsonCallbackData} is {@code null}.
+   */
+  public static StkCallbackDetails parseDetails(InputStream jsonCallbackData) throws IOException {
+    requireData(jsonCallbackData);
+    return readStream(jsonCallbackData, StkCallbackReader::readDetails);
+  }
+
+  private static void requireData(Object jsonCallbackData) {
+    if (jsonCallbackData == null) {
+      throw new IllegalArgumentException("Callback data must not be null.");
+    }
+  }
+
+  private static JsonParser createParser(ByteBuffer data) throws IOException {
+    if (!data.hasArray()) {
+      byte[] copy = new byte[data.remaining()];
+      data.duplicate().get(copy);
+      return jsonFactory.createParser(copy);
+    }
+    int offset = data.arrayOffset() + data.position();
+    return jsonFactory.createParser(data.array(), offset, data.remaining());
+  }
+
+  /** Reads a document that is already in memory, where only malformed content can fail. */
+  private static <T> T readInMemory(ParserSource source, DocumentReader<T> reader)
+      throws JsonProcessingException {
+    try (JsonParser parser = source.open()) {
+      return reader.read(parser);
+    } catch (JsonProcessingException e) {
+      throw e;
+    } catch (IOException e) {
+      throw JsonMappingException.fromUnexpectedIOE(e);
+    }
+  }
+
+  private static <T> T readStream(InputStream in, DocumentReader<T> reader) throws IOException {
+    try (JsonParser parser = jsonFactory.createParser(in)) {
+      parser.disable(JsonParser.Feature.AUTO_CLOSE_SOURCE);
+      return reader.read(parser);
+    }
+  }
+
+  private interface ParserSource {
+    JsonParser open() throws IOException;
+  }
+
+  private interface DocumentReader<T> {
+    T read(JsonParser parser) throws IOException;
   }
 }
@@ -0,0 +1,603 @@
+package io.github.openpaydev.mpesa.utils;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.exc.InvalidFormatException;
+import com.fasterxml.jackson.databind.exc.MismatchedInputException;
+import io.github.openpaydev.mpesa.core.models.StkCallback;
+import io.github.openpaydev.mpesa.core.models.StkCallbackDetails;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.Month;
+import java.time.Year;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads an STK callback straight off a streaming {@link JsonParser} into the {@link StkCallback}
+ * builders, without going through databind.
+ *
+ * <p>The result is the same as {@code ObjectMapper.readValue(json, StkCallback.class)} with default
+ * settings: unknown properties are skipped, {@code ResultCode} accepts numbers and numeric strings,
+ * and item values are bound like an untyped {@code Object} ({@code Integer}, {@code Long}, {@code
+ * Double}, {@code String}, {@code Boolean}, {@code Map} or {@code List}).
+ *
+ * <p>It can also read a callback into a {@link StkCallbackDetails}, decoding the well-known
+ * metadata items from the parser's character buffer into primitives as they stream past.
+ */
+final class StkCallbackReader {
+
+  private static final StkCallback.CallbackItem[] NO_ITEMS = new StkCallback.CallbackItem[0];
+
+  /** Returned by {@link #readDetailsItem} for an item that went into a typed field. */
+  private static final StkCallback.CallbackItem DECODED =
+      StkCallback.CallbackItem.builder().build();
+
+  /** Sixteen whole digits times 100 still fits in a {@code long}. */
+  private static final int MAX_WHOLE_DIGITS = 16;
+
+  /** Kenya keeps East Africa Time, UTC+03:00, all year round. */
+  private static final long EAT_OFFSET_MILLIS = 3 * 3600 * 1000L;
+
+  private StkCallbackReader() {}
+
+  /**
+   * Reads one callback document from a parser positioned before its first token.
+   *
+   * @return The callback, or {@code null} if the document is the JSON literal {@code null}.
+   */
+  static StkCallback read(JsonParser p) throws IOException {
+    JsonToken token = p.nextToken();
+    if (token == null) {
+      throw MismatchedInputException.from(
+          p, StkCallback.class, "No content to map due to end-of-input");
+    }
+    return readCallback(p);
+  }
+
+  private static StkCallback readCallback(JsonParser p) throws IOException {
+    if (!startObject(p, StkCallback.class)) {
+      return null;
+    }
+    StkCallback.StkCallbackBuilder builder = StkCallback.builder();
+    while (p.nextToken() == JsonToken.FIELD_NAME) {
+      String name = p.currentName();
+      p.nextToken();
+      if ("Body".equals(name)) {
+        builder.body(readBody(p));
+      } else {
+        p.skipChildren();
+      }
+    }
+    return builder.build();
+  }
+
+  private static StkCallback.Body readBody(JsonParser p) throws IOException {
+    if (!startObject(p, StkCallback.Body.class)) {
+      return null;
+    }
+    StkCallback.Body.BodyBuilder builder = StkCallback.Body.builder();
+    while (p.nextToken() == JsonToken.FIELD_NAME) {
+      String name = p.currentName();
+      p.nextToken();
+      if ("stkCallback".equals(name)) {
+        builder.stkCallback(readData(p));
+      } else {
+        p.skipChildren();
+      }
+    }
+    return builder.build();
+  }
+
+  private static StkCallback.StkCallbackData readData(JsonParser p) throws IOException {
+    if (!startObject(p, StkCallback.StkCallbackData.class)) {
+      return null;
+    }
+    StkCallback.StkCallbackData.StkCallbackDataBuilder builder =
+        StkCallback.StkCallbackData.builder();
+    while (p.nextToken() == JsonToken.FIELD_NAME) {
+      String name = p.currentName();
+      p.nextToken();
+      switch (name) {
+        case "MerchantRequestID":
+          builder.merchantRequestID(readString(p));
+          break;
+        case "CheckoutRequestID":
+          builder.checkoutRequestID(readString(p));
+          break;
+        case "ResultCode":
+          builder.resultCode(readInt(p));
+          break;
+        case "ResultDesc":
+          builder.resultDesc(readString(p));
+          break;
+        case "CallbackMetadata":
+          builder.callbackMetadata(readMetadata(p));
+          break;
+        default:
+          p.skipChildren();
+      }
+    }
+    return builder.build();
+  }
+
+  private static StkCallback.CallbackMetadata readMetadata(JsonParser p) throws IOException {
+    if (!startObject(p, StkCallback.CallbackMetadata.class)) {
+      return null;
+    }
+    StkCallback.CallbackMetadata.CallbackMetadataBuilder builder =
+        StkCallback.CallbackMetadata.builder();
+    while (p.nextToken() == JsonToken.FIELD_NAME) {
+      String name = p.currentName();
+      p.nextToken();
+      if ("Item".equals(name)) {
+        builder.items(readItems(p));
+      } else {
+        p.skipChildren();
+      }
+    }
+    return builder.build();
+  }
+
+  private static StkCallback.CallbackItem[] readItems(JsonParser p) throws IOException {
+    JsonToken token = p.currentToken();
+    if (token == JsonToken.VALUE_NULL) {
+      return null;
+    }
+    if (token != JsonToken.START_ARRAY) {
+      throw mismatch(p, StkCallback.CallbackItem[].class);
+    }
+    if (p.nextToken() == JsonToken.END_ARRAY) {
+      return NO_ITEMS;
+    }
+    // A successful payment carries four or five items; size for that and grow if needed.
+    StkCallback.CallbackItem[] items = new StkCallback.CallbackItem[5];
+    int count = 0;
+    do {
+      if (count == items.length) {
+        items = Arrays.copyOf(items, count * 2);
+      }
+      items[count++] = readItem(p);
+    } while (p.nextToken() != JsonToken.END_ARRAY);
+    return count == items.length ? items : Arrays.copyOf(items, count);
+  }
+
+  private static StkCallback.CallbackItem readItem(JsonParser p) throws IOException {
+    if (!startObject(p, StkCallback.CallbackItem.class)) {
+      return null;
+    }
+    StkCallback.CallbackItem.CallbackItemBuilder builder = StkCallback.CallbackItem.builder();
+    while (p.nextToken() == JsonToken.FIELD_NAME) {
+      String name = p.currentName();
+      p.nextToken();
+      switch (name) {
+        case "Name":
+          builder.name(readString(p));
+          break;
+        case "Value":
+          builder.value(readUntyped(p));
+          break;
+        default:
+          p.skipChildren();
+      }
+    }
+    return builder.build();
+  }
+
+  /**
+   * Reads one callback document into its typed view, decoding the well-known metadata items as
+   * they are read.
+   *
+   * @return The details, or {@code null} if the document is the JSON literal {@code null}.
+   */
+  static StkCallbackDetails readDetails(JsonParser p) throws IOException {
+    JsonToken token = p.nextToken();
+    if (token == null) {
+      throw MismatchedInputException.from(
+          p, StkCallbackDetails.class, "No content to map due to end-of-input");
+    }
+    if (!startObject(p, StkCallback.class)) {
+      return null;
+    }
+    StkCallbackDetails details = null;
+    while (p.nextToken() == JsonToken.FIELD_NAME) {
+      String name = p.currentName();
+      p.nextToken();
+      if ("Body".equals(name) && startObject(p, StkCallback.Body.class)) {
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+          String bodyField = p.currentName();
+          p.nextToken();
+          if ("stkCallback".equals(bodyField)) {
+            details = readDetailsData(p);
+          } else {
+            p.skipChildren();
+          }
+        }
+      } else {
+        p.skipChildren();
+      }
+    }
+    if (details == null) {
+      throw MismatchedInputException.from(
+          p, StkCallbackDetails.class, "Callback has no Body.stkCallback object");
+    }
+    return details;
+  }
+
+  private static StkCallbackDetails readDetailsData(JsonParser p) throws IOException {
+    if (!startObject(p, StkCallback.StkCallbackData.class)) {
+      return null;
+    }
+    StkCallbackDetails.StkCallbackDetailsBuilder builder = StkCallbackDetails.builder();
+    while (p.nextToken() == JsonToken.FIELD_NAME) {
+      String name = p.currentName();
+      p.nextToken();
+      switch (name) {
+        case "MerchantRequestID":
+          builder.merchantRequestID(readString(p));
+          break;
+        case "CheckoutRequestID":
+          builder.checkoutRequestID(readString(p));
+          break;
+        case "ResultCode":
+          builder.resultCode(readInt(p));
+          break;
+        case "ResultDesc":
+          builder.resultDesc(readString(p));
+          break;
+        case "CallbackMetadata":
+          if (startObject(p, StkCallback.CallbackMetadata.class)) {
+            readDetailsMetadata(p, builder);
+          }
+          break;
+        default:
+          p.skipChildren();
+      }
+    }
+    return builder.build();
+  }
+
+  private static void readDetailsMetadata(
+      JsonParser p, StkCallbackDetails.StkCallbackDetailsBuilder builder) throws IOException {
+    while (p.nextToken() == JsonToken.FIELD_NAME) {
+      String name = p.currentName();
+      JsonToken token = p.nextToken();
+      if (!"Item".equals(name) || token == JsonToken.VALUE_NULL) {
+        p.skipChildren();
+        continue;
+      }
+      if (token != JsonToken.START_ARRAY) {
+        throw mismatch(p, StkCallback.CallbackItem[].class);
+      }
+      List<StkCallback.CallbackItem> others = null;
+      while (p.nextToken() != JsonToken.END_ARRAY) {
+        StkCallback.CallbackItem other = readDetailsItem(p, builder);
+        if (other != DECODED) {
+          if (others == null) {
+            others = new ArrayList<>(2);
+          }
+          others.add(other);
+        }
+      }
+      if (others != null) {
+        builder.otherItems(others.toArray(NO_ITEMS));
+      }
+    }
+  }
+
+  /**
+   * Reads one metadata item, decoding it into the builder if it is a well-known one.
+   *
+   * @return {@link #DECODED} if the item went into a typed field, otherwise the item itself.
+   */
+  private static StkCallback.CallbackItem readDetailsItem(
+      JsonParser p, StkCallbackDetails.StkCallbackDetailsBuilder builder) throws IOException {
+    if (!startObject(p, StkCallback.CallbackItem.class)) {
+      return null;
+    }
+    String name = null;
+    Object value = null;
+    boolean decoded = false;
+    while (p.nextToken() == JsonToken.FIELD_NAME) {
+      String field = p.currentName();
+      p.nextToken();
+      if ("Name".equals(field)) {
+        name = readString(p);
+      } else if ("Value".equals(field)) {
+        decoded = name != null && decodeToken(name, p, builder);
+        value = decoded ? null : readUntyped(p);
+      } else {
+        p.skipChildren();
+      }
+    }
+    if (decoded || (name != null && decodeValue(name, value, builder))) {
+      return DECODED;
+    }
+    return StkCallback.CallbackItem.builder().name(name).value(value).build();
+  }
+
+  /** Decodes the current scalar token of a well-known item in place, without boxing it. */
+  private static boolean decodeToken(
+      String name, JsonParser p, StkCallbackDetails.StkCallbackDetailsBuilder builder)
+      throws IOException {
+    JsonToken token = p.currentToken();
+    if (token != JsonToken.VALUE_STRING && !token.isNumeric()) {
+      return false;
+    }
+    return decode(name, p.getTextCharacters(), p.getTextOffset(), p.getTextLength(), builder);
+  }
+
+  /**
+   * Decodes a well-known item whose {@code Value} came before its {@code Name} and was therefore
+   * already bound as an untyped object.
+   */
+  private static boolean decodeValue(
+      String name, Object value, StkCallbackDetails.StkCallbackDetailsBuilder builder) {
+    String text;
+    if (value instanceof String) {
+      text = (String) value;
+    } else if (value instanceof Double) {
+      text = BigDecimal.valueOf((Double) value).toPlainString();
+    } else if (value instanceof Number) {
+      text = value.toString();
+    } else {
+      return false;
+    }
+    return decode(name, text.toCharArray(), 0, text.length(), builder);
+  }
+
+  private static boolean decode(
+      String name,
+      char[] text,
+      int offset,
+      int length,
+      StkCallbackDetails.StkCallbackDetailsBuilder builder) {
+    long value;
+    switch (name) {
+      case "Amount":
+        value = parseMinorUnits(text, offset, length);
+        if (value == StkCallbackDetails.NO_VALUE) {
+          return false;
+        }
+        builder.amount(value);
+        return true;
+      case "MpesaReceiptNumber":
+        builder.mpesaReceiptNumber(new String(text, offset, length));
+        return true;
+      case "TransactionDate":
+        value = parseTransactionDate(text, offset, length);
+        if (value == StkCallbackDetails.NO_VALUE) {
+          return false;
+        }
+        builder.transactionDate(value);
+        return true;
+      case "PhoneNumber":
+        int start = length > 0 && text[offset] == '+' ? 1 : 0;
+        value = parseDigits(text, offset + start, length - start);
+        if (value == StkCallbackDetails.NO_VALUE) {
+          return false;
+        }
+        builder.phoneNumber(value);
+        return true;
+      default:
+        return false;
+    }
+  }
+
+  /**
+   * Parses a decimal amount such as {@code 1}, {@code 1.5} or {@code 1.00} into minor units,
+   * rounding half up beyond two decimal places.
+   *
+   * @return The amount in minor units, or {@link StkCallbackDetails#NO_VALUE} if the text is not a
+   *     plain decimal number.
+   */
+  static long parseMinorUnits(char[] text, int offset, int length) {
+    int end = offset + length;
+    int i = offset;
+    boolean negative = i < end && text[i] == '-';
+    if (negative) {
+      i++;
+    }
+    int wholeStart = i;
+    long whole = 0;
+    while (i < end && isDigit(text[i])) {
+      if (i - wholeStart == MAX_WHOLE_DIGITS) {
+        return StkCallbackDetails.NO_VALUE;
+      }
+      whole = whole * 10 + (text[i++] - '0');
+    }
+    if (i == wholeStart) {
+      return StkCallbackDetails.NO_VALUE;
+    }
+
+    long minor = whole * 100;
+    if (i < end) {
+      if (text[i++] != '.' || i == end) {
+        return StkCallbackDetails.NO_VALUE;
+      }
+      for (int place = 0; i < end; place++, i++) {
+        if (!isDigit(text[i])) {
+          return StkCallbackDetails.NO_VALUE;
+        }
+        int digit = text[i] - '0';
+        if (place == 0) {
+          minor += digit * 10;
+        } else if (place == 1) {
+          minor += digit;
+        } else if (place == 2 && digit >= 5) {
+          minor++;
+        }
+      }
+    }
+    return negative ? -minor : minor;
+  }
+
+  /**
+   * Parses an M-Pesa {@code yyyyMMddHHmmss} timestamp in East Africa Time into epoch milliseconds.
+   *
+   * @return The instant, or {@link StkCallbackDetails#NO_VALUE} if the text is not a valid
+   *     timestamp in that format.
+   */
+  static long parseTransactionDate(char[] text, int offset, int length) {
+    if (length != 14 || parseDigits(text, offset, length) == StkCallbackDetails.NO_VALUE) {
+      return StkCallbackDetails.NO_VALUE;
+    }
+    int year = digits(text, offset, 4);
+    int month = digits(text, offset + 4, 2);
+    int day = digits(text, offset + 6, 2);
+    int hour = digits(text, offset + 8, 2);
+    int minute = digits(text, offset + 10, 2);
+    int second = digits(text, offset + 12, 2);
+    if (month < 1
+        || month > 12
+        || day < 1
+        || day > Month.of(month).length(Year.isLeap(year))
+        || hour > 23
+        || minute > 59
+        || second > 59) {
+      return StkCallbackDetails.NO_VALUE;
+    }
+
+    // Days since the epoch for a proleptic Gregorian date, counting years from March.
+    int y = month <= 2 ? year - 1 : year;
+    int era = y / 400;
+    int yearOfEra = y - era * 400;
+    int dayOfYear = (153 * ((month + 9) % 12) + 2) / 5 + day - 1;
+    int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+    long epochDay = era * 146097L + dayOfEra - 719468;
+
+    long secondOfDay = hour * 3600L + minute * 60L + second;
+    return (epochDay * 86400 + secondOfDay) * 1000 - EAT_OFFSET_MILLIS;
+  }
+
+  /**
+   * Parses an unsigned integer of up to eighteen digits.
+   *
+   * @return The value, or {@link StkCallbackDetails#NO_VALUE} if the text is anything else.
+   */
+  private static long parseDigits(char[] text, int offset, int length) {
+    if (length < 1 || length > 18) {
+      return StkCallbackDetails.NO_VALUE;
+    }
+    long value = 0;
+    for (int i = offset; i < offset + length; i++) {
+      if (!isDigit(text[i])) {
+        return StkCallbackDetails.NO_VALUE;
+      }
+      value = value * 10 + (text[i] - '0');
+    }
+    return value;
+  }
+
+  private static int digits(char[] text, int offset, int count) {
+    int value = 0;
+    for (int i = offset; i < offset + count; i++) {
+      value = value * 10 + (text[i] - '0');
+    }
+    return value;
+  }
+
+  private static boolean isDigit(char c) {
+    return c >= '0' && c <= '9';
+  }
+
+  /**
+   * Checks that the current token opens an object.
+   *
+   * @return {@code false} if the value is {@code null}.
+   */
+  private static boolean startObject(JsonParser p, Class<?> type) throws IOException {
+    JsonToken token = p.currentToken();
+    if (token == JsonToken.START_OBJECT) {
+      return true;
+    }
+    if (token == JsonToken.VALUE_NULL) {
+      return false;
+    }
+    throw mismatch(p, type);
+  }
+
+  private static String readString(JsonParser p) throws IOException {
+    JsonToken token = p.currentToken();
+    if (token == JsonToken.VALUE_NULL) {
+      return null;
+    }
+    if (token.isScalarValue()) {
+      return p.getText();
+    }
+    throw mismatch(p, String.class);
+  }
+
+  private static int readInt(JsonParser p) throws IOException {
+    switch (p.currentToken()) {
+      case VALUE_NUMBER_INT:
+      case VALUE_NUMBER_FLOAT:
+        return p.getValueAsInt();
+      case VALUE_NULL:
+        return 0;
+      case VALUE_STRING:
+        String text = p.getText().trim();
+        if (text.isEmpty()) {
+          return 0;
+        }
+        try {
+          return Integer.parseInt(text);
+        } catch (NumberFormatException e) {
+          throw InvalidFormatException.from(
+              p,
+              "Cannot deserialize value of type `int` from String \"" + text + "\"",
+              text,
+              int.class);
+        }
+      default:
+        throw mismatch(p, int.class);
+    }
+  }
+
+  private static Object readUntyped(JsonParser p) throws IOException {
+    switch (p.currentToken()) {
+      case VALUE_STRING:
+        return p.getText();
+      case VALUE_NUMBER_INT:
+        return p.getNumberValue();
+      case VALUE_NUMBER_FLOAT:
+        return p.getDoubleValue();
+      case VALUE_TRUE:
+        return Boolean.TRUE;
+      case VALUE_FALSE:
+        return Boolean.FALSE;
+      case START_OBJECT:
+        Map<String, Object> map = new LinkedHashMap<>();
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+          String name = p.currentName();
+          p.nextToken();
+          map.put(name, readUntyped(p));
+        }
+        return map;
+      case START_ARRAY:
+        List<Object> list = new ArrayList<>();
+        while (p.nextToken() != JsonToken.END_ARRAY) {
+          list.add(readUntyped(p));
+        }
+        return list;
+      case VALUE_EMBEDDED_OBJECT:
+        return p.getEmbeddedObject();
+      default:
+        return null;
+    }
+  }
+
+  private static MismatchedInputException mismatch(JsonParser p, Class<?> type) {
+    return MismatchedInputException.from(
+        p,
+        type,
+        "Cannot deserialize value of type `"
+            + type.getTypeName()
+            + "` from "
+            + p.currentToken()
+            + " token");
+  }
+}
@@ -0,0 +1,218 @@
+package io.github.openpaydev.mpesa;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class CoalescingCacheTest {
+
+  private static final long TTL = TimeUnit.SECONDS.toNanos(60);
+
+  private final AtomicLong now = new AtomicLong();
+  private final AtomicInteger calls = new AtomicInteger();
+
+  @Test
+  @DisplayName("Requests for a key in flight should join its call")
+  void get_whileInFlight_joinsTheCall() throws Exception {
+    CoalescingCache<String, String> cache = new CoalescingCache<>(100, value -> TTL, now::get);
+    CompletableFuture<String> call = new CompletableFuture<>();
+
+    CompletableFuture<String> first = cache.get("order-1", () -> started(call));
+    CompletableFuture<String> second =
+        cache.get("order-1", () -> started(new CompletableFuture<>()));
+    assertFalse(second.isDone());
+    call.complete("ws_CO_1");
+
+    assertEquals("ws_CO_1", first.get(5, TimeUnit.SECONDS));
+    assertEquals("ws_CO_1", second.get(5, TimeUnit.SECONDS));
+    assertEquals(1, calls.get());
+    assertEquals(1, cache.getCoalescedCount());
+  }
+
+  @Test
+  @DisplayName("A result should be reused until its time to live runs out")
+  void get_afterSuccess_reusesResultUntilExpiry() throws Exception {
+    CoalescingCache<String, String> cache = new CoalescingCache<>(100, value -> TTL, now::get);
+    cache.get("order-1", () -> started(CompletableFuture.completedFuture("ws_CO_1")));
+
+    now.addAndGet(TTL - 1);
+    assertEquals("ws_CO_1", cache.get("order-1", () -> started(null)).get());
+    now.addAndGet(1);
+    assertEquals(
+        "ws_CO_2",
+        cache.get("order-1", () -> started(CompletableFuture.completedFuture("ws_CO_2"))).get());
+
+    assertEquals(2, calls.get());
+    assertEquals(1, cache.getHitCount());
+    assertEquals(2, cache.getLoadCount());
+  }
+
+  @Test
+  @DisplayName("A failure should reach every waiting caller and not be kept")
+  void get_afterFailure_callsAgain() throws Exception {
+    CoalescingCache<String, String> cache = new CoalescingCache<>(100, value -> TTL, now::get);
+    CompletableFuture<String> call = new CompletableFuture<>();
+    CompletableFuture<String> first = cache.get("order-1", () -> started(call));
+    CompletableFuture<String> second = cache.get("order-1", () -> started(null));
+
+    call.completeExceptionally(new IllegalStateException("timed out"));
+
+    for (CompletableFuture<String> future : List.of(first, second)) {
+      ExecutionException e = assertThrows(ExecutionException.class, future::get);
+      assertEquals("timed out", e.getCause().getMessage());
+    }
+    assertEquals(0, cache.size());
+    assertEquals(
+        "ws_CO_2",
+        cache.get("order-1", () -> started(CompletableFuture.completedFuture("ws_CO_2"))).get());
+    assertEquals(2, calls.get());
+  }
+
+  @Test
+  @DisplayName("A call that throws should fail its future instead of the caller")
+  void get_whenCallThrows_failsTheFuture() {
+    CoalescingCache<String, String> cache = new CoalescingCache<>(100, value -> TTL, now::get);
+
+    CompletableFuture<String> future =
+        cache.get(
+            "order-1",
+            () -> {
+              throw new IllegalArgumentException("bad phone number");
+            });
+
+    ExecutionException e = assertThrows(ExecutionException.class, future::get);
+    assertInstanceOf(IllegalArgumentException.class, e.getCause());
+    assertEquals(0, cache.size());
+  }
+
+  @Test
+  @DisplayName("A result with no time to live should only be shared while in flight")
+  void get_withZeroTtl_keepsNothing() throws Exception {
+    CoalescingCache<String, String> cache =
+        new CoalescingCache<>(100, value -> value.startsWith("final") ? TTL : 0, now::get);
+
+    cache.get("a", () -> started(CompletableFuture.completedFuture("pending"))).get();
+    cache.get("b", () -> started(CompletableFuture.completedFuture("final"))).get();
+
+    assertEquals(1, cache.size());
+    cache.get("a", () -> started(CompletableFuture.completedFuture("pending"))).get();
+    cache.get("b", () -> started(null)).get();
+    assertEquals(3, calls.get());
+  }
+
+  @Test
+  @DisplayName("The least recently used keys should be dropped beyond maxEntries")
+  void get_beyondMaxEntries_dropsLeastRecentlyUsed() throws Exception {
+    CoalescingCache<String, String> cache = new CoalescingCache<>(2, value -> TTL, now::get);
+    cache.get("a", () -> started(CompletableFuture.completedFuture("1"))).get();
+    cache.get("b", () -> started(CompletableFuture.completedFuture("2"))).get();
+    cache.get("a", () -> started(null)).get();
+
+    cache.get("c", () -> started(CompletableFuture.completedFuture("3"))).get();
+
+    assertEquals(2, cache.size());
+    assertEquals("1", cache.get("a", () -> started(null)).get());
+    assertEquals("4", cache.get("b", () -> started(CompletableFuture.completedFuture("4"))).get());
+    assertEquals(4, calls.get());
+  }
+
+  @Test
+  @DisplayName("Calls in flight should never be dropped, and keys beyond maxEntries not shared")
+  void get_beyondMaxEntriesInFlight_keepsCallsInFlight() throws Exception {
+    CoalescingCache<String, String> cache = new CoalescingCache<>(1, value -> TTL, now::get);
+    CompletableFuture<String> callA = new CompletableFuture<>();
+    CompletableFuture<String> callB = new CompletableFuture<>();
+
+    CompletableFuture<String> a = cache.get("a", () -> started(callA));
+    CompletableFuture<String> b = cache.get("b", () -> started(callB));
+    CompletableFuture<String> joined = cache.get("a", () -> started(null));
+    callA.complete("1");
+    callB.complete("2");
+
+    assertEquals("1", a.get(5, TimeUnit.SECONDS));
+    assertEquals("1", joined.get(5, TimeUnit.SECONDS));
+    assertEquals("2", b.get(5, TimeUnit.SECONDS));
+    assertEquals(2, calls.get());
+    assertEquals(1, cache.getCoalescedCount());
+    assertEquals(1, cache.size());
+    assertEquals("1", cache.get("a", () -> started(null)).get());
+  }
+
+  @Test
+  @DisplayName("Cancelling one caller's future should not affect the others")
+  void get_cancelledByOneCaller_stillCompletesForOthers() throws Exception {
+    CoalescingCache<String, String> cache = new CoalescingCache<>(100, value -> TTL, now::get);
+    CompletableFuture<String> call = new CompletableFuture<>();
+    CompletableFuture<String> first = cache.get("order-1", () -> started(call));
+    CompletableFuture<String> second = cache.get("order-1", () -> started(null));
+
+    first.cancel(true);
+    call.complete("ws_CO_1");
+
+    assertEquals("ws_CO_1", second.get(5, TimeUnit.SECONDS));
+    assertEquals("ws_CO_1", cache.get("order-1", () -> started(null)).get());
+  }
+
+  @Test
+  @DisplayName("Of many concurrent requests for a key, only one should start a call")
+  void get_concurrently_startsOneCallPerKey() throws Exception {
+    CoalescingCache<Integer, Integer> cache = new CoalescingCache<>(1_000, value -> TTL, now::get);
+    int threads = 8;
+    int keys = 500;
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    CountDownLatch start = new CountDownLatch(1);
+    List<Future<?>> tasks = new ArrayList<>();
+    try {
+      for (int t = 0; t < threads; t++) {
+        tasks.add(
+            executor.submit(
+                () -> {
+                  start.await();
+                  for (int key = 0; key < keys; key++) {
+                    int k = key;
+                    assertEquals(
+                        Integer.valueOf(k),
+                        cache
+                            .get(k, () -> CompletableFuture.supplyAsync(() -> count(k)))
+                            .get(5, TimeUnit.SECONDS));
+                  }
+                  return null;
+                }));
+      }
+      start.countDown();
+      for (Future<?> task : tasks) {
+        task.get(30, TimeUnit.SECONDS);
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+
+    assertEquals(keys, calls.get());
+    assertEquals(keys, cache.getLoadCount());
+  }
+
+  private <T> CompletableFuture<T> started(CompletableFuture<T> call) {
+    calls.incrementAndGet();
+    if (call == null) {
+      fail("The kept result should have been used.");
+    }
+    return call;
+  }
+
+  private int count(int key) {
+    calls.incrementAndGet();
+    return key;
+  }
+}
@@ -0,0 +1,493 @@
+package io.github.openpaydev.mpesa;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.lenient;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import io.github.openpaydev.mpesa.core.MpesaOperation;
+import io.github.openpaydev.mpesa.core.auth.TokenManager;
+import io.github.openpaydev.mpesa.core.exceptions.MpesaApiException;
+import io.github.openpaydev.mpesa.core.exceptions.MpesaAuthException;
+import io.github.openpaydev.mpesa.core.exceptions.MpesaCircuitOpenException;
+import io.github.openpaydev.mpesa.core.exceptions.MpesaException;
+import io.github.openpaydev.mpesa.core.exceptions.MpesaRateLimitException;
+import io.github.openpaydev.mpesa.core.models.StkStatusQueryResponse;
+import io.github.openpaydev.mpesa.resilience.AdaptiveConcurrencyLimiter;
+import io.github.openpaydev.mpesa.resilience.AdaptiveConcurrencyPolicy;
+import io.github.openpaydev.mpesa.resilience.CircuitBreaker;
+import io.github.openpaydev.mpesa.resilience.CircuitBreakerPolicy;
+import io.github.openpaydev.mpesa.resilience.HedgePolicy;
+import io.github.openpaydev.mpesa.resilience.MpesaCircuitBreakers;
+import io.github.openpaydev.mpesa.resilience.MpesaRateLimiter;
+import io.github.openpaydev.mpesa.resilience.RateLimit;
+import io.github.openpaydev.mpesa.resilience.RateLimitMode;
+import io.github.openpaydev.mpesa.resilience.RetryBudget;
+import io.github.openpaydev.mpesa.resilience.RetryPolicy;
+import java.io.IOException;
+import java.net.UnknownHostException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import okhttp3.Dns;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.RequestBody;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import okhttp3.mockwebserver.SocketPolicy;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+@ExtendWith(MockitoExtension.class)
+class MpesaCallExecutorTest {
+
+  private static final RetryPolicy FAST_RETRIES =
+      RetryPolicy.builder().initialBackoff(Duration.ofMillis(1)).build();
+
+  private final RequestBody body = RequestBody.create("{}", MediaType.get("application/json"));
+
+  private MockWebServer mockWebServer;
+  private String url;
+
+  @Mock private TokenManager tokenManager;
+
+  @BeforeEach
+  void setUp() throws Exception {
+    mockWebServer = new MockWebServer();
+    mockWebServer.start();
+    url = mockWebServer.url("/call").toString();
+
+    lenient().when(tokenManager.getAccessToken()).thenReturn("test-access-token");
+    lenient()
+        .when(tokenManager.getAccessTokenAsync())
+        .thenReturn(CompletableFuture.completedFuture("test-access-token"));
+  }
+
+  @AfterEach
+  void tearDown() throws IOException {
+    mockWebServer.shutdown();
+  }
+
+  @Test
+  @DisplayName("execute should retry an idempotent call on a retryable status")
+  void execute_idempotentCall_retriesRetryableStatus() throws Exception {
+    mockWebServer.enqueue(new MockResponse().setResponseCode(503));
+    mockWebServer.enqueue(
+        new MockResponse().setResponseCode(200).setBody("{\"ResultCode\":\"0\"}"));
+
+    StkStatusQueryResponse response =
+        executor(options())
+            .execute(MpesaOperation.STK_QUERY, url, body, StkStatusQueryResponse.class);
+
+    assertEquals("0", response.getResultCode());
+    assertEquals(2, mockWebServer.getRequestCount());
+  }
+
+  @Test
+  @DisplayName("execute should give up after maxAttempts and throw the last failure")
+  void execute_stopsAfterMaxAttempts() {
+    for (int i = 0; i < 4; i++) {
+      mockWebServer.enqueue(new MockResponse().setResponseCode(503));
+    }
+
+    MpesaApiException exception =
+        assertThrows(
+            MpesaApiException.class,
+            () ->
+                executor(options())
+                    .execute(MpesaOperation.STK_QUERY, url, body, StkStatusQueryResponse.class));
+
+    assertEquals(503, exception.getStatusCode());
+    assertEquals(3, mockWebServer.getRequestCount());
+  }
+
+  @Test
+  @DisplayName("execute should not retry a non-idempotent call that reached the server")
+  void execute_nonIdempotentCall_doesNotRetryAfterSending() {
+    mockWebServer.enqueue(new MockResponse().setResponseCode(503));
+
+    assertThrows(
+        MpesaApiException.class,
+        () ->
+            executor(options())
+                .execute(MpesaOperation.STK_PUSH, url, body, StkStatusQueryResponse.class));
+    assertEquals(1, mockWebServer.getRequestCount());
+  }
+
+  @Test
+  @DisplayName("OkHttp should not resend a non-idempotent call dropped on a pooled connection")
+  void execute_nonIdempotentCall_isNotResentOnStaleConnection() throws Exception {
+    MpesaCallExecutor executor = executor(options());
+    mockWebServer.enqueue(new MockResponse().setResponseCode(200).setBody("{}"));
+    mockWebServer.enqueue(
+        new MockResponse().setSocketPolicy(SocketPolicy.DISCONNECT_AFTER_REQUEST));
+    mockWebServer.enqueue(new MockResponse().setResponseCode(200).setBody("{}"));
+    executor.execute(MpesaOperation.STK_QUERY, url, body, StkStatusQueryResponse.class);
+
+    assertThrows(
+        MpesaException.class,
+        () -> executor.execute(MpesaOperation.STK_PUSH, url, body, StkStatusQueryResponse.class));
+    assertEquals(2, mockWebServer.getRequestCount());
+  }
+
+  @Test
+  @DisplayName("execute should retry a non-idempotent call that never left the client")
+  void execute_nonIdempotentCall_retriesWhenNeverSent() throws Exception {
+    AtomicInteger lookups = new AtomicInteger();
+    Dns failingOnce =
+        hostname -> {
+          if (lookups.incrementAndGet() == 1) {
+            throw new UnknownHostException(hostname);
+          }
+          return Dns.SYSTEM.lookup(hostname);
+        };
+    // Without OkHttp's own route retry, only the executor can make the second lookup.
+    OkHttpClient client =
+        new OkHttpClient.Builder().dns(failingOnce).retryOnConnectionFailure(false).build();
+    mockWebServer.enqueue(new MockResponse().setResponseCode(200).setBody("{}"));
+
+    new MpesaCallExecutor(tokenManager, client, options(), "174379")
+        .execute(MpesaOperation.STK_PUSH, url, body, StkStatusQueryResponse.class);
+
+    assertEquals(2, lookups.get());
+    assertEquals(1, mockWebServer.getRequestCount());
+  }
+
+  @Test
+  @DisplayName("execute should not retry once the retry budget is empty")
+  void execute_whenBudgetIsEmpty_doesNotRetry() {
+    mockWebServer.enqueue(new MockResponse().setResponseCode(503));
+    MpesaClientOptions options =
+        MpesaClientOptions.builder()
+            .retryPolicy(FAST_RETRIES)
+            .retryBudget(RetryBudget.create(0, 0))
+            .build();
+
+    assertThrows(
+        MpesaApiException.class,
+        () ->
+            executor(options)
+                .execute(MpesaOperation.STK_QUERY, url, body, StkStatusQueryResponse.class));
+    assertEquals(1, mockWebServer.getRequestCount());
+  }
+
+  @Test
+  @DisplayName("execute should use the policy configured for the operation")
+  void execute_usesPerOperationPolicy() {
+    mockWebServer.enqueue(new MockResponse().setResponseCode(503));
+    MpesaClientOptions options =
+        MpesaClientOptions.builder()
+            .retryPolicy(FAST_RETRIES)
+            .retryPolicies(Map.of(MpesaOperation.STK_QUERY, RetryPolicy.none()))
+            .build();
+
+    assertThrows(
+        MpesaApiException.class,
+        () ->
+            executor(options)
+                .execute(MpesaOperation.STK_QUERY, url, body, StkStatusQueryResponse.class));
+    assertEquals(1, mockWebServer.getRequestCount());
+  }
+
+  @Test
+  @DisplayName("execute should not send, or retry, a call the rate limiter refuses")
+  void execute_whenRateLimited_failsWithoutSending() throws Exception {
+    mockWebServer.enqueue(new MockResponse().setResponseCode(200).setBody("{}"));
+    RateLimit limit = RateLimit.perSecond(1).toBuilder().mode(RateLimitMode.FAIL_FAST).build();
+    MpesaClientOptions options =
+        MpesaClientOptions.builder()
+            .retryPolicy(FAST_RETRIES)
+            .rateLimiter(MpesaRateLimiter.of(Map.of(MpesaOperation.STK_PUSH, limit)))
+            .build();
+    MpesaCallExecutor executor = executor(options);
+
+    executor.execute(MpesaOperation.STK_PUSH, url, body, StkStatusQueryResponse.class);
+    assertThrows(
+        MpesaRateLimitException.class,
+        () -> executor.execute(MpesaOperation.STK_PUSH, url, body, StkStatusQueryResponse.class));
+    CompletableFuture<StkStatusQueryResponse> future =
+        executor.executeAsync(MpesaOperation.STK_PUSH, url, body, StkStatusQueryResponse.class);
+
+    ExecutionException exception =
+        assertThrows(ExecutionException.class, () -> future.get(5, TimeUnit.SECONDS));
+    assertInstanceOf(MpesaRateLimitException.class, exception.getCause());
+    assertEquals(1, mockWebServer.getRequestCount());
+  }
+
+  @Test
+  @DisplayName("execute should reject calls without sending them once the breaker has opened")
+  void execute_whenBreakerIsOpen_failsWithoutSending() {
+    for (int i = 0; i < 2; i++) {
+      mockWebServer.enqueue(new MockResponse().setResponseCode(503));
+    }
+    MpesaCircuitBreakers breakers =
+        MpesaCircuitBreakers.create(CircuitBreakerPolicy.builder().minimumCalls(2).build());
+    MpesaClientOptions options =
+        MpesaClientOptions.builder()
+            .retryPolicy(RetryPolicy.none())
+            .circuitBreakers(breakers)
+            .build();
+    MpesaCallExecutor executor = executor(options);
+
+    assertThrows(MpesaApiException.class, () -> query(executor));
+    assertThrows(MpesaApiException.class, () -> query(executor));
+    MpesaCircuitOpenException exception =
+        assertThrows(MpesaCircuitOpenException.class, () -> query(executor));
+    CompletableFuture<StkStatusQueryResponse> future =
+        executor.executeAsync(MpesaOperation.STK_QUERY, url, body, StkStatusQueryResponse.class);
+
+    assertEquals(url, exception.getEndpoint());
+    assertTrue(future.isCompletedExceptionally());
+    assertEquals(CircuitBreaker.State.OPEN, breakers.states().get(url));
+    assertEquals(2, mockWebServer.getRequestCount());
+  }
+
+  @Test
+  @DisplayName("A call waiting for the rate limiter should not hold a half-open trial permit")
+  void executeAsync_whileRateLimited_leavesTrialPermitFree() throws Exception {
+    for (int i = 0; i < 2; i++) {
+      mockWebServer.enqueue(new MockResponse().setResponseCode(503));
+    }
+    mockWebServer.enqueue(new MockResponse().setResponseCode(200).setBody("{}"));
+    MpesaCircuitBreakers breakers =
+        MpesaCircuitBreakers.create(
+            CircuitBreakerPolicy.builder()
+                .minimumCalls(2)
+                .openDuration(Duration.ofMillis(50))
+                .halfOpenCalls(1)
+                .build());
+    MpesaClientOptions options =
+        MpesaClientOptions.builder()
+            .retryPolicy(RetryPolicy.none())
+            .circuitBreakers(breakers)
+            .rateLimiter(
+                MpesaRateLimiter.of(Map.of(MpesaOperation.STK_QUERY, RateLimit.perSecond(2))))
+            .build();
+    MpesaCallExecutor executor = executor(options);
+    assertThrows(MpesaApiException.class, () -> query(executor));
+    assertThrows(MpesaApiException.class, () -> query(executor));
+    Thread.sleep(60);
+
+    CompletableFuture<StkStatusQueryResponse> waiting =
+        executor.executeAsync(MpesaOperation.STK_QUERY, url, body, StkStatusQueryResponse.class);
+    CircuitBreaker breaker = breakers.forEndpoint(url);
+    long permit = breaker.acquire();
+    breaker.release(permit);
+
+    assertNotNull(waiting.get(5, TimeUnit.SECONDS));
+    assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    assertEquals(3, mockWebServer.getRequestCount());
+  }
+
+  @Test
+  @DisplayName("Business errors should not count against the circuit breaker")
+  void execute_businessErrors_keepBreakerClosed() {
+    for (int i = 0; i < 3; i++) {
+      mockWebServer.enqueue(new MockResponse().setResponseCode(500).setBody("{}"));
+    }
+    MpesaCircuitBreakers breakers =
+        MpesaCircuitBreakers.create(CircuitBreakerPolicy.builder().minimumCalls(2).build());
+    MpesaCallExecutor executor =
+        executor(MpesaClientOptions.builder().circuitBreakers(breakers).build());
+
+    for (int i = 0; i < 3; i++) {
+      assertThrows(MpesaApiException.class, () -> query(executor));
+    }
+
+    assertEquals(CircuitBreaker.State.CLOSED, breakers.states().get(url));
+  }
+
+  @Test
+  @DisplayName("An overload status should shrink the concurrency limit and free the slot")
+  void execute_overloadStatus_shrinksConcurrencyLimit() {
+    mockWebServer.enqueue(new MockResponse().setResponseCode(503));
+    AdaptiveConcurrencyLimiter limiter =
+        AdaptiveConcurrencyLimiter.create(
+            AdaptiveConcurrencyPolicy.builder().initialLimit(10).build());
+    MpesaCallExecutor executor =
+        executor(
+            MpesaClientOptions.builder()
+                .retryPolicy(RetryPolicy.none())
+                .concurrencyLimiter(limiter)
+                .build());
+
+    assertThrows(MpesaApiException.class, () -> query(executor));
+
+    assertEquals(9, limiter.getLimit());
+    assertEquals(0, limiter.getInFlight());
+  }
+
+  @Test
+  @DisplayName("The concurrency limit should cap and back off from a server that queues calls")
+  void executeAsync_againstQueueingServer_staysWithinAdaptiveLimit() throws Exception {
+    // Serves one request at a time, so every concurrent call adds to the latency of the others.
+    Object worker = new Object();
+    AtomicInteger active = new AtomicInteger();
+    AtomicInteger maxActive = new AtomicInteger();
+    mockWebServer.setDispatcher(
+        new Dispatcher() {
+          @Override
+          public MockResponse dispatch(RecordedRequest request) throws InterruptedException {
+            maxActive.accumulateAndGet(active.incrementAndGet(), Math::max);
+            try {
+              synchronized (worker) {
+                TimeUnit.MILLISECONDS.sleep(5);
+              }
+            } finally {
+              active.decrementAndGet();
+            }
+            return new MockResponse().setBody("{\"ResultCode\":\"0\"}");
+          }
+        });
+    AdaptiveConcurrencyLimiter limiter =
+        AdaptiveConcurrencyLimiter.create(
+            AdaptiveConcurrencyPolicy.builder().initialLimit(8).maxLimit(8).minLimit(1).build());
+    OkHttpClient client = new OkHttpClient();
+    client.dispatcher().setMaxRequestsPerHost(64);
+    MpesaCallExecutor executor =
+        new MpesaCallExecutor(
+            tokenManager,
+            client,
+            MpesaClientOptions.builder().concurrencyLimiter(limiter).build(),
+            "174379");
+    List<CompletableFuture<StkStatusQueryResponse>> calls = new ArrayList<>();
+
+    for (int i = 0; i < 60; i++) {
+      calls.add(
+          executor.executeAsync(MpesaOperation.STK_QUERY, url, body, StkStatusQueryResponse.class));
+    }
+    for (CompletableFuture<StkStatusQueryResponse> call : calls) {
+      assertEquals("0", call.get(10, TimeUnit.SECONDS).getResultCode());
+    }
+
+    assertTrue(maxActive.get() <= 8, "requests at the server: " + maxActive.get());
+    assertTrue(limiter.getLimit() < 8, "limit: " + limiter.getLimit());
+    assertEquals(0, limiter.getInFlight());
+    assertEquals(0, limiter.getQueueDepth());
+  }
+
+  @Test
+  @DisplayName("executeAsync should retry an idempotent call on a retryable status")
+  void executeAsync_idempotentCall_retriesRetryableStatus() throws Exception {
+    mockWebServer.enqueue(new MockResponse().setResponseCode(502));
+    mockWebServer.enqueue(
+        new MockResponse().setResponseCode(200).setBody("{\"ResultCode\":\"0\"}"));
+
+    StkStatusQueryResponse response =
+        executor(options())
+            .executeAsync(MpesaOperation.STK_QUERY, url, body, StkStatusQueryResponse.class)
+            .get(5, TimeUnit.SECONDS);
+
+    assertEquals("0", response.getResultCode());
+    assertEquals(2, mockWebServer.getRequestCount());
+  }
+
+  @Test
+  @DisplayName("executeHedgedAsync should use the hedge when the first call is slow")
+  void executeHedgedAsync_whenFirstCallIsSlow_usesHedge() throws Exception {
+    mockWebServer.enqueue(
+        new MockResponse()
+            .setHeadersDelay(10, TimeUnit.SECONDS)
+            .setBody("{\"ResultDesc\":\"slow\"}"));
+    mockWebServer.enqueue(new MockResponse().setBody("{\"ResultDesc\":\"hedge\"}"));
+    HedgePolicy hedgePolicy = HedgePolicy.builder().delay(Duration.ofMillis(50)).build();
+
+    StkStatusQueryResponse response =
+        executor(options())
+            .executeHedgedAsync(
+                MpesaOperation.STK_QUERY, url, body, StkStatusQueryResponse.class, hedgePolicy)
+            .get(5, TimeUnit.SECONDS);
+
+    assertEquals("hedge", response.getResultDesc());
+    assertEquals(2, mockWebServer.getRequestCount());
+  }
+
+  @Test
+  @DisplayName("executeHedgedAsync should fail once the call and its hedge have failed")
+  void executeHedgedAsync_whenEveryCopyFails_completesExceptionally() {
+    mockWebServer.enqueue(new MockResponse().setResponseCode(503));
+    mockWebServer.enqueue(new MockResponse().setResponseCode(503));
+    MpesaClientOptions options =
+        MpesaClientOptions.builder().retryPolicy(RetryPolicy.none()).build();
+    HedgePolicy hedgePolicy = HedgePolicy.builder().delay(Duration.ofMillis(10)).build();
+
+    CompletableFuture<StkStatusQueryResponse> future =
+        executor(options)
+            .executeHedgedAsync(
+                MpesaOperation.STK_QUERY, url, body, StkStatusQueryResponse.class, hedgePolicy);
+
+    ExecutionException exception =
+        assertThrows(ExecutionException.class, () -> future.get(5, TimeUnit.SECONDS));
+    assertInstanceOf(MpesaApiException.class, exception.getCause());
+    assertEquals(2, mockWebServer.getRequestCount());
+  }
+
+  @Test
+  @DisplayName("executeHedgedAsync should fail at once on an error a hedge cannot fix")
+  void executeHedgedAsync_whenErrorIsNotRetryable_failsWithoutHedging() {
+    mockWebServer.enqueue(new MockResponse().setResponseCode(400));
+    HedgePolicy hedgePolicy = HedgePolicy.builder().delay(Duration.ofSeconds(10)).build();
+
+    CompletableFuture<StkStatusQueryResponse> future =
+        executor(options())
+            .executeHedgedAsync(
+                MpesaOperation.STK_QUERY, url, body, StkStatusQueryResponse.class, hedgePolicy);
+
+    ExecutionException exception =
+        assertThrows(ExecutionException.class, () -> future.get(5, TimeUnit.SECONDS));
+    assertEquals(400, ((MpesaApiException) exception.getCause()).getStatusCode());
+  }
+
+  @Test
+  @DisplayName("isRetryable should reject auth, parsing and non-retryable status failures")
+  void isRetryable_classifiesFailures() {
+    RetryPolicy policy = RetryPolicy.defaults();
+    IOException networkError = new IOException("reset");
+
+    assertTrue(
+        MpesaCallExecutor.isRetryable(
+            MpesaOperation.STK_QUERY, policy, new MpesaException("x", networkError), true));
+    assertFalse(
+        MpesaCallExecutor.isRetryable(
+            MpesaOperation.STK_PUSH, policy, new MpesaException("x", networkError), true));
+    assertTrue(
+        MpesaCallExecutor.isRetryable(
+            MpesaOperation.STK_PUSH, policy, new MpesaException("x", networkError), false));
+    assertFalse(
+        MpesaCallExecutor.isRetryable(
+            MpesaOperation.STK_QUERY, policy, new MpesaAuthException("x", networkError), false));
+    assertFalse(
+        MpesaCallExecutor.isRetryable(
+            MpesaOperation.STK_QUERY,
+            policy,
+            new MpesaException("x", new JsonParseException(null, "bad")),
+            false));
+    assertFalse(
+        MpesaCallExecutor.isRetryable(
+            MpesaOperation.STK_QUERY, policy, new MpesaApiException("x", 500, "{}"), false));
+  }
+
+  private StkStatusQueryResponse query(MpesaCallExecutor executor) throws MpesaException {
+    return executor.execute(MpesaOperation.STK_QUERY, url, body, StkStatusQueryResponse.class);
+  }
+
+  private static MpesaClientOptions options() {
+    return MpesaClientOptions.builder().retryPolicy(FAST_RETRIES).build();
+  }
+
+  private MpesaCallExecutor executor(MpesaClientOptions options) {
+    return new MpesaCallExecutor(tokenManager, new OkHttpClient(), options, "174379");
+  }
+}
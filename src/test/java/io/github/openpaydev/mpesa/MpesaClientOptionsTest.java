@@ -0,0 +1,60 @@
+package io.github.openpaydev.mpesa;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.github.openpaydev.mpesa.core.MpesaOperation;
+import io.github.openpaydev.mpesa.core.codec.MpesaCodecs;
+import io.github.openpaydev.mpesa.resilience.AdaptiveConcurrencyLimiter;
+import io.github.openpaydev.mpesa.resilience.MpesaRateLimiter;
+import io.github.openpaydev.mpesa.resilience.RetryPolicy;
+import java.util.Map;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class MpesaClientOptionsTest {
+
+  @Test
+  @DisplayName("defaults() should use the shared codecs")
+  void defaults_useSharedCodecs() {
+    assertSame(MpesaCodecs.defaults(), MpesaClientOptions.defaults().getCodecs());
+    assertEquals(4, MpesaClientOptions.defaults().getWarmUpConnections());
+  }
+
+  @Test
+  @DisplayName("Builder should keep the codecs it is given")
+  void builder_setsCodecs() {
+    MpesaCodecs codecs = MpesaCodecs.of(new ObjectMapper());
+
+    assertSame(codecs, MpesaClientOptions.builder().codecs(codecs).build().getCodecs());
+  }
+
+  @Test
+  @DisplayName("retryPolicyFor should prefer the operation's own policy over the default")
+  void retryPolicyFor_prefersOperationPolicy() {
+    RetryPolicy fallback = RetryPolicy.defaults();
+    MpesaClientOptions options =
+        MpesaClientOptions.builder()
+            .retryPolicy(fallback)
+            .retryPolicies(Map.of(MpesaOperation.STK_PUSH, RetryPolicy.none()))
+            .build();
+
+    assertSame(fallback, options.retryPolicyFor(MpesaOperation.STK_QUERY));
+    assertEquals(1, options.retryPolicyFor(MpesaOperation.STK_PUSH).getMaxAttempts());
+    assertFalse(MpesaClientOptions.defaults().getStkQueryHedgePolicy().isEnabled());
+    assertSame(MpesaRateLimiter.unlimited(), MpesaClientOptions.defaults().getRateLimiter());
+    assertSame(
+        AdaptiveConcurrencyLimiter.unlimited(),
+        MpesaClientOptions.defaults().getConcurrencyLimiter());
+  }
+
+  @Test
+  @DisplayName("Builder should reject a negative number of warm-up connections")
+  void builder_withNegativeWarmUpConnections_throws() {
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> MpesaClientOptions.builder().warmUpConnections(-1).build());
+    assertEquals(
+        0, MpesaClientOptions.builder().warmUpConnections(0).build().getWarmUpConnections());
+  }
+}
@@ -1,14 +1,31 @@
 package io.github.openpaydev.mpesa;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.lenient;
 import static org.mockito.Mockito.when;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
 import io.github.openpaydev.mpesa.core.MpesaConfig;
 import io.github.openpaydev.mpesa.core.MpesaEnvironment;
 import io.github.openpaydev.mpesa.core.auth.TokenManager;
+import io.github.openpaydev.mpesa.core.codec.MpesaCodecs;
 import io.github.openpaydev.mpesa.core.exceptions.MpesaApiException;
+import io.github.openpaydev.mpesa.core.exceptions.MpesaAuthException;
+import io.github.openpaydev.mpesa.core.exceptions.MpesaException;
 import io.github.openpaydev.mpesa.core.models.*;
+import io.github.openpaydev.mpesa.core.utils.MpesaUtils;
+import io.github.openpaydev.mpesa.core.utils.StkCredentialProvider;
+import io.github.openpaydev.mpesa.resilience.IdempotencyPolicy;
+import io.github.openpaydev.mpesa.resilience.StkQueryCachePolicy;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 import okhttp3.OkHttpClient;
 import okhttp3.mockwebserver.MockResponse;
 import okhttp3.mockwebserver.MockWebServer;
@@ -41,7 +58,10 @@ class MpesaClientTest {
 
     when(mpesaConfig.getEnvironment()).thenReturn(mockEnvironment);
     when(mpesaConfig.getBusinessShortCode()).thenReturn("174379");
-    when(tokenManager.getAccessToken()).thenReturn("test-access-token");
+    lenient().when(tokenManager.getAccessToken()).thenReturn("test-access-token");
+    lenient()
+        .when(tokenManager.getAccessTokenAsync())
+        .thenReturn(CompletableFuture.completedFuture("test-access-token"));
 
     mpesaClient = new MpesaClient(mpesaConfig, tokenManager, new OkHttpClient());
   }
@@ -73,6 +93,31 @@ class MpesaClientTest {
     assertEquals("CRID_67890", actualResponse.getCheckoutRequestID());
   }
 
+  @Test
+  @DisplayName("stkPush should send the timestamp and password for the current second")
+  void stkPush_sendsTimestampAndPasswordFromCredentialProvider() throws Exception {
+    when(mockEnvironment.getStkPushUrl())
+        .thenReturn(mockWebServer.url("/mpesa/stkpush/v1/processrequest").toString());
+    when(mpesaConfig.getPassKey()).thenReturn("testPassKey");
+    Clock clock = Clock.fixed(Instant.parse("2025-10-21T07:59:21.500Z"), ZoneOffset.UTC);
+    MpesaClient client =
+        new MpesaClient(
+            mpesaConfig, tokenManager, new OkHttpClient(), new StkCredentialProvider(clock));
+    mockWebServer.enqueue(new MockResponse().setResponseCode(200).setBody("{}"));
+
+    client.stkPush(StkPushRequest.newPayBillRequest("100", "0712345678", "ref", "desc", "url"));
+
+    StkPushRequest sent =
+        objectMapper.readValue(
+            mockWebServer.takeRequest().getBody().readUtf8(), StkPushRequest.class);
+    assertEquals("20251021105921", sent.getTimestamp());
+    assertEquals(
+        MpesaUtils.generatePassword("174379", "testPassKey", "20251021105921"),
+        sent.getPassword());
+    assertEquals("254712345678", sent.getPartyA());
+    assertEquals("254712345678", sent.getPhoneNumber());
+  }
+
   @Test
   @DisplayName("queryStkStatus should construct the correct request and return a valid response")
   void queryStkStatus_onSuccess_returnsStatusResponse() throws Exception {
@@ -108,6 +153,70 @@ class MpesaClientTest {
     assertThrows(MpesaApiException.class, () -> mpesaClient.stkPush(userRequest));
   }
 
+  @Test
+  @DisplayName("queryStkStatus should keep the raw error body on MpesaApiException")
+  void queryStkStatus_whenApiReturnsError_keepsResponseBody() {
+    when(mockEnvironment.getStkQueryUrl())
+        .thenReturn(mockWebServer.url("/mpesa/stkpushquery/v1/query").toString());
+    when(mpesaConfig.getPassKey()).thenReturn("testPassKey");
+    String errorBody =
+        "{\"errorCode\":\"500.001.1001\",\"errorMessage\":\"The transaction is being processed\"}";
+    mockWebServer.enqueue(new MockResponse().setResponseCode(500).setBody(errorBody));
+
+    MpesaApiException exception =
+        assertThrows(MpesaApiException.class, () -> mpesaClient.queryStkStatus("ws_CO_123"));
+
+    assertEquals(500, exception.getStatusCode());
+    assertEquals(errorBody, exception.getResponseBody());
+  }
+
+  @Test
+  @DisplayName("queryStkStatus should retry when Daraja is temporarily unavailable")
+  void queryStkStatus_whenServiceUnavailable_retries() throws Exception {
+    when(mockEnvironment.getStkQueryUrl())
+        .thenReturn(mockWebServer.url("/mpesa/stkpushquery/v1/query").toString());
+    when(mpesaConfig.getPassKey()).thenReturn("testPassKey");
+    mockWebServer.enqueue(new MockResponse().setResponseCode(503));
+    mockWebServer.enqueue(
+        new MockResponse().setResponseCode(200).setBody("{\"ResultCode\":\"1032\"}"));
+
+    StkStatusQueryResponse response = mpesaClient.queryStkStatus("ws_CO_123");
+
+    assertEquals("1032", response.getResultCode());
+    assertEquals(2, mockWebServer.getRequestCount());
+  }
+
+  @Test
+  @DisplayName("stkPush should not be retried once Daraja has received it")
+  void stkPush_whenServiceUnavailable_isNotRetried() {
+    when(mockEnvironment.getStkPushUrl())
+        .thenReturn(mockWebServer.url("/mpesa/stkpush/v1/processrequest").toString());
+    when(mpesaConfig.getPassKey()).thenReturn("testPassKey");
+    StkPushRequest userRequest =
+        StkPushRequest.newPayBillRequest("100", "254712345678", "ref", "desc", "url");
+    mockWebServer.enqueue(new MockResponse().setResponseCode(503));
+
+    assertThrows(MpesaApiException.class, () -> mpesaClient.stkPush(userRequest));
+    assertEquals(1, mockWebServer.getRequestCount());
+  }
+
+  @Test
+  @DisplayName("stkPush should wrap an unparseable success body in MpesaException")
+  void stkPush_whenSuccessBodyIsMalformed_throwsMpesaException() {
+    when(mockEnvironment.getStkPushUrl())
+        .thenReturn(mockWebServer.url("/mpesa/stkpush/v1/processrequest").toString());
+    when(mpesaConfig.getPassKey()).thenReturn("testPassKey");
+    StkPushRequest userRequest =
+        StkPushRequest.newPayBillRequest("100", "254712345678", "ref", "desc", "url");
+    mockWebServer.enqueue(new MockResponse().setResponseCode(200).setBody("<html>oops</html>"));
+
+    MpesaException exception =
+        assertThrows(MpesaException.class, () -> mpesaClient.stkPush(userRequest));
+
+    assertFalse(exception instanceof MpesaApiException);
+    assertNotNull(exception.getCause());
+  }
+
   @Test
   @DisplayName("registerC2bUrl should construct the correct request and return a valid response")
   void registerC2bUrl_onSuccess_returnsValidResponse() throws Exception {
@@ -138,4 +247,343 @@ class MpesaClientTest {
         objectMapper.readValue(jsonBody, C2bRegisterUrlRequest.class);
     assertEquals("174379", sentRequest.getShortCode());
   }
+
+  @Test
+  @DisplayName("registerC2bUrl should serialize with the codecs from MpesaClientOptions")
+  void registerC2bUrl_withCustomCodecs_usesThem() throws Exception {
+    when(mockEnvironment.getC2bRegisterUrl())
+        .thenReturn(mockWebServer.url("/mpesa/c2b/v1/registerurl").toString());
+    MpesaCodecs codecs =
+        MpesaCodecs.of(new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT));
+    MpesaClient client =
+        new MpesaClient(
+            mpesaConfig,
+            tokenManager,
+            new OkHttpClient(),
+            MpesaClientOptions.builder().codecs(codecs).build());
+    mockWebServer.enqueue(new MockResponse().setResponseCode(200).setBody("{}"));
+
+    client.registerC2bUrl(
+        C2bRegisterUrlRequest.builder().responseType(C2bResponseType.Completed).build());
+
+    assertTrue(mockWebServer.takeRequest().getBody().readUtf8().contains("\n"));
+  }
+
+  @Test
+  @DisplayName("warmUp should fetch the token and open the configured number of connections")
+  void warmUp_opensConnectionsAndReportsPhases() throws Exception {
+    when(mockEnvironment.getStkPushUrl())
+        .thenReturn(mockWebServer.url("/mpesa/stkpush/v1/processrequest").toString());
+    MpesaClient client =
+        new MpesaClient(
+            mpesaConfig,
+            tokenManager,
+            new OkHttpClient(),
+            MpesaClientOptions.builder().warmUpConnections(3).build());
+    for (int i = 0; i < 3; i++) {
+      mockWebServer.enqueue(new MockResponse().setResponseCode(404));
+    }
+
+    MpesaWarmUpReport report = client.warmUp();
+
+    assertEquals(3, mockWebServer.getRequestCount());
+    for (int i = 0; i < 3; i++) {
+      RecordedRequest request = mockWebServer.takeRequest();
+      assertEquals("HEAD", request.getMethod());
+      assertEquals("/", request.getPath());
+    }
+    assertTrue(report.getPooledConnections() > 0);
+    assertTrue(report.getTotal().compareTo(report.getToken()) >= 0);
+    assertTrue(report.getTotal().compareTo(report.getConnections()) >= 0);
+    assertTrue(report.getTotal().compareTo(report.getCodecs()) >= 0);
+  }
+
+  @Test
+  @DisplayName("warmUp should fail with the token manager's error when no token can be obtained")
+  void warmUp_whenTokenFetchFails_throwsMpesaAuthException() {
+    when(mockEnvironment.getStkPushUrl())
+        .thenReturn(mockWebServer.url("/mpesa/stkpush/v1/processrequest").toString());
+    when(tokenManager.getAccessTokenAsync())
+        .thenReturn(CompletableFuture.failedFuture(new MpesaAuthException("denied", null)));
+    for (int i = 0; i < MpesaClientOptions.defaults().getWarmUpConnections(); i++) {
+      mockWebServer.enqueue(new MockResponse());
+    }
+
+    MpesaAuthException exception = assertThrows(MpesaAuthException.class, mpesaClient::warmUp);
+
+    assertEquals("denied", exception.getMessage());
+  }
+
+  @Test
+  @DisplayName("warmUpAsync should fail with MpesaException when the host cannot be reached")
+  void warmUpAsync_whenHostUnreachable_completesExceptionally() {
+    // Nothing listens on port 1, so every connection attempt is refused.
+    when(mockEnvironment.getStkPushUrl())
+        .thenReturn("http://localhost:1/mpesa/stkpush/v1/processrequest");
+
+    ExecutionException exception =
+        assertThrows(
+            ExecutionException.class, () -> mpesaClient.warmUpAsync().get(5, TimeUnit.SECONDS));
+
+    assertInstanceOf(MpesaException.class, exception.getCause());
+  }
+
+  @Test
+  @DisplayName("stkPushAsync should complete with the API response and send the bearer token")
+  void stkPushAsync_onSuccess_completesWithStkPushResponse() throws Exception {
+    when(mockEnvironment.getStkPushUrl())
+        .thenReturn(mockWebServer.url("/mpesa/stkpush/v1/processrequest").toString());
+    when(mpesaConfig.getPassKey()).thenReturn("testPassKey");
+
+    StkPushRequest userRequest =
+        StkPushRequest.newPayBillRequest("100", "0712345678", "ref", "desc", "url");
+    StkPushResponse apiResponse =
+        StkPushResponse.builder().checkoutRequestID("CRID_ASYNC").responseCode("0").build();
+    mockWebServer.enqueue(
+        new MockResponse()
+            .setResponseCode(200)
+            .setBody(objectMapper.writeValueAsString(apiResponse)));
+
+    StkPushResponse actualResponse = mpesaClient.stkPushAsync(userRequest).get(5, TimeUnit.SECONDS);
+
+    assertEquals("CRID_ASYNC", actualResponse.getCheckoutRequestID());
+    RecordedRequest recordedRequest = mockWebServer.takeRequest();
+    assertEquals("Bearer test-access-token", recordedRequest.getHeader("Authorization"));
+    StkPushRequest sentRequest =
+        objectMapper.readValue(recordedRequest.getBody().readUtf8(), StkPushRequest.class);
+    assertEquals("254712345678", sentRequest.getPhoneNumber());
+    assertEquals("174379", sentRequest.getPartyB());
+  }
+
+  @Test
+  @DisplayName("queryStkStatusAsync should complete with the status response")
+  void queryStkStatusAsync_onSuccess_completesWithStatusResponse() throws Exception {
+    when(mockEnvironment.getStkQueryUrl())
+        .thenReturn(mockWebServer.url("/mpesa/stkpushquery/v1/query").toString());
+    when(mpesaConfig.getPassKey()).thenReturn("testPassKey");
+
+    StkStatusQueryResponse apiResponse =
+        StkStatusQueryResponse.builder().resultCode("0").resultDesc("Success").build();
+    mockWebServer.enqueue(
+        new MockResponse()
+            .setResponseCode(200)
+            .setBody(objectMapper.writeValueAsString(apiResponse)));
+
+    StkStatusQueryResponse actualResponse =
+        mpesaClient.queryStkStatusAsync("CRID_67890").get(5, TimeUnit.SECONDS);
+
+    assertEquals("Success", actualResponse.getResultDesc());
+  }
+
+  @Test
+  @DisplayName("registerC2bUrlAsync should complete with the registration response")
+  void registerC2bUrlAsync_onSuccess_completesWithResponse() throws Exception {
+    when(mockEnvironment.getC2bRegisterUrl())
+        .thenReturn(mockWebServer.url("/mpesa/c2b/v1/registerurl").toString());
+
+    C2bRegisterUrlRequest userRequest =
+        C2bRegisterUrlRequest.builder()
+            .responseType(C2bResponseType.Completed)
+            .confirmationUrl("https://a.com")
+            .validationUrl("https://b.com")
+            .build();
+    C2bRegisterUrlResponse apiResponse =
+        C2bRegisterUrlResponse.builder().responseDescription("success").build();
+    mockWebServer.enqueue(
+        new MockResponse()
+            .setResponseCode(200)
+            .setBody(objectMapper.writeValueAsString(apiResponse)));
+
+    C2bRegisterUrlResponse actualResponse =
+        mpesaClient.registerC2bUrlAsync(userRequest).get(5, TimeUnit.SECONDS);
+
+    assertEquals("success", actualResponse.getResponseDescription());
+  }
+
+  @Test
+  @DisplayName("stkPushAsync should complete exceptionally with MpesaApiException on a non-200")
+  void stkPushAsync_whenApiReturnsError_completesWithMpesaApiException() {
+    when(mockEnvironment.getStkPushUrl())
+        .thenReturn(mockWebServer.url("/mpesa/stkpush/v1/processrequest").toString());
+    when(mpesaConfig.getPassKey()).thenReturn("testPassKey");
+
+    StkPushRequest userRequest =
+        StkPushRequest.newPayBillRequest("100", "254712345678", "ref", "desc", "url");
+    mockWebServer.enqueue(new MockResponse().setResponseCode(500).setBody("{}"));
+
+    ExecutionException exception =
+        assertThrows(
+            ExecutionException.class,
+            () -> mpesaClient.stkPushAsync(userRequest).get(5, TimeUnit.SECONDS));
+    MpesaApiException cause = assertInstanceOf(MpesaApiException.class, exception.getCause());
+    assertEquals(500, cause.getStatusCode());
+  }
+
+  @Test
+  @DisplayName("stkPushAsync should propagate token failures without calling the API")
+  void stkPushAsync_whenTokenFetchFails_completesWithMpesaAuthException() {
+    when(mockEnvironment.getStkPushUrl())
+        .thenReturn(mockWebServer.url("/mpesa/stkpush/v1/processrequest").toString());
+    when(mpesaConfig.getPassKey()).thenReturn("testPassKey");
+    when(tokenManager.getAccessTokenAsync())
+        .thenReturn(CompletableFuture.failedFuture(new MpesaAuthException("denied", null)));
+
+    StkPushRequest userRequest =
+        StkPushRequest.newPayBillRequest("100", "254712345678", "ref", "desc", "url");
+
+    ExecutionException exception =
+        assertThrows(
+            ExecutionException.class,
+            () -> mpesaClient.stkPushAsync(userRequest).get(5, TimeUnit.SECONDS));
+    assertInstanceOf(MpesaAuthException.class, exception.getCause());
+    assertEquals(0, mockWebServer.getRequestCount());
+  }
+
+  @Test
+  @DisplayName("stkPushAsync should fail fast for an invalid phone number")
+  void stkPushAsync_withInvalidPhoneNumber_completesWithIllegalArgumentException() {
+    when(mpesaConfig.getPassKey()).thenReturn("testPassKey");
+
+    StkPushRequest userRequest =
+        StkPushRequest.newPayBillRequest("100", "12345", "ref", "desc", "url");
+
+    CompletableFuture<StkPushResponse> future = mpesaClient.stkPushAsync(userRequest);
+
+    assertTrue(future.isCompletedExceptionally());
+    ExecutionException exception = assertThrows(ExecutionException.class, future::get);
+    assertInstanceOf(IllegalArgumentException.class, exception.getCause());
+  }
+
+  @Test
+  @DisplayName("stkPush with an idempotency key should call Daraja once and reuse the response")
+  void stkPush_withSameIdempotencyKey_callsDarajaOnce() throws Exception {
+    when(mockEnvironment.getStkPushUrl())
+        .thenReturn(mockWebServer.url("/mpesa/stkpush/v1/processrequest").toString());
+    when(mpesaConfig.getPassKey()).thenReturn("testPassKey");
+    StkPushRequest userRequest =
+        StkPushRequest.newPayBillRequest("100", "0712345678", "order-1", "desc", "url");
+    StkPushResponse apiResponse =
+        StkPushResponse.builder().checkoutRequestID("CRID_ONCE").responseCode("0").build();
+    mockWebServer.enqueue(
+        new MockResponse()
+            .setResponseCode(200)
+            .setBody(objectMapper.writeValueAsString(apiResponse)));
+
+    StkPushResponse first = mpesaClient.stkPush(userRequest, "order-1");
+    StkPushResponse second = mpesaClient.stkPush(userRequest, "order-1");
+
+    assertEquals("CRID_ONCE", first.getCheckoutRequestID());
+    assertEquals(first, second);
+    assertEquals(1, mockWebServer.getRequestCount());
+  }
+
+  @Test
+  @DisplayName("stkPushAsync should share one in-flight call between identical submissions")
+  void stkPushAsync_withDerivedKeys_sharesInFlightCall() throws Exception {
+    when(mockEnvironment.getStkPushUrl())
+        .thenReturn(mockWebServer.url("/mpesa/stkpush/v1/processrequest").toString());
+    when(mpesaConfig.getPassKey()).thenReturn("testPassKey");
+    MpesaClient client =
+        new MpesaClient(
+            mpesaConfig,
+            tokenManager,
+            new OkHttpClient(),
+            MpesaClientOptions.builder()
+                .stkPushIdempotency(IdempotencyPolicy.builder().deriveKeys(true).build())
+                .build());
+    StkPushResponse apiResponse =
+        StkPushResponse.builder().checkoutRequestID("CRID_SHARED").responseCode("0").build();
+    mockWebServer.enqueue(
+        new MockResponse()
+            .setResponseCode(200)
+            .setBody(objectMapper.writeValueAsString(apiResponse))
+            .setBodyDelay(200, TimeUnit.MILLISECONDS));
+    mockWebServer.enqueue(new MockResponse().setResponseCode(200).setBody("{}"));
+
+    CompletableFuture<StkPushResponse> first =
+        client.stkPushAsync(
+            StkPushRequest.newPayBillRequest("100", "0712345678", "order-1", "desc", "url"));
+    CompletableFuture<StkPushResponse> second =
+        client.stkPushAsync(
+            StkPushRequest.newPayBillRequest("100", "+254712345678", "order-1", "desc", "url"));
+    assertNotNull(mockWebServer.takeRequest(5, TimeUnit.SECONDS));
+    client.stkPush(StkPushRequest.newPayBillRequest("200", "0712345678", "order-1", "d", "url"));
+
+    assertEquals("CRID_SHARED", first.get(5, TimeUnit.SECONDS).getCheckoutRequestID());
+    assertEquals("CRID_SHARED", second.get(5, TimeUnit.SECONDS).getCheckoutRequestID());
+    assertEquals(2, mockWebServer.getRequestCount());
+  }
+
+  @Test
+  @DisplayName("Concurrent queries for a checkout should share one call and keep a final result")
+  void queryStkStatusAsync_concurrently_sharesOneCallAndKeepsFinalResult() throws Exception {
+    when(mockEnvironment.getStkQueryUrl())
+        .thenReturn(mockWebServer.url("/mpesa/stkpushquery/v1/query").toString());
+    when(mpesaConfig.getPassKey()).thenReturn("testPassKey");
+    mockWebServer.enqueue(
+        new MockResponse()
+            .setResponseCode(200)
+            .setBody("{\"ResultCode\":\"1032\"}")
+            .setBodyDelay(200, TimeUnit.MILLISECONDS));
+
+    CompletableFuture<StkStatusQueryResponse> orders = mpesaClient.queryStkStatusAsync("ws_CO_1");
+    CompletableFuture<StkStatusQueryResponse> notifier = mpesaClient.queryStkStatusAsync("ws_CO_1");
+
+    assertEquals("1032", orders.get(5, TimeUnit.SECONDS).getResultCode());
+    assertEquals("1032", notifier.get(5, TimeUnit.SECONDS).getResultCode());
+    assertEquals("1032", mpesaClient.queryStkStatus("ws_CO_1").getResultCode());
+    assertEquals(1, mockWebServer.getRequestCount());
+  }
+
+  @Test
+  @DisplayName("A pending query result should only be kept for the pending TTL")
+  void queryStkStatus_whenPending_queriesAgainAfterTtl() throws Exception {
+    when(mockEnvironment.getStkQueryUrl())
+        .thenReturn(mockWebServer.url("/mpesa/stkpushquery/v1/query").toString());
+    when(mpesaConfig.getPassKey()).thenReturn("testPassKey");
+    MpesaClient client =
+        new MpesaClient(
+            mpesaConfig,
+            tokenManager,
+            new OkHttpClient(),
+            MpesaClientOptions.builder()
+                .stkQueryCache(
+                    StkQueryCachePolicy.builder().pendingResultTtl(Duration.ZERO).build())
+                .build());
+    mockWebServer.enqueue(new MockResponse().setResponseCode(200).setBody("{}"));
+    mockWebServer.enqueue(
+        new MockResponse().setResponseCode(200).setBody("{\"ResultCode\":\"0\"}"));
+
+    assertNull(client.queryStkStatus("ws_CO_1").getResultCode());
+    assertEquals("0", client.queryStkStatus("ws_CO_1").getResultCode());
+    assertEquals("0", client.queryStkStatus("ws_CO_1").getResultCode());
+    assertEquals(2, mockWebServer.getRequestCount());
+  }
+
+  @Test
+  @DisplayName("queryStkStatus should send a query it starts on the calling thread")
+  void queryStkStatus_withCache_sendsOnCallingThread() throws Exception {
+    when(mockEnvironment.getStkQueryUrl())
+        .thenReturn(mockWebServer.url("/mpesa/stkpushquery/v1/query").toString());
+    when(mpesaConfig.getPassKey()).thenReturn("testPassKey");
+    AtomicReference<Thread> sender = new AtomicReference<>();
+    MpesaClient client =
+        new MpesaClient(
+            mpesaConfig,
+            tokenManager,
+            new OkHttpClient.Builder()
+                .addInterceptor(
+                    chain -> {
+                      sender.set(Thread.currentThread());
+                      return chain.proceed(chain.request());
+                    })
+                .build());
+    mockWebServer.enqueue(
+        new MockResponse().setResponseCode(200).setBody("{\"ResultCode\":\"0\"}"));
+
+    assertEquals("0", client.queryStkStatus("ws_CO_1").getResultCode());
+    assertSame(Thread.currentThread(), sender.get());
+    assertEquals("0", client.queryStkStatus("ws_CO_1").getResultCode());
+    assertEquals(1, mockWebServer.getRequestCount());
+  }
 }
@@ -0,0 +1,110 @@
+package io.github.openpaydev.mpesa;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.github.openpaydev.mpesa.core.models.StkPushRequest;
+import io.github.openpaydev.mpesa.core.utils.StkCredentialProvider;
+import java.nio.charset.StandardCharsets;
+import okio.Buffer;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+class StkPushRequestEncoderTest {
+
+  private static final StkCredentialProvider.Credentials CREDENTIALS =
+      new StkCredentialProvider.Credentials("20251021105921", "cGFzc3dvcmQ=");
+
+  private final ObjectMapper objectMapper = new ObjectMapper();
+
+  @Test
+  @DisplayName("Should encode a PayBill request to the golden JSON")
+  void encode_payBillRequest_matchesGoldenJson() {
+    StkPushRequest request =
+        StkPushRequest.newPayBillRequest(
+            "1", "0712345678", "INV-001", "Payment", "https://example.com/callback");
+
+    String json = encode(request, "174379", "254712345678", "254712345678");
+
+    assertEquals(
+        "{\"BusinessShortCode\":\"174379\",\"Password\":\"cGFzc3dvcmQ=\","
+            + "\"Timestamp\":\"20251021105921\",\"TransactionType\":\"CustomerPayBillOnline\","
+            + "\"Amount\":\"1\",\"PartyA\":\"254712345678\",\"PartyB\":\"174379\","
+            + "\"PhoneNumber\":\"254712345678\",\"CallBackURL\":\"https://example.com/callback\","
+            + "\"AccountReference\":\"INV-001\",\"TransactionDesc\":\"Payment\"}",
+        json);
+  }
+
+  @Test
+  @DisplayName("Should match Jackson byte for byte on a PayBill request")
+  void encode_payBillRequest_matchesJackson() throws Exception {
+    StkPushRequest request =
+        StkPushRequest.newPayBillRequest(
+            "1", "0712345678", "INV-001", "Payment", "https://example.com/callback");
+
+    assertMatchesJackson(request, "174379", "254712345678", "254712345678");
+  }
+
+  @Test
+  @DisplayName("Should write null for absent fields, as Jackson does")
+  void encode_withNullFields_matchesJackson() throws Exception {
+    StkPushRequest request = StkPushRequest.builder().amount("10").build();
+
+    assertMatchesJackson(request, "174379", "254712345678", null);
+  }
+
+  @ParameterizedTest
+  @ValueSource(
+      strings = {
+        "quote \" and backslash \\",
+        "new\nline, tab\t, return\r, backspace\b, form feed\f",
+        "control \u0000\u0001\u001f and delete \u007f",
+        "slash / stays unescaped",
+        "Malipo ya bidhaa – ₭ é 😀",
+        "lone surrogate \ud800 here",
+        ""
+      })
+  @DisplayName("Should escape strings exactly as Jackson does")
+  void encode_withSpecialCharacters_matchesJackson(String value) throws Exception {
+    StkPushRequest request =
+        StkPushRequest.builder()
+            .transactionType("CustomerPayBillOnline")
+            .amount(value)
+            .accountReference(value)
+            .transactionDesc(value)
+            .callBackURL(value)
+            .build();
+
+    assertMatchesJackson(request, "174379", value, "254712345678");
+  }
+
+  private void assertMatchesJackson(
+      StkPushRequest request, String shortCode, String partyA, String phoneNumber)
+      throws Exception {
+    StkPushRequest filledIn =
+        request.toBuilder()
+            .businessShortCode(shortCode)
+            .password(CREDENTIALS.getPassword())
+            .timestamp(CREDENTIALS.getTimestamp())
+            .partyA(partyA)
+            .partyB(shortCode)
+            .phoneNumber(phoneNumber)
+            .build();
+    // MpesaClient used to send writeValueAsString(...) encoded as UTF-8.
+    byte[] expected = objectMapper.writeValueAsString(filledIn).getBytes(StandardCharsets.UTF_8);
+
+    Buffer buffer = new Buffer();
+    StkPushRequestEncoder.encode(request, shortCode, CREDENTIALS, partyA, phoneNumber, buffer);
+
+    assertArrayEquals(expected, buffer.readByteArray());
+  }
+
+  private static String encode(
+      StkPushRequest request, String shortCode, String partyA, String phoneNumber) {
+    Buffer buffer = new Buffer();
+    StkPushRequestEncoder.encode(request, shortCode, CREDENTIALS, partyA, phoneNumber, buffer);
+    return buffer.readUtf8();
+  }
+}
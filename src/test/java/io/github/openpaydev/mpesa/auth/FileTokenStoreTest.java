@@ -0,0 +1,185 @@
+package io.github.openpaydev.mpesa.auth;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import io.github.openpaydev.mpesa.core.auth.CachedToken;
+import io.github.openpaydev.mpesa.core.auth.TokenStore;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class FileTokenStoreTest {
+
+  @TempDir Path dir;
+
+  @Test
+  @DisplayName("Should return null from a freshly created file")
+  void load_onNewFile_returnsNull() throws IOException {
+    try (FileTokenStore store = FileTokenStore.open(dir.resolve("token"))) {
+      assertNull(store.load());
+    }
+  }
+
+  @Test
+  @DisplayName("Should round-trip a token between two stores on the same file")
+  void save_isVisibleToOtherStoreOnSameFile() throws IOException {
+    try (FileTokenStore writer = FileTokenStore.open(dir.resolve("token"));
+        FileTokenStore reader = FileTokenStore.open(dir.resolve("token"))) {
+      writer.save(new CachedToken("firstToken", 1000L));
+      assertEquals(new CachedToken("firstToken", 1000L), reader.load());
+
+      writer.save(new CachedToken("second", 2000L));
+      assertEquals(new CachedToken("second", 2000L), reader.load());
+      assertSame(reader.load(), reader.load(), "An unchanged record should not be decoded again.");
+    }
+  }
+
+  @Test
+  @DisplayName("Should keep the token after the file is closed and reopened")
+  void save_persistsAcrossReopen() throws IOException {
+    try (FileTokenStore store = FileTokenStore.open(dir.resolve("token"))) {
+      store.save(new CachedToken("durableToken", 42L));
+    }
+    try (FileTokenStore store = FileTokenStore.open(dir.resolve("token"))) {
+      assertEquals(new CachedToken("durableToken", 42L), store.load());
+    }
+  }
+
+  @Test
+  @DisplayName("Should reject a token that does not fit in the file")
+  void save_withOversizedToken_throwsIllegalArgumentException() throws IOException {
+    try (FileTokenStore store = FileTokenStore.open(dir.resolve("token"))) {
+      String oversized = "x".repeat(FileTokenStore.MAX_TOKEN_BYTES + 1);
+      assertThrows(
+          IllegalArgumentException.class, () -> store.save(new CachedToken(oversized, 1L)));
+      assertNull(store.load(), "A rejected save should leave the record untouched.");
+    }
+  }
+
+  @Test
+  @DisplayName("Concurrent saves from two stores on the same file should never tear the record")
+  void save_concurrentlyFromTwoStores_neverTearsTheRecord() throws Exception {
+    try (FileTokenStore first = FileTokenStore.open(dir.resolve("token"));
+        FileTokenStore second = FileTokenStore.open(dir.resolve("token"))) {
+      List<Thread> writers = new ArrayList<>();
+      for (FileTokenStore store : List.of(first, second, first, second)) {
+        Thread writer =
+            new Thread(
+                () -> {
+                  for (int i = 1; i <= 20_000; i++) {
+                    // Tokens of different lengths, so a torn record shows as a mismatch.
+                    long expiry = ThreadLocalRandom.current().nextLong(1, 1_000_000);
+                    store.save(new CachedToken("t".repeat((int) (expiry % 50)) + expiry, expiry));
+                  }
+                });
+        writers.add(writer);
+        writer.start();
+      }
+
+      while (writers.stream().anyMatch(Thread::isAlive)) {
+        CachedToken token = first.load();
+        if (token != null) {
+          String expiry = Long.toString(token.getExpiryTime());
+          assertEquals("t".repeat((int) (token.getExpiryTime() % 50)) + expiry, token.getValue());
+        }
+      }
+      for (Thread writer : writers) {
+        writer.join();
+      }
+    }
+  }
+
+  @Test
+  @DisplayName("Should grant the refresh lock to only one store at a time")
+  void tryLockRefresh_isExclusiveAcrossStores() throws IOException {
+    try (FileTokenStore first = FileTokenStore.open(dir.resolve("token"));
+        FileTokenStore second = FileTokenStore.open(dir.resolve("token"))) {
+      TokenStore.RefreshLock lock = first.tryLockRefresh();
+      assertNotNull(lock);
+      assertNull(second.tryLockRefresh());
+      assertNull(first.tryLockRefresh());
+
+      lock.close();
+      TokenStore.RefreshLock next = second.tryLockRefresh();
+      assertNotNull(next);
+      next.close();
+    }
+  }
+
+  @Test
+  @DisplayName("Should share the token and the refresh lock with another JVM")
+  void store_isSharedWithAnotherProcess() throws Exception {
+    Path file = dir.resolve("token");
+    try (FileTokenStore store = FileTokenStore.open(file)) {
+      store.save(new CachedToken("parentToken", 1000L));
+      assertEquals("parentToken 1000", runChild(file, "read"));
+
+      TokenStore.RefreshLock lock = store.tryLockRefresh();
+      assertNotNull(lock);
+      assertEquals("busy", runChild(file, "lock"));
+      lock.close();
+      assertEquals("acquired", runChild(file, "lock"));
+
+      assertEquals("saved", runChild(file, "save", "childToken", "2000"));
+      assertEquals(new CachedToken("childToken", 2000L), store.load());
+    }
+  }
+
+  /** Runs {@link ChildProcess} in a separate JVM and returns what it printed. */
+  private static String runChild(Path file, String... args) throws Exception {
+    List<String> command = new ArrayList<>();
+    command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+    command.add("-cp");
+    command.add(
+        codeSource(FileTokenStore.class) + File.pathSeparator + codeSource(ChildProcess.class));
+    command.add(ChildProcess.class.getName());
+    command.add(file.toString());
+    command.addAll(List.of(args));
+
+    Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+    assertTrue(process.waitFor(30, TimeUnit.SECONDS), "The child JVM should exit.");
+    String output = new String(process.getInputStream().readAllBytes(), StandardCharsets.UTF_8);
+    assertEquals(0, process.exitValue(), output);
+    return output.trim();
+  }
+
+  private static String codeSource(Class<?> type) throws Exception {
+    return Paths.get(type.getProtectionDomain().getCodeSource().getLocation().toURI()).toString();
+  }
+
+  /** The entry point of the child JVM: {@code <file> read | lock | save <token> <expiry>}. */
+  static final class ChildProcess {
+    public static void main(String[] args) throws IOException {
+      try (FileTokenStore store = FileTokenStore.open(Paths.get(args[0]))) {
+        switch (args[1]) {
+          case "read":
+            CachedToken token = store.load();
+            System.out.println(token.getValue() + " " + token.getExpiryTime());
+            break;
+          case "lock":
+            TokenStore.RefreshLock lock = store.tryLockRefresh();
+            System.out.println(lock == null ? "busy" : "acquired");
+            if (lock != null) {
+              lock.close();
+            }
+            break;
+          case "save":
+            store.save(new CachedToken(args[2], Long.parseLong(args[3])));
+            System.out.println("saved");
+            break;
+          default:
+            throw new IllegalArgumentException("Unknown command: " + args[1]);
+        }
+      }
+    }
+  }
+}
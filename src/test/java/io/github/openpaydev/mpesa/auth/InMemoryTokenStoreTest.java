@@ -0,0 +1,35 @@
+package io.github.openpaydev.mpesa.auth;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import io.github.openpaydev.mpesa.core.auth.CachedToken;
+import io.github.openpaydev.mpesa.core.auth.TokenStore;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class InMemoryTokenStoreTest {
+
+  @Test
+  @DisplayName("Should return null until a token is saved, then the latest token")
+  void load_returnsLatestSavedToken() {
+    InMemoryTokenStore store = new InMemoryTokenStore();
+    assertNull(store.load());
+
+    store.save(new CachedToken("first", 1L));
+    store.save(new CachedToken("second", 2L));
+    assertEquals(new CachedToken("second", 2L), store.load());
+  }
+
+  @Test
+  @DisplayName("Should always grant the refresh lock")
+  void tryLockRefresh_alwaysGrantsLock() {
+    InMemoryTokenStore store = new InMemoryTokenStore();
+    TokenStore.RefreshLock first = store.tryLockRefresh();
+    TokenStore.RefreshLock second = store.tryLockRefresh();
+
+    assertNotNull(first);
+    assertNotNull(second);
+    first.close();
+    second.close();
+  }
+}
@@ -1,19 +1,29 @@
 package io.github.openpaydev.mpesa.auth;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.lenient;
 import static org.mockito.Mockito.mock;
-import static org.mockito.Mockito.when;
 
+import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import io.github.openpaydev.mpesa.core.MpesaConfig;
 import io.github.openpaydev.mpesa.core.MpesaEnvironment;
+import io.github.openpaydev.mpesa.core.auth.CachedToken;
+import io.github.openpaydev.mpesa.core.auth.TokenStore;
+import io.github.openpaydev.mpesa.core.codec.MpesaCodecs;
 import io.github.openpaydev.mpesa.core.exceptions.MpesaAuthException;
 import io.github.openpaydev.mpesa.core.models.AccessTokenResponse;
 import java.io.IOException;
-import java.lang.reflect.Field;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
 import java.util.ArrayList;
 import java.util.Base64;
+import java.util.Comparator;
 import java.util.List;
 import java.util.concurrent.*;
 import okhttp3.OkHttpClient;
@@ -26,6 +36,7 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
@@ -34,6 +45,7 @@ class MpesaTokenManagerTest {
 
   private MpesaTokenManager tokenManager;
   private MockWebServer mockWebServer;
+  private MutableClock clock;
   private final ObjectMapper objectMapper = new ObjectMapper();
 
   @Mock private MpesaConfig mpesaConfig;
@@ -44,13 +56,15 @@ class MpesaTokenManagerTest {
     mockWebServer.start();
 
     MpesaEnvironment mockEnvironment = mock(MpesaEnvironment.class);
-    when(mockEnvironment.getAuthUrl()).thenReturn(mockWebServer.url("/").toString());
-    when(mpesaConfig.getEnvironment()).thenReturn(mockEnvironment);
+    // Lenient: tests whose token comes from a shared store never build an OAuth request.
+    lenient().when(mockEnvironment.getAuthUrl()).thenReturn(mockWebServer.url("/").toString());
+    lenient().when(mpesaConfig.getEnvironment()).thenReturn(mockEnvironment);
 
-    when(mpesaConfig.getConsumerKey()).thenReturn("testKey");
-    when(mpesaConfig.getConsumerSecret()).thenReturn("testSecret");
+    lenient().when(mpesaConfig.getConsumerKey()).thenReturn("testKey");
+    lenient().when(mpesaConfig.getConsumerSecret()).thenReturn("testSecret");
 
-    tokenManager = new MpesaTokenManager(mpesaConfig, new OkHttpClient());
+    clock = new MutableClock(Instant.parse("2025-01-01T00:00:00Z"));
+    tokenManager = new MpesaTokenManager(mpesaConfig, new OkHttpClient(), clock);
   }
 
   @AfterEach
@@ -108,6 +122,24 @@ class MpesaTokenManagerTest {
         "All threads should complete without exceptions and receive the token.");
   }
 
+  @Test
+  @DisplayName("Should read the token response with the supplied codecs")
+  void getAccessToken_withCustomCodecs_usesThem() throws Exception {
+    MpesaCodecs codecs =
+        MpesaCodecs.of(new ObjectMapper().enable(DeserializationFeature.UNWRAP_ROOT_VALUE));
+    MpesaTokenManager manager =
+        new MpesaTokenManager(mpesaConfig, new OkHttpClient(), new InMemoryTokenStore(), codecs);
+    AccessTokenResponse apiResponse =
+        AccessTokenResponse.builder().accessToken("wrappedToken").expiresIn(3599L).build();
+    mockWebServer.enqueue(
+        new MockResponse()
+            .setResponseCode(200)
+            .setBody(
+                "{\"AccessTokenResponse\":" + objectMapper.writeValueAsString(apiResponse) + "}"));
+
+    assertEquals("wrappedToken", manager.getAccessToken());
+  }
+
   @Test
   @DisplayName("Should throw MpesaAuthException on API error (e.g., 401)")
   void getAccessToken_whenApiReturnsError_throwsMpesaAuthException() {
@@ -123,6 +155,7 @@ class MpesaTokenManagerTest {
             "Expected MpesaAuthException for non-successful API response.");
 
     assertTrue(exception.getMessage().contains("Failed to get access token. Status: 401"));
+    assertTrue(exception.getMessage().contains("Invalid credentials"));
     assertNull(exception.getCause(), "Cause should be null for an API error, not a network error.");
   }
 
@@ -200,9 +233,7 @@ class MpesaTokenManagerTest {
     tokenManager.getAccessToken();
     assertEquals(1, mockWebServer.getRequestCount());
 
-    Field expiryTimeField = MpesaTokenManager.class.getDeclaredField("expiryTime");
-    expiryTimeField.setAccessible(true);
-    expiryTimeField.set(tokenManager, System.currentTimeMillis() - 1);
+    clock.advanceSeconds(3601);
 
     AccessTokenResponse refreshResponse =
         AccessTokenResponse.builder().accessToken("refreshedToken").expiresIn(3600L).build();
@@ -219,4 +250,474 @@ class MpesaTokenManagerTest {
         mockWebServer.getRequestCount(),
         "API should be called a second time to refresh the token.");
   }
+
+  @Test
+  @DisplayName("getAccessTokenAsync should fetch a token once and serve later calls from cache")
+  void getAccessTokenAsync_fetchesOnceThenUsesCache() throws Exception {
+    AccessTokenResponse apiResponse =
+        AccessTokenResponse.builder().accessToken("asyncToken").expiresIn(3599L).build();
+    mockWebServer.enqueue(
+        new MockResponse()
+            .setResponseCode(200)
+            .setBody(objectMapper.writeValueAsString(apiResponse)));
+
+    assertEquals("asyncToken", tokenManager.getAccessTokenAsync().get(5, TimeUnit.SECONDS));
+
+    CompletableFuture<String> cached = tokenManager.getAccessTokenAsync();
+    assertTrue(cached.isDone(), "A valid cached token should be returned without a network call.");
+    assertEquals("asyncToken", cached.get());
+    assertEquals("asyncToken", tokenManager.getAccessToken());
+    assertEquals(1, mockWebServer.getRequestCount());
+  }
+
+  @Test
+  @DisplayName("Concurrent getAccessTokenAsync calls should share a single OAuth request")
+  void getAccessTokenAsync_concurrentCalls_shareSingleRequest() throws Exception {
+    AccessTokenResponse apiResponse =
+        AccessTokenResponse.builder().accessToken("sharedToken").expiresIn(3599L).build();
+    mockWebServer.enqueue(
+        new MockResponse()
+            .setResponseCode(200)
+            .setHeadersDelay(200, TimeUnit.MILLISECONDS)
+            .setBody(objectMapper.writeValueAsString(apiResponse)));
+
+    List<CompletableFuture<String>> futures = new ArrayList<>();
+    for (int i = 0; i < 10; i++) {
+      futures.add(tokenManager.getAccessTokenAsync());
+    }
+
+    for (CompletableFuture<String> future : futures) {
+      assertEquals("sharedToken", future.get(5, TimeUnit.SECONDS));
+    }
+    assertEquals(1, mockWebServer.getRequestCount());
+  }
+
+  @Test
+  @DisplayName("getAccessTokenAsync should complete exceptionally with MpesaAuthException on 401")
+  void getAccessTokenAsync_whenApiReturnsError_completesWithMpesaAuthException() {
+    mockWebServer.enqueue(
+        new MockResponse()
+            .setResponseCode(401)
+            .setBody("{\"errorMessage\":\"Invalid credentials\"}"));
+
+    ExecutionException exception =
+        assertThrows(
+            ExecutionException.class,
+            () -> tokenManager.getAccessTokenAsync().get(5, TimeUnit.SECONDS));
+
+    MpesaAuthException cause = assertInstanceOf(MpesaAuthException.class, exception.getCause());
+    assertTrue(cause.getMessage().contains("Failed to get access token. Status: 401"));
+  }
+
+  @Test
+  @DisplayName("Should keep serving the old token while a single caller refreshes it early")
+  void getAccessToken_insideExpiryBuffer_servesOldTokenDuringSingleRefresh() throws Exception {
+    mockWebServer.enqueue(tokenResponse("oldToken", 3600L));
+    assertEquals("oldToken", tokenManager.getAccessToken());
+
+    clock.advanceSeconds(3600 - 30);
+    mockWebServer.enqueue(
+        tokenResponse("newToken", 3600L).setHeadersDelay(500, TimeUnit.MILLISECONDS));
+
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      Future<String> refresher = executor.submit(() -> tokenManager.getAccessToken());
+      mockWebServer.takeRequest();
+      assertNotNull(
+          mockWebServer.takeRequest(5, TimeUnit.SECONDS), "The refresh should be in flight.");
+
+      long start = System.nanoTime();
+      assertEquals("oldToken", tokenManager.getAccessToken());
+      assertTrue(
+          TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 250,
+          "Followers must not wait for a refresh while the old token is still usable.");
+
+      assertEquals("newToken", refresher.get(5, TimeUnit.SECONDS));
+      assertEquals("newToken", tokenManager.getAccessToken());
+      assertEquals(2, mockWebServer.getRequestCount());
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  @DisplayName("Callers should share one refresh once the cached token has fully expired")
+  void getAccessToken_afterExpiry_sharesSingleRefreshAcrossThreads() throws Exception {
+    mockWebServer.enqueue(tokenResponse("expiredToken", 3600L));
+    tokenManager.getAccessToken();
+    clock.advanceSeconds(3601);
+    mockWebServer.enqueue(
+        tokenResponse("refreshedToken", 3600L).setHeadersDelay(200, TimeUnit.MILLISECONDS));
+
+    int threadCount = 16;
+    ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+    try {
+      CyclicBarrier gate = new CyclicBarrier(threadCount);
+      List<Future<String>> futures = new ArrayList<>();
+      for (int i = 0; i < threadCount; i++) {
+        futures.add(
+            executor.submit(
+                () -> {
+                  gate.await();
+                  return tokenManager.getAccessToken();
+                }));
+      }
+
+      for (Future<String> future : futures) {
+        assertEquals("refreshedToken", future.get(5, TimeUnit.SECONDS));
+      }
+      assertEquals(2, mockWebServer.getRequestCount());
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  @DisplayName("A failed refresh should be reported to every waiting caller and then retried")
+  void getAccessToken_whenSharedRefreshFails_nextCallRetries() throws Exception {
+    mockWebServer.enqueue(new MockResponse().setResponseCode(503).setBody("unavailable"));
+    assertThrows(MpesaAuthException.class, () -> tokenManager.getAccessToken());
+
+    mockWebServer.enqueue(tokenResponse("recoveredToken", 3600L));
+    assertEquals("recoveredToken", tokenManager.getAccessToken());
+    assertEquals(2, mockWebServer.getRequestCount());
+  }
+
+  @Test
+  @DisplayName("Background refresh should prefetch and then renew ahead of expiry on virtual time")
+  void backgroundRefresh_renewsAheadOfExpiry() throws Exception {
+    VirtualScheduler scheduler = new VirtualScheduler(clock);
+    mockWebServer.enqueue(tokenResponse("firstToken", 3600L));
+    mockWebServer.enqueue(tokenResponse("secondToken", 3600L));
+
+    tokenManager.enableBackgroundRefresh(scheduler, Duration.ofMinutes(5), Duration.ZERO);
+    assertEquals(0, scheduler.nextDelayMillis(), "With no token, the first fetch runs at once.");
+
+    scheduler.runNext();
+    assertEquals(Duration.ofMinutes(55).toMillis(), scheduler.awaitNextDelayMillis());
+    assertEquals("firstToken", tokenManager.getAccessToken());
+
+    scheduler.runNext();
+    assertEquals(Duration.ofMinutes(55).toMillis(), scheduler.awaitNextDelayMillis());
+    assertEquals("secondToken", tokenManager.getAccessToken());
+    assertEquals(2, mockWebServer.getRequestCount(), "Request threads never hit the endpoint.");
+  }
+
+  @Test
+  @DisplayName("Background refresh should jitter each delay within the configured bound")
+  void backgroundRefresh_appliesJitterWithinBound() throws Exception {
+    VirtualScheduler scheduler = new VirtualScheduler(clock);
+    mockWebServer.enqueue(tokenResponse("jitteredToken", 3600L));
+
+    tokenManager.enableBackgroundRefresh(scheduler, Duration.ofMinutes(5), Duration.ofSeconds(30));
+    scheduler.runNext();
+
+    long delay = scheduler.awaitNextDelayMillis();
+    assertTrue(
+        delay >= Duration.ofMinutes(55).minusSeconds(30).toMillis()
+            && delay <= Duration.ofMinutes(55).toMillis(),
+        "Delay " + delay + " should lie within the jitter window.");
+  }
+
+  @Test
+  @DisplayName("Background refresh should back off on failure while serving the old token")
+  void backgroundRefresh_onFailure_backsOffAndKeepsOldToken() throws Exception {
+    VirtualScheduler scheduler = new VirtualScheduler(clock);
+    mockWebServer.enqueue(tokenResponse("oldToken", 3600L));
+    mockWebServer.enqueue(new MockResponse().setResponseCode(503).setBody("unavailable"));
+    mockWebServer.enqueue(new MockResponse().setResponseCode(503).setBody("unavailable"));
+    mockWebServer.enqueue(tokenResponse("newToken", 3600L));
+
+    tokenManager.enableBackgroundRefresh(scheduler, Duration.ofMinutes(5), Duration.ZERO);
+    scheduler.runNext();
+    scheduler.awaitNextDelayMillis();
+
+    scheduler.runNext();
+    long firstBackoff = scheduler.awaitNextDelayMillis();
+    assertTrue(firstBackoff >= 500 && firstBackoff <= 1000, "First backoff: " + firstBackoff);
+    assertEquals("oldToken", tokenManager.getAccessToken());
+
+    scheduler.runNext();
+    long secondBackoff = scheduler.awaitNextDelayMillis();
+    assertTrue(secondBackoff >= 1000 && secondBackoff <= 2000, "Second backoff: " + secondBackoff);
+    assertEquals("oldToken", tokenManager.getAccessToken());
+
+    scheduler.runNext();
+    long nextDelay = scheduler.awaitNextDelayMillis();
+    assertTrue(nextDelay > Duration.ofMinutes(54).toMillis(), "Back on the normal schedule.");
+    assertEquals("newToken", tokenManager.getAccessToken());
+    assertEquals(4, mockWebServer.getRequestCount());
+  }
+
+  @Test
+  @DisplayName("Disabling background refresh should cancel the pending run")
+  void disableBackgroundRefresh_cancelsPendingRun() throws Exception {
+    VirtualScheduler scheduler = new VirtualScheduler(clock);
+    mockWebServer.enqueue(tokenResponse("onlyToken", 3600L));
+
+    tokenManager.enableBackgroundRefresh(scheduler, Duration.ofMinutes(5), Duration.ZERO);
+    scheduler.runNext();
+    scheduler.awaitNextDelayMillis();
+
+    tokenManager.disableBackgroundRefresh();
+    scheduler.runNext();
+
+    assertEquals(0, scheduler.pendingCount());
+    assertEquals(1, mockWebServer.getRequestCount());
+  }
+
+  @Test
+  @DisplayName("Managers sharing a file store should fetch the token only once between them")
+  void sharedFileStore_secondManagerReusesToken(@TempDir Path dir) throws Exception {
+    mockWebServer.enqueue(tokenResponse("sharedToken", 3600L));
+
+    try (FileTokenStore first = FileTokenStore.open(dir.resolve("token"));
+        FileTokenStore second = FileTokenStore.open(dir.resolve("token"))) {
+      OkHttpClient httpClient = new OkHttpClient();
+      MpesaTokenManager a = new MpesaTokenManager(mpesaConfig, httpClient, first, clock);
+      MpesaTokenManager b = new MpesaTokenManager(mpesaConfig, httpClient, second, clock);
+
+      assertEquals("sharedToken", a.getAccessToken());
+      assertEquals("sharedToken", b.getAccessToken());
+      assertEquals("sharedToken", b.getAccessTokenAsync().get(1, TimeUnit.SECONDS));
+    }
+    assertEquals(1, mockWebServer.getRequestCount());
+  }
+
+  @Test
+  @DisplayName("A manager should adopt the token saved by whoever holds the store's refresh lock")
+  void sharedFileStore_waitsForLockHolderInsteadOfFetching(@TempDir Path dir) throws Exception {
+    try (FileTokenStore holder = FileTokenStore.open(dir.resolve("token"));
+        FileTokenStore waiter = FileTokenStore.open(dir.resolve("token"))) {
+      MpesaTokenManager manager =
+          new MpesaTokenManager(mpesaConfig, new OkHttpClient(), waiter, clock);
+
+      TokenStore.RefreshLock lock = holder.tryLockRefresh();
+      assertNotNull(lock);
+      CompletableFuture<String> blocking =
+          CompletableFuture.supplyAsync(
+              () -> {
+                try {
+                  return manager.getAccessToken();
+                } catch (MpesaAuthException e) {
+                  throw new CompletionException(e);
+                }
+              });
+      CompletableFuture<String> async = manager.getAccessTokenAsync();
+
+      Thread.sleep(200);
+      assertFalse(blocking.isDone(), "The manager should wait while the lock is held.");
+      holder.save(new CachedToken("holderToken", clock.millis() + 3_600_000));
+      lock.close();
+
+      assertEquals("holderToken", blocking.get(5, TimeUnit.SECONDS));
+      assertEquals("holderToken", async.get(5, TimeUnit.SECONDS));
+    }
+    assertEquals(0, mockWebServer.getRequestCount());
+  }
+
+  @Test
+  @DisplayName("A token another party saved to the store should be used without any request")
+  void customStore_withFreshToken_skipsFetch() throws Exception {
+    InMemoryTokenStore store = new InMemoryTokenStore();
+    store.save(new CachedToken("storedToken", clock.millis() + 3_600_000));
+    MpesaTokenManager manager =
+        new MpesaTokenManager(mpesaConfig, new OkHttpClient(), store, clock);
+
+    assertEquals("storedToken", manager.getAccessToken());
+    assertEquals(0, mockWebServer.getRequestCount());
+  }
+
+  private MockResponse tokenResponse(String token, long expiresIn) throws Exception {
+    AccessTokenResponse apiResponse =
+        AccessTokenResponse.builder().accessToken(token).expiresIn(expiresIn).build();
+    return new MockResponse()
+        .setResponseCode(200)
+        .setBody(objectMapper.writeValueAsString(apiResponse));
+  }
+
+  /** A clock whose time only moves when a test says so. */
+  static final class MutableClock extends Clock {
+    private volatile Instant now;
+
+    MutableClock(Instant now) {
+      this.now = now;
+    }
+
+    void advanceSeconds(long seconds) {
+      now = now.plusSeconds(seconds);
+    }
+
+    void advanceMillis(long millis) {
+      now = now.plusMillis(millis);
+    }
+
+    @Override
+    public ZoneId getZone() {
+      return ZoneOffset.UTC;
+    }
+
+    @Override
+    public Clock withZone(ZoneId zone) {
+      return this;
+    }
+
+    @Override
+    public Instant instant() {
+      return now;
+    }
+  }
+
+  /**
+   * A single-threaded scheduler driven by a {@link MutableClock}: {@link #runNext()} moves the
+   * clock to the earliest pending task and runs it on the calling thread.
+   */
+  static final class VirtualScheduler extends AbstractExecutorService
+      implements ScheduledExecutorService {
+    private final MutableClock clock;
+    private final List<VirtualTask> tasks = new ArrayList<>();
+
+    VirtualScheduler(MutableClock clock) {
+      this.clock = clock;
+    }
+
+    synchronized int pendingCount() {
+      tasks.removeIf(VirtualTask::isCancelled);
+      return tasks.size();
+    }
+
+    synchronized long nextDelayMillis() {
+      return next().delayMillis;
+    }
+
+    /** Waits for an asynchronous refresh to schedule its follow-up run. */
+    long awaitNextDelayMillis() throws InterruptedException {
+      long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+      while (pendingCount() == 0) {
+        if (System.nanoTime() > deadline) {
+          fail("No follow-up run was scheduled.");
+        }
+        Thread.sleep(10);
+      }
+      return nextDelayMillis();
+    }
+
+    void runNext() {
+      VirtualTask task;
+      synchronized (this) {
+        if (pendingCount() == 0) {
+          return;
+        }
+        task = next();
+        tasks.remove(task);
+      }
+      clock.advanceMillis(task.dueAtMillis - clock.millis());
+      task.command.run();
+    }
+
+    private VirtualTask next() {
+      return tasks.stream().min(Comparator.comparingLong(t -> t.dueAtMillis)).orElseThrow();
+    }
+
+    @Override
+    public synchronized ScheduledFuture<?> schedule(Runnable command, long delay, TimeUnit unit) {
+      VirtualTask task = new VirtualTask(command, unit.toMillis(delay), clock.millis());
+      tasks.add(task);
+      return task;
+    }
+
+    @Override
+    public <V> ScheduledFuture<V> schedule(Callable<V> callable, long delay, TimeUnit unit) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public ScheduledFuture<?> scheduleAtFixedRate(
+        Runnable command, long initialDelay, long period, TimeUnit unit) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public ScheduledFuture<?> scheduleWithFixedDelay(
+        Runnable command, long initialDelay, long delay, TimeUnit unit) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void execute(Runnable command) {
+      command.run();
+    }
+
+    @Override
+    public void shutdown() {}
+
+    @Override
+    public List<Runnable> shutdownNow() {
+      return new ArrayList<>();
+    }
+
+    @Override
+    public boolean isShutdown() {
+      return false;
+    }
+
+    @Override
+    public boolean isTerminated() {
+      return false;
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) {
+      return true;
+    }
+  }
+
+  private static final class VirtualTask implements ScheduledFuture<Object> {
+    private final Runnable command;
+    private final long delayMillis;
+    private final long dueAtMillis;
+    private volatile boolean cancelled;
+
+    private VirtualTask(Runnable command, long delayMillis, long nowMillis) {
+      this.command = command;
+      this.delayMillis = delayMillis;
+      this.dueAtMillis = nowMillis + delayMillis;
+    }
+
+    @Override
+    public long getDelay(TimeUnit unit) {
+      return unit.convert(delayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public int compareTo(Delayed other) {
+      return Long.compare(getDelay(TimeUnit.MILLISECONDS), other.getDelay(TimeUnit.MILLISECONDS));
+    }
+
+    @Override
+    public boolean cancel(boolean mayInterruptIfRunning) {
+      cancelled = true;
+      return true;
+    }
+
+    @Override
+    public boolean isCancelled() {
+      return cancelled;
+    }
+
+    @Override
+    public boolean isDone() {
+      return cancelled;
+    }
+
+    @Override
+    public Object get() {
+      return null;
+    }
+
+    @Override
+    public Object get(long timeout, TimeUnit unit) {
+      return null;
+    }
+  }
 }
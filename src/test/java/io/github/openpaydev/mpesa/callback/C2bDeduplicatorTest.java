@@ -0,0 +1,187 @@
+package io.github.openpaydev.mpesa.callback;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import io.github.openpaydev.mpesa.core.models.C2bTransaction;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class C2bDeduplicatorTest {
+
+  private final AtomicLong now = new AtomicLong();
+  private final C2bDeduplicator deduplicator =
+      new C2bDeduplicator(Duration.ofMinutes(10), 1_000, now::get);
+
+  @Test
+  @DisplayName("Only the first delivery of a TransID should be seen as new")
+  void firstSeen_detectsRedelivery() {
+    assertTrue(deduplicator.firstSeen("RKTQDM7W6S"));
+    assertFalse(deduplicator.firstSeen("RKTQDM7W6S"));
+    assertFalse(
+        deduplicator.firstSeen(C2bTransaction.builder().transactionId("RKTQDM7W6S").build()));
+    assertTrue(deduplicator.firstSeen("RKTQDM7W6T"));
+
+    assertTrue(deduplicator.contains("RKTQDM7W6S"));
+    assertFalse(deduplicator.contains("RKTQDM7W6U"));
+    C2bDedupStats stats = deduplicator.stats();
+    assertEquals(4, stats.getCheckedCount());
+    assertEquals(2, stats.getDuplicateCount());
+    assertEquals(0.5, stats.getDuplicateRate());
+    assertEquals(2, stats.getSize());
+  }
+
+  @Test
+  @DisplayName("An ID should be remembered for at least the window and forgotten after two")
+  void firstSeen_remembersForTheWindow() {
+    deduplicator.firstSeen("RKTQDM7W6S");
+
+    now.addAndGet(Duration.ofMinutes(10).toMillis());
+    assertFalse(deduplicator.firstSeen("RKTQDM7W6S"));
+    assertTrue(deduplicator.firstSeen("RKTQDM7W6T"));
+    now.addAndGet(Duration.ofMinutes(10).toMillis());
+
+    assertTrue(deduplicator.firstSeen("RKTQDM7W6S"));
+    assertFalse(deduplicator.firstSeen("RKTQDM7W6T"));
+  }
+
+  @Test
+  @DisplayName("An ID should not be remembered beyond two windows however calls are spaced")
+  void firstSeen_afterQuietSpells_forgetsWithinTwoWindows() {
+    long window = Duration.ofMinutes(10).toMillis();
+    deduplicator.firstSeen("RKTQDM7W6S");
+
+    now.set(window + window / 2);
+    assertFalse(deduplicator.firstSeen("RKTQDM7W6S"));
+    now.set(2 * window);
+    assertTrue(deduplicator.firstSeen("RKTQDM7W6S"));
+
+    now.addAndGet(2 * window + window / 2);
+    assertTrue(deduplicator.firstSeen("RKTQDM7W6T"));
+    assertEquals(1, deduplicator.stats().getSize());
+    assertTrue(deduplicator.firstSeen("RKTQDM7W6S"));
+  }
+
+  @Test
+  @DisplayName("A generation that fills up should rotate early instead of growing")
+  void firstSeen_beyondMaxEntries_rotatesEarly() {
+    C2bDeduplicator small = new C2bDeduplicator(Duration.ofHours(1), 100, now::get);
+
+    for (int i = 0; i < 250; i++) {
+      assertTrue(small.firstSeen("ID" + i));
+    }
+
+    C2bDedupStats stats = small.stats();
+    assertEquals(2, stats.getEarlyRotations());
+    assertTrue(stats.getSize() <= 200);
+    assertFalse(small.firstSeen("ID249"));
+    assertTrue(small.firstSeen("ID0"));
+  }
+
+  @Test
+  @DisplayName("A forgotten ID should be seen as new on its next delivery")
+  void forget_letsIdBeSeenAgain() {
+    deduplicator.firstSeen("RKTQDM7W6S");
+
+    deduplicator.forget("RKTQDM7W6S");
+
+    assertFalse(deduplicator.contains("RKTQDM7W6S"));
+    assertTrue(deduplicator.firstSeen("RKTQDM7W6S"));
+    assertFalse(deduplicator.firstSeen("RKTQDM7W6S"));
+  }
+
+  @Test
+  @DisplayName("Daraja-style IDs should pack exactly and other IDs should hash apart from them")
+  void key_packsTransIdsAndHashesTheRest() {
+    Set<Long> keys = new HashSet<>();
+    for (String id : List.of("A", "0A", "00A", "RKTQDM7W6S", "ZZZZZZZZZZZZ", "000000000000")) {
+      long key = C2bDeduplicator.key(id);
+      assertTrue(key > 0, id);
+      assertTrue(keys.add(key), id);
+    }
+    for (String id : List.of("rktqdm7w6s", "RKTQ-DM7W6S", "ZZZZZZZZZZZZZ", "")) {
+      long key = C2bDeduplicator.key(id);
+      assertTrue(key < 0 && key != Long.MIN_VALUE, id);
+      assertTrue(keys.add(key), id);
+    }
+  }
+
+  @Test
+  @DisplayName("A delivery racing a rotation should not also be seen as new")
+  void firstSeen_racingRotation_hasOneWinner() {
+    long window = Duration.ofMinutes(10).toMillis();
+    AtomicReference<C2bDeduplicator> racing = new AtomicReference<>();
+    AtomicBoolean raced = new AtomicBoolean();
+    AtomicBoolean redeliveryFirstSeen = new AtomicBoolean();
+    // The clock is read after the generations, so a delivery made from it lands in between.
+    racing.set(
+        new C2bDeduplicator(
+            Duration.ofMillis(window),
+            1_000,
+            () -> {
+              long t = now.get();
+              if (raced.compareAndSet(true, false)) {
+                now.set(t + window);
+                redeliveryFirstSeen.set(racing.get().firstSeen("RKTQDM7W6S"));
+              }
+              return t;
+            }));
+
+    raced.set(true);
+    boolean firstSeen = racing.get().firstSeen("RKTQDM7W6S");
+
+    assertTrue(redeliveryFirstSeen.get());
+    assertFalse(firstSeen);
+    assertFalse(racing.get().firstSeen("RKTQDM7W6S"));
+    assertEquals(2, racing.get().stats().getDuplicateCount());
+  }
+
+  @Test
+  @DisplayName("Of concurrent deliveries of the same ID, exactly one should be new")
+  void firstSeen_concurrently_hasOneWinnerPerId() throws Exception {
+    int ids = 50_000;
+    int threads = 8;
+    C2bDeduplicator large = new C2bDeduplicator(Duration.ofHours(1), 100_000, now::get);
+    AtomicInteger firsts = new AtomicInteger();
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    CountDownLatch start = new CountDownLatch(1);
+    List<Future<?>> tasks = new ArrayList<>();
+    try {
+      for (int t = 0; t < threads; t++) {
+        tasks.add(
+            executor.submit(
+                () -> {
+                  start.await();
+                  for (int i = 0; i < ids; i++) {
+                    if (large.firstSeen("QK" + i)) {
+                      firsts.incrementAndGet();
+                    }
+                  }
+                  return null;
+                }));
+      }
+      start.countDown();
+      for (Future<?> task : tasks) {
+        task.get(30, TimeUnit.SECONDS);
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+
+    assertEquals(ids, firsts.get());
+    assertEquals((long) ids * (threads - 1), large.stats().getDuplicateCount());
+  }
+}
@@ -0,0 +1,144 @@
+package io.github.openpaydev.mpesa.callback;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.github.openpaydev.mpesa.core.models.C2bTransaction;
+import io.github.openpaydev.mpesa.core.models.C2bValidationResult;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class C2bValidationHandlerTest {
+
+  private static final C2bTransaction TRANSACTION =
+      C2bTransaction.builder().transactionId("RKTQDM7W6S").billRefNumber("A123").build();
+
+  private static final C2bValidationPolicy FAST =
+      C2bValidationPolicy.builder()
+          .timeout(Duration.ofMillis(100))
+          .fallback(C2bValidationResult.error("Try again"))
+          .build();
+
+  private final List<C2bValidationHandler> handlers = new ArrayList<>();
+
+  @AfterEach
+  void tearDown() {
+    handlers.forEach(C2bValidationHandler::close);
+  }
+
+  @Test
+  @DisplayName("A validator answering in time should decide the payment")
+  void validate_inTime_returnsValidatorResult() {
+    C2bValidationHandler handler =
+        handler(
+            transaction ->
+                "A123".equals(transaction.getBillRefNumber())
+                    ? C2bValidationResult.REJECTED
+                    : C2bValidationResult.ACCEPTED,
+            FAST);
+
+    assertSame(C2bValidationResult.REJECTED, handler.validate(TRANSACTION));
+    assertEquals(
+        "{\"ResultCode\":1,\"ResultDesc\":\"Rejected\"}",
+        json(handler.validateToJson(TRANSACTION)));
+    assertEquals(2, handler.getValidatedCount());
+    assertEquals(0, handler.getDeadlineMissCount());
+  }
+
+  @Test
+  @DisplayName("A validator out of time should be interrupted and answered with the fallback")
+  void validate_pastTimeout_returnsFallbackAndInterrupts() throws Exception {
+    CountDownLatch interrupted = new CountDownLatch(1);
+    C2bValidationHandler handler =
+        handler(
+            transaction -> {
+              try {
+                Thread.sleep(10_000);
+              } catch (InterruptedException e) {
+                interrupted.countDown();
+                throw e;
+              }
+              return C2bValidationResult.ACCEPTED;
+            },
+            FAST);
+
+    long start = System.nanoTime();
+    byte[] body = handler.validateToJson(TRANSACTION);
+    long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+    assertEquals("{\"ResultCode\":1,\"ResultDesc\":\"Try again\"}", json(body));
+    assertTrue(elapsedMillis < 2_000, "took " + elapsedMillis + "ms");
+    assertTrue(interrupted.await(5, TimeUnit.SECONDS));
+    assertEquals(1, handler.getDeadlineMissCount());
+    assertEquals(0, handler.getValidatedCount());
+  }
+
+  @Test
+  @DisplayName("A validator that throws or returns null should get the fallback and be reported")
+  void validate_whenValidatorFails_returnsFallback() {
+    List<Exception> errors = new ArrayList<>();
+    C2bValidationHandler throwing =
+        track(
+            new C2bValidationHandler(
+                transaction -> {
+                  throw new IllegalStateException("database down");
+                },
+                FAST,
+                errors::add));
+    C2bValidationHandler returningNull = handler(transaction -> null, FAST);
+
+    assertSame(FAST.getFallback(), throwing.validate(TRANSACTION));
+    assertSame(FAST.getFallback(), returningNull.validate(TRANSACTION));
+
+    assertEquals(1, errors.size());
+    assertEquals("database down", errors.get(0).getMessage());
+    assertEquals(1, throwing.getFailureCount());
+    assertEquals(1, returningNull.getFailureCount());
+  }
+
+  @Test
+  @DisplayName("The default policy should accept a payment the validator cannot decide in time")
+  void defaults_acceptOnTimeout() {
+    C2bValidationPolicy policy = C2bValidationPolicy.defaults();
+
+    assertSame(C2bValidationResult.ACCEPTED, policy.getFallback());
+    assertEquals(Duration.ofSeconds(2), policy.getTimeout());
+  }
+
+  @Test
+  @DisplayName("encode should write exactly what Jackson writes")
+  void encode_matchesJackson() throws Exception {
+    ObjectMapper objectMapper = new ObjectMapper();
+    List<C2bValidationResult> results =
+        List.of(
+            C2bValidationResult.ACCEPTED,
+            C2bValidationResult.error("Account \"A123\" is closed\n"),
+            C2bValidationResult.error("Malipo yamekataliwa \u2014 jaribu tena \u0001"),
+            new C2bValidationResult(1, null));
+
+    for (C2bValidationResult result : results) {
+      assertArrayEquals(
+          objectMapper.writeValueAsBytes(result), C2bValidationHandler.encode(result));
+    }
+  }
+
+  private C2bValidationHandler handler(C2bValidator validator, C2bValidationPolicy policy) {
+    return track(new C2bValidationHandler(validator, policy));
+  }
+
+  private C2bValidationHandler track(C2bValidationHandler handler) {
+    handlers.add(handler);
+    return handler;
+  }
+
+  private static String json(byte[] body) {
+    return new String(body, StandardCharsets.UTF_8);
+  }
+}
@@ -0,0 +1,368 @@
+package io.github.openpaydev.mpesa.callback;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import io.github.openpaydev.mpesa.core.models.C2bTransaction;
+import io.github.openpaydev.mpesa.core.models.C2bValidationResult;
+import io.github.openpaydev.mpesa.core.models.StkCallbackDetails;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class MpesaCallbackServerTest {
+
+  private static final String STK_CALLBACK =
+      "{\"Body\":{\"stkCallback\":{\"MerchantRequestID\":\"29115-34620561-1\","
+          + "\"CheckoutRequestID\":\"ws_CO_191220191020363925\",\"ResultCode\":0,"
+          + "\"ResultDesc\":\"The service request is processed successfully.\","
+          + "\"CallbackMetadata\":{\"Item\":[{\"Name\":\"Amount\",\"Value\":1.00},"
+          + "{\"Name\":\"MpesaReceiptNumber\",\"Value\":\"NLJ7RT61SV\"},"
+          + "{\"Name\":\"TransactionDate\",\"Value\":20191219102115},"
+          + "{\"Name\":\"PhoneNumber\",\"Value\":254708374149}]}}}}";
+
+  private static final String C2B_TRANSACTION =
+      "{\"TransactionType\":\"Pay Bill\",\"TransID\":\"RKTQDM7W6S\","
+          + "\"TransTime\":\"20191122063845\",\"TransAmount\":\"10\","
+          + "\"BusinessShortCode\":\"600638\",\"BillRefNumber\":\"A123\","
+          + "\"MSISDN\":\"2547*****149\",\"FirstName\":\"John\"}";
+
+  private static final CallbackServerOptions OPTIONS =
+      CallbackServerOptions.builder().host("127.0.0.1").port(0).build();
+
+  private final HttpClient http =
+      HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+  private final List<MpesaCallbackServer> servers = new ArrayList<>();
+
+  @AfterEach
+  void tearDown() {
+    servers.forEach(MpesaCallbackServer::close);
+  }
+
+  @Test
+  @DisplayName("An STK callback should be acknowledged and passed to its handler")
+  void stkCallback_isAcknowledgedAndHandled() throws Exception {
+    LinkedBlockingQueue<StkCallbackDetails> received = new LinkedBlockingQueue<>();
+    MpesaCallbackServer server =
+        start(new MpesaCallbackServer(OPTIONS).onStkCallback(received::add));
+
+    HttpResponse<String> response = post(server, "/mpesa/stk/callback", STK_CALLBACK);
+
+    assertEquals(200, response.statusCode());
+    assertEquals("{\"ResultCode\":0,\"ResultDesc\":\"Accepted\"}", response.body());
+    StkCallbackDetails callback = received.poll(5, TimeUnit.SECONDS);
+    assertNotNull(callback);
+    assertEquals("ws_CO_191220191020363925", callback.getCheckoutRequestID());
+    assertEquals("NLJ7RT61SV", callback.getMpesaReceiptNumber());
+  }
+
+  @Test
+  @DisplayName("A C2B confirmation should be acknowledged before its handler finishes")
+  void c2bConfirmation_isAcknowledgedBeforeHandling() throws Exception {
+    CountDownLatch release = new CountDownLatch(1);
+    LinkedBlockingQueue<C2bTransaction> received = new LinkedBlockingQueue<>();
+    MpesaCallbackServer server =
+        start(
+            new MpesaCallbackServer(OPTIONS)
+                .onC2bConfirmation(
+                    transaction -> {
+                      release.await();
+                      received.add(transaction);
+                    }));
+
+    HttpResponse<String> response = post(server, "/mpesa/c2b/confirmation", C2B_TRANSACTION);
+
+    assertEquals(200, response.statusCode());
+    assertTrue(received.isEmpty());
+    release.countDown();
+    C2bTransaction transaction = received.poll(5, TimeUnit.SECONDS);
+    assertNotNull(transaction);
+    assertEquals("RKTQDM7W6S", transaction.getTransactionId());
+    assertEquals("A123", transaction.getBillRefNumber());
+  }
+
+  @Test
+  @DisplayName("A C2B validation should be answered with the validator's result")
+  void c2bValidation_respondsWithValidatorResult() throws Exception {
+    MpesaCallbackServer server =
+        start(
+            new MpesaCallbackServer(OPTIONS)
+                .onC2bValidation(
+                    transaction ->
+                        "A123".equals(transaction.getBillRefNumber())
+                            ? C2bValidationResult.success("Accepted")
+                            : C2bValidationResult.error("Unknown account")));
+
+    HttpResponse<String> accepted = post(server, "/mpesa/c2b/validation", C2B_TRANSACTION);
+    HttpResponse<String> rejected =
+        post(server, "/mpesa/c2b/validation", C2B_TRANSACTION.replace("A123", "B456"));
+
+    assertEquals(200, accepted.statusCode());
+    assertEquals("{\"ResultCode\":0,\"ResultDesc\":\"Accepted\"}", accepted.body());
+    assertEquals("{\"ResultCode\":1,\"ResultDesc\":\"Unknown account\"}", rejected.body());
+    assertEquals(2, server.stats().getProcessedCount());
+  }
+
+  @Test
+  @DisplayName("Handler and validator failures should be counted, reported and answered")
+  void handlerFailures_areCountedAndReported() throws Exception {
+    LinkedBlockingQueue<Exception> errors = new LinkedBlockingQueue<>();
+    MpesaCallbackServer server =
+        start(
+            new MpesaCallbackServer(OPTIONS)
+                .onC2bConfirmation(
+                    transaction -> {
+                      throw new IllegalStateException("database down");
+                    })
+                .onC2bValidation(
+                    transaction -> {
+                      throw new IllegalStateException("validator down");
+                    })
+                .onHandlerError(errors::add));
+
+    assertEquals(200, post(server, "/mpesa/c2b/confirmation", C2B_TRANSACTION).statusCode());
+    HttpResponse<String> validation = post(server, "/mpesa/c2b/validation", C2B_TRANSACTION);
+    assertEquals(200, validation.statusCode());
+    assertEquals("{\"ResultCode\":0,\"ResultDesc\":\"Accepted\"}", validation.body());
+
+    assertNotNull(errors.poll(5, TimeUnit.SECONDS));
+    assertNotNull(errors.poll(5, TimeUnit.SECONDS));
+    assertEquals(2, server.stats().getFailedCount());
+  }
+
+  @Test
+  @DisplayName("A validation past its time budget should be answered with the fallback")
+  void c2bValidation_pastTimeout_answersFallback() throws Exception {
+    C2bValidationPolicy policy =
+        C2bValidationPolicy.builder()
+            .timeout(Duration.ofMillis(100))
+            .fallback(C2bValidationResult.REJECTED)
+            .build();
+    MpesaCallbackServer server =
+        start(
+            new MpesaCallbackServer(OPTIONS.toBuilder().c2bValidationPolicy(policy).build())
+                .onC2bValidation(
+                    transaction -> {
+                      Thread.sleep(10_000);
+                      return C2bValidationResult.ACCEPTED;
+                    }));
+
+    HttpResponse<String> response = post(server, "/mpesa/c2b/validation", C2B_TRANSACTION);
+
+    assertEquals(200, response.statusCode());
+    assertEquals("{\"ResultCode\":1,\"ResultDesc\":\"Rejected\"}", response.body());
+    assertEquals(1, server.stats().getValidationDeadlineMissCount());
+  }
+
+  @Test
+  @DisplayName("A redelivered C2B confirmation should be acknowledged but handled once")
+  void c2bConfirmation_redelivered_isHandledOnce() throws Exception {
+    AtomicInteger handled = new AtomicInteger();
+    MpesaCallbackServer server =
+        start(
+            new MpesaCallbackServer(
+                    OPTIONS.toBuilder().c2bDeduplicator(C2bDeduplicator.create()).build())
+                .onC2bConfirmation(transaction -> handled.incrementAndGet()));
+
+    for (int i = 0; i < 3; i++) {
+      assertEquals(200, post(server, "/mpesa/c2b/confirmation", C2B_TRANSACTION).statusCode());
+    }
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+    while (server.stats().getProcessedCount() < 1 && System.nanoTime() < deadline) {
+      Thread.sleep(5);
+    }
+
+    assertEquals(1, handled.get());
+    assertEquals(1, server.stats().getAcceptedCount());
+    assertEquals(2, server.stats().getDuplicateCount());
+  }
+
+  @Test
+  @DisplayName("Bad requests should be refused without reaching a handler")
+  void badRequests_areRefused() throws Exception {
+    AtomicInteger handled = new AtomicInteger();
+    MpesaCallbackServer server =
+        start(
+            new MpesaCallbackServer(OPTIONS.toBuilder().maxBodyBytes(1024).build())
+                .onStkCallback(callback -> handled.incrementAndGet()));
+
+    assertEquals(400, post(server, "/mpesa/stk/callback", "{not json").statusCode());
+    assertEquals(400, post(server, "/mpesa/stk/callback", "{\"Body\":{}}").statusCode());
+    assertEquals(413, post(server, "/mpesa/stk/callback", "x".repeat(2048)).statusCode());
+    assertEquals(404, post(server, "/mpesa/c2b/confirmation", C2B_TRANSACTION).statusCode());
+    HttpResponse<String> get =
+        http.send(
+            HttpRequest.newBuilder(uri(server, "/mpesa/stk/callback")).GET().build(),
+            HttpResponse.BodyHandlers.ofString());
+    assertEquals(405, get.statusCode());
+
+    assertEquals(3, server.stats().getRejectedCount());
+    assertEquals(0, handled.get());
+  }
+
+  @Test
+  @DisplayName("A body of JSON null should be refused on every route without reaching a handler")
+  void nullBodies_areRefused() throws Exception {
+    AtomicInteger handled = new AtomicInteger();
+    MpesaCallbackServer server =
+        start(
+            new MpesaCallbackServer(OPTIONS)
+                .onStkCallback(callback -> handled.incrementAndGet())
+                .onC2bConfirmation(transaction -> handled.incrementAndGet())
+                .onC2bValidation(
+                    transaction -> {
+                      handled.incrementAndGet();
+                      return C2bValidationResult.success("Accepted");
+                    }));
+
+    assertEquals(400, post(server, "/mpesa/stk/callback", "null").statusCode());
+    assertEquals(400, post(server, "/mpesa/c2b/confirmation", "null").statusCode());
+    assertEquals(400, post(server, "/mpesa/c2b/validation", "null").statusCode());
+
+    assertEquals(3, server.stats().getRejectedCount());
+    assertEquals(0, server.stats().getFailedCount());
+    assertEquals(0, handled.get());
+  }
+
+  @Test
+  @DisplayName("Callbacks beyond the queue's capacity should be shed with a 503")
+  void fullQueue_shedsCallbacks() throws Exception {
+    CountDownLatch release = new CountDownLatch(1);
+    Semaphore started = new Semaphore(0);
+    MpesaCallbackServer server =
+        start(
+            new MpesaCallbackServer(
+                    OPTIONS.toBuilder().queueCapacity(1).workerThreads(1).build())
+                .onStkCallback(
+                    callback -> {
+                      started.release();
+                      release.await();
+                    }));
+
+    assertEquals(200, post(server, "/mpesa/stk/callback", STK_CALLBACK).statusCode());
+    assertTrue(started.tryAcquire(5, TimeUnit.SECONDS));
+    assertEquals(200, post(server, "/mpesa/stk/callback", STK_CALLBACK).statusCode());
+    HttpResponse<String> shed = post(server, "/mpesa/stk/callback", STK_CALLBACK);
+    release.countDown();
+
+    assertEquals(503, shed.statusCode());
+    CallbackServerStats stats = server.stats();
+    assertEquals(2, stats.getAcceptedCount());
+    assertEquals(1, stats.getShedCount());
+  }
+
+  @Test
+  @DisplayName("close should process the callbacks already queued")
+  void close_drainsQueue() throws Exception {
+    AtomicInteger handled = new AtomicInteger();
+    MpesaCallbackServer server =
+        new MpesaCallbackServer(OPTIONS.toBuilder().workerThreads(1).build())
+            .onStkCallback(
+                callback -> {
+                  Thread.sleep(20);
+                  handled.incrementAndGet();
+                })
+            .start();
+    for (int i = 0; i < 5; i++) {
+      assertEquals(200, post(server, "/mpesa/stk/callback", STK_CALLBACK).statusCode());
+    }
+
+    server.close();
+
+    assertEquals(5, handled.get());
+    assertThrows(IllegalStateException.class, server::start);
+  }
+
+  @Test
+  @DisplayName("Thousands of concurrent callbacks should all be answered and handled or shed")
+  void concurrentCallbacks_areAllAnswered() throws Exception {
+    int requests = 5_000;
+    AtomicInteger handled = new AtomicInteger();
+    MpesaCallbackServer server =
+        start(
+            new MpesaCallbackServer(OPTIONS.toBuilder().queueCapacity(1_000).build())
+                .onStkCallback(callback -> handled.incrementAndGet())
+                .onC2bConfirmation(transaction -> handled.incrementAndGet()));
+
+    // HttpServer closes keep-alive connections beyond its idle limit of 200, and the client fails a
+    // POST sent on one of them just as it closes, so fewer requests than that are kept in flight.
+    Semaphore inFlight = new Semaphore(150);
+    List<CompletableFuture<HttpResponse<String>>> responses = new ArrayList<>();
+    for (int i = 0; i < requests; i++) {
+      inFlight.acquire();
+      CompletableFuture<HttpResponse<String>> response =
+          i % 2 == 0
+              ? postAsync(server, "/mpesa/stk/callback", STK_CALLBACK)
+              : postAsync(server, "/mpesa/c2b/confirmation", C2B_TRANSACTION);
+      responses.add(response.whenComplete((r, e) -> inFlight.release()));
+    }
+    int ok = 0;
+    int overloaded = 0;
+    for (CompletableFuture<HttpResponse<String>> response : responses) {
+      int status = response.get(60, TimeUnit.SECONDS).statusCode();
+      if (status == 200) {
+        ok++;
+      } else if (status == 503) {
+        overloaded++;
+      } else {
+        fail("Unexpected status " + status);
+      }
+    }
+
+    assertEquals(requests, ok + overloaded);
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+    while (handled.get() < ok && System.nanoTime() < deadline) {
+      Thread.sleep(10);
+    }
+    CallbackServerStats stats = server.stats();
+    assertEquals(ok, handled.get());
+    assertEquals(ok, stats.getAcceptedCount());
+    assertEquals(overloaded, stats.getShedCount());
+  }
+
+  @Test
+  @DisplayName("Requests should run on virtual threads exactly when the JVM has them")
+  void start_usesVirtualThreadsWhenAvailable() throws Exception {
+    MpesaCallbackServer server =
+        start(new MpesaCallbackServer(OPTIONS).onStkCallback(callback -> {}));
+
+    assertEquals(Runtime.version().feature() >= 21, server.isUsingVirtualThreads());
+  }
+
+  private MpesaCallbackServer start(MpesaCallbackServer server) throws Exception {
+    servers.add(server);
+    return server.start();
+  }
+
+  private HttpResponse<String> post(MpesaCallbackServer server, String path, String body)
+      throws Exception {
+    return postAsync(server, path, body).get(10, TimeUnit.SECONDS);
+  }
+
+  private CompletableFuture<HttpResponse<String>> postAsync(
+      MpesaCallbackServer server, String path, String body) {
+    HttpRequest request =
+        HttpRequest.newBuilder(uri(server, path))
+            .timeout(Duration.ofSeconds(30))
+            .header("Content-Type", "application/json")
+            .POST(HttpRequest.BodyPublishers.ofString(body))
+            .build();
+    return http.sendAsync(request, HttpResponse.BodyHandlers.ofString());
+  }
+
+  private static URI uri(MpesaCallbackServer server, String path) {
+    return URI.create("http://127.0.0.1:" + server.getPort() + path);
+  }
+}
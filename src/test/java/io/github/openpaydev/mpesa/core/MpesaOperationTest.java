@@ -0,0 +1,19 @@
+package io.github.openpaydev.mpesa.core;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class MpesaOperationTest {
+
+  @Test
+  @DisplayName("Only STK Push should be treated as non-idempotent")
+  void onlyStkPushIsNonIdempotent() {
+    assertFalse(MpesaOperation.STK_PUSH.isIdempotent());
+    assertTrue(MpesaOperation.AUTH.isIdempotent());
+    assertTrue(MpesaOperation.STK_QUERY.isIdempotent());
+    assertTrue(MpesaOperation.C2B_REGISTER.isIdempotent());
+  }
+}
@@ -0,0 +1,87 @@
+package io.github.openpaydev.mpesa.core.codec;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import io.github.openpaydev.mpesa.core.models.StkPushRequest;
+import io.github.openpaydev.mpesa.core.models.StkPushResponse;
+import java.util.Map;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class MpesaCodecsTest {
+
+  @Test
+  @DisplayName("defaults() should return one shared instance")
+  void defaults_returnsSharedInstance() {
+    assertSame(MpesaCodecs.defaults(), MpesaCodecs.defaults());
+    assertNull(MpesaCodecs.defaults().getAccessorModule());
+  }
+
+  @Test
+  @DisplayName("Should hand out the same pre-resolved reader and writer for every model")
+  void readerAndWriter_forModels_areResolvedOnce() {
+    MpesaCodecs codecs = MpesaCodecs.of(new ObjectMapper());
+
+    for (Class<?> type : MpesaCodecs.MODEL_TYPES) {
+      assertSame(codecs.readerFor(type), codecs.readerFor(type), type.getName());
+      assertSame(codecs.writerFor(type), codecs.writerFor(type), type.getName());
+    }
+  }
+
+  @Test
+  @DisplayName("Should cache readers and writers for types outside core.models")
+  void readerAndWriter_forOtherTypes_areCached() throws Exception {
+    MpesaCodecs codecs = MpesaCodecs.defaults();
+
+    assertSame(codecs.readerFor(Map.class), codecs.readerFor(Map.class));
+    assertSame(codecs.writerFor(Map.class), codecs.writerFor(Map.class));
+    assertEquals("{\"a\":1}", codecs.writerFor(Map.class).writeValueAsString(Map.of("a", 1)));
+  }
+
+  @Test
+  @DisplayName("Should produce the same JSON as a plain ObjectMapper")
+  void roundTrip_matchesObjectMapper() throws Exception {
+    ObjectMapper objectMapper = new ObjectMapper();
+    StkPushRequest request =
+        StkPushRequest.newPayBillRequest("1", "254712345678", "INV-001", "Payment", "url");
+    String response = "{\"CheckoutRequestID\":\"ws_CO_1\",\"ResponseCode\":\"0\"}";
+
+    MpesaCodecs codecs = MpesaCodecs.defaults();
+    StkPushResponse parsed = codecs.readerFor(StkPushResponse.class).readValue(response);
+
+    assertEquals(
+        objectMapper.writeValueAsString(request),
+        codecs.writerFor(StkPushRequest.class).writeValueAsString(request));
+    assertEquals(objectMapper.readValue(response, StkPushResponse.class), parsed);
+  }
+
+  @Test
+  @DisplayName("prime() should run every model through its codecs without failing")
+  void prime_canRunRepeatedly() {
+    MpesaCodecs codecs = MpesaCodecs.of(new ObjectMapper());
+
+    assertDoesNotThrow(codecs::prime);
+    assertDoesNotThrow(codecs::prime);
+  }
+
+  @Test
+  @DisplayName("of() should copy the mapper, so later changes to it are not seen")
+  void of_copiesMapper() throws Exception {
+    ObjectMapper objectMapper = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+    MpesaCodecs codecs = MpesaCodecs.of(objectMapper);
+    objectMapper.disable(SerializationFeature.INDENT_OUTPUT);
+
+    assertTrue(codecs.writerFor(Map.class).writeValueAsString(Map.of("a", 1)).contains("\n"));
+  }
+
+  @Test
+  @DisplayName("withAccessorModule() should fall back to no module when none is on the classpath")
+  void withAccessorModule_withoutModuleOnClasspath_registersNone() throws Exception {
+    MpesaCodecs codecs = MpesaCodecs.withAccessorModule();
+
+    assertNull(codecs.getAccessorModule());
+    assertNotNull(codecs.readerFor(StkPushResponse.class).readValue("{}"));
+  }
+}
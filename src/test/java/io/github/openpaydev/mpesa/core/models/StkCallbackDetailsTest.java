@@ -0,0 +1,40 @@
+package io.github.openpaydev.mpesa.core.models;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class StkCallbackDetailsTest {
+
+  @Test
+  @DisplayName("Should report absent numeric items and an empty item array by default")
+  void builder_defaultsToNoValues() {
+    StkCallbackDetails details = StkCallbackDetails.builder().resultCode(1032).build();
+
+    assertFalse(details.isSuccessful());
+    assertFalse(details.hasAmount());
+    assertFalse(details.hasTransactionDate());
+    assertFalse(details.hasPhoneNumber());
+    assertEquals(StkCallbackDetails.NO_VALUE, details.getAmount());
+    assertNotNull(details.getOtherItems());
+    assertEquals(0, details.getOtherItems().length);
+  }
+
+  @Test
+  @DisplayName("Should report the typed fields that were set")
+  void builder_withValues_reportsThem() {
+    StkCallbackDetails details =
+        StkCallbackDetails.builder()
+            .resultCode(0)
+            .amount(0)
+            .transactionDate(1757151045000L)
+            .phoneNumber(254712345678L)
+            .build();
+
+    assertTrue(details.isSuccessful());
+    assertTrue(details.hasAmount(), "A zero amount is still a value.");
+    assertTrue(details.hasTransactionDate());
+    assertTrue(details.hasPhoneNumber());
+  }
+}
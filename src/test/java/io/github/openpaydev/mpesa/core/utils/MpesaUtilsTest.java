@@ -3,6 +3,9 @@ package io.github.openpaydev.mpesa.core.utils;
 import static org.junit.jupiter.api.Assertions.*;
 
 import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
@@ -77,4 +80,87 @@ class MpesaUtilsTest {
         exception.getMessage().startsWith("Invalid"),
         "Expected exception message to start with 'Invalid'");
   }
+
+  @DisplayName("toMsisdn should return the MSISDN as a long for every accepted format")
+  @ParameterizedTest(name = "Input: \"{0}\"")
+  @ValueSource(
+      strings = {
+        "0712345678",
+        "712345678",
+        "254712345678",
+        "+254712345678",
+        " +254 712 345 678 ",
+        "07\t12 34\n5678",
+        "+ 0712345678"
+      })
+  void toMsisdn_shouldAcceptSameFormatsAsFormatPhoneNumber(String input) {
+    assertEquals(254712345678L, MpesaUtils.toMsisdn(input));
+    assertEquals("254712345678", MpesaUtils.formatPhoneNumber(input));
+  }
+
+  @DisplayName("toMsisdn should reject bad input with the same messages as before")
+  @ParameterizedTest(name = "Input: \"{0}\" -> {1}")
+  @CsvSource(
+      delimiter = '|',
+      value = {
+        "'   '|Phone number cannot be null or empty.",
+        "12345|Invalid phone number format: 12345",
+        "0812345678|Invalid phone number format: 0812345678",
+        "++254712345678|Invalid phone number format: ++254712345678",
+        "+|Invalid phone number format: +",
+        "253712345678|Invalid phone number format: 253712345678",
+        "25412345|Invalid Kenyan phone number: 25412345",
+        "+254799|Invalid Kenyan phone number: +254799",
+        "07123456789|Invalid Kenyan phone number: 07123456789",
+        "0712-345678|Invalid Kenyan phone number: 0712-345678",
+        "254812345678|Invalid Kenyan phone number: 254812345678"
+      })
+  void toMsisdn_shouldRejectWithOriginalMessages(String input, String expectedMessage) {
+    IllegalArgumentException exception =
+        assertThrows(IllegalArgumentException.class, () -> MpesaUtils.toMsisdn(input));
+    assertEquals(expectedMessage, exception.getMessage());
+  }
+
+  @Test
+  @DisplayName("toMsisdn should accept any CharSequence")
+  void toMsisdn_shouldAcceptCharSequence() {
+    assertEquals(254700000001L, MpesaUtils.toMsisdn(new StringBuilder("0700 000 001")));
+  }
+
+  @Test
+  @DisplayName("toMsisdns should normalize an array and report invalid rows by index")
+  void toMsisdns_array_shouldReportInvalidRows() {
+    CharSequence[] input = {"0712345678", "not a number", null, "+254 700 000 001", "254812345678"};
+    List<Integer> invalid = new ArrayList<>();
+
+    long[] msisdns = MpesaUtils.toMsisdns(input, invalid::add);
+
+    assertArrayEquals(
+        new long[] {
+          254712345678L,
+          MpesaUtils.INVALID_MSISDN,
+          MpesaUtils.INVALID_MSISDN,
+          254700000001L,
+          MpesaUtils.INVALID_MSISDN
+        },
+        msisdns);
+    assertEquals(List.of(1, 2, 4), invalid);
+  }
+
+  @Test
+  @DisplayName("toMsisdns should normalize a stream of any length in encounter order")
+  void toMsisdns_stream_shouldKeepEncounterOrder() {
+    List<Integer> invalid = new ArrayList<>();
+
+    long[] msisdns =
+        MpesaUtils.toMsisdns(
+            IntStream.range(0, 200).mapToObj(i -> i == 150 ? "bad" : "0700" + (100000 + i)),
+            invalid::add);
+
+    assertEquals(200, msisdns.length);
+    assertEquals(254700100000L, msisdns[0]);
+    assertEquals(254700100199L, msisdns[199]);
+    assertEquals(MpesaUtils.INVALID_MSISDN, msisdns[150]);
+    assertEquals(List.of(150), invalid);
+  }
 }
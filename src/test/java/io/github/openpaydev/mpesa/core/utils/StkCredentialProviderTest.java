@@ -0,0 +1,117 @@
+package io.github.openpaydev.mpesa.core.utils;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class StkCredentialProviderTest {
+
+  private static final String SHORT_CODE = "174379";
+  private static final String PASS_KEY =
+      "bfb279f9aa9bdbcf158e97dd71a467cd2e0c893059b10f78e6b72ada1ed2c919";
+
+  private final SettableClock clock = new SettableClock(Instant.parse("2025-10-21T07:59:21Z"));
+  private final StkCredentialProvider provider = new StkCredentialProvider(clock);
+
+  @Test
+  @DisplayName("Should produce the Nairobi timestamp and password for the clock's second")
+  void get_matchesMpesaUtils() {
+    StkCredentialProvider.Credentials credentials = provider.get(SHORT_CODE, PASS_KEY);
+
+    assertEquals("20251021105921", credentials.getTimestamp());
+    assertEquals(
+        "MTc0Mzc5YmZiMjc5ZjlhYTliZGJjZjE1OGU5N2RkNzFhNDY3Y2QyZTBjODkzMDU5YjEwZjc4ZTZiNzJhZGExZWQyYzkxOTIwMjUxMDIxMTA1OTIx",
+        credentials.getPassword());
+  }
+
+  @Test
+  @DisplayName("Should return the same instance for every call within one second")
+  void get_withinSameSecond_returnsCachedInstance() {
+    StkCredentialProvider.Credentials first = provider.get(SHORT_CODE, PASS_KEY);
+    clock.set(Instant.parse("2025-10-21T07:59:21.999Z"));
+
+    assertSame(first, provider.get(SHORT_CODE, PASS_KEY));
+  }
+
+  @Test
+  @DisplayName("Should publish a new pair as soon as the second rolls over")
+  void get_atSecondBoundary_returnsNewCredentials() {
+    clock.set(Instant.parse("2025-10-21T07:59:21.999Z"));
+    StkCredentialProvider.Credentials before = provider.get(SHORT_CODE, PASS_KEY);
+    clock.set(Instant.parse("2025-10-21T07:59:22Z"));
+    StkCredentialProvider.Credentials after = provider.get(SHORT_CODE, PASS_KEY);
+
+    assertEquals("20251021105921", before.getTimestamp());
+    assertEquals("20251021105922", after.getTimestamp());
+    assertNotEquals(before.getPassword(), after.getPassword());
+  }
+
+  @Test
+  @DisplayName("Should keep separate credentials per shortcode and follow passkey changes")
+  void get_perShortCodeAndPassKey() {
+    StkCredentialProvider.Credentials a = provider.get("111111", PASS_KEY);
+    StkCredentialProvider.Credentials b = provider.get("222222", PASS_KEY);
+
+    assertNotEquals(a.getPassword(), b.getPassword());
+    assertSame(a, provider.get("111111", PASS_KEY));
+    assertEquals(
+        MpesaUtils.generatePassword("111111", "rotated", a.getTimestamp()),
+        provider.get("111111", "rotated").getPassword());
+  }
+
+  @Test
+  @DisplayName("Should serve concurrent readers the same pair within one second")
+  void get_underConcurrency_returnsConsistentPair() throws Exception {
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    try {
+      List<Future<StkCredentialProvider.Credentials>> futures = new ArrayList<>();
+      for (int i = 0; i < 64; i++) {
+        futures.add(executor.submit(() -> provider.get(SHORT_CODE, PASS_KEY)));
+      }
+      for (Future<StkCredentialProvider.Credentials> future : futures) {
+        assertEquals(provider.get(SHORT_CODE, PASS_KEY), future.get(5, TimeUnit.SECONDS));
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  /** A clock that stays where a test puts it. */
+  private static final class SettableClock extends Clock {
+    private volatile Instant now;
+
+    private SettableClock(Instant now) {
+      this.now = now;
+    }
+
+    private void set(Instant now) {
+      this.now = now;
+    }
+
+    @Override
+    public ZoneId getZone() {
+      return ZoneOffset.UTC;
+    }
+
+    @Override
+    public Clock withZone(ZoneId zone) {
+      return this;
+    }
+
+    @Override
+    public Instant instant() {
+      return now;
+    }
+  }
+}
@@ -0,0 +1,137 @@
+package io.github.openpaydev.mpesa.http;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+class MpesaHttpClientsTest {
+
+  private static final int BURST = 20;
+
+  private MockWebServer mockWebServer;
+  private final CountDownLatch release = new CountDownLatch(1);
+
+  @BeforeEach
+  void setUp() throws IOException {
+    mockWebServer = new MockWebServer();
+    // Hold every response until the test releases them, so calls pile up in the dispatcher.
+    mockWebServer.setDispatcher(
+        new Dispatcher() {
+          @Override
+          public MockResponse dispatch(RecordedRequest request) throws InterruptedException {
+            release.await(10, TimeUnit.SECONDS);
+            return new MockResponse().setBody("{}");
+          }
+        });
+    mockWebServer.start();
+  }
+
+  @AfterEach
+  void tearDown() throws IOException {
+    release.countDown();
+    mockWebServer.shutdown();
+  }
+
+  @ParameterizedTest
+  @EnumSource(MpesaHttpProfile.class)
+  @DisplayName("create() should apply the profile's dispatcher, pool and timeout settings")
+  void create_appliesProfile(MpesaHttpProfile profile) {
+    OkHttpClient client = MpesaHttpClients.create(profile);
+
+    assertEquals(profile.getMaxRequests(), client.dispatcher().getMaxRequests());
+    assertEquals(profile.getMaxRequestsPerHost(), client.dispatcher().getMaxRequestsPerHost());
+    assertEquals(profile.getConnectTimeout().toMillis(), client.connectTimeoutMillis());
+    assertEquals(profile.getReadTimeout().toMillis(), client.readTimeoutMillis());
+    assertEquals(profile.getWriteTimeout().toMillis(), client.writeTimeoutMillis());
+    assertEquals(profile.getCallTimeout().toMillis(), client.callTimeoutMillis());
+  }
+
+  @Test
+  @DisplayName("shared() should return one client per profile")
+  void shared_returnsOneClientPerProfile() {
+    OkHttpClient throughput = MpesaHttpClients.shared(MpesaHttpProfile.THROUGHPUT);
+
+    assertSame(throughput, MpesaHttpClients.shared(MpesaHttpProfile.THROUGHPUT));
+    assertNotSame(throughput, MpesaHttpClients.shared(MpesaHttpProfile.LATENCY));
+  }
+
+  @Test
+  @DisplayName("create() should give each client its own pool and dispatcher")
+  void create_returnsIndependentClients() {
+    OkHttpClient first = MpesaHttpClients.create(MpesaHttpProfile.LATENCY);
+    OkHttpClient second = MpesaHttpClients.create(MpesaHttpProfile.LATENCY);
+
+    assertNotSame(first.connectionPool(), second.connectionPool());
+    assertNotSame(first.dispatcher(), second.dispatcher());
+  }
+
+  @Test
+  @DisplayName("A stock OkHttpClient should queue all but 5 concurrent calls to one host")
+  void stats_withStockClient_showQueuedCalls() throws Exception {
+    OkHttpClient client = new OkHttpClient();
+
+    CountDownLatch done = enqueueBurst(client);
+    MpesaHttpStats stats = MpesaHttpClients.stats(client);
+    release.countDown();
+
+    assertEquals(5, stats.getRunningCalls());
+    assertEquals(BURST - 5, stats.getQueuedCalls());
+    assertEquals(5, stats.getMaxRequestsPerHost());
+    assertTrue(done.await(10, TimeUnit.SECONDS));
+  }
+
+  @Test
+  @DisplayName("A tuned client should run a burst of calls without queueing them")
+  void stats_withTunedClient_showNoQueuedCalls() throws Exception {
+    OkHttpClient client = MpesaHttpClients.create(MpesaHttpProfile.THROUGHPUT);
+
+    CountDownLatch done = enqueueBurst(client);
+    MpesaHttpStats stats = MpesaHttpClients.stats(client);
+    release.countDown();
+
+    assertEquals(BURST, stats.getRunningCalls());
+    assertEquals(0, stats.getQueuedCalls());
+    assertTrue(done.await(10, TimeUnit.SECONDS));
+    assertTrue(MpesaHttpClients.stats(client).getConnectionCount() > 0);
+  }
+
+  private CountDownLatch enqueueBurst(OkHttpClient client) {
+    CountDownLatch done = new CountDownLatch(BURST);
+    Request request = new Request.Builder().url(mockWebServer.url("/")).build();
+    for (int i = 0; i < BURST; i++) {
+      client
+          .newCall(request)
+          .enqueue(
+              new Callback() {
+                @Override
+                public void onFailure(Call call, IOException e) {
+                  done.countDown();
+                }
+
+                @Override
+                public void onResponse(Call call, Response response) {
+                  response.close();
+                  done.countDown();
+                }
+              });
+    }
+    return done;
+  }
+}
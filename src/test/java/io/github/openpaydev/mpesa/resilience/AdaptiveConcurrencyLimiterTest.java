@@ -0,0 +1,186 @@
+package io.github.openpaydev.mpesa.resilience;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import io.github.openpaydev.mpesa.core.exceptions.MpesaConcurrencyLimitException;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class AdaptiveConcurrencyLimiterTest {
+
+  private static final long MS = TimeUnit.MILLISECONDS.toNanos(1);
+
+  private final AtomicLong now = new AtomicLong(1_000_000 * MS);
+
+  @Test
+  @DisplayName("Calls beyond the limit should queue until a slot is given back")
+  void acquireAsync_atLimit_queuesUntilSlotFrees() throws Exception {
+    AdaptiveConcurrencyLimiter limiter = limiter(policy(2));
+    limiter.acquire();
+    limiter.acquire();
+
+    CompletableFuture<Void> queued = limiter.acquireAsync();
+
+    assertFalse(queued.isDone());
+    assertEquals(2, limiter.getInFlight());
+    assertEquals(1, limiter.getQueueDepth());
+
+    limiter.onIgnored();
+
+    assertTrue(queued.isDone());
+    assertEquals(2, limiter.getInFlight());
+    assertEquals(0, limiter.getQueueDepth());
+  }
+
+  @Test
+  @DisplayName("The limit should grow by about one per limit's worth of calls while in use")
+  void onSuccess_whileLimitIsInUse_growsLimit() throws Exception {
+    AdaptiveConcurrencyLimiter limiter = limiter(policy(4));
+    for (int i = 0; i < 4; i++) {
+      limiter.acquire();
+    }
+
+    for (int i = 0; i < 5; i++) {
+      limiter.onSuccess(10 * MS);
+      limiter.acquire();
+    }
+
+    assertEquals(5, limiter.getLimit());
+  }
+
+  @Test
+  @DisplayName("The limit should not grow while most of it is unused")
+  void onSuccess_whileLimitIsUnused_keepsLimit() throws Exception {
+    AdaptiveConcurrencyLimiter limiter = limiter(policy(4));
+
+    for (int i = 0; i < 20; i++) {
+      limiter.acquire();
+      limiter.onSuccess(10 * MS);
+    }
+
+    assertEquals(4, limiter.getLimit());
+  }
+
+  @Test
+  @DisplayName("A call much slower than the lowest round trip should shrink the limit once")
+  void onSuccess_slowCall_backsOffOncePerRoundTrip() throws Exception {
+    AdaptiveConcurrencyLimiter limiter = limiter(policy(20));
+    limiter.acquire();
+    limiter.onSuccess(10 * MS);
+    now.addAndGet(20 * MS);
+
+    limiter.acquire();
+    limiter.onSuccess(50 * MS);
+    limiter.acquire();
+    limiter.onSuccess(50 * MS);
+
+    assertEquals(18, limiter.getLimit());
+
+    now.addAndGet(20 * MS);
+    limiter.acquire();
+    limiter.onSuccess(50 * MS);
+
+    assertEquals(16, limiter.getLimit());
+  }
+
+  @Test
+  @DisplayName("Dropped calls should never take the limit below minLimit")
+  void onDropped_stopsAtMinLimit() throws Exception {
+    AdaptiveConcurrencyLimiter limiter = limiter(policy(4).toBuilder().minLimit(3).build());
+
+    for (int i = 0; i < 10; i++) {
+      now.addAndGet(1000 * MS);
+      limiter.acquire();
+      limiter.onDropped();
+    }
+
+    assertEquals(3, limiter.getLimit());
+    assertEquals(0, limiter.getInFlight());
+  }
+
+  @Test
+  @DisplayName("A call should fail at once when the queue is full")
+  void acquireAsync_whenQueueIsFull_fails() throws Exception {
+    AdaptiveConcurrencyLimiter limiter = limiter(policy(1).toBuilder().maxQueueSize(1).build());
+    limiter.acquire();
+    CompletableFuture<Void> queued = limiter.acquireAsync();
+
+    CompletableFuture<Void> rejected = limiter.acquireAsync();
+
+    ExecutionException exception = assertThrows(ExecutionException.class, rejected::get);
+    assertInstanceOf(MpesaConcurrencyLimitException.class, exception.getCause());
+    assertThrows(MpesaConcurrencyLimitException.class, limiter::acquire);
+    assertFalse(queued.isDone());
+    assertEquals(1, limiter.getQueueDepth());
+  }
+
+  @Test
+  @DisplayName("A queued call should fail once it has waited maxQueueWait, without a slot")
+  void acquireAsync_whenWaitTimesOut_fails() throws Exception {
+    AdaptiveConcurrencyLimiter limiter =
+        limiter(policy(1).toBuilder().maxQueueWait(Duration.ofMillis(50)).build());
+    limiter.acquire();
+
+    CompletableFuture<Void> queued = limiter.acquireAsync();
+
+    ExecutionException exception =
+        assertThrows(ExecutionException.class, () -> queued.get(5, TimeUnit.SECONDS));
+    assertInstanceOf(MpesaConcurrencyLimitException.class, exception.getCause());
+
+    limiter.onIgnored();
+
+    assertEquals(0, limiter.getInFlight());
+  }
+
+  @Test
+  @DisplayName("Cancelling a queued call should leave the queue without taking a slot")
+  void acquireAsync_whenCancelled_doesNotTakeSlot() throws Exception {
+    AdaptiveConcurrencyLimiter limiter = limiter(policy(1));
+    limiter.acquire();
+    CompletableFuture<Void> queued = limiter.acquireAsync();
+
+    queued.cancel(false);
+    limiter.onIgnored();
+
+    assertEquals(0, limiter.getQueueDepth());
+    assertEquals(0, limiter.getInFlight());
+  }
+
+  @Test
+  @DisplayName("An unlimited limiter should never queue or fail")
+  void unlimited_neverLimits() throws Exception {
+    AdaptiveConcurrencyLimiter limiter = AdaptiveConcurrencyLimiter.unlimited();
+
+    for (int i = 0; i < 10_000; i++) {
+      assertTrue(limiter.acquireAsync().isDone());
+    }
+    limiter.onDropped();
+
+    assertEquals(Integer.MAX_VALUE, limiter.getLimit());
+    assertEquals(0, limiter.getQueueDepth());
+  }
+
+  @Test
+  @DisplayName("Inconsistent limits should be rejected")
+  void create_inconsistentLimits_throws() {
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> AdaptiveConcurrencyLimiter.create(policy(1).toBuilder().minLimit(2).build()));
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> AdaptiveConcurrencyLimiter.create(policy(10).toBuilder().maxLimit(5).build()));
+  }
+
+  private static AdaptiveConcurrencyPolicy policy(int initialLimit) {
+    return AdaptiveConcurrencyPolicy.builder().initialLimit(initialLimit).minLimit(1).build();
+  }
+
+  private AdaptiveConcurrencyLimiter limiter(AdaptiveConcurrencyPolicy policy) {
+    return new AdaptiveConcurrencyLimiter(policy, now::get);
+  }
+}
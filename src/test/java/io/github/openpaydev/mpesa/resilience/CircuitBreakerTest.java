@@ -0,0 +1,167 @@
+package io.github.openpaydev.mpesa.resilience;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import io.github.openpaydev.mpesa.core.exceptions.MpesaCircuitOpenException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class CircuitBreakerTest {
+
+  private static final String ENDPOINT = "https://sandbox.safaricom.co.ke/mpesa/stkpush";
+  private static final long MS = TimeUnit.MILLISECONDS.toNanos(1);
+
+  private static final CircuitBreakerPolicy POLICY =
+      CircuitBreakerPolicy.builder()
+          .minimumCalls(4)
+          .failureRateThreshold(0.5)
+          .slowCallRateThreshold(0.5)
+          .slowCallDuration(Duration.ofMillis(100))
+          .window(Duration.ofSeconds(10))
+          .openDuration(Duration.ofSeconds(30))
+          .halfOpenCalls(2)
+          .build();
+
+  private final AtomicLong now = new AtomicLong(1_000_000 * MS);
+  private final List<String> transitions = new ArrayList<>();
+  private final CircuitBreaker breaker =
+      new CircuitBreaker(
+          ENDPOINT, POLICY, (endpoint, from, to) -> transitions.add(from + "->" + to), now::get);
+
+  @Test
+  @DisplayName("The breaker should open once the failure rate crosses the threshold")
+  void record_failureRateAboveThreshold_opens() throws Exception {
+    call(false);
+    call(false);
+    call(true);
+    assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+
+    call(true);
+
+    assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+    assertEquals(List.of("CLOSED->OPEN"), transitions);
+    MpesaCircuitOpenException exception =
+        assertThrows(MpesaCircuitOpenException.class, breaker::acquire);
+    assertEquals(ENDPOINT, exception.getEndpoint());
+    assertEquals(Duration.ofSeconds(30), exception.getRetryAfter());
+  }
+
+  @Test
+  @DisplayName("The breaker should stay closed until the window has minimumCalls calls")
+  void record_belowMinimumCalls_staysClosed() throws Exception {
+    call(true);
+    call(true);
+    call(true);
+
+    assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+  }
+
+  @Test
+  @DisplayName("The breaker should open once too many calls are slow")
+  void record_slowCallRateAboveThreshold_opens() throws Exception {
+    for (int i = 0; i < 4; i++) {
+      breaker.record(breaker.acquire(), 150 * MS, false);
+    }
+
+    assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+  }
+
+  @Test
+  @DisplayName("Calls older than the window should not count")
+  void record_outsideWindow_isForgotten() throws Exception {
+    call(true);
+    call(true);
+    call(true);
+    now.addAndGet(TimeUnit.SECONDS.toNanos(11));
+
+    call(true);
+
+    assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+  }
+
+  @Test
+  @DisplayName("After the open duration the breaker should let trial calls through and close")
+  void halfOpen_trialCallsSucceed_closes() throws Exception {
+    trip();
+    now.addAndGet(TimeUnit.SECONDS.toNanos(30));
+
+    long first = breaker.acquire();
+    long second = breaker.acquire();
+    assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+    assertThrows(MpesaCircuitOpenException.class, breaker::acquire);
+    breaker.record(first, MS, false);
+    breaker.record(second, MS, false);
+
+    assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    assertEquals(List.of("CLOSED->OPEN", "OPEN->HALF_OPEN", "HALF_OPEN->CLOSED"), transitions);
+  }
+
+  @Test
+  @DisplayName("A failed trial call should open the breaker again")
+  void halfOpen_trialCallFails_reopens() throws Exception {
+    trip();
+    now.addAndGet(TimeUnit.SECONDS.toNanos(30));
+
+    breaker.record(breaker.acquire(), MS, true);
+
+    assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+    assertThrows(MpesaCircuitOpenException.class, breaker::acquire);
+  }
+
+  @Test
+  @DisplayName("A released trial permit should let another trial call through")
+  void halfOpen_release_freesTrialPermit() throws Exception {
+    trip();
+    now.addAndGet(TimeUnit.SECONDS.toNanos(30));
+    long first = breaker.acquire();
+    breaker.acquire();
+
+    breaker.release(first);
+
+    assertDoesNotThrow(breaker::acquire);
+  }
+
+  @Test
+  @DisplayName("Outcomes of calls admitted before a transition should be ignored")
+  void record_staleOutcome_isIgnored() throws Exception {
+    long beforeOpening = breaker.acquire();
+    trip();
+    now.addAndGet(TimeUnit.SECONDS.toNanos(30));
+    breaker.acquire();
+
+    breaker.record(beforeOpening, MS, false);
+    breaker.record(beforeOpening, MS, false);
+
+    assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+  }
+
+  @Test
+  @DisplayName("A breaker with a disabled policy should never open")
+  void disabledPolicy_neverOpens() throws Exception {
+    CircuitBreaker disabled =
+        new CircuitBreaker(
+            ENDPOINT, CircuitBreakerPolicy.disabled(), (endpoint, from, to) -> {}, now::get);
+
+    for (int i = 0; i < 100; i++) {
+      disabled.record(disabled.acquire(), MS, true);
+    }
+
+    assertEquals(CircuitBreaker.State.CLOSED, disabled.getState());
+  }
+
+  private void trip() throws MpesaCircuitOpenException {
+    for (int i = 0; i < 4; i++) {
+      call(true);
+    }
+    assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+  }
+
+  private void call(boolean failed) throws MpesaCircuitOpenException {
+    breaker.record(breaker.acquire(), MS, failed);
+  }
+}
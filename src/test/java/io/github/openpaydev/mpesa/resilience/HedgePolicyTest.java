@@ -0,0 +1,26 @@
+package io.github.openpaydev.mpesa.resilience;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.Duration;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class HedgePolicyTest {
+
+  @Test
+  @DisplayName("disabled() should never hedge")
+  void disabled_isNotEnabled() {
+    assertFalse(HedgePolicy.disabled().isEnabled());
+  }
+
+  @Test
+  @DisplayName("Builder defaults should send one hedge after a second")
+  void builder_defaults() {
+    HedgePolicy policy = HedgePolicy.builder().build();
+
+    assertTrue(policy.isEnabled());
+    assertEquals(1, policy.getMaxHedges());
+    assertEquals(Duration.ofSeconds(1), policy.getDelay());
+  }
+}
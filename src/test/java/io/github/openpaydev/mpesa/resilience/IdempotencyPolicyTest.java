@@ -0,0 +1,31 @@
+package io.github.openpaydev.mpesa.resilience;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.Duration;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class IdempotencyPolicyTest {
+
+  @Test
+  @DisplayName("defaults() should remember keys for a minute and derive none")
+  void defaults_honourExplicitKeysOnly() {
+    IdempotencyPolicy policy = IdempotencyPolicy.defaults();
+
+    assertEquals(Duration.ofMinutes(1), policy.getWindow());
+    assertEquals(10_000, policy.getMaxKeys());
+    assertFalse(policy.isDeriveKeys());
+  }
+
+  @Test
+  @DisplayName("toBuilder should keep the settings it does not change")
+  void toBuilder_keepsOtherSettings() {
+    IdempotencyPolicy policy =
+        IdempotencyPolicy.defaults().toBuilder().deriveKeys(true).maxKeys(500).build();
+
+    assertTrue(policy.isDeriveKeys());
+    assertEquals(500, policy.getMaxKeys());
+    assertEquals(Duration.ofMinutes(1), policy.getWindow());
+  }
+}
@@ -0,0 +1,92 @@
+package io.github.openpaydev.mpesa.resilience;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class MpesaCircuitBreakersTest {
+
+  private static final String STK_PUSH = "https://sandbox.safaricom.co.ke/mpesa/stkpush";
+  private static final String STK_QUERY = "https://sandbox.safaricom.co.ke/mpesa/stkpushquery";
+
+  @Test
+  @DisplayName("forEndpoint should return one breaker per URL")
+  void forEndpoint_returnsOneBreakerPerUrl() {
+    MpesaCircuitBreakers breakers = MpesaCircuitBreakers.create();
+
+    assertSame(breakers.forEndpoint(STK_PUSH), breakers.forEndpoint(STK_PUSH));
+    assertNotSame(breakers.forEndpoint(STK_PUSH), breakers.forEndpoint(STK_QUERY));
+    assertEquals(
+        Map.of(STK_PUSH, CircuitBreaker.State.CLOSED, STK_QUERY, CircuitBreaker.State.CLOSED),
+        breakers.states());
+  }
+
+  @Test
+  @DisplayName("A failing endpoint should not open the breakers of other endpoints")
+  void failingEndpoint_doesNotAffectOthers() throws Exception {
+    MpesaCircuitBreakers breakers =
+        MpesaCircuitBreakers.create(CircuitBreakerPolicy.builder().minimumCalls(2).build());
+    List<String> transitions = new ArrayList<>();
+    breakers.addListener((endpoint, from, to) -> transitions.add(endpoint + " " + to));
+
+    CircuitBreaker stkPush = breakers.forEndpoint(STK_PUSH);
+    stkPush.record(stkPush.acquire(), 1, true);
+    stkPush.record(stkPush.acquire(), 1, true);
+
+    assertEquals(CircuitBreaker.State.OPEN, stkPush.getState());
+    assertEquals(CircuitBreaker.State.CLOSED, breakers.forEndpoint(STK_QUERY).getState());
+    assertEquals(List.of(STK_PUSH + " OPEN"), transitions);
+  }
+
+  @Test
+  @DisplayName("disabled() should hand out breakers that never open and are not tracked")
+  void disabled_neverOpens() throws Exception {
+    MpesaCircuitBreakers breakers = MpesaCircuitBreakers.disabled();
+    CircuitBreaker breaker = breakers.forEndpoint(STK_PUSH);
+
+    for (int i = 0; i < 100; i++) {
+      breaker.record(breaker.acquire(), 1, true);
+    }
+
+    assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    assertTrue(breakers.states().isEmpty());
+  }
+
+  @Test
+  @DisplayName("Policies with settings out of range should be rejected")
+  void create_invalidPolicy_throws() {
+    CircuitBreakerPolicy defaults = CircuitBreakerPolicy.defaults();
+    List<CircuitBreakerPolicy> invalid =
+        List.of(
+            defaults.toBuilder().halfOpenCalls(0).build(),
+            defaults.toBuilder().minimumCalls(0).build(),
+            defaults.toBuilder().window(Duration.ZERO).build(),
+            defaults.toBuilder().openDuration(Duration.ofSeconds(-1)).build(),
+            defaults.toBuilder().slowCallDuration(Duration.ZERO).build(),
+            defaults.toBuilder().failureRateThreshold(0).build(),
+            defaults.toBuilder().slowCallRateThreshold(1.5).build());
+
+    for (CircuitBreakerPolicy policy : invalid) {
+      assertThrows(IllegalArgumentException.class, () -> MpesaCircuitBreakers.create(policy));
+    }
+    assertNotNull(
+        MpesaCircuitBreakers.create(defaults.toBuilder().halfOpenCalls(1).build())
+            .forEndpoint(STK_PUSH));
+  }
+
+  @Test
+  @DisplayName("The default policy should not count Daraja's 500 business errors as failures")
+  void defaultPolicy_ignoresPlain500() {
+    CircuitBreakerPolicy policy = CircuitBreakerPolicy.defaults();
+
+    assertTrue(policy.isEnabled());
+    assertTrue(policy.isFailureStatus(503));
+    assertFalse(policy.isFailureStatus(500));
+    assertFalse(policy.isFailureStatus(400));
+  }
+}
@@ -0,0 +1,169 @@
+package io.github.openpaydev.mpesa.resilience;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.when;
+
+import io.github.openpaydev.mpesa.core.MpesaConfig;
+import io.github.openpaydev.mpesa.core.MpesaEnvironment;
+import io.github.openpaydev.mpesa.core.MpesaOperation;
+import io.github.openpaydev.mpesa.core.exceptions.MpesaRateLimitException;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+@ExtendWith(MockitoExtension.class)
+class MpesaRateLimiterTest {
+
+  private static final RateLimit FAIL_FAST_ONE_PER_SECOND =
+      RateLimit.perSecond(1).toBuilder().mode(RateLimitMode.FAIL_FAST).build();
+
+  private final AtomicLong now = new AtomicLong();
+
+  @Mock private MpesaConfig mpesaConfig;
+
+  @Mock private MpesaEnvironment mockEnvironment;
+
+  @Test
+  @DisplayName("unlimited() should never make a call wait")
+  void unlimited_neverWaits() throws Exception {
+    MpesaRateLimiter limiter = MpesaRateLimiter.unlimited();
+
+    for (int i = 0; i < 1000; i++) {
+      limiter.acquire("174379", MpesaOperation.STK_PUSH);
+    }
+    assertTrue(limiter.acquireAsync("174379", MpesaOperation.STK_PUSH).isDone());
+    assertEquals(Duration.ZERO, limiter.nextPermitDelay("174379", MpesaOperation.STK_PUSH));
+  }
+
+  @Test
+  @DisplayName("FAIL_FAST should refuse a call with the time until the next permit")
+  void acquire_failFast_throwsWithRetryAfter() throws Exception {
+    MpesaRateLimiter limiter = limiter(Map.of(MpesaOperation.STK_PUSH, FAIL_FAST_ONE_PER_SECOND));
+    limiter.acquire("174379", MpesaOperation.STK_PUSH);
+
+    MpesaRateLimitException exception =
+        assertThrows(
+            MpesaRateLimitException.class,
+            () -> limiter.acquire("174379", MpesaOperation.STK_PUSH));
+
+    assertEquals(Duration.ofSeconds(1), exception.getRetryAfter());
+    assertTrue(exception.getMessage().contains("STK_PUSH"));
+  }
+
+  @Test
+  @DisplayName("Buckets should be independent per shortcode and per operation")
+  void buckets_areIndependentPerShortCodeAndOperation() throws Exception {
+    MpesaRateLimiter limiter =
+        limiter(
+            Map.of(
+                MpesaOperation.STK_PUSH, FAIL_FAST_ONE_PER_SECOND,
+                MpesaOperation.STK_QUERY, FAIL_FAST_ONE_PER_SECOND));
+    limiter.acquire("174379", MpesaOperation.STK_PUSH);
+
+    limiter.acquire("600000", MpesaOperation.STK_PUSH);
+    limiter.acquire("174379", MpesaOperation.STK_QUERY);
+    limiter.acquire("174379", MpesaOperation.C2B_REGISTER);
+    assertThrows(
+        MpesaRateLimitException.class, () -> limiter.acquire("174379", MpesaOperation.STK_PUSH));
+
+    now.addAndGet(TimeUnit.SECONDS.toNanos(1));
+    limiter.acquire("174379", MpesaOperation.STK_PUSH);
+  }
+
+  @Test
+  @DisplayName("QUEUE should wait for a permit due within maxWait and refuse one due later")
+  void acquireAsync_queue_waitsWithinMaxWait() throws Exception {
+    RateLimit limit =
+        RateLimit.builder()
+            .permitsPerSecond(20)
+            .mode(RateLimitMode.QUEUE)
+            .maxWait(Duration.ofMillis(60))
+            .build();
+    MpesaRateLimiter limiter = limiter(Map.of(MpesaOperation.STK_QUERY, limit));
+
+    assertTrue(limiter.acquireAsync("174379", MpesaOperation.STK_QUERY).isDone());
+    CompletableFuture<Void> queued = limiter.acquireAsync("174379", MpesaOperation.STK_QUERY);
+    CompletableFuture<Void> refused = limiter.acquireAsync("174379", MpesaOperation.STK_QUERY);
+
+    assertFalse(queued.isDone());
+    queued.get(5, TimeUnit.SECONDS);
+    ExecutionException exception = assertThrows(ExecutionException.class, refused::get);
+    assertInstanceOf(MpesaRateLimitException.class, exception.getCause());
+  }
+
+  @Test
+  @DisplayName("BLOCK should make the caller wait for the next permit")
+  void acquire_block_waitsForPermit() throws Exception {
+    MpesaRateLimiter limiter = limiter(Map.of(MpesaOperation.STK_PUSH, RateLimit.perSecond(20)));
+    limiter.acquire("174379", MpesaOperation.STK_PUSH);
+
+    long start = System.nanoTime();
+    limiter.acquire("174379", MpesaOperation.STK_PUSH);
+
+    assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(45));
+  }
+
+  @Test
+  @DisplayName("of() should reject an invalid limit straight away")
+  void of_withInvalidLimit_throws() {
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> MpesaRateLimiter.of(Map.of(MpesaOperation.AUTH, RateLimit.perSecond(0))));
+  }
+
+  @Test
+  @DisplayName("authInterceptor should limit token requests only")
+  void authInterceptor_limitsOnlyTokenRequests() throws Exception {
+    try (MockWebServer mockWebServer = new MockWebServer()) {
+      for (int i = 0; i < 3; i++) {
+        mockWebServer.enqueue(new MockResponse().setBody("{}"));
+      }
+      when(mpesaConfig.getBusinessShortCode()).thenReturn("174379");
+      when(mpesaConfig.getEnvironment()).thenReturn(mockEnvironment);
+      when(mockEnvironment.getAuthUrl())
+          .thenReturn(
+              mockWebServer.url("/oauth/v1/generate?grant_type=client_credentials").toString());
+      MpesaRateLimiter limiter = limiter(Map.of(MpesaOperation.AUTH, FAIL_FAST_ONE_PER_SECOND));
+      OkHttpClient client =
+          new OkHttpClient.Builder().addInterceptor(limiter.authInterceptor(mpesaConfig)).build();
+      Request token =
+          new Request.Builder()
+              .url(mockWebServer.url("/oauth/v1/generate?grant_type=client_credentials"))
+              .build();
+      Request other = new Request.Builder().url(mockWebServer.url("/mpesa/other")).build();
+
+      try (Response response = client.newCall(token).execute()) {
+        assertTrue(response.isSuccessful());
+      }
+      IOException exception =
+          assertThrows(IOException.class, () -> client.newCall(token).execute().close());
+      try (Response response = client.newCall(other).execute()) {
+        assertTrue(response.isSuccessful());
+      }
+      try (Response response = client.newCall(other).execute()) {
+        assertTrue(response.isSuccessful());
+      }
+
+      assertInstanceOf(MpesaRateLimitException.class, exception.getCause());
+      assertEquals(3, mockWebServer.getRequestCount());
+    }
+  }
+
+  private MpesaRateLimiter limiter(Map<MpesaOperation, RateLimit> limits) {
+    return new MpesaRateLimiter(limits, now::get);
+  }
+}
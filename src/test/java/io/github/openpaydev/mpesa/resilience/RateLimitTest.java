@@ -0,0 +1,32 @@
+package io.github.openpaydev.mpesa.resilience;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.Duration;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class RateLimitTest {
+
+  @Test
+  @DisplayName("perSecond should build a blocking limit without bursts")
+  void perSecond_buildsBlockingLimit() {
+    RateLimit limit = RateLimit.perSecond(5);
+
+    assertEquals(5.0, limit.getPermitsPerSecond());
+    assertEquals(1, limit.getBurst());
+    assertEquals(RateLimitMode.BLOCK, limit.getMode());
+  }
+
+  @Test
+  @DisplayName("maxWaitNanos should follow the mode")
+  void maxWaitNanos_followsMode() {
+    RateLimit limit = RateLimit.perSecond(5).toBuilder().maxWait(Duration.ofMillis(250)).build();
+
+    assertEquals(Long.MAX_VALUE, limit.maxWaitNanos());
+    assertEquals(
+        Duration.ofMillis(250).toNanos(),
+        limit.toBuilder().mode(RateLimitMode.QUEUE).build().maxWaitNanos());
+    assertEquals(0, limit.toBuilder().mode(RateLimitMode.FAIL_FAST).build().maxWaitNanos());
+  }
+}
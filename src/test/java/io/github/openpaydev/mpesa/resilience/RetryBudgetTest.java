@@ -0,0 +1,77 @@
+package io.github.openpaydev.mpesa.resilience;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class RetryBudgetTest {
+
+  @Test
+  @DisplayName("A new budget should start full")
+  void create_startsFull() {
+    assertEquals(10, RetryBudget.create().available());
+    assertEquals(3, RetryBudget.create(0.5, 3).available());
+  }
+
+  @Test
+  @DisplayName("tryWithdraw should fail once the budget is empty")
+  void tryWithdraw_whenEmpty_returnsFalse() {
+    RetryBudget budget = RetryBudget.create(0.5, 2);
+
+    assertTrue(budget.tryWithdraw());
+    assertTrue(budget.tryWithdraw());
+    assertFalse(budget.tryWithdraw());
+    assertEquals(0, budget.available());
+  }
+
+  @Test
+  @DisplayName("deposit should earn ratio retries per call, up to maxTokens")
+  void deposit_earnsRatioUpToMax() {
+    RetryBudget budget = RetryBudget.create(0.5, 2);
+    budget.tryWithdraw();
+    budget.tryWithdraw();
+
+    budget.deposit();
+    assertFalse(budget.tryWithdraw());
+    budget.deposit();
+    assertTrue(budget.tryWithdraw());
+
+    for (int i = 0; i < 100; i++) {
+      budget.deposit();
+    }
+    assertEquals(2, budget.available());
+  }
+
+  @Test
+  @DisplayName("create should reject negative settings")
+  void create_withNegativeSettings_throws() {
+    assertThrows(IllegalArgumentException.class, () -> RetryBudget.create(-0.1, 10));
+    assertThrows(IllegalArgumentException.class, () -> RetryBudget.create(0.1, -1));
+  }
+
+  @Test
+  @DisplayName("Concurrent withdrawals should never overdraw the budget")
+  void tryWithdraw_concurrently_neverOverdraws() throws Exception {
+    RetryBudget budget = RetryBudget.create(0, 100);
+    AtomicInteger granted = new AtomicInteger();
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+
+    for (int i = 0; i < 1000; i++) {
+      executor.execute(
+          () -> {
+            if (budget.tryWithdraw()) {
+              granted.incrementAndGet();
+            }
+          });
+    }
+    executor.shutdown();
+    assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+    assertEquals(100, granted.get());
+  }
+}
@@ -0,0 +1,64 @@
+package io.github.openpaydev.mpesa.resilience;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.Duration;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class RetryPolicyTest {
+
+  @Test
+  @DisplayName("defaults() should allow 3 attempts and retry gateway and throttling statuses only")
+  void defaults_retryTransientStatuses() {
+    RetryPolicy policy = RetryPolicy.defaults();
+
+    assertEquals(3, policy.getMaxAttempts());
+    assertTrue(policy.isRetryableStatus(429));
+    assertTrue(policy.isRetryableStatus(503));
+    assertFalse(policy.isRetryableStatus(500));
+    assertFalse(policy.isRetryableStatus(400));
+  }
+
+  @Test
+  @DisplayName("none() should allow a single attempt")
+  void none_allowsSingleAttempt() {
+    assertEquals(1, RetryPolicy.none().getMaxAttempts());
+  }
+
+  @Test
+  @DisplayName("backoff should stay within the exponentially growing bound")
+  void backoff_staysWithinBound() {
+    RetryPolicy policy =
+        RetryPolicy.builder()
+            .initialBackoff(Duration.ofMillis(100))
+            .maxBackoff(Duration.ofMillis(300))
+            .build();
+
+    for (int i = 0; i < 1000; i++) {
+      assertFalse(policy.backoff(1).compareTo(Duration.ofMillis(100)) > 0);
+      assertFalse(policy.backoff(2).compareTo(Duration.ofMillis(200)) > 0);
+      assertFalse(policy.backoff(5).compareTo(Duration.ofMillis(300)) > 0);
+      assertFalse(policy.backoff(5).isNegative());
+    }
+  }
+
+  @Test
+  @DisplayName("backoff should be jittered rather than fixed")
+  void backoff_isJittered() {
+    RetryPolicy policy = RetryPolicy.defaults();
+
+    long distinct = IntStream.range(0, 50).mapToObj(i -> policy.backoff(3)).distinct().count();
+
+    assertTrue(distinct > 1);
+  }
+
+  @Test
+  @DisplayName("backoff should be zero when the initial backoff is zero")
+  void backoff_withZeroInitialBackoff_isZero() {
+    RetryPolicy policy = RetryPolicy.builder().initialBackoff(Duration.ZERO).build();
+
+    assertEquals(Duration.ZERO, policy.backoff(3));
+  }
+}
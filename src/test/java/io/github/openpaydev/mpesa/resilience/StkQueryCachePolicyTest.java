@@ -0,0 +1,27 @@
+package io.github.openpaydev.mpesa.resilience;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.Duration;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class StkQueryCachePolicyTest {
+
+  @Test
+  @DisplayName("defaults() should keep final results for an hour and pending ones for a second")
+  void defaults_keepFinalResultsLonger() {
+    StkQueryCachePolicy policy = StkQueryCachePolicy.defaults();
+
+    assertTrue(policy.isEnabled());
+    assertEquals(Duration.ofHours(1), policy.getFinalResultTtl());
+    assertEquals(Duration.ofSeconds(1), policy.getPendingResultTtl());
+    assertEquals(10_000, policy.getMaxEntries());
+  }
+
+  @Test
+  @DisplayName("disabled() should cache nothing")
+  void disabled_isNotEnabled() {
+    assertFalse(StkQueryCachePolicy.disabled().isEnabled());
+  }
+}
@@ -0,0 +1,98 @@
+package io.github.openpaydev.mpesa.resilience;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class TokenBucketTest {
+
+  private static final long MS = TimeUnit.MILLISECONDS.toNanos(1);
+
+  private final AtomicLong now = new AtomicLong(1_000_000 * MS);
+
+  @Test
+  @DisplayName("reserve should allow a full burst straight away, then space permits out")
+  void reserve_allowsBurstThenSpacesPermits() {
+    TokenBucket bucket = new TokenBucket(10, 3, now::get);
+
+    assertEquals(0, bucket.reserve(Long.MAX_VALUE));
+    assertEquals(0, bucket.reserve(Long.MAX_VALUE));
+    assertEquals(0, bucket.reserve(Long.MAX_VALUE));
+    assertEquals(100 * MS, bucket.reserve(Long.MAX_VALUE));
+    assertEquals(200 * MS, bucket.reserve(Long.MAX_VALUE));
+  }
+
+  @Test
+  @DisplayName("reserve should refuse, without reserving, a permit due after maxWait")
+  void reserve_beyondMaxWait_reservesNothing() {
+    TokenBucket bucket = new TokenBucket(10, 1, now::get);
+    bucket.reserve(0);
+
+    assertEquals(-1, bucket.reserve(50 * MS));
+    assertEquals(-1, bucket.reserve(0));
+    assertEquals(100 * MS, bucket.reserve(100 * MS));
+  }
+
+  @Test
+  @DisplayName("reserve should refill as time passes, but never beyond the burst")
+  void reserve_refillsUpToBurst() {
+    TokenBucket bucket = new TokenBucket(10, 2, now::get);
+    bucket.reserve(0);
+    bucket.reserve(0);
+    assertEquals(-1, bucket.reserve(0));
+
+    now.addAndGet(100 * MS);
+    assertEquals(0, bucket.reserve(0));
+    assertEquals(-1, bucket.reserve(0));
+
+    now.addAndGet(10_000 * MS);
+    assertEquals(0, bucket.reserve(0));
+    assertEquals(0, bucket.reserve(0));
+    assertEquals(-1, bucket.reserve(0));
+  }
+
+  @Test
+  @DisplayName("nextPermitNanos should report the wait without reserving")
+  void nextPermitNanos_doesNotReserve() {
+    TokenBucket bucket = new TokenBucket(10, 1, now::get);
+    bucket.reserve(0);
+
+    assertEquals(100 * MS, bucket.nextPermitNanos());
+    assertEquals(100 * MS, bucket.nextPermitNanos());
+  }
+
+  @Test
+  @DisplayName("The constructor should reject a non-positive rate or a burst below 1")
+  void constructor_rejectsInvalidSettings() {
+    assertThrows(IllegalArgumentException.class, () -> new TokenBucket(0, 1, now::get));
+    assertThrows(IllegalArgumentException.class, () -> new TokenBucket(Double.NaN, 1, now::get));
+    assertThrows(IllegalArgumentException.class, () -> new TokenBucket(10, 0, now::get));
+  }
+
+  @Test
+  @DisplayName("Concurrent callers should never get more immediate permits than the burst")
+  void reserve_concurrently_grantsExactlyTheBurst() throws Exception {
+    TokenBucket bucket = new TokenBucket(1, 50, now::get);
+    AtomicInteger granted = new AtomicInteger();
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+
+    for (int i = 0; i < 1000; i++) {
+      executor.execute(
+          () -> {
+            if (bucket.reserve(0) == 0) {
+              granted.incrementAndGet();
+            }
+          });
+    }
+    executor.shutdown();
+    assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+    assertEquals(50, granted.get());
+  }
+}
@@ -0,0 +1,38 @@
+package io.github.openpaydev.mpesa.stk;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class CheckoutStateTest {
+
+  @Test
+  @DisplayName("ResultCodes should map to their checkout states")
+  void ofResultCode_mapsKnownCodes() {
+    assertEquals(CheckoutState.SUCCESS, CheckoutState.ofResultCode(0));
+    assertEquals(CheckoutState.CANCELLED, CheckoutState.ofResultCode(1032));
+    assertEquals(CheckoutState.EXPIRED, CheckoutState.ofResultCode(1037));
+    assertEquals(CheckoutState.EXPIRED, CheckoutState.ofResultCode(1019));
+    assertEquals(CheckoutState.PENDING, CheckoutState.ofResultCode(4999));
+    assertEquals(CheckoutState.FAILED, CheckoutState.ofResultCode(1));
+    assertEquals(CheckoutState.FAILED, CheckoutState.ofResultCode(2001));
+  }
+
+  @Test
+  @DisplayName("A missing or unreadable ResultCode in a query response should mean pending")
+  void ofResultCode_stringWithoutResult_isPending() {
+    assertEquals(CheckoutState.SUCCESS, CheckoutState.ofResultCode("0"));
+    assertEquals(CheckoutState.CANCELLED, CheckoutState.ofResultCode(" 1032 "));
+    assertEquals(CheckoutState.PENDING, CheckoutState.ofResultCode((String) null));
+    assertEquals(CheckoutState.PENDING, CheckoutState.ofResultCode(""));
+  }
+
+  @Test
+  @DisplayName("Only PENDING should be non-terminal")
+  void isTerminal() {
+    for (CheckoutState state : CheckoutState.values()) {
+      assertEquals(state != CheckoutState.PENDING, state.isTerminal());
+    }
+  }
+}
@@ -0,0 +1,219 @@
+package io.github.openpaydev.mpesa.stk;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import io.github.openpaydev.mpesa.core.models.StkCallbackDetails;
+import io.github.openpaydev.mpesa.core.models.StkStatusQueryResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class PendingCheckoutIndexTest {
+
+  private final AtomicLong now = new AtomicLong(1_000);
+  private final PendingCheckoutIndex index =
+      new PendingCheckoutIndex(Duration.ofSeconds(60), Duration.ofSeconds(120), now::get);
+
+  @Test
+  @DisplayName("A tracked checkout should be pending with its order ID")
+  void track_storesPendingOrder() {
+    assertTrue(index.track("ws_CO_1", 42));
+
+    assertEquals(CheckoutState.PENDING, index.state("ws_CO_1"));
+    assertEquals(42, index.orderId("ws_CO_1"));
+    assertEquals(1, index.size());
+    assertNull(index.state("ws_CO_2"));
+    assertEquals(PendingCheckoutIndex.NO_ORDER, index.orderId("ws_CO_2"));
+  }
+
+  @Test
+  @DisplayName("Tracking a checkout twice should keep the first order ID")
+  void track_duplicate_keepsFirstEntry() {
+    assertTrue(index.track("ws_CO_1", 42));
+    assertFalse(index.track("ws_CO_1", 43));
+
+    assertEquals(42, index.orderId("ws_CO_1"));
+    assertEquals(1, index.size());
+  }
+
+  @Test
+  @DisplayName("NO_ORDER should be rejected as an order ID")
+  void track_noOrder_throws() {
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> index.track("ws_CO_1", PendingCheckoutIndex.NO_ORDER));
+  }
+
+  @Test
+  @DisplayName("Only the first resolution of a checkout should get its order ID")
+  void resolve_firstWins() {
+    index.track("ws_CO_1", 42);
+
+    assertEquals(42, index.resolve("ws_CO_1", CheckoutState.SUCCESS));
+    assertEquals(PendingCheckoutIndex.NO_ORDER, index.resolve("ws_CO_1", CheckoutState.FAILED));
+    assertEquals(PendingCheckoutIndex.NO_ORDER, index.resolve("ws_CO_1", CheckoutState.SUCCESS));
+    assertEquals(PendingCheckoutIndex.NO_ORDER, index.resolve("ws_CO_2", CheckoutState.SUCCESS));
+    assertEquals(CheckoutState.SUCCESS, index.state("ws_CO_1"));
+    assertThrows(
+        IllegalArgumentException.class, () -> index.resolve("ws_CO_1", CheckoutState.PENDING));
+  }
+
+  @Test
+  @DisplayName("Callbacks, status responses and poll results should resolve their checkouts")
+  void resultFeeds_resolveCheckouts() {
+    index.track("ws_CO_1", 1);
+    index.track("ws_CO_2", 2);
+    index.track("ws_CO_3", 3);
+
+    assertEquals(
+        1,
+        index.onCallback(
+            StkCallbackDetails.builder().checkoutRequestID("ws_CO_1").resultCode(1032).build()));
+    assertEquals(PendingCheckoutIndex.NO_ORDER, index.onStatus(status("ws_CO_2", "4999")));
+    assertEquals(CheckoutState.PENDING, index.state("ws_CO_2"));
+    assertEquals(2, index.onStatus(status("ws_CO_2", "0")));
+    assertEquals(
+        3,
+        index.onPollResult(new StkPollResult("ws_CO_3", CheckoutState.FAILED, "1", "Failed", 2)));
+
+    assertEquals(CheckoutState.CANCELLED, index.state("ws_CO_1"));
+    assertEquals(CheckoutState.SUCCESS, index.state("ws_CO_2"));
+    assertEquals(CheckoutState.FAILED, index.state("ws_CO_3"));
+  }
+
+  @Test
+  @DisplayName("An overdue pending checkout should expire but still take a late result")
+  void evictExpired_expiresPendingAndAcceptsLateResult() {
+    index.track("ws_CO_1", 1);
+    index.track("ws_CO_2", 2);
+    index.resolve("ws_CO_2", CheckoutState.SUCCESS);
+    List<Long> expired = new ArrayList<>();
+
+    now.addAndGet(30_000);
+    assertEquals(0, index.evictExpired(expired::add));
+    now.addAndGet(31_000);
+    assertEquals(1, index.evictExpired(expired::add));
+
+    assertEquals(List.of(1L), expired);
+    assertEquals(CheckoutState.EXPIRED, index.state("ws_CO_1"));
+    assertEquals(1, index.resolve("ws_CO_1", CheckoutState.SUCCESS));
+    assertEquals(PendingCheckoutIndex.NO_ORDER, index.resolve("ws_CO_1", CheckoutState.FAILED));
+    assertEquals(2, index.size());
+  }
+
+  @Test
+  @DisplayName("A resolved checkout should be forgotten after its retention")
+  void evictExpired_forgetsResolvedAfterRetention() {
+    index.track("ws_CO_1", 1);
+    index.resolve("ws_CO_1", CheckoutState.FAILED);
+
+    now.addAndGet(119_000);
+    index.evictExpired();
+    assertEquals(CheckoutState.FAILED, index.state("ws_CO_1"));
+    now.addAndGet(2_000);
+    index.evictExpired();
+
+    assertNull(index.state("ws_CO_1"));
+    assertEquals(0, index.size());
+    assertTrue(index.track("ws_CO_1", 7));
+    assertEquals(7, index.orderId("ws_CO_1"));
+  }
+
+  @Test
+  @DisplayName("A hundred thousand checkouts should be tracked, resolved and evicted")
+  void track_manyCheckouts_growsAndShrinks() {
+    for (int i = 0; i < 100_000; i++) {
+      assertTrue(index.track("ws_CO_" + i, i));
+    }
+    assertEquals(100_000, index.size());
+    for (int i = 0; i < 100_000; i++) {
+      assertEquals(i, index.resolve("ws_CO_" + i, CheckoutState.SUCCESS));
+    }
+
+    now.addAndGet(121_000);
+    index.evictExpired();
+    assertEquals(0, index.size());
+    for (int i = 0; i < 1_000; i++) {
+      assertTrue(index.track("ws_CO_" + i, i));
+    }
+    assertEquals(999, index.orderId("ws_CO_999"));
+  }
+
+  @Test
+  @DisplayName("Racing resolutions of a checkout should have exactly one winner")
+  void resolve_concurrently_hasOneWinnerPerCheckout() throws Exception {
+    int checkouts = 20_000;
+    int resolvers = 4;
+    for (int i = 0; i < checkouts; i++) {
+      index.track("ws_CO_" + i, i);
+    }
+    AtomicIntegerArray wins = new AtomicIntegerArray(checkouts);
+    ExecutorService executor = Executors.newFixedThreadPool(resolvers + 1);
+    CountDownLatch start = new CountDownLatch(1);
+    List<Future<?>> tasks = new ArrayList<>();
+    try {
+      // Keeps tracking new checkouts, growing the segments under the resolvers.
+      tasks.add(
+          executor.submit(
+              () -> {
+                start.await();
+                for (int i = 0; i < 100_000; i++) {
+                  index.track("ws_CO_new_" + i, -i - 1);
+                }
+                return null;
+              }));
+      for (int r = 0; r < resolvers; r++) {
+        CheckoutState state = r % 2 == 0 ? CheckoutState.SUCCESS : CheckoutState.FAILED;
+        tasks.add(
+            executor.submit(
+                () -> {
+                  start.await();
+                  for (int i = 0; i < checkouts; i++) {
+                    long orderId = index.resolve("ws_CO_" + i, state);
+                    if (orderId != PendingCheckoutIndex.NO_ORDER) {
+                      wins.incrementAndGet((int) orderId);
+                    }
+                  }
+                  return null;
+                }));
+      }
+      start.countDown();
+      for (Future<?> task : tasks) {
+        task.get(30, TimeUnit.SECONDS);
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+
+    for (int i = 0; i < checkouts; i++) {
+      assertEquals(1, wins.get(i), "wins for ws_CO_" + i);
+    }
+    assertEquals(checkouts + 100_000, index.size());
+    assertEquals(-100_000, index.orderId("ws_CO_new_99999"));
+  }
+
+  @Test
+  @DisplayName("The two key hashes should differ for the same ID and spread similar IDs")
+  void hashes_areIndependent() {
+    assertNotEquals(PendingCheckoutIndex.hash1("ws_CO_1"), PendingCheckoutIndex.hash2("ws_CO_1"));
+    assertNotEquals(PendingCheckoutIndex.hash1("ws_CO_1"), PendingCheckoutIndex.hash1("ws_CO_2"));
+    assertNotEquals(PendingCheckoutIndex.hash2("ws_CO_1"), PendingCheckoutIndex.hash2("ws_CO_2"));
+  }
+
+  private static StkStatusQueryResponse status(String checkoutRequestID, String resultCode) {
+    return StkStatusQueryResponse.builder()
+        .checkoutRequestID(checkoutRequestID)
+        .responseCode("0")
+        .resultCode(resultCode)
+        .build();
+  }
+}
@@ -0,0 +1,259 @@
+package io.github.openpaydev.mpesa.stk;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import io.github.openpaydev.mpesa.core.exceptions.MpesaApiException;
+import io.github.openpaydev.mpesa.core.exceptions.MpesaException;
+import io.github.openpaydev.mpesa.core.models.StkCallbackDetails;
+import io.github.openpaydev.mpesa.core.models.StkPushRequest;
+import io.github.openpaydev.mpesa.core.models.StkPushResponse;
+import io.github.openpaydev.mpesa.core.models.StkStatusQueryResponse;
+import io.github.openpaydev.mpesa.core.service.StkPushService;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class StkStatusPollerTest {
+
+  private static final StkPollPolicy FAST_POLLS =
+      StkPollPolicy.builder()
+          .initialDelay(Duration.ofMillis(1))
+          .initialInterval(Duration.ofMillis(1))
+          .maxInterval(Duration.ofMillis(5))
+          .expireAfter(Duration.ofSeconds(5))
+          .build();
+
+  private final List<StkStatusPoller> pollers = new ArrayList<>();
+
+  @AfterEach
+  void tearDown() {
+    pollers.forEach(StkStatusPoller::close);
+  }
+
+  @Test
+  @DisplayName("A checkout should be polled through pending answers until its final result")
+  void track_pollsUntilFinalResult() throws Exception {
+    Queue<CompletableFuture<StkStatusQueryResponse>> answers = new ConcurrentLinkedQueue<>();
+    answers.add(CompletableFuture.completedFuture(result("4999", "Still under processing")));
+    answers.add(
+        CompletableFuture.failedFuture(
+            new MpesaApiException("API call failed", 500, "{\"errorCode\":\"500.001.1001\"}")));
+    answers.add(CompletableFuture.failedFuture(new MpesaException("x", new IOException("reset"))));
+    answers.add(CompletableFuture.completedFuture(result("0", "Processed successfully")));
+    FakeService service = new FakeService(id -> answers.poll());
+
+    StkPollResult result = poller(service, FAST_POLLS).track("ws_CO_1").get(5, TimeUnit.SECONDS);
+
+    assertEquals("ws_CO_1", result.getCheckoutRequestID());
+    assertEquals(CheckoutState.SUCCESS, result.getState());
+    assertEquals("0", result.getResultCode());
+    assertEquals("Processed successfully", result.getResultDesc());
+    assertEquals(4, result.getPolls());
+    assertEquals(4, service.calls.get());
+  }
+
+  @Test
+  @DisplayName("A checkout without a final result by expireAfter should expire")
+  void track_whenNoFinalResultInTime_expires() throws Exception {
+    FakeService service =
+        new FakeService(id -> CompletableFuture.completedFuture(result("4999", "Processing")));
+    StkPollPolicy policy = FAST_POLLS.toBuilder().expireAfter(Duration.ofMillis(50)).build();
+
+    StkPollResult result = poller(service, policy).track("ws_CO_1").get(5, TimeUnit.SECONDS);
+
+    assertEquals(CheckoutState.EXPIRED, result.getState());
+    assertNull(result.getResultCode());
+    assertTrue(result.getPolls() > 1);
+  }
+
+  @Test
+  @DisplayName("A query Daraja rejects outright should fail the checkout's future")
+  void track_whenQueryIsRejected_fails() {
+    FakeService service =
+        new FakeService(
+            id ->
+                CompletableFuture.failedFuture(
+                    new MpesaApiException("API call failed", 400, "Invalid CheckoutRequestID")));
+
+    CompletableFuture<StkPollResult> future = poller(service, FAST_POLLS).track("bogus");
+
+    ExecutionException exception =
+        assertThrows(ExecutionException.class, () -> future.get(5, TimeUnit.SECONDS));
+    assertEquals(400, ((MpesaApiException) exception.getCause()).getStatusCode());
+    assertEquals(1, service.calls.get());
+  }
+
+  @Test
+  @DisplayName("No more than maxConcurrentPolls queries should be in flight")
+  void track_boundsConcurrentQueries() throws Exception {
+    Queue<CompletableFuture<StkStatusQueryResponse>> held = new ConcurrentLinkedQueue<>();
+    FakeService service =
+        new FakeService(
+            id -> {
+              CompletableFuture<StkStatusQueryResponse> query = new CompletableFuture<>();
+              held.add(query);
+              return query;
+            });
+    StkStatusPoller poller = poller(service, FAST_POLLS.toBuilder().maxConcurrentPolls(3).build());
+    List<CompletableFuture<StkPollResult>> results = new ArrayList<>();
+    for (int i = 0; i < 10; i++) {
+      results.add(poller.track("ws_CO_" + i));
+    }
+
+    int answered = 0;
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+    while (answered < 10 && System.nanoTime() < deadline) {
+      CompletableFuture<StkStatusQueryResponse> query = held.poll();
+      if (query == null) {
+        Thread.sleep(5);
+        continue;
+      }
+      int outstanding = service.calls.get() - answered;
+      assertTrue(outstanding <= 3, "queries in flight: " + outstanding);
+      assertTrue(poller.getInFlightCount() <= 3);
+      query.complete(result("1", "The balance is insufficient for the transaction."));
+      answered++;
+    }
+
+    for (CompletableFuture<StkPollResult> result : results) {
+      assertEquals(CheckoutState.FAILED, result.get(5, TimeUnit.SECONDS).getState());
+    }
+    assertEquals(10, service.calls.get());
+  }
+
+  @Test
+  @DisplayName("A callback should complete a tracked checkout without querying it")
+  void onCallback_completesTrackedCheckout() throws Exception {
+    FakeService service = new FakeService(id -> new CompletableFuture<>());
+    StkStatusPoller poller =
+        poller(service, FAST_POLLS.toBuilder().initialDelay(Duration.ofHours(1)).build());
+    CompletableFuture<StkPollResult> future = poller.track("ws_CO_1");
+
+    boolean resolved =
+        poller.onCallback(
+            StkCallbackDetails.builder()
+                .checkoutRequestID("ws_CO_1")
+                .resultCode(1032)
+                .resultDesc("Request cancelled by user")
+                .build());
+
+    assertTrue(resolved);
+    StkPollResult result = future.get(5, TimeUnit.SECONDS);
+    assertEquals(CheckoutState.CANCELLED, result.getState());
+    assertEquals("1032", result.getResultCode());
+    assertEquals(0, result.getPolls());
+    assertEquals(0, poller.getTrackedCount());
+    assertFalse(
+        poller.onCallback(
+            StkCallbackDetails.builder().checkoutRequestID("ws_CO_2").resultCode(0).build()));
+    assertEquals(0, service.calls.get());
+  }
+
+  @Test
+  @DisplayName("Tracking a checkout twice should return the same future")
+  void track_sameCheckoutTwice_returnsSameFuture() {
+    StkStatusPoller poller =
+        poller(
+            new FakeService(id -> new CompletableFuture<>()),
+            FAST_POLLS.toBuilder().initialDelay(Duration.ofHours(1)).build());
+
+    assertSame(poller.track("ws_CO_1"), poller.track("ws_CO_1"));
+    assertEquals(1, poller.getTrackedCount());
+  }
+
+  @Test
+  @DisplayName("A hundred thousand checkouts should be tracked and resolved")
+  void track_manyCheckouts_resolvesAll() throws Exception {
+    FakeService service =
+        new FakeService(id -> CompletableFuture.completedFuture(result("0", "Processed")));
+    StkStatusPoller poller = poller(service, FAST_POLLS.toBuilder().maxConcurrentPolls(64).build());
+    List<CompletableFuture<StkPollResult>> results = new ArrayList<>();
+
+    for (int i = 0; i < 100_000; i++) {
+      results.add(poller.track("ws_CO_" + i));
+    }
+    CompletableFuture.allOf(results.toArray(new CompletableFuture<?>[0])).get(30, TimeUnit.SECONDS);
+
+    assertEquals(100_000, service.calls.get());
+    assertEquals(0, poller.getTrackedCount());
+    assertEquals(0, poller.getInFlightCount());
+  }
+
+  @Test
+  @DisplayName("close should cancel every tracked checkout")
+  void close_cancelsTrackedCheckouts() {
+    StkStatusPoller poller =
+        new StkStatusPoller(
+            new FakeService(id -> new CompletableFuture<>()),
+            FAST_POLLS.toBuilder().initialDelay(Duration.ofHours(1)).build());
+    CompletableFuture<StkPollResult> future = poller.track("ws_CO_1");
+
+    poller.close();
+
+    assertThrows(CancellationException.class, future::join);
+    assertThrows(IllegalStateException.class, () -> poller.track("ws_CO_2"));
+  }
+
+  @Test
+  @DisplayName("isStillPending should keep polling through 500s and transient failures only")
+  void isStillPending_classifiesFailures() {
+    assertTrue(StkStatusPoller.isStillPending(new MpesaApiException("x", 500, "{}")));
+    assertTrue(StkStatusPoller.isStillPending(new MpesaApiException("x", 503, "{}")));
+    assertTrue(StkStatusPoller.isStillPending(new MpesaApiException("x", 429, "{}")));
+    assertTrue(StkStatusPoller.isStillPending(new MpesaException("x", new IOException("reset"))));
+    assertFalse(StkStatusPoller.isStillPending(new MpesaApiException("x", 400, "{}")));
+    assertFalse(StkStatusPoller.isStillPending(new IllegalStateException("bug")));
+  }
+
+  private StkStatusPoller poller(StkPushService service, StkPollPolicy policy) {
+    StkStatusPoller poller = new StkStatusPoller(service, policy);
+    pollers.add(poller);
+    return poller;
+  }
+
+  private static StkStatusQueryResponse result(String resultCode, String resultDesc) {
+    return StkStatusQueryResponse.builder()
+        .responseCode("0")
+        .resultCode(resultCode)
+        .resultDesc(resultDesc)
+        .build();
+  }
+
+  /** Answers status queries from a function and counts them. */
+  private static final class FakeService implements StkPushService {
+    private final Function<String, CompletableFuture<StkStatusQueryResponse>> answers;
+    private final AtomicInteger calls = new AtomicInteger();
+
+    private FakeService(Function<String, CompletableFuture<StkStatusQueryResponse>> answers) {
+      this.answers = answers;
+    }
+
+    @Override
+    public StkPushResponse stkPush(StkPushRequest request) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public StkStatusQueryResponse queryStkStatus(String checkoutRequestID) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public CompletableFuture<StkStatusQueryResponse> queryStkStatusAsync(String checkoutRequestID) {
+      calls.incrementAndGet();
+      return answers.apply(checkoutRequestID);
+    }
+  }
+}
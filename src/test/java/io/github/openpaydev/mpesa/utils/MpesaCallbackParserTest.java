@@ -3,14 +3,51 @@ package io.github.openpaydev.mpesa.utils;
 import static org.junit.jupiter.api.Assertions.*;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.github.openpaydev.mpesa.core.codec.MpesaCodecs;
 import io.github.openpaydev.mpesa.core.models.StkCallback;
+import io.github.openpaydev.mpesa.core.models.StkCallbackDetails;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 
 class MpesaCallbackParserTest {
 
+  private static final String SUCCESS_JSON_WITH_EXTRAS =
+      new StringBuilder()
+          .append("{\n")
+          .append("  \"Body\": {\n")
+          .append("    \"Unknown\": [1, {\"deep\": null}],\n")
+          .append("    \"stkCallback\": {\n")
+          .append("      \"MerchantRequestID\": \"12345-67890-1\",\n")
+          .append("      \"CheckoutRequestID\": \"ws_CO_0123456789_ABCDEF\",\n")
+          .append("      \"ResultCode\": \"1032\",\n")
+          .append("      \"ResultDesc\": \"Request cancelled by user\",\n")
+          .append("      \"CallbackMetadata\": {\n")
+          .append("        \"Item\": [\n")
+          .append("          {\"Name\": \"Amount\", \"Value\": 1.00},\n")
+          .append("          {\"Name\": \"MpesaReceiptNumber\", \"Value\": \"QWERTY12345\"},\n")
+          .append("          {\"Name\": \"TransactionDate\", \"Value\": 20250906123045},\n")
+          .append("          {\"Name\": \"Count\", \"Value\": 7, \"Extra\": {}},\n")
+          .append("          {\"Name\": \"Balance\"},\n")
+          .append("          {\"Name\": \"Custom\", \"Value\": {\"nested\": [true, \"x\"]}}\n")
+          .append("        ]\n")
+          .append("      }\n")
+          .append("    }\n")
+          .append("  }\n")
+          .append("}")
+          .toString();
+
   @Test
   @DisplayName("Should parse a successful transaction callback JSON correctly")
   void parse_shouldSucceed_forSuccessfulTransaction() throws JsonProcessingException {
@@ -137,10 +174,20 @@ class MpesaCallbackParserTest {
     assertThrows(JsonProcessingException.class, () -> MpesaCallbackParser.parse(malformedJson));
   }
 
+  @Test
+  @DisplayName("Should parse with the supplied codecs")
+  void parse_withCodecs_matchesDefaultParse() throws JsonProcessingException {
+    MpesaCodecs codecs = MpesaCodecs.of(new ObjectMapper());
+
+    StkCallback callback = MpesaCallbackParser.parse(SUCCESS_JSON_WITH_EXTRAS, codecs);
+
+    assertEquals(MpesaCallbackParser.parse(SUCCESS_JSON_WITH_EXTRAS), callback);
+  }
+
   @Test
   @DisplayName("Should throw IllegalArgumentException for null input")
   void parse_shouldThrowIllegalArgumentException_forNullInput() {
-    assertThrows(IllegalArgumentException.class, () -> MpesaCallbackParser.parse(null));
+    assertThrows(IllegalArgumentException.class, () -> MpesaCallbackParser.parse((String) null));
   }
 
   @Test
@@ -149,6 +196,170 @@ class MpesaCallbackParserTest {
     assertThrows(JsonProcessingException.class, () -> MpesaCallbackParser.parse(""));
   }
 
+  @Test
+  @DisplayName("Streaming overloads should produce the same callback as the String overload")
+  void parse_streamingOverloads_matchStringOverload() throws IOException {
+    byte[] bytes = SUCCESS_JSON_WITH_EXTRAS.getBytes(StandardCharsets.UTF_8);
+    StkCallback expected = MpesaCallbackParser.parse(SUCCESS_JSON_WITH_EXTRAS);
+
+    ByteBuffer direct = ByteBuffer.allocateDirect(bytes.length).put(bytes).flip();
+    byte[] padded = new byte[bytes.length + 4];
+    System.arraycopy(bytes, 0, padded, 2, bytes.length);
+    ByteBuffer slice = ByteBuffer.wrap(padded, 2, bytes.length);
+
+    assertEquals(expected, MpesaCallbackParser.parse(bytes));
+    assertEquals(expected, MpesaCallbackParser.parse(direct));
+    assertEquals(expected, MpesaCallbackParser.parse(slice));
+    assertEquals(expected, MpesaCallbackParser.parse(new ByteArrayInputStream(bytes)));
+
+    assertEquals(0, direct.position(), "The buffer position should be left unchanged.");
+    assertEquals(2, slice.position(), "The buffer position should be left unchanged.");
+  }
+
+  @Test
+  @DisplayName("Streaming parse should bind item values like databind binds an untyped Object")
+  void parse_bytes_bindsItemValueTypes() throws JsonProcessingException {
+    StkCallback callback =
+        MpesaCallbackParser.parse(SUCCESS_JSON_WITH_EXTRAS.getBytes(StandardCharsets.UTF_8));
+    StkCallback.StkCallbackData data = callback.getBody().getStkCallback();
+    StkCallback.CallbackItem[] items = data.getCallbackMetadata().getItems();
+
+    assertEquals(1032, data.getResultCode(), "A numeric string ResultCode should be coerced.");
+    assertEquals(Double.valueOf(1.0), items[0].getValue());
+    assertEquals("QWERTY12345", items[1].getValue());
+    assertEquals(Long.valueOf(20250906123045L), items[2].getValue());
+    assertEquals(Integer.valueOf(7), items[3].getValue());
+    assertNull(items[4].getValue(), "An item without a Value should bind to null.");
+    assertEquals(Map.of("nested", List.of(true, "x")), items[5].getValue());
+  }
+
+  @Test
+  @DisplayName("Should not close the InputStream it reads from")
+  void parse_inputStream_leavesStreamOpen() throws IOException {
+    AtomicBoolean closed = new AtomicBoolean();
+    InputStream stream =
+        new ByteArrayInputStream(SUCCESS_JSON_WITH_EXTRAS.getBytes(StandardCharsets.UTF_8)) {
+          @Override
+          public void close() {
+            closed.set(true);
+          }
+        };
+
+    assertNotNull(MpesaCallbackParser.parse(stream));
+    assertFalse(closed.get());
+  }
+
+  @Test
+  @DisplayName("Streaming overloads should reject null, empty and malformed input")
+  void parse_streamingOverloads_rejectInvalidInput() {
+    assertThrows(IllegalArgumentException.class, () -> MpesaCallbackParser.parse((byte[]) null));
+    assertThrows(
+        IllegalArgumentException.class, () -> MpesaCallbackParser.parse((ByteBuffer) null));
+    assertThrows(
+        IllegalArgumentException.class, () -> MpesaCallbackParser.parse((InputStream) null));
+
+    assertThrows(JsonProcessingException.class, () -> MpesaCallbackParser.parse(new byte[0]));
+    byte[] malformed = "{\"Body\": {\"stkCallback\": {\"ResultCode\": 0,}}}".getBytes();
+    assertThrows(JsonProcessingException.class, () -> MpesaCallbackParser.parse(malformed));
+    byte[] mistyped = "{\"Body\": []}".getBytes();
+    assertThrows(JsonProcessingException.class, () -> MpesaCallbackParser.parse(mistyped));
+  }
+
+  @Test
+  @DisplayName("parseDetails should decode the well-known items into typed fields")
+  void parseDetails_decodesKnownItems() throws IOException {
+    String json =
+        "{\"Body\": {\"stkCallback\": {"
+            + "\"MerchantRequestID\": \"12345-67890-1\","
+            + "\"CheckoutRequestID\": \"ws_CO_0123456789_ABCDEF\","
+            + "\"ResultCode\": 0,"
+            + "\"ResultDesc\": \"The service request is processed successfully.\","
+            + "\"CallbackMetadata\": {\"Item\": ["
+            + "{\"Name\": \"Amount\", \"Value\": 1.00},"
+            + "{\"Name\": \"MpesaReceiptNumber\", \"Value\": \"QWERTY12345\"},"
+            + "{\"Name\": \"Balance\"},"
+            + "{\"Name\": \"TransactionDate\", \"Value\": 20250906123045},"
+            + "{\"Name\": \"PhoneNumber\", \"Value\": 254712345678}"
+            + "]}}}}";
+    byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+
+    StkCallbackDetails details = MpesaCallbackParser.parseDetails(bytes);
+
+    assertTrue(details.isSuccessful());
+    assertEquals("12345-67890-1", details.getMerchantRequestID());
+    assertEquals("ws_CO_0123456789_ABCDEF", details.getCheckoutRequestID());
+    assertEquals("The service request is processed successfully.", details.getResultDesc());
+    assertEquals(100, details.getAmount());
+    assertEquals("QWERTY12345", details.getMpesaReceiptNumber());
+    long transactionDate = Instant.parse("2025-09-06T09:30:45Z").toEpochMilli();
+    assertEquals(transactionDate, details.getTransactionDate());
+    assertEquals(254712345678L, details.getPhoneNumber());
+    assertEquals(1, details.getOtherItems().length, "Unknown items should stay reachable.");
+    assertEquals("Balance", details.getOtherItems()[0].getName());
+
+    assertEquals(details, MpesaCallbackParser.parseDetails(json));
+    assertEquals(details, MpesaCallbackParser.parseDetails(ByteBuffer.wrap(bytes)));
+    assertEquals(details, MpesaCallbackParser.parseDetails(new ByteArrayInputStream(bytes)));
+  }
+
+  @Test
+  @DisplayName("parseDetails should leave the typed fields empty for a cancelled transaction")
+  void parseDetails_withoutMetadata_hasNoValues() throws JsonProcessingException {
+    String json =
+        "{\"Body\": {\"stkCallback\": {\"ResultCode\": 1032,"
+            + " \"ResultDesc\": \"Request cancelled by user\"}}}";
+
+    StkCallbackDetails details = MpesaCallbackParser.parseDetails(json);
+
+    assertFalse(details.isSuccessful());
+    assertEquals(1032, details.getResultCode());
+    assertFalse(details.hasAmount());
+    assertFalse(details.hasTransactionDate());
+    assertFalse(details.hasPhoneNumber());
+    assertNull(details.getMpesaReceiptNumber());
+    assertEquals(0, details.getOtherItems().length);
+  }
+
+  @Test
+  @DisplayName("parseDetails should decode items whose Value precedes their Name")
+  void parseDetails_withValueBeforeName_decodesItem() throws JsonProcessingException {
+    String json =
+        "{\"Body\": {\"stkCallback\": {\"ResultCode\": 0, \"CallbackMetadata\": {\"Item\": ["
+            + "{\"Value\": 2500.5, \"Name\": \"Amount\"},"
+            + "{\"Value\": \"254712345678\", \"Name\": \"PhoneNumber\"}"
+            + "]}}}}";
+
+    StkCallbackDetails details = MpesaCallbackParser.parseDetails(json);
+
+    assertEquals(250050, details.getAmount());
+    assertEquals(254712345678L, details.getPhoneNumber());
+    assertEquals(0, details.getOtherItems().length);
+  }
+
+  @Test
+  @DisplayName("parseDetails should keep a known item it cannot decode in the other items")
+  void parseDetails_withUndecodableValue_keepsItem() throws JsonProcessingException {
+    String json =
+        "{\"Body\": {\"stkCallback\": {\"ResultCode\": 0, \"CallbackMetadata\": {\"Item\": ["
+            + "{\"Name\": \"TransactionDate\", \"Value\": \"yesterday\"}"
+            + "]}}}}";
+
+    StkCallbackDetails details = MpesaCallbackParser.parseDetails(json);
+
+    assertFalse(details.hasTransactionDate());
+    assertEquals("TransactionDate", details.getOtherItems()[0].getName());
+    assertEquals("yesterday", details.getOtherItems()[0].getValue());
+  }
+
+  @Test
+  @DisplayName("parseDetails should reject a document without an stkCallback object")
+  void parseDetails_withoutStkCallback_throwsJsonProcessingException() {
+    assertThrows(
+        JsonProcessingException.class, () -> MpesaCallbackParser.parseDetails("{\"Body\": {}}"));
+    assertThrows(
+        IllegalArgumentException.class, () -> MpesaCallbackParser.parseDetails((String) null));
+  }
+
   @Test
   @DisplayName("Should not be able to instantiate the utility class")
   void constructor_shouldBePrivateAndThrowException() throws NoSuchMethodException {
@@ -0,0 +1,77 @@
+package io.github.openpaydev.mpesa.utils;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import io.github.openpaydev.mpesa.core.models.StkCallbackDetails;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.junit.jupiter.params.provider.ValueSource;
+
+class StkCallbackReaderTest {
+
+  @ParameterizedTest
+  @CsvSource({
+    "1, 100",
+    "1.00, 100",
+    "1.5, 150",
+    "0.01, 1",
+    "12.345, 1235",
+    "12.344, 1234",
+    "-2.5, -250"
+  })
+  @DisplayName("Should convert decimal amounts to minor units, rounding half up")
+  void parseMinorUnits_convertsDecimalAmounts(String text, long expected) {
+    assertEquals(expected, StkCallbackReader.parseMinorUnits(text.toCharArray(), 0, text.length()));
+  }
+
+  @ParameterizedTest
+  @ValueSource(strings = {"", "-", ".5", "1.", "1e3", "1,00", "abc", "12345678901234567"})
+  @DisplayName("Should reject amounts that are not plain decimal numbers")
+  void parseMinorUnits_rejectsNonDecimalText(String text) {
+    assertEquals(
+        StkCallbackDetails.NO_VALUE,
+        StkCallbackReader.parseMinorUnits(text.toCharArray(), 0, text.length()));
+  }
+
+  @Test
+  @DisplayName("Should read an amount from the middle of a character buffer")
+  void parseMinorUnits_honoursOffsetAndLength() {
+    char[] buffer = "xx42.10yy".toCharArray();
+    assertEquals(4210, StkCallbackReader.parseMinorUnits(buffer, 2, 5));
+  }
+
+  @ParameterizedTest
+  @ValueSource(strings = {"20250906123045", "20240229000000", "19991231235959", "20250101000000"})
+  @DisplayName("Should convert M-Pesa timestamps in East Africa Time to epoch milliseconds")
+  void parseTransactionDate_matchesJavaTime(String text) {
+    long expected =
+        LocalDateTime.parse(text, DateTimeFormatter.ofPattern("yyyyMMddHHmmss"))
+            .toInstant(ZoneOffset.ofHours(3))
+            .toEpochMilli();
+
+    assertEquals(
+        expected, StkCallbackReader.parseTransactionDate(text.toCharArray(), 0, text.length()));
+  }
+
+  @ParameterizedTest
+  @ValueSource(
+      strings = {
+        "2025090612304",
+        "202509061230450",
+        "20250230123045",
+        "20251306123045",
+        "20250906243045",
+        "2025O906123045"
+      })
+  @DisplayName("Should reject malformed or impossible timestamps")
+  void parseTransactionDate_rejectsInvalidTimestamps(String text) {
+    assertEquals(
+        StkCallbackDetails.NO_VALUE,
+        StkCallbackReader.parseTransactionDate(text.toCharArray(), 0, text.length()));
+  }
+}